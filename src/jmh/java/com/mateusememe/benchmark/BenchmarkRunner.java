@@ -0,0 +1,29 @@
+package com.mateusememe.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code target/benchmarks.jar}. Accepts the usual JMH command
+ * line (benchmark regexps, {@code -p}, {@code -f}, {@code -prof}, ...) and
+ * enables the GC profiler unless other profilers were requested, so every run
+ * reports allocation rates ({@code gc.alloc.rate.norm} is bytes per operation)
+ * next to the timings.
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (commandLine.getProfilers().isEmpty())
+            options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,70 @@
+package com.mateusememe.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mateusememe.domain.entity.Indexer;
+
+/**
+ * Measures {@link Indexer#insert(String, byte[])} over a whole synthetic
+ * corpus, followed by the final {@link Indexer#freeze()}. The corpus is
+ * generated once per trial so only tokenizing and posting construction are
+ * timed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndexingBenchmark {
+    @Param("2000")
+    public int files;
+
+    @Param("50000")
+    public int vocabulary;
+
+    @Param({ "0.8", "1.1" })
+    public double skew;
+
+    @Param("300")
+    public int wordsPerFile;
+
+    @Param({ "false", "true" })
+    public boolean positions;
+
+    private String[] names;
+    private byte[][] contents;
+
+    @Setup
+    public void generate() {
+        SyntheticCorpus corpus = new SyntheticCorpus(files, vocabulary, skew, wordsPerFile, 42);
+        names = new String[files];
+        contents = new byte[files][];
+        for (int i = 0; i < files; i++) {
+            names[i] = corpus.name(i);
+            contents[i] = corpus.content(i).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public Indexer insertCorpus() {
+        Indexer indexer = new Indexer(positions);
+        for (int i = 0; i < names.length; i++)
+            indexer.insert(names[i], contents[i]);
+        indexer.freeze();
+        return indexer;
+    }
+}
@@ -0,0 +1,104 @@
+package com.mateusememe.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mateusememe.domain.entity.Indexer;
+
+/**
+ * Measures conjunctive search and {@link Indexer#countOccurrences} on a frozen
+ * index built from a synthetic corpus.
+ * <p>
+ * Queries are made of {@code terms} terms of the given {@code frequency}:
+ * {@code COMMON} takes the most frequent terms, {@code RARE} terms found in
+ * only a handful of documents and {@code MIXED} one rare term followed by
+ * common ones, which is where rarest-first intersection pays off.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    /**
+     * Frequency class of the query terms.
+     */
+    public enum Frequency {
+        RARE, COMMON, MIXED
+    }
+
+    @Param("2000")
+    public int files;
+
+    @Param("50000")
+    public int vocabulary;
+
+    @Param("1.1")
+    public double skew;
+
+    @Param({ "1", "2", "3" })
+    public int terms;
+
+    @Param({ "RARE", "COMMON", "MIXED" })
+    public Frequency frequency;
+
+    private Indexer indexer;
+    private String[] query;
+    private String matchingFile;
+
+    @Setup
+    public void build() {
+        SyntheticCorpus corpus = new SyntheticCorpus(files, vocabulary, skew, 300, 42);
+        indexer = new Indexer(true);
+        for (int i = 0; i < corpus.size(); i++)
+            indexer.insert(corpus.name(i), corpus.content(i));
+        indexer.freeze();
+
+        List<String> rare = new ArrayList<>();
+        int rareLimit = Math.max(2, files / 200);
+        indexer.forEachTerm((term, postings) -> {
+            if (postings.size() >= 2 && postings.size() <= rareLimit)
+                rare.add(term);
+        });
+        rare.sort(null);
+
+        query = new String[terms];
+        for (int i = 0; i < terms; i++) {
+            boolean pickRare = frequency == Frequency.RARE || (frequency == Frequency.MIXED && i == 0);
+            query[i] = pickRare ? rare.get(i * 7 % rare.size()) : SyntheticCorpus.term(i);
+        }
+
+        Set<String> first = indexer.search(new String[] { query[0] });
+        matchingFile = first.isEmpty() ? corpus.name(0) : first.iterator().next();
+    }
+
+    @Benchmark
+    public Set<String> search() {
+        return indexer.search(query);
+    }
+
+    @Benchmark
+    public int[] searchIds() {
+        return indexer.searchIds(query);
+    }
+
+    @Benchmark
+    public int countOccurrences() {
+        return indexer.countOccurrences(matchingFile, query);
+    }
+}
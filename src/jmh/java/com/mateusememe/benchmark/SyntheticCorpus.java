@@ -0,0 +1,114 @@
+package com.mateusememe.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Deterministic generator of movie-like text files whose word frequencies
+ * follow a Zipf distribution, so benchmarks exercise both very common and
+ * very rare terms the way natural text does.
+ * <p>
+ * Term {@code r} (0-based rank) is drawn with probability proportional to
+ * {@code 1 / (r + 1)^skew}. Every document is derived from the seed and its own
+ * index only, so the same parameters always produce the same corpus.
+ */
+public final class SyntheticCorpus {
+    private final int files;
+    private final int wordsPerFile;
+    private final long seed;
+    private final double[] cumulative;
+
+    /**
+     * @param files        The number of documents.
+     * @param vocabulary   The number of distinct terms.
+     * @param skew         The Zipf exponent; 0 is uniform, around 1 is natural
+     *                     language.
+     * @param wordsPerFile The mean number of words per document.
+     * @param seed         The random seed.
+     */
+    public SyntheticCorpus(int files, int vocabulary, double skew, int wordsPerFile, long seed) {
+        this.files = files;
+        this.wordsPerFile = wordsPerFile;
+        this.seed = seed;
+        this.cumulative = new double[vocabulary];
+        double total = 0;
+        for (int rank = 0; rank < vocabulary; rank++) {
+            total += 1 / Math.pow(rank + 1, skew);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < vocabulary; rank++)
+            cumulative[rank] /= total;
+    }
+
+    /**
+     * @return The number of documents.
+     */
+    public int size() {
+        return files;
+    }
+
+    /**
+     * @param rank The 0-based frequency rank of the term.
+     * @return The term with that rank.
+     */
+    public static String term(int rank) {
+        return "w" + Integer.toString(rank, 36);
+    }
+
+    /**
+     * @param index The document index, in {@code [0, size())}.
+     * @return The file name of the document.
+     */
+    public String name(int index) {
+        return String.format("movie_%06d.txt", index);
+    }
+
+    /**
+     * Generates the text of a document: sentences of 8 to 24 Zipf-distributed
+     * words, each ending with a period.
+     *
+     * @param index The document index, in {@code [0, size())}.
+     * @return The document text.
+     */
+    public String content(int index) {
+        Random random = new Random(seed * 1_000_003L + index);
+        int words = wordsPerFile / 2 + random.nextInt(wordsPerFile + 1);
+        StringBuilder text = new StringBuilder(words * 6);
+        int sentenceLeft = 8 + random.nextInt(17);
+        for (int i = 0; i < words; i++) {
+            String word = term(sample(random));
+            if (text.length() == 0 || text.charAt(text.length() - 1) == ' ' && text.charAt(text.length() - 2) == '.')
+                text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            else
+                text.append(word);
+            if (--sentenceLeft == 0 || i == words - 1) {
+                text.append(". ");
+                sentenceLeft = 8 + random.nextInt(17);
+            } else {
+                text.append(' ');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes every document as a UTF-8 file into a directory.
+     *
+     * @param directory The target directory, created if needed.
+     * @throws IOException if a file cannot be written.
+     */
+    public void writeTo(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (int index = 0; index < files; index++)
+            Files.write(directory.resolve(name(index)), content(index).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int sample(Random random) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(rank >= 0 ? rank : -rank - 1, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,109 @@
+package com.mateusememe.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mateusememe.domain.entity.TermDictionary;
+
+/**
+ * Measures exact lookups, prefix and fuzzy expansion against a large
+ * vocabulary of random words of 4 to 12 lowercase letters.
+ * <p>
+ * Fuzzy queries are dictionary words with one random substitution, so every
+ * lookup has real matches to find, as a misspelled title would. The
+ * {@code AfterIntern} cases intern a new word right before the lookup, so they
+ * include bringing the sorted view up to date, as the first query after an
+ * incremental update does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class TermDictionaryBenchmark {
+    private static final int QUERIES = 256;
+
+    @Param("1000000")
+    public int vocabulary;
+
+    @Param({ "1", "2" })
+    public int maxEdits;
+
+    private TermDictionary dictionary;
+    private StringBuilder[] words;
+    private String[] typos;
+    private String[] prefixes;
+    private int next;
+    private long fresh;
+
+    @Setup
+    public void build() {
+        Random random = new Random(42);
+        dictionary = new TermDictionary();
+        while (dictionary.size() < vocabulary) {
+            char[] word = new char[4 + random.nextInt(9)];
+            for (int i = 0; i < word.length; i++)
+                word[i] = (char) ('a' + random.nextInt(26));
+            dictionary.intern(new String(word));
+        }
+
+        words = new StringBuilder[QUERIES];
+        typos = new String[QUERIES];
+        prefixes = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            char[] word = dictionary.term(random.nextInt(vocabulary)).toCharArray();
+            words[i] = new StringBuilder().append(word);
+            prefixes[i] = new String(word, 0, 3) + "*";
+            word[random.nextInt(word.length)] = (char) ('a' + random.nextInt(26));
+            typos[i] = new String(word);
+        }
+        dictionary.freeze();
+    }
+
+    @Benchmark
+    public int lookup() {
+        return dictionary.id(words[next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public int[] fuzzyMatch() {
+        return dictionary.fuzzyMatch(typos[next++ & (QUERIES - 1)], maxEdits, 64);
+    }
+
+    @Benchmark
+    public int[] prefixMatch() {
+        return dictionary.match(prefixes[next++ & (QUERIES - 1)], 1024);
+    }
+
+    @Benchmark
+    public int[] fuzzyMatchAfterIntern() {
+        dictionary.intern(freshWord());
+        return dictionary.fuzzyMatch(typos[next++ & (QUERIES - 1)], maxEdits, 64);
+    }
+
+    @Benchmark
+    public int[] prefixMatchAfterIntern() {
+        dictionary.intern(freshWord());
+        return dictionary.match(prefixes[next++ & (QUERIES - 1)], 1024);
+    }
+
+    /**
+     * @return A word not in the vocabulary: digits never occur in it.
+     */
+    private String freshWord() {
+        return "w" + fresh++;
+    }
+}
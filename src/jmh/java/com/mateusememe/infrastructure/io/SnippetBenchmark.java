@@ -0,0 +1,96 @@
+package com.mateusememe.infrastructure.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mateusememe.benchmark.SyntheticCorpus;
+import com.mateusememe.domain.entity.Indexer;
+
+/**
+ * Measures snippet extraction and term highlighting, the per-result work of
+ * verbose output. The corpus is written to a temporary directory because
+ * {@link MovieFileReader#getSnippet} reads the original files.
+ * <p>
+ * With {@code positions} the snippet is served from the sentence table and a
+ * range read; without them every call falls back to scanning the whole file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnippetBenchmark {
+    @Param("500")
+    public int files;
+
+    @Param("20000")
+    public int vocabulary;
+
+    @Param("1.1")
+    public double skew;
+
+    @Param("2000")
+    public int wordsPerFile;
+
+    @Param({ "false", "true" })
+    public boolean positions;
+
+    private Path directory;
+    private MovieFileReader reader;
+    private OutputPrinter printer;
+    private String[] terms;
+    private String file;
+    private String snippet;
+
+    @Setup
+    public void build() throws IOException {
+        directory = Files.createTempDirectory("search-it-bench");
+        new SyntheticCorpus(files, vocabulary, skew, wordsPerFile, 42).writeTo(directory);
+
+        Indexer indexer = new Indexer(positions);
+        reader = new MovieFileReader(indexer);
+        reader.loadFiles(directory.toString());
+        printer = new OutputPrinter(indexer, reader);
+
+        terms = new String[] { SyntheticCorpus.term(40) };
+        Set<String> matches = indexer.search(terms);
+        file = matches.stream().sorted().findFirst().orElseThrow(IllegalStateException::new);
+        snippet = reader.getSnippet(file, terms);
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String getSnippet() {
+        return reader.getSnippet(file, terms);
+    }
+
+    @Benchmark
+    public String highlightTerms() {
+        return printer.highlightTerms(snippet, terms);
+    }
+}
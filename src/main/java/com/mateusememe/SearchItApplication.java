@@ -1,13 +1,48 @@
 package com.mateusememe;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 import java.util.List;
-import java.util.Set;
 
+import com.mateusememe.application.usecase.QueryCache;
 import com.mateusememe.application.usecase.SearchMovies;
+import com.mateusememe.domain.analysis.Analyzer;
+import com.mateusememe.domain.analysis.Tokenizer;
 import com.mateusememe.domain.entity.Indexer;
+import com.mateusememe.domain.query.QueryParser;
 import com.mateusememe.infrastructure.cli.ArgumentParser;
+import com.mateusememe.infrastructure.http.SearchServer;
+import com.mateusememe.infrastructure.io.BatchQueryRunner;
+import com.mateusememe.infrastructure.io.DocumentStore;
+import com.mateusememe.infrastructure.io.EmbeddedIndex;
+import com.mateusememe.infrastructure.io.IndexSnapshot;
 import com.mateusememe.infrastructure.io.MovieFileReader;
 import com.mateusememe.infrastructure.io.OutputPrinter;
+import com.mateusememe.infrastructure.io.SnapshotManifest;
+import com.mateusememe.infrastructure.metrics.Metrics;
+import com.mateusememe.infrastructure.shard.LocalShard;
+import com.mateusememe.infrastructure.shard.RemoteShard;
+import com.mateusememe.infrastructure.shard.Shard;
+import com.mateusememe.infrastructure.shard.ShardCoordinator;
+import com.mateusememe.infrastructure.shard.ShardRequest;
+import com.mateusememe.infrastructure.shard.ShardResult;
 
 /**
  * Main class responsible for executing the application via CLI.
@@ -15,6 +50,14 @@ import com.mateusememe.infrastructure.io.OutputPrinter;
  * and displays the results in the terminal.
  */
 public class SearchItApplication {
+    private static final String DATA_DIRECTORY = "data";
+    private static final String SNAPSHOT_DIRECTORY = ".search.it";
+    private static final int DEFAULT_PORT = 8080;
+    /**
+     * Default weight limit of the result cache: roughly the number of file
+     * names it may hold across all cached queries.
+     */
+    private static final int DEFAULT_CACHE_WEIGHT = 100_000;
 
     /**
      * Main method that starts the application.
@@ -32,38 +75,418 @@ public class SearchItApplication {
             return;
         }
 
+        boolean watch = parser.hasFlag("--watch");
+        boolean serve = parser.hasFlag("--serve");
+        String batchInput = parser.getValue("--batch", null);
+        if ((watch ? 1 : 0) + (serve ? 1 : 0) + (batchInput != null ? 1 : 0) > 1) {
+            System.err.println("Erro: --watch, --serve e --batch não podem ser combinados.");
+            System.exit(1);
+            return;
+        }
         List<String> searchTerms = parser.getPositionalArgs();
-        if (searchTerms.isEmpty() || searchTerms.get(0).isBlank()) {
+        if (!watch && !serve && batchInput == null && (searchTerms.isEmpty() || searchTerms.get(0).isBlank())) {
             System.err.println("Erro: É necessário um argumento de pesquisa.");
             printHelp();
             System.exit(1);
             return;
         }
 
-        String searchQuery = String.join(" ", searchTerms).toLowerCase();
-        String[] searchQuerySplitted = String.join(" ", searchTerms).toLowerCase().split("\\W+");
+        String searchQuery = String.join(" ", searchTerms);
         boolean verbose = parser.hasFlag("-v") || parser.hasFlag("--verbose");
         int resultLimit = parser.getIntValue("-l", Integer.MAX_VALUE);
+        boolean rebuild = parser.hasFlag("--rebuild");
+        int threads = parser.getIntValue("-t", Runtime.getRuntime().availableProcessors());
+        long indexMemory = Math.max(0, parser.getIntValue("--index-memory", 0)) * 1024L * 1024L;
+        Analyzer analyzer = Analyzer.of(parser.hasFlag("--stopwords"), parser.hasFlag("--stem"));
+        boolean documentStore = parser.hasFlag("--doc-store");
+        boolean phrase = parser.hasFlag("-p") || parser.hasFlag("--phrase");
+        boolean positions = !parser.hasFlag("--no-positions");
+        if (phrase && !positions) {
+            System.err.println("Erro: -p/--phrase precisa das posições dos termos e não pode ser combinado com "
+                    + "--no-positions.");
+            System.exit(1);
+            return;
+        }
+        int slop = Math.max(0, parser.getIntValue("--slop", 0));
+        int fuzzy = Math.max(0, Math.min(Indexer.MAX_EDITS, parser.getIntValue("--fuzzy", 0)));
+        OutputPrinter.Format format;
+        try {
+            format = OutputPrinter.Format.parse(parser.getValue("--format", "text"));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erro: formato de saída inválido, use text, jsonl ou tsv.");
+            System.exit(1);
+            return;
+        }
+
+        if (parser.hasFlag("--stats"))
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> Metrics.global().printReport(System.err)));
+
+        int shardCount = parser.getIntValue("--shards", 1);
+        String remoteShards = parser.getValue("--remote-shards", null);
+        boolean sharded = shardCount > 1 || remoteShards != null;
+        int[] shardSpec = parseShard(parser.getValue("--shard", null));
+        if ((sharded || shardSpec != null) && watch) {
+            System.err.println("Erro: --shards, --shard e --remote-shards não podem ser combinados com --watch.");
+            System.exit(1);
+            return;
+        }
+        if (sharded && serve) {
+            System.err.println("Erro: --shards e --remote-shards não podem ser combinados com --serve; "
+                    + "use --serve --shard <i>/<n> em cada processo de shard.");
+            System.exit(1);
+            return;
+        }
+
+        int cacheWeight = parser.getIntValue("--cache", DEFAULT_CACHE_WEIGHT);
+        boolean longLived = watch || serve || batchInput != null;
+        if (sharded) {
+            try (ShardCoordinator coordinator = remoteShards != null
+                    ? remoteShards(remoteShards)
+                    : localShards(shardCount, threads, rebuild, indexMemory / shardCount, documentStore, positions,
+                            analyzer, longLived ? cacheWeight / shardCount : 0)) {
+                if (batchInput != null) {
+                    runBatch(batchInput, new BatchQueryRunner((query, out) -> runShardedQuery(coordinator,
+                            new OutputPrinter(out, format), analyzer, query, verbose, resultLimit, phrase, slop, fuzzy),
+                            threads, format));
+                    return;
+                }
+                try {
+                    runShardedQuery(coordinator, new OutputPrinter(OutputPrinter.terminal(), format), analyzer,
+                            searchQuery, verbose, resultLimit, phrase, slop, fuzzy);
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    System.err.println("Erro: " + e.getMessage());
+                }
+            } catch (Exception e) {
+                System.err.println("Error: " + e.getMessage());
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        EmbeddedIndex embedded = shardSpec == null && !rebuild && positions ? currentEmbeddedIndex(analyzer) : null;
+        Indexer indexer = embedded != null ? embedded.getIndexer() : new Indexer(positions, analyzer);
+        MovieFileReader movieFileReader = new MovieFileReader(indexer, threads);
+        SearchMovies searchMovies = new SearchMovies(indexer,
+                longLived && cacheWeight > 0 ? new QueryCache(cacheWeight) : null);
+        OutputPrinter printer = new OutputPrinter(indexer, movieFileReader, format);
+
+        try {
+            IndexSnapshot snapshot;
+            SnapshotManifest manifest;
+            if (embedded != null) {
+                snapshot = new IndexSnapshot(Paths.get(SNAPSHOT_DIRECTORY));
+                manifest = embedded.getManifest();
+                countIndex(indexer);
+                if (documentStore)
+                    openDocumentStore(movieFileReader, snapshot, manifest, null);
+            } else if (shardSpec == null) {
+                snapshot = new IndexSnapshot(Paths.get(SNAPSHOT_DIRECTORY));
+                manifest = loadIndex(movieFileReader, indexer, snapshot, file -> true, rebuild, indexMemory,
+                        documentStore);
+            } else {
+                snapshot = new IndexSnapshot(shardSnapshotDirectory(shardSpec[0], shardSpec[1]));
+                manifest = loadIndex(movieFileReader, indexer, snapshot,
+                        ShardCoordinator.partition(shardSpec[0], shardSpec[1]), rebuild, indexMemory, documentStore);
+            }
+
+            if (batchInput != null) {
+                runBatch(batchInput, new BatchQueryRunner(searchMovies, indexer, movieFileReader, threads,
+                        resultLimit, verbose, phrase, slop, fuzzy, format));
+                return;
+            }
+
+            if (serve) {
+                int port = parser.getIntValue("--port", DEFAULT_PORT);
+                SearchServer server = new SearchServer(searchMovies, indexer, movieFileReader,
+                        new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+                Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+                server.start();
+                System.out.println("Servidor de busca em http://localhost:" + server.port() + "/search?q=<termo>");
+                return;
+            }
+
+            if (!watch) {
+                runQuery(indexer, searchMovies, printer, searchQuery, verbose, resultLimit, phrase, slop, fuzzy);
+                return;
+            }
+
+            AtomicBoolean changed = new AtomicBoolean();
+            Thread watcher = new Thread(() -> {
+                try {
+                    movieFileReader.watch(DATA_DIRECTORY, manifest, count -> {
+                        changed.set(true);
+                        System.out.println("[índice atualizado: " + count + " arquivo(s)]");
+                    });
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException e) {
+                    System.err.println("Aviso: monitoramento de " + DATA_DIRECTORY + " interrompido: " + e.getMessage());
+                }
+            }, "search.it-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+
+            if (!searchQuery.isBlank())
+                runQuery(indexer, searchMovies, printer, searchQuery, verbose, resultLimit, phrase, slop, fuzzy);
+            BufferedReader input = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            for (String line = input.readLine(); line != null; line = input.readLine()) {
+                if (!line.isBlank())
+                    runQuery(indexer, searchMovies, printer, line, verbose, resultLimit, phrase, slop,
+                            fuzzy);
+            }
+
+            watcher.interrupt();
+            watcher.join();
+            if (changed.get())
+                saveSnapshot(snapshot, indexer, SnapshotManifest.scan(DATA_DIRECTORY));
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Loads the index from its snapshot, or from the data directory when the
+     * snapshot is missing, outdated or {@code rebuild} is set, and saves the
+     * freshly built index. With a memory budget the index is built in
+     * segments spilled to disk and merged into the snapshot, which is then
+     * loaded. With {@code documentStore} the files are also packed into a
+     * {@link DocumentStore} next to the snapshot while they are ingested, and
+     * snippets are served from it.
+     *
+     * @return The manifest of the loaded files.
+     */
+    private static SnapshotManifest loadIndex(MovieFileReader movieFileReader, Indexer indexer,
+            IndexSnapshot snapshot, Predicate<Path> filter, boolean rebuild, long memoryBudget,
+            boolean documentStore) throws IOException {
+        SnapshotManifest manifest = SnapshotManifest.scan(DATA_DIRECTORY, filter);
+        boolean loaded = false;
+        if (!rebuild) {
+            try {
+                loaded = Metrics.global().time(Metrics.Phase.SNAPSHOT, () -> snapshot.load(indexer, manifest));
+            } catch (IOException e) {
+                System.err.println("Aviso: snapshot do índice ignorado, o índice será reconstruído: " + e.getMessage());
+            }
+        }
+        DocumentStore.Writer documents = null;
+        if (!loaded && documentStore) {
+            documents = new DocumentStore.Writer(snapshot.getDirectory(), DocumentStore.DEFAULT_BLOCK_SIZE);
+            movieFileReader.packDocuments(documents);
+        }
+        try {
+            if (!loaded && memoryBudget > 0) {
+                movieFileReader.loadFilesSegmented(DATA_DIRECTORY, filter, snapshot, manifest, memoryBudget);
+            } else if (!loaded) {
+                movieFileReader.loadFiles(DATA_DIRECTORY, filter);
+                saveSnapshot(snapshot, indexer, manifest);
+            }
+            if (documentStore)
+                openDocumentStore(movieFileReader, snapshot, manifest, documents);
+        } finally {
+            if (documents != null) {
+                movieFileReader.packDocuments(null);
+                documents.close();
+            }
+        }
+        countIndex(indexer);
+        return manifest;
+    }
+
+    /**
+     * Commits the document store packed during ingestion, or opens the one
+     * kept with the snapshot, packing it from the files if it is missing, and
+     * serves snippets from it. A store that cannot be written or read is
+     * reported as a warning and snippets are read from the files as before.
+     */
+    private static void openDocumentStore(MovieFileReader movieFileReader, IndexSnapshot snapshot,
+            SnapshotManifest manifest, DocumentStore.Writer packed) {
+        try {
+            DocumentStore store;
+            if (packed != null) {
+                packed.commit(manifest);
+                store = DocumentStore.open(snapshot.getDirectory(), manifest);
+            } else {
+                store = DocumentStore.open(snapshot.getDirectory(), manifest);
+                if (store == null)
+                    store = DocumentStore.pack(snapshot.getDirectory(), manifest);
+            }
+            movieFileReader.setDocumentStore(store);
+        } catch (IOException e) {
+            System.err.println("Aviso: não foi possível usar o armazenamento de documentos: " + e.getMessage());
+        }
+    }
 
-        Indexer indexer = new Indexer();
-        MovieFileReader movieFileReader = new MovieFileReader(indexer);
-        SearchMovies searchMovies = new SearchMovies(indexer);
-        OutputPrinter printer = new OutputPrinter(indexer, movieFileReader);
+    private static void countIndex(Indexer indexer) {
+        Metrics.global().add(Metrics.Counter.TERMS, indexer.termCount());
+        Metrics.global().add(Metrics.Counter.POSTINGS, indexer.postingCount());
+    }
 
+    /**
+     * Returns the index embedded in a native executable if the data directory
+     * still matches it. Otherwise warns and returns {@code null}, so the index
+     * is loaded from the snapshot or rebuilt as usual. An index embedded with
+     * another analyzer is skipped silently, like with {@code --rebuild}.
+     */
+    private static EmbeddedIndex currentEmbeddedIndex(Analyzer analyzer) {
+        EmbeddedIndex embedded = EmbeddedIndex.get();
+        if (embedded == null || !embedded.getIndexer().analyzer().name().equals(analyzer.name()))
+            return null;
         try {
-            movieFileReader.loadFiles("data");
+            if (embedded.matches(SnapshotManifest.scan(DATA_DIRECTORY)))
+                return embedded;
+        } catch (IOException e) {
+            // a missing data directory is reported like any other change
+        }
+        System.err.println("Aviso: " + DATA_DIRECTORY + "/ mudou desde a geração do executável; "
+                + "o índice embutido foi ignorado.");
+        return null;
+    }
+
+    /**
+     * Parses the {@code --shard <i>/<n>} value of a shard process.
+     *
+     * @return The shard number and the number of shards, or {@code null} if
+     *         the flag is absent.
+     */
+    private static int[] parseShard(String value) {
+        if (value == null)
+            return null;
+        String[] parts = value.split("/");
+        try {
+            int shard = Integer.parseInt(parts[0]);
+            int shards = Integer.parseInt(parts[1]);
+            if (parts.length == 2 && shard >= 0 && shard < shards)
+                return new int[] { shard, shards };
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            // reported below
+        }
+        System.err.println("Erro: --shard espera <i>/<n> com 0 <= i < n, recebido: " + value);
+        System.exit(1);
+        return null;
+    }
+
+    private static Path shardSnapshotDirectory(int shard, int shards) {
+        return Paths.get(SNAPSHOT_DIRECTORY, "shard-" + shard + "-of-" + shards);
+    }
+
+    /**
+     * Builds one in-process index per shard, loading the shards concurrently
+     * and splitting the ingestion threads and memory budget among them.
+     */
+    private static ShardCoordinator localShards(int shards, int threads, boolean rebuild, long memoryBudget,
+            boolean documentStore, boolean positions, Analyzer analyzer, int cacheWeight)
+            throws IOException, InterruptedException {
+        ExecutorService loader = Executors.newFixedThreadPool(shards);
+        try {
+            List<Future<Shard>> loading = new ArrayList<>(shards);
+            for (int i = 0; i < shards; i++) {
+                int shard = i;
+                loading.add(loader.submit(() -> {
+                    Indexer indexer = new Indexer(positions, analyzer);
+                    MovieFileReader movieFileReader = new MovieFileReader(indexer, Math.max(1, threads / shards));
+                    loadIndex(movieFileReader, indexer, new IndexSnapshot(shardSnapshotDirectory(shard, shards)),
+                            ShardCoordinator.partition(shard, shards), rebuild, memoryBudget, documentStore);
+                    SearchMovies searchMovies = new SearchMovies(indexer,
+                            cacheWeight > 0 ? new QueryCache(cacheWeight) : null);
+                    return new LocalShard(searchMovies, indexer, movieFileReader);
+                }));
+            }
+            List<Shard> loaded = new ArrayList<>(shards);
+            for (Future<Shard> future : loading)
+                loaded.add(future.get());
+            return new ShardCoordinator(loaded);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to load shards", e.getCause());
+        } finally {
+            loader.shutdownNow();
+        }
+    }
+
+    /**
+     * Connects to shard processes given as a comma-separated list of
+     * {@code host:port} addresses.
+     */
+    private static ShardCoordinator remoteShards(String addresses) {
+        HttpClient client = HttpClient.newHttpClient();
+        List<Shard> shards = new ArrayList<>();
+        for (String address : addresses.split(","))
+            if (!address.isBlank())
+                shards.add(new RemoteShard(client, address.trim()));
+        return new ShardCoordinator(shards);
+    }
+
+    /**
+     * Runs one query on every shard and prints the merged results, like
+     * {@link #runQuery} does for a single index.
+     */
+    private static void runShardedQuery(ShardCoordinator coordinator, OutputPrinter printer, Analyzer analyzer,
+            String searchQuery, boolean verbose, int resultLimit, boolean phrase, int slop, int fuzzy)
+            throws IOException {
+        long startSearchTime = System.nanoTime();
+        ShardResult result = coordinator.search(
+                new ShardRequest(searchQuery, resultLimit, verbose, phrase, slop, fuzzy));
+        double searchTime = (System.nanoTime() - startSearchTime) / 1_000_000.0;
+
+        String[] searchTerms = phrase ? Tokenizer.queryTerms(searchQuery, analyzer)
+                : QueryParser.parse(searchQuery, analyzer).terms();
+        result.print(printer, searchQuery.toLowerCase(), searchTerms, verbose, searchTime);
+    }
+
+    /**
+     * Runs the queries of a file, or of the standard input when the path is
+     * {@code -}, writing every result through one buffered writer.
+     */
+    private static void runBatch(String batchInput, BatchQueryRunner runner) throws IOException {
+        BufferedWriter output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        if (batchInput.equals("-")) {
+            runner.run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), output);
+            return;
+        }
+        try (BufferedReader input = Files.newBufferedReader(Paths.get(batchInput), StandardCharsets.UTF_8)) {
+            runner.run(input, output);
+        }
+    }
+
+    /**
+     * Runs one query and prints its results. In watch mode the index may be
+     * updated concurrently, so the search and the printing hold the indexer's
+     * monitor, the same one {@link MovieFileReader#refresh} takes. Unless it
+     * is a phrase, the query is parsed as given, since its operators are
+     * upper case, and echoed in lower case.
+     */
+    private static void runQuery(Indexer indexer, SearchMovies searchMovies, OutputPrinter printer,
+            String searchQuery, boolean verbose, int resultLimit, boolean phrase, int slop, int fuzzy) {
+        String displayQuery = searchQuery.toLowerCase();
+        synchronized (indexer) {
             long startSearchTime = System.nanoTime();
-            Set<String> result = searchMovies.execute(searchQuerySplitted);
+            SearchMovies.Result result;
+            try {
+                result = Metrics.global().time(Metrics.Phase.SEARCH,
+                        () -> searchMovies.search(searchQuery, phrase, slop, fuzzy));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                System.err.println("Erro: " + e.getMessage());
+                return;
+            }
             long endSearchTime = System.nanoTime();
             double searchTime = (endSearchTime - startSearchTime) / 1_000_000.0;
 
             if (verbose)
-                printer.printVerbose(result, searchQuery, resultLimit, searchTime);
+                printer.printVerbose(result.getFiles(), displayQuery, indexer.expandAll(result.getTerms(), fuzzy),
+                        resultLimit, searchTime);
             else
-                printer.printSimple(result, searchQuery, resultLimit, searchTime);
-        } catch (Exception e) {
-            System.err.println("Error: " + e.getMessage());
-            e.printStackTrace();
+                printer.printSimple(result.getFiles(), displayQuery, resultLimit, searchTime);
+        }
+    }
+
+    /**
+     * Persists the freshly built index. A failure here only costs the next run a
+     * rebuild, so it is reported as a warning instead of aborting the search.
+     */
+    private static void saveSnapshot(IndexSnapshot snapshot, Indexer indexer, SnapshotManifest manifest) {
+        try {
+            snapshot.save(indexer, manifest);
+        } catch (IOException e) {
+            System.err.println("Aviso: não foi possível salvar o snapshot do índice: " + e.getMessage());
         }
     }
 
@@ -71,11 +494,31 @@ public class SearchItApplication {
      * Displays the help message in the terminal.
      */
     private static void printHelp() {
-        System.out.println("Utilização: java -jar search.it.jar <termo de pesquisa> [-l <limite>] [-v]");
+        System.out.println("Utilização: java -jar search.it.jar <termo de pesquisa> [-l <limite>] [-v] [-p [--slop <n>]] [--fuzzy <n>] [--format <f>] [-t <threads>] [--stopwords] [--stem] [--index-memory <MB>] [--doc-store] [--no-positions] [--watch | --serve [--port <n>] [--shard <i>/<n>] | --batch <arquivo>] [--shards <n> | --remote-shards <end>] [--stats]");
         System.out.println("Opções:");
         System.out.println("  <search term> Um termo de pesquisa obrigatório (cadeia de caracteres) não vazio");
         System.out.println("  -l <limit>    Limitar o número de resultados (opcional, predefinição: sem limite)");
         System.out.println("  -v            Saída detalhada (opcional)");
+        System.out.println("  -p, --phrase  Buscar os termos como frase, na ordem e adjacentes (opcional)");
+        System.out.println("  --slop <n>    Com --phrase, permite até n palavras entre os termos (opcional, predefinição: 0)");
+        System.out.println("  --fuzzy <n>   Tolerar até n erros de digitação (1 ou 2) por palavra (opcional, predefinição: 0)");
+        System.out.println("  --format <f>  Formato da saída: text, jsonl ou tsv (opcional, predefinição: text)");
+        System.out.println("  -t <threads>  Número de threads usadas na indexação (opcional, predefinição: núcleos da CPU)");
+        System.out.println("  --stopwords   Ignorar palavras vazias do português (artigos, preposições...) na indexação e nas buscas");
+        System.out.println("  --stem        Reduzir plurais do português ao singular na indexação e nas buscas");
+        System.out.println("  --index-memory <MB>   Limitar a memória da indexação, gravando segmentos em disco e combinando-os no snapshot (opcional)");
+        System.out.println("  --doc-store   Guardar o conteúdo dos arquivos compactado junto ao índice e ler os trechos de lá (opcional)");
+        System.out.println("  --no-positions Não guardar as posições dos termos: índice menor, sem buscas por frase, trechos lidos dos arquivos (opcional)");
+        System.out.println("  --rebuild     Reconstruir o índice ignorando o snapshot salvo em disco");
+        System.out.println("  --watch       Manter o índice atualizado com data/ e ler novas buscas da entrada padrão");
+        System.out.println("  --serve       Manter o índice carregado e responder buscas via HTTP (GET /search?q=...)");
+        System.out.println("  --port <n>    Porta do servidor HTTP (opcional, predefinição: " + DEFAULT_PORT + ")");
+        System.out.println("  --batch <arq> Executar uma busca por linha do arquivo (ou da entrada padrão com -) em paralelo");
+        System.out.println("  --shards <n>  Dividir data/ em n shards no mesmo processo e combinar os resultados (opcional)");
+        System.out.println("  --shard <i>/<n>       Com --serve, indexar e servir apenas o shard i de n");
+        System.out.println("  --remote-shards <end> Consultar processos de shard em host:porta separados por vírgula");
+        System.out.println("  --stats       Ao terminar, mostrar na saída de erro o tempo de cada fase e os contadores de indexação");
+        System.out.println("  --cache <n>   Peso máximo do cache de resultados em --watch, --serve e --batch (0 desativa, predefinição: " + DEFAULT_CACHE_WEIGHT + ")");
         System.out.println("  --help, -h    Mostrar esta mensagem de ajuda");
     }
 }
@@ -0,0 +1,234 @@
+package com.mateusememe.application.usecase;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.mateusememe.domain.query.Query;
+
+/**
+ * Bounded cache of search results, shared by all threads of a long-running
+ * process.
+ * <p>
+ * Lookups never lock: the entries live in a {@link ConcurrentHashMap}, a hit
+ * only sets the entry's reference bit, and the hit and miss counters are
+ * {@link LongAdder}s, so concurrent requests of {@code --serve} do not contend
+ * on the cache. Only storing a result takes a lock, to account its weight and
+ * evict with the CLOCK algorithm, an approximation of LRU: entries wait in a
+ * ring in insertion order, and the hand evicts the first one not referenced
+ * since it last passed, giving the others a second chance.
+ * <p>
+ * The cache is bounded by weight rather than entry count: an entry weighs one
+ * plus the number of files in its result, so a few broad queries cannot pin
+ * far more memory than many narrow ones. Every entry belongs to the index
+ * generation it was computed at; the first access after the generation
+ * changes drops the whole cache, and results computed against an older
+ * generation are never stored.
+ */
+public class QueryCache {
+    private final long maxWeight;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    /** Guards the clock, the weight and generation changes. */
+    private final Object lock = new Object();
+    /** The clock, from its hand on; may hold entries already replaced. */
+    private final ArrayDeque<Entry> clock = new ArrayDeque<>();
+    private long weight;
+    private volatile long generation;
+
+    /**
+     * @param maxWeight The maximum total weight of the cached results; must be
+     *                  positive.
+     */
+    public QueryCache(long maxWeight) {
+        if (maxWeight <= 0)
+            throw new IllegalArgumentException("Cache weight must be positive: " + maxWeight);
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Builds the key of a conjunctive query. Term order and repetitions do not
+     * change the result, so the terms are normalized, sorted and deduplicated.
+     *
+     * @param terms The query terms.
+     * @return The cache key.
+     */
+    public static String conjunctionKey(String[] terms) {
+        return conjunctionKey(terms, 0);
+    }
+
+    /**
+     * Builds the key of a conjunctive query that may tolerate typos.
+     *
+     * @param terms    The query terms.
+     * @param maxEdits The edit distance allowed per term.
+     * @return The cache key.
+     */
+    public static String conjunctionKey(String[] terms, int maxEdits) {
+        String[] normalized = new String[terms.length];
+        for (int i = 0; i < terms.length; i++)
+            normalized[i] = terms[i].toLowerCase();
+        Arrays.sort(normalized);
+
+        StringBuilder key = new StringBuilder("and").append(maxEdits);
+        for (int i = 0; i < normalized.length; i++) {
+            if (i == 0 || !normalized[i].equals(normalized[i - 1]))
+                key.append('\0').append(normalized[i]);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Builds the key of a phrase query, in which term order and slop matter.
+     *
+     * @param terms The phrase terms, in order.
+     * @param slop  The phrase slop.
+     * @return The cache key.
+     */
+    public static String phraseKey(String[] terms, int slop) {
+        return phraseKey(terms, slop, 0);
+    }
+
+    /**
+     * Builds the key of a phrase query that may tolerate typos.
+     *
+     * @param terms    The phrase terms, in order.
+     * @param slop     The phrase slop.
+     * @param maxEdits The edit distance allowed per term.
+     * @return The cache key.
+     */
+    public static String phraseKey(String[] terms, int slop, int maxEdits) {
+        StringBuilder key = new StringBuilder("phrase").append(slop).append('~').append(maxEdits);
+        for (String term : terms)
+            key.append('\0').append(term.toLowerCase());
+        return key.toString();
+    }
+
+    /**
+     * Builds the key of a boolean query from its canonical form, in which the
+     * operands of {@code AND} and {@code OR} are sorted.
+     *
+     * @param query    The parsed query.
+     * @param maxEdits The edit distance allowed per term.
+     * @return The cache key.
+     */
+    public static String queryKey(Query query, int maxEdits) {
+        return "query" + maxEdits + '\0' + query;
+    }
+
+    /**
+     * Looks up a result and counts the hit or miss.
+     *
+     * @param key               The query key.
+     * @param currentGeneration The current index generation.
+     * @return The cached, unmodifiable result, or {@code null} on a miss.
+     */
+    public Set<String> get(String key, long currentGeneration) {
+        if (currentGeneration > generation)
+            invalidate(currentGeneration);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (!entry.referenced)
+            entry.referenced = true;
+        hits.increment();
+        return entry.result;
+    }
+
+    /**
+     * Stores a result, evicting entries not used lately beyond the weight
+     * limit. Results larger than the whole limit, or computed at an
+     * outdated generation, are not stored.
+     *
+     * @param key        The query key.
+     * @param result     The result; the caller must not modify it afterwards.
+     * @param generation The index generation the result was computed at.
+     * @return The result as it must be handed out, unmodifiable.
+     */
+    public Set<String> put(String key, Set<String> result, long generation) {
+        Set<String> shared = Collections.unmodifiableSet(result);
+        Entry entry = new Entry(key, shared);
+        if (entry.weight > maxWeight)
+            return shared;
+
+        synchronized (lock) {
+            invalidate(generation);
+            if (generation != this.generation)
+                return shared;
+
+            Entry previous = entries.put(key, entry);
+            if (previous != null)
+                weight -= previous.weight;
+            weight += entry.weight;
+            clock.addLast(entry);
+            while (weight > maxWeight) {
+                Entry candidate = clock.pollFirst();
+                if (entries.get(candidate.key) != candidate)
+                    continue; // replaced, its weight already released
+                if (candidate.referenced) {
+                    candidate.referenced = false;
+                    clock.addLast(candidate);
+                    continue;
+                }
+                entries.remove(candidate.key, candidate);
+                weight -= candidate.weight;
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * @return The number of lookups answered from the cache.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups that had to run the search.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of cached results.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void invalidate(long currentGeneration) {
+        synchronized (lock) {
+            if (currentGeneration > generation) {
+                entries.clear();
+                clock.clear();
+                weight = 0;
+                generation = currentGeneration;
+            }
+        }
+    }
+
+    /**
+     * A cached result with its weight and CLOCK reference bit.
+     */
+    private static final class Entry {
+        final String key;
+        final Set<String> result;
+        final long weight;
+        /** Set by hits, cleared as the clock hand passes. */
+        volatile boolean referenced;
+
+        Entry(String key, Set<String> result) {
+            this.key = key;
+            this.result = result;
+            this.weight = 1L + result.size();
+        }
+    }
+}
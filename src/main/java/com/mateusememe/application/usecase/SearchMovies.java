@@ -2,14 +2,49 @@ package com.mateusememe.application.usecase;
 
 import java.util.Set;
 
+import com.mateusememe.domain.analysis.Tokenizer;
 import com.mateusememe.domain.entity.Indexer;
+import com.mateusememe.domain.query.Query;
+import com.mateusememe.domain.query.QueryParser;
+import com.mateusememe.domain.query.QueryPlanner;
 
 /**
  * Use case responsible for searching movies containing the words in the query.
- * Uses an Indexer to optimize the search process.
+ * Uses an Indexer to optimize the search process, and optionally a
+ * {@link QueryCache} so repeated queries skip the index entirely.
  */
 public class SearchMovies {
+    /**
+     * The files matching a query, with the terms they were searched for.
+     */
+    public static final class Result {
+        private final Set<String> files;
+        private final String[] terms;
+
+        Result(Set<String> files, String[] terms) {
+            this.files = files;
+            this.terms = terms;
+        }
+
+        /**
+         * @return The names of the matching files. The set is unmodifiable when
+         *         caching is enabled.
+         */
+        public Set<String> getFiles() {
+            return files;
+        }
+
+        /**
+         * @return The analyzed query terms, before any wildcard or fuzzy
+         *         expansion, e.g. for ranking and highlighting.
+         */
+        public String[] getTerms() {
+            return terms;
+        }
+    }
+
     private final Indexer indexer;
+    private final QueryCache cache;
 
     /**
      * Constructor that initializes the movie search use case.
@@ -17,7 +52,63 @@ public class SearchMovies {
      * @param indexer Data structure used to perform the search.
      */
     public SearchMovies(Indexer indexer) {
+        this(indexer, null);
+    }
+
+    /**
+     * Constructor that initializes the movie search use case with a result
+     * cache.
+     *
+     * @param indexer Data structure used to perform the search.
+     * @param cache   The cache of results, or {@code null} to always search the
+     *                index.
+     */
+    public SearchMovies(Indexer indexer, QueryCache cache) {
         this.indexer = indexer;
+        this.cache = cache;
+    }
+
+    /**
+     * @return The result cache, or {@code null} if caching is disabled.
+     */
+    public QueryCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Runs a query as every front end takes it: as a phrase of its words, or
+     * otherwise with the boolean query language of {@link QueryParser}.
+     *
+     * @param searchQuery The query as typed by the user.
+     * @param phrase      Whether the query is a phrase.
+     * @param slop        The phrase slop; ignored unless {@code phrase}.
+     * @param maxEdits    The edit distance allowed per word.
+     * @return The matching files and the query terms.
+     * @throws IllegalArgumentException if the query is malformed.
+     */
+    public Result search(String searchQuery, boolean phrase, int slop, int maxEdits) {
+        if (phrase) {
+            String[] terms = Tokenizer.queryTerms(searchQuery, indexer.analyzer());
+            return new Result(executePhrase(terms, slop, maxEdits), terms);
+        }
+        Query query = QueryParser.parse(searchQuery, indexer.analyzer());
+        return new Result(execute(query, maxEdits), query.terms());
+    }
+
+    /**
+     * Analyzes a query into the terms {@link #search(String, boolean, int, int)}
+     * would report, without running it.
+     *
+     * @param searchQuery The query as typed by the user.
+     * @param phrase      Whether the query is a phrase.
+     * @return The analyzed query terms, before any wildcard or fuzzy
+     *         expansion.
+     * @throws IllegalArgumentException if the query is malformed.
+     */
+    public String[] queryTerms(String searchQuery, boolean phrase) {
+        if (phrase)
+            return Tokenizer.queryTerms(searchQuery, indexer.analyzer());
+        return QueryParser.parse(searchQuery, indexer.analyzer()).terms();
     }
 
     /**
@@ -25,9 +116,114 @@ public class SearchMovies {
      * that contain all the words in the search term.
      *
      * @param searchQuery The query to be searched in the files.
-     * @return A sorted set of file names that match the search query.
+     * @return A sorted set of file names that match the search query. It is
+     *         unmodifiable when caching is enabled.
      */
     public Set<String> execute(String[] searchQuery) {
-        return indexer.search(searchQuery);
+        return execute(searchQuery, 0);
+    }
+
+    /**
+     * Performs a typo-tolerant search: every word of the query also matches
+     * the indexed words within {@code maxEdits} edits of it.
+     *
+     * @param searchQuery The query to be searched in the files.
+     * @param maxEdits    The edit distance allowed per word, from 0 (exact) to
+     *                    {@link Indexer#MAX_EDITS}.
+     * @return A set of file names that match the search query. It is
+     *         unmodifiable when caching is enabled.
+     */
+    public Set<String> execute(String[] searchQuery, int maxEdits) {
+        if (cache == null)
+            return indexer.search(searchQuery, maxEdits);
+
+        String key = QueryCache.conjunctionKey(searchQuery, maxEdits);
+        long generation = indexer.generation();
+        Set<String> result = cache.get(key, generation);
+        return result != null ? result : cache.put(key, indexer.search(searchQuery, maxEdits), generation);
+    }
+
+    /**
+     * Performs a search with the boolean query language of
+     * {@link QueryParser}: {@code AND}, {@code OR}, {@code NOT} or
+     * {@code -word}, parentheses and quoted phrases.
+     *
+     * @param searchQuery The query as typed by the user.
+     * @return A set of file names that match the query. It is unmodifiable
+     *         when caching is enabled.
+     * @throws IllegalArgumentException if the query is malformed.
+     */
+    public Set<String> execute(String searchQuery) {
+        return execute(searchQuery, 0);
+    }
+
+    /**
+     * Typo-tolerant variant of {@link #execute(String)}.
+     *
+     * @param searchQuery The query as typed by the user.
+     * @param maxEdits    The edit distance allowed per word.
+     * @return A set of file names that match the query. It is unmodifiable
+     *         when caching is enabled.
+     * @throws IllegalArgumentException if the query is malformed.
+     */
+    public Set<String> execute(String searchQuery, int maxEdits) {
+        return execute(QueryParser.parse(searchQuery, indexer.analyzer()), maxEdits);
+    }
+
+    /**
+     * Evaluates an already parsed query with a {@link QueryPlanner}.
+     *
+     * @param query    The query.
+     * @param maxEdits The edit distance allowed per word.
+     * @return A set of file names that match the query. It is unmodifiable
+     *         when caching is enabled.
+     */
+    public Set<String> execute(Query query, int maxEdits) {
+        QueryPlanner planner = new QueryPlanner(indexer, maxEdits);
+        if (cache == null)
+            return planner.search(query);
+
+        String key = QueryCache.queryKey(query, maxEdits);
+        long generation = indexer.generation();
+        Set<String> result = cache.get(key, generation);
+        return result != null ? result : cache.put(key, planner.search(query), generation);
+    }
+
+    /**
+     * Performs a phrase search: returns the files in which the words of the
+     * query appear in order, with at most {@code slop} other words between
+     * consecutive query words.
+     *
+     * @param searchQuery The phrase words, in order.
+     * @param slop        The number of extra words allowed between consecutive
+     *                    phrase words; 0 means an exact phrase.
+     * @return A set of file names that contain the phrase. It is unmodifiable
+     *         when caching is enabled.
+     */
+    public Set<String> executePhrase(String[] searchQuery, int slop) {
+        return executePhrase(searchQuery, slop, 0);
+    }
+
+    /**
+     * Performs a typo-tolerant phrase search, see
+     * {@link #executePhrase(String[], int)} and {@link #execute(String[], int)}.
+     *
+     * @param searchQuery The phrase words, in order.
+     * @param slop        The number of extra words allowed between consecutive
+     *                    phrase words.
+     * @param maxEdits    The edit distance allowed per word.
+     * @return A set of file names that contain the phrase. It is unmodifiable
+     *         when caching is enabled.
+     */
+    public Set<String> executePhrase(String[] searchQuery, int slop, int maxEdits) {
+        if (cache == null)
+            return indexer.searchPhrase(searchQuery, slop, maxEdits);
+
+        String key = QueryCache.phraseKey(searchQuery, slop, maxEdits);
+        long generation = indexer.generation();
+        Set<String> result = cache.get(key, generation);
+        return result != null
+                ? result
+                : cache.put(key, indexer.searchPhrase(searchQuery, slop, maxEdits), generation);
     }
 }
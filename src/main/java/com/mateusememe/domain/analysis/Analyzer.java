@@ -0,0 +1,182 @@
+package com.mateusememe.domain.analysis;
+
+import java.text.Normalizer;
+
+/**
+ * Decides which characters form tokens and how tokens are normalized, for
+ * indexing and for queries alike.
+ * <p>
+ * Every analyzer classifies and folds characters the same way: a token is a
+ * maximal run of Unicode letters, digits and {@code _}; letters are lowercased
+ * and stripped of diacritics, so {@code Ação} becomes {@code acao}, and
+ * combining marks inside a word are dropped. Latin and Greek characters,
+ * which make up nearly all of the text, are folded through a table computed
+ * once from {@link Normalizer NFD} decompositions; other scripts are only
+ * lowercased, through {@link Character} lookups. Folding maps one char to
+ * one char, so a folded string lines up with the original.
+ * <p>
+ * On top of that an analyzer runs a chain of {@link TokenFilter}s, e.g.
+ * {@link StopFilter} and {@link PortugueseLightStemmer}. The {@link #name()}
+ * identifies the chain: an index must be searched with the analyzer it was
+ * built with, and snapshots built with another one are stale.
+ */
+public final class Analyzer {
+    /**
+     * Folding and nothing else, the analyzer used unless configured otherwise.
+     */
+    public static final Analyzer STANDARD = new Analyzer("standard");
+
+    /**
+     * Returned by {@link #fold(int)} for combining marks, which belong to the
+     * token around them but are not part of its folded form.
+     */
+    public static final int IGNORABLE = -1;
+
+    /**
+     * Folded form of every character below U+0400 (Latin, IPA, combining
+     * diacritics and Greek), 0 for separators or {@link #MARK} for combining
+     * marks.
+     */
+    private static final char[] FOLD = new char[0x400];
+    private static final char MARK = '\uFFFF';
+
+    static {
+        for (char c = 0; c < FOLD.length; c++) {
+            if (isMark(c)) {
+                FOLD[c] = MARK;
+                continue;
+            }
+            if (c != '_' && !Character.isLetterOrDigit(c))
+                continue;
+            char lower = Character.toLowerCase(c);
+            String base = Normalizer.normalize(String.valueOf(lower), Normalizer.Form.NFD);
+            FOLD[c] = Character.isLetterOrDigit(base.charAt(0)) ? base.charAt(0) : lower;
+        }
+        FOLD['ø'] = 'o';
+        FOLD['Ø'] = 'o';
+        FOLD['đ'] = 'd';
+        FOLD['Đ'] = 'd';
+        FOLD['ł'] = 'l';
+        FOLD['Ł'] = 'l';
+        FOLD['ı'] = 'i';
+    }
+
+    private final String name;
+    private final TokenFilter[] filters;
+
+    /**
+     * @param name    Identifies the analyzer in snapshots; analyzers with the
+     *                same name must produce the same tokens.
+     * @param filters The filters applied to every token, in order.
+     */
+    public Analyzer(String name, TokenFilter... filters) {
+        this.name = name;
+        this.filters = filters.clone();
+    }
+
+    /**
+     * Returns the built-in analyzer with the given options.
+     *
+     * @param stopwords Whether to drop {@link StopFilter#PORTUGUESE} stopwords.
+     * @param stem      Whether to reduce Portuguese plurals with
+     *                  {@link PortugueseLightStemmer}.
+     * @return The analyzer.
+     */
+    public static Analyzer of(boolean stopwords, boolean stem) {
+        if (!stopwords && !stem)
+            return STANDARD;
+        if (!stem)
+            return new Analyzer("standard+stop", new StopFilter(StopFilter.PORTUGUESE));
+        if (!stopwords)
+            return new Analyzer("standard+stem", new PortugueseLightStemmer());
+        return new Analyzer("standard+stop+stem", new StopFilter(StopFilter.PORTUGUESE),
+                new PortugueseLightStemmer());
+    }
+
+    /**
+     * @return The name of the analyzer.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return Whether the analyzer changes tokens beyond folding.
+     */
+    public boolean hasFilters() {
+        return filters.length > 0;
+    }
+
+    /**
+     * Runs the filter chain over a folded token.
+     *
+     * @param chars  The token in its first {@code length} chars; rewritten in
+     *               place.
+     * @param length The length of the token.
+     * @return The new length of the token, or 0 if it was dropped.
+     */
+    public int filter(char[] chars, int length) {
+        for (TokenFilter filter : filters) {
+            length = filter.filter(chars, length);
+            if (length == 0)
+                return 0;
+        }
+        return length;
+    }
+
+    /**
+     * Folds one character.
+     *
+     * @param codePoint The character.
+     * @return The lowercased character without diacritics if it belongs to a
+     *         token, {@link #IGNORABLE} for a combining mark, or 0 for a
+     *         separator.
+     */
+    public static int fold(int codePoint) {
+        if (codePoint < FOLD.length) {
+            char folded = FOLD[codePoint];
+            return folded == MARK ? IGNORABLE : folded;
+        }
+        if (isMark(codePoint))
+            return IGNORABLE;
+        return Character.isLetterOrDigit(codePoint) ? Character.toLowerCase(codePoint) : 0;
+    }
+
+    private static boolean isMark(int codePoint) {
+        switch (Character.getType(codePoint)) {
+            case Character.NON_SPACING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Folds the token characters of a text, leaving everything else, including
+     * wildcards and combining marks, as it is. The result has the same length
+     * as the text, so offsets found in it apply to the original.
+     *
+     * @param text The text, e.g. a query term or a snippet.
+     * @return The folded text.
+     */
+    public static String fold(String text) {
+        char[] chars = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int folded = Character.isSurrogate(c) ? 0 : fold(c);
+            if (folded > 0 && folded != c) {
+                if (chars == null)
+                    chars = text.toCharArray();
+                chars[i] = (char) folded;
+            }
+        }
+        return chars == null ? text : new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
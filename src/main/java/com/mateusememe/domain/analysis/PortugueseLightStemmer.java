@@ -0,0 +1,42 @@
+package com.mateusememe.domain.analysis;
+
+/**
+ * Light stemmer for Portuguese that only reduces plurals to the singular,
+ * e.g. {@code filmes -> filme}, {@code acoes -> acao}, {@code animais -> animal},
+ * {@code flores -> flor} and {@code viagens -> viagem}.
+ * <p>
+ * It runs on folded tokens, so the rules see {@code acoes} rather than
+ * {@code ações}. Every rule removes a final {@code s} and leaves a word that
+ * no longer ends in one, so stemming a stem changes nothing and query terms
+ * may safely be analyzed twice. Words of three letters or fewer are kept
+ * as they are.
+ */
+public final class PortugueseLightStemmer implements TokenFilter {
+
+    @Override
+    public int filter(char[] chars, int length) {
+        if (length < 4 || chars[length - 1] != 's')
+            return length;
+
+        char last = chars[length - 2];
+        char beforeLast = chars[length - 3];
+        if (last == 'e' && (beforeLast == 'o' || beforeLast == 'a')) {
+            chars[length - 3] = 'a';
+            chars[length - 2] = 'o';
+            return length - 1;
+        }
+        if (last == 'i' && length >= 5 && (beforeLast == 'a' || beforeLast == 'e' || beforeLast == 'o')) {
+            chars[length - 2] = 'l';
+            return length - 1;
+        }
+        if (last == 'n') {
+            chars[length - 2] = 'm';
+            return length - 1;
+        }
+        if (last == 'e' && length >= 5 && (beforeLast == 'r' || beforeLast == 'z'))
+            return length - 2;
+        if (last == 'a' || last == 'e' || last == 'o')
+            return length - 1;
+        return length;
+    }
+}
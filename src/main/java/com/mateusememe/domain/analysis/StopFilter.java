@@ -0,0 +1,82 @@
+package com.mateusememe.domain.analysis;
+
+/**
+ * Drops tokens found in a stopword list.
+ * <p>
+ * The words are folded like tokens and kept in an open-addressing hash table
+ * of char arrays, so a token is looked up straight from the tokenizer's
+ * buffer without creating a {@link String}.
+ */
+public final class StopFilter implements TokenFilter {
+    /**
+     * Common Portuguese articles, prepositions, contractions, pronouns and
+     * conjunctions, which occur in almost every document and carry no
+     * meaning on their own.
+     */
+    public static final String[] PORTUGUESE = { "a", "o", "as", "os", "ao", "aos", "à", "às", "um", "uma", "uns",
+            "umas", "de", "do", "da", "dos", "das", "dum", "duma", "em", "no", "na", "nos", "nas", "num", "numa",
+            "por", "pelo", "pela", "pelos", "pelas", "para", "pra", "com", "sem", "sob", "e", "ou", "mas", "nem",
+            "que", "se", "como", "quando", "onde", "porque", "ele", "ela", "eles", "elas", "eu", "tu", "voce", "nós",
+            "vos", "me", "te", "lhe", "lhes", "seu", "sua", "seus", "suas", "meu", "minha", "este", "esta", "estes",
+            "estas", "esse", "essa", "esses", "essas", "isto", "isso", "aquele", "aquela", "aquilo", "é", "foi",
+            "ser", "são", "há", "mais", "muito", "já", "também", "só" };
+
+    private final char[][] table;
+
+    /**
+     * @param words The stopwords; they are case and accent folded.
+     */
+    public StopFilter(String... words) {
+        int capacity = Integer.highestOneBit(Math.max(1, words.length) * 4);
+        table = new char[capacity][];
+        for (String word : words) {
+            char[] folded = Analyzer.fold(word).toCharArray();
+            if (!contains(folded, folded.length))
+                table[free(folded)] = folded;
+        }
+    }
+
+    @Override
+    public int filter(char[] chars, int length) {
+        return contains(chars, length) ? 0 : length;
+    }
+
+    /**
+     * @param chars  The buffer holding the token.
+     * @param length The length of the token.
+     * @return Whether the token is a stopword.
+     */
+    public boolean contains(char[] chars, int length) {
+        int mask = table.length - 1;
+        for (int slot = hash(chars, length) & mask; table[slot] != null; slot = (slot + 1) & mask) {
+            if (equals(table[slot], chars, length))
+                return true;
+        }
+        return false;
+    }
+
+    private int free(char[] word) {
+        int mask = table.length - 1;
+        int slot = hash(word, word.length) & mask;
+        while (table[slot] != null)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private static boolean equals(char[] word, char[] chars, int length) {
+        if (word.length != length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (word[i] != chars[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static int hash(char[] chars, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++)
+            hash = 31 * hash + chars[i];
+        return hash ^ (hash >>> 16);
+    }
+}
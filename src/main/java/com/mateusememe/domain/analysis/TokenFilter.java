@@ -0,0 +1,21 @@
+package com.mateusememe.domain.analysis;
+
+/**
+ * One step of an {@link Analyzer} chain, applied to every token after the
+ * {@link Tokenizer} has case and accent folded it.
+ * <p>
+ * Filters rewrite the token in place in the tokenizer's buffer, so a chain
+ * allocates nothing per token. They must be stateless, since one analyzer is
+ * shared by all the tokenizers of an index.
+ */
+@FunctionalInterface
+public interface TokenFilter {
+    /**
+     * @param chars  The token in its first {@code length} chars; may be
+     *               rewritten in place.
+     * @param length The length of the token.
+     * @return The new length of the token, at most {@code length}, or 0 to
+     *         drop the token.
+     */
+    int filter(char[] chars, int length);
+}
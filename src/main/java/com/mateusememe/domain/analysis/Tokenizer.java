@@ -0,0 +1,243 @@
+package com.mateusememe.domain.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming tokenizer shared by indexing and query parsing, so both sides
+ * produce exactly the same terms.
+ * <p>
+ * A token is a maximal run of Unicode letters, digits and {@code _}; everything
+ * else is a separator. Characters are case and accent folded by the
+ * {@link Analyzer} while they are copied into a reusable buffer, with a table
+ * lookup for Latin text, and the analyzer's filters then rewrite or drop the
+ * token in that same buffer, so scanning a document allocates nothing per
+ * token: the consumer receives the same {@link CharSequence} instance for
+ * every token and must copy it if it needs to keep it.
+ * <p>
+ * Instances are not thread-safe; use one per thread.
+ */
+public final class Tokenizer {
+
+    /**
+     * Receives the tokens found by a {@link Tokenizer}.
+     */
+    @FunctionalInterface
+    public interface TokenConsumer {
+        /**
+         * @param token The analyzed token. The instance is reused for the next
+         *              token and must not be retained.
+         */
+        void accept(CharSequence token);
+    }
+
+    private final Analyzer analyzer;
+    private final TokenBuffer token = new TokenBuffer();
+    private int tokenStart;
+
+    /**
+     * Creates a tokenizer with the {@link Analyzer#STANDARD standard}
+     * analyzer.
+     */
+    public Tokenizer() {
+        this(Analyzer.STANDARD);
+    }
+
+    /**
+     * @param analyzer The analyzer that folds and filters the tokens.
+     */
+    public Tokenizer(Analyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Splits the text into analyzed tokens.
+     *
+     * @param text     The text to scan.
+     * @param consumer Callback invoked once per token, in order.
+     */
+    public void tokenize(CharSequence text, TokenConsumer consumer) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            int start = i;
+            int codePoint = text.charAt(i);
+            if (Character.isHighSurrogate((char) codePoint) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1)))
+                codePoint = Character.toCodePoint((char) codePoint, text.charAt(++i));
+            accept(codePoint, start, consumer);
+        }
+        flush(consumer);
+    }
+
+    /**
+     * Splits UTF-8 encoded text into analyzed tokens without decoding it into
+     * a {@link String}: ASCII bytes go straight to the fold table and only
+     * multi-byte sequences are decoded, to a code point, on the fly. Malformed
+     * sequences act as separators. Produces the same tokens as
+     * {@link #tokenize(CharSequence, TokenConsumer)} on the decoded text.
+     *
+     * @param utf8     The encoded text.
+     * @param consumer Callback invoked once per token, in order.
+     */
+    public void tokenize(byte[] utf8, TokenConsumer consumer) {
+        for (int i = 0; i < utf8.length; i++) {
+            int start = i;
+            int b = utf8[i];
+            int codePoint;
+            if (b >= 0) {
+                codePoint = b;
+            } else {
+                int extra = (b & 0xE0) == 0xC0 ? 1 : (b & 0xF0) == 0xE0 ? 2 : (b & 0xF8) == 0xF0 ? 3 : -1;
+                codePoint = extra < 0 ? 0 : b & (0x3F >> extra);
+                for (int k = 0; k < extra; k++) {
+                    if (i + 1 >= utf8.length || (utf8[i + 1] & 0xC0) != 0x80) {
+                        codePoint = 0;
+                        break;
+                    }
+                    codePoint = codePoint << 6 | (utf8[++i] & 0x3F);
+                }
+            }
+            accept(codePoint, start, consumer);
+        }
+        flush(consumer);
+    }
+
+    private void accept(int codePoint, int offset, TokenConsumer consumer) {
+        int folded = Analyzer.fold(codePoint);
+        if (folded > 0) {
+            if (token.length == 0)
+                tokenStart = offset;
+            token.append(folded);
+        } else if (folded == 0) {
+            flush(consumer);
+        }
+    }
+
+    private void flush(TokenConsumer consumer) {
+        if (token.length == 0)
+            return;
+        token.length = analyzer.filter(token.chars, token.length);
+        if (token.length > 0)
+            consumer.accept(token);
+        token.length = 0;
+    }
+
+    /**
+     * Returns where the token currently handed to the consumer starts: a char
+     * index for {@link #tokenize(CharSequence, TokenConsumer)} and a byte offset
+     * for {@link #tokenize(byte[], TokenConsumer)}. Only meaningful inside the
+     * consumer callback.
+     *
+     * @return The offset of the current token's first character.
+     */
+    public int tokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * Convenience for query parsing: returns the tokens of a short text as
+     * strings, with the {@link Analyzer#STANDARD standard} analyzer.
+     *
+     * @param text The text to split, typically a search query.
+     * @return The analyzed tokens, in order.
+     */
+    public static String[] terms(String text) {
+        return terms(text, Analyzer.STANDARD);
+    }
+
+    /**
+     * Same as {@link #terms(String)} with a given analyzer.
+     *
+     * @param text     The text to split.
+     * @param analyzer The analyzer of the index the terms are looked up in.
+     * @return The analyzed tokens, in order.
+     */
+    public static String[] terms(String text, Analyzer analyzer) {
+        List<String> terms = new ArrayList<>();
+        new Tokenizer(analyzer).tokenize(text, token -> terms.add(token.toString()));
+        return terms.toArray(new String[0]);
+    }
+
+    /**
+     * Query parsing that keeps wildcards: like {@link #terms(String)}, but
+     * {@code ?} and {@code *} are part of a token, so {@code "termin*"} stays a
+     * single prefix pattern instead of becoming {@code "termin"}.
+     *
+     * @param query The search query.
+     * @return The analyzed terms and patterns, in order.
+     */
+    public static String[] queryTerms(String query) {
+        return queryTerms(query, Analyzer.STANDARD);
+    }
+
+    /**
+     * Same as {@link #queryTerms(String)} with a given analyzer. Patterns are
+     * folded but not filtered, since a stemmer or stopword list cannot judge a
+     * word that is only partly given.
+     *
+     * @param query    The search query.
+     * @param analyzer The analyzer of the index the terms are looked up in.
+     * @return The analyzed terms and patterns, in order.
+     */
+    public static String[] queryTerms(String query, Analyzer analyzer) {
+        List<String> terms = new ArrayList<>();
+        TokenBuffer term = new TokenBuffer();
+        boolean pattern = false;
+        for (int i = 0; i <= query.length(); i++) {
+            int c = i < query.length() ? query.codePointAt(i) : ' ';
+            if (c > Character.MAX_VALUE)
+                i++;
+            int folded = Analyzer.fold(c);
+            if (folded > 0 || c == '?' || c == '*') {
+                pattern |= folded <= 0;
+                term.append(folded > 0 ? folded : c);
+            } else if (folded == 0 && term.length > 0) {
+                if (!pattern)
+                    term.length = analyzer.filter(term.chars, term.length);
+                if (term.length > 0)
+                    terms.add(term.toString());
+                term.length = 0;
+                pattern = false;
+            }
+        }
+        return terms.toArray(new String[0]);
+    }
+
+    /**
+     * Growable character buffer exposed to consumers as a {@link CharSequence}.
+     */
+    private static final class TokenBuffer implements CharSequence {
+        private char[] chars = new char[32];
+        private int length;
+
+        void append(int codePoint) {
+            if (length + 2 > chars.length)
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            if (codePoint > Character.MAX_VALUE)
+                length += Character.toChars(codePoint, chars, length);
+            else
+                chars[length++] = (char) codePoint;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+}
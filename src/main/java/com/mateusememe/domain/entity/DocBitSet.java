@@ -0,0 +1,202 @@
+package com.mateusememe.domain.entity;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size bit set of document IDs, used both as the container of dense
+ * posting lists and as the accumulator of AND/OR operations. Combining two bit
+ * sets works a 64-bit word at a time.
+ */
+public final class DocBitSet {
+    private final long[] words;
+
+    /**
+     * Creates an empty bit set able to hold document IDs in {@code [0, numBits)}.
+     *
+     * @param numBits The number of addressable document IDs.
+     */
+    public DocBitSet(int numBits) {
+        this.words = new long[(numBits + 63) >>> 6];
+    }
+
+    private DocBitSet(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Wraps existing words without copying them.
+     *
+     * @param words The bit words, document {@code d} being bit {@code d % 64} of
+     *              word {@code d / 64}.
+     * @return A bit set backed by the given words.
+     */
+    public static DocBitSet wrap(long[] words) {
+        return new DocBitSet(words);
+    }
+
+    /**
+     * @return A copy of this bit set.
+     */
+    public DocBitSet copy() {
+        return new DocBitSet(words.clone());
+    }
+
+    /**
+     * @param doc The document ID to add.
+     */
+    public void set(int doc) {
+        words[doc >>> 6] |= 1L << doc;
+    }
+
+    /**
+     * Adds every document ID in {@code [from, to]}, filling whole words at once.
+     *
+     * @param from The first document ID, inclusive.
+     * @param to   The last document ID, inclusive.
+     */
+    public void set(int from, int to) {
+        int first = from >>> 6;
+        int last = to >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> (63 - (to & 63));
+        if (first == last) {
+            words[first] |= firstMask & lastMask;
+            return;
+        }
+        words[first] |= firstMask;
+        Arrays.fill(words, first + 1, last, -1L);
+        words[last] |= lastMask;
+    }
+
+    /**
+     * @param doc The document ID.
+     * @return {@code true} if the document is in the set.
+     */
+    public boolean get(int doc) {
+        int word = doc >>> 6;
+        return word < words.length && (words[word] & (1L << doc)) != 0;
+    }
+
+    /**
+     * Keeps only the documents also present in {@code other}.
+     *
+     * @param other The bit set to intersect with.
+     */
+    public void and(DocBitSet other) {
+        int common = Math.min(words.length, other.words.length);
+        for (int i = 0; i < common; i++)
+            words[i] &= other.words[i];
+        Arrays.fill(words, common, words.length, 0L);
+    }
+
+    /**
+     * Adds every document of {@code other}. Bits beyond this set's capacity are
+     * ignored.
+     *
+     * @param other The bit set to merge.
+     */
+    public void or(DocBitSet other) {
+        int common = Math.min(words.length, other.words.length);
+        for (int i = 0; i < common; i++)
+            words[i] |= other.words[i];
+    }
+
+    /**
+     * Removes every document of {@code other}.
+     *
+     * @param other The bit set to subtract.
+     */
+    public void andNot(DocBitSet other) {
+        int common = Math.min(words.length, other.words.length);
+        for (int i = 0; i < common; i++)
+            words[i] &= ~other.words[i];
+    }
+
+    /**
+     * @return The number of documents in the set.
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * @param from The document ID to start from, inclusive.
+     * @return The first document ID {@code >= from} in the set, or
+     *         {@link DocIdIterator#NO_MORE_DOCS}.
+     */
+    public int nextSetBit(int from) {
+        int index = from >>> 6;
+        if (index >= words.length)
+            return DocIdIterator.NO_MORE_DOCS;
+        long word = words[index] & (-1L << from);
+        while (word == 0) {
+            if (++index >= words.length)
+                return DocIdIterator.NO_MORE_DOCS;
+            word = words[index];
+        }
+        return (index << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * @return The document IDs in the set, ascending.
+     */
+    public int[] toArray() {
+        int[] docs = new int[cardinality()];
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                docs[count++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return docs;
+    }
+
+    /**
+     * @return The backing words. They must not be modified.
+     */
+    public long[] words() {
+        return words;
+    }
+
+    /**
+     * Returns a cursor over the set.
+     *
+     * @param cost The number of documents in the set if already known, used as
+     *             the cursor's {@link DocIdIterator#cost()}; pass -1 to have
+     *             it counted.
+     * @return A new, unpositioned cursor.
+     */
+    public DocIdIterator iterator(long cost) {
+        long resolved = cost < 0 ? cardinality() : cost;
+        return new DocIdIterator() {
+            private int doc = -1;
+
+            @Override
+            public int docID() {
+                return doc;
+            }
+
+            @Override
+            public int nextDoc() {
+                return doc = doc == NO_MORE_DOCS ? NO_MORE_DOCS : nextSetBit(doc + 1);
+            }
+
+            @Override
+            public int advance(int target) {
+                if (doc >= target)
+                    return doc;
+                return doc = nextSetBit(target);
+            }
+
+            @Override
+            public long cost() {
+                return resolved;
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.mateusememe.domain.entity;
+
+/**
+ * Forward-only iterator over an ascending sequence of document IDs.
+ * <p>
+ * An iterator starts unpositioned ({@link #docID()} returns -1) and is moved
+ * with {@link #nextDoc()} or {@link #advance(int)}; both return
+ * {@link #NO_MORE_DOCS} once the sequence is exhausted. {@code advance} lets
+ * implementations skip over documents that cannot match, which is what makes
+ * intersections cost proportional to the shortest input.
+ */
+public interface DocIdIterator {
+    /**
+     * Sentinel returned when there are no more documents.
+     */
+    int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    /**
+     * @return The current document ID, -1 if the iterator has not been
+     *         positioned yet, or {@link #NO_MORE_DOCS} if it is exhausted.
+     */
+    int docID();
+
+    /**
+     * Moves to the next document.
+     *
+     * @return The next document ID, or {@link #NO_MORE_DOCS}.
+     */
+    int nextDoc();
+
+    /**
+     * Moves to the first document whose ID is greater than or equal to
+     * {@code target}. If the iterator is already on such a document it stays
+     * there.
+     *
+     * @param target The document ID to advance to.
+     * @return The new current document ID, or {@link #NO_MORE_DOCS}.
+     */
+    int advance(int target);
+
+    /**
+     * @return An upper bound of the number of documents this iterator can
+     *         return, used to order iterators from cheapest to most expensive.
+     */
+    long cost();
+}
@@ -0,0 +1,158 @@
+package com.mateusememe.domain.entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps file names to dense integer document IDs and back.
+ * IDs are assigned in insertion order starting at zero, so postings can be
+ * stored as sorted int arrays and names are only resolved for final results.
+ * <p>
+ * The table also keeps the length of every document in tokens, which
+ * relevance scoring normalizes term frequencies by.
+ * <p>
+ * Removing a document only releases its name; its ID stays allocated (and
+ * resolves to {@code null}) until {@link #compact()} renumbers the remaining
+ * documents.
+ */
+public class DocumentTable {
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private int[] lengths = new int[16];
+    private long totalLength;
+    private int live;
+
+    /**
+     * Returns the ID of the given document, registering it if it is new.
+     *
+     * @param name The document (file) name.
+     * @return The document ID.
+     */
+    public int add(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+            live++;
+        }
+        return id;
+    }
+
+    /**
+     * Removes a document. Its ID is not reused.
+     *
+     * @param name The document (file) name.
+     * @return The ID the document had, or -1 if it was unknown.
+     */
+    public int remove(String name) {
+        Integer id = ids.remove(name);
+        if (id == null)
+            return -1;
+        names.set(id, null);
+        setLength(id, 0);
+        live--;
+        return id;
+    }
+
+    /**
+     * Renumbers the remaining documents densely, keeping their relative order.
+     *
+     * @return The new ID of every old ID, or -1 for removed documents.
+     */
+    public int[] compact() {
+        int[] mapping = new int[names.size()];
+        int[] compactedLengths = new int[Math.max(16, live)];
+        int next = 0;
+        for (int id = 0; id < mapping.length; id++) {
+            String name = names.get(id);
+            if (name == null) {
+                mapping[id] = -1;
+                continue;
+            }
+            mapping[id] = next;
+            names.set(next, name);
+            ids.put(name, next);
+            compactedLengths[next++] = length(id);
+        }
+        names.subList(next, names.size()).clear();
+        lengths = compactedLengths;
+        return mapping;
+    }
+
+    /**
+     * Looks up the ID of a document.
+     *
+     * @param name The document (file) name.
+     * @return The document ID, or -1 if the document is unknown.
+     */
+    public int id(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Resolves a document ID to its name.
+     *
+     * @param id The document ID.
+     * @return The document (file) name, or {@code null} if the document was
+     *         removed.
+     */
+    public String name(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Records the length of a document.
+     *
+     * @param id     The document ID.
+     * @param length The number of tokens in the document.
+     */
+    public void setLength(int id, int length) {
+        if (id >= lengths.length)
+            lengths = Arrays.copyOf(lengths, Math.max(lengths.length * 2, id + 1));
+        totalLength += length - lengths[id];
+        lengths[id] = length;
+    }
+
+    /**
+     * @param id The document ID.
+     * @return The number of tokens in the document, or 0 if it was not
+     *         recorded.
+     */
+    public int length(int id) {
+        return id < lengths.length ? lengths[id] : 0;
+    }
+
+    /**
+     * @return The mean document length in tokens, or 0 for an empty table.
+     */
+    public double averageLength() {
+        return live == 0 ? 0 : (double) totalLength / live;
+    }
+
+    /**
+     * @return The number of tokens in all documents that were not removed.
+     */
+    public long totalLength() {
+        return totalLength;
+    }
+
+    /**
+     * @return The number of documents that were not removed.
+     */
+    public int liveCount() {
+        return live;
+    }
+
+    /**
+     * @return The number of allocated document IDs, removed documents
+     *         included; every ID is below this bound.
+     */
+    public int size() {
+        return names.size();
+    }
+}
@@ -1,10 +1,17 @@
 package com.mateusememe.domain.entity;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.IntPredicate;
+
+import com.mateusememe.domain.analysis.Analyzer;
+import com.mateusememe.domain.analysis.Tokenizer;
 
 /**
  * An optimized data structure for efficient indexing and searching of strings
@@ -12,14 +19,139 @@ import java.util.Set;
  * This class provides methods for inserting file contents, searching for terms
  * across files,
  * and counting term occurrences within specific files.
+ * <p>
+ * Files are registered in a {@link DocumentTable} that assigns them dense int
+ * IDs; every term is interned into a {@link TermDictionary} and its term ID
+ * selects a {@link PostingList} of those document IDs. Searches work on IDs
+ * only and resolve file names for the final result.
+ * <p>
+ * Content is split by a {@link Tokenizer}, the same one used to parse queries,
+ * which streams tokens through a reused buffer so indexing allocates nothing
+ * per token occurrence. The index's {@link Analyzer} decides how tokens are
+ * normalized; queries must be parsed with the same one, see
+ * {@link #analyzer()}. Terms given to lookup methods are folded, so they may
+ * be typed with any case and accents.
+ * <p>
+ * When built with positions, the index also records the token positions of
+ * every term in every document ({@link TermPositions}), which enables phrase
+ * and proximity queries through {@link #searchPhrase(String[], int)}, plus the
+ * sentence boundaries of every document ({@link SentenceTable}) so snippets can
+ * be read without scanning the whole file.
+ * <p>
+ * Query terms containing {@code ?} or {@code *} are wildcard patterns. They
+ * are expanded through the sorted view of the {@link TermDictionary} and
+ * stand for the union of the postings of every matching term, at most
+ * {@value #MAX_EXPANSIONS} of them. Fuzzy searches similarly let each term
+ * stand for the indexed terms within a small edit distance of it.
+ * <p>
+ * Documents can be removed or replaced after the index is built. A removed
+ * document is only marked as deleted and skipped by searches; its postings are
+ * purged, and the remaining documents renumbered, by {@link #compact()}, which
+ * runs automatically once a quarter of the IDs belong to deleted documents.
+ * Replacing a document removes it and appends the new content under a fresh
+ * ID, so an update only touches the posting lists of the changed file.
  */
 public class Indexer {
     /**
-     * The main index structure. Keys are individual words, values are sets of file
-     * names
-     * containing those words.
+     * Compaction runs once more than 1 / {@value} of the document IDs belong
+     * to deleted documents.
+     */
+    private static final int COMPACTION_RATIO = 4;
+
+    /**
+     * Maximum number of terms a single wildcard pattern may expand to. Broader
+     * patterns are rejected rather than silently truncated.
+     */
+    public static final int MAX_EXPANSIONS = 1024;
+
+    /**
+     * Maximum edit distance of fuzzy queries.
+     */
+    public static final int MAX_EDITS = 2;
+
+    /**
+     * Number of closest terms a fuzzy query term expands to. Unlike patterns,
+     * broader fuzzy terms keep their best matches instead of failing.
+     */
+    public static final int MAX_FUZZY_EXPANSIONS = 64;
+
+    /**
+     * The table of indexed files and their document IDs.
+     */
+    private DocumentTable documents = new DocumentTable();
+
+    /**
+     * The dictionary of individual words, mapping each to its term ID.
+     */
+    private TermDictionary dictionary = new TermDictionary();
+
+    /**
+     * The main index structure, indexed by term ID. Each entry holds the sorted
+     * IDs of the documents containing that term.
+     */
+    private final List<PostingList> index = new ArrayList<>();
+
+    /**
+     * Token positions per term ID, parallel to {@link #index}. Empty unless
+     * positions are stored.
+     */
+    private final List<TermPositions> positions = new ArrayList<>();
+
+    /**
+     * Sentence boundaries per document. Only filled when positions are stored,
+     * since mapping a term to its sentence goes through its positions.
+     */
+    private SentenceTable sentences = new SentenceTable();
+
+    /**
+     * Documents removed since the last compaction. Their IDs may still appear
+     * in posting lists and are filtered out of every search.
+     */
+    private DocBitSet deleted = new DocBitSet(0);
+    private int deletedCount;
+
+    /**
+     * Incremented by every change that can alter a search result, so callers
+     * holding on to earlier results can tell they are stale.
+     */
+    private volatile long generation;
+
+    private final boolean storePositions;
+    private final Analyzer analyzer;
+    private final Tokenizer tokenizer;
+    private int nextPosition;
+    private int[] currentSentences;
+    private int currentSentence;
+
+    /**
+     * Creates an index that only records which documents contain each term.
+     */
+    public Indexer() {
+        this(false);
+    }
+
+    /**
+     * Creates an index, optionally recording term positions.
+     *
+     * @param storePositions Whether to record the position of every term
+     *                       occurrence, required for phrase queries.
+     */
+    public Indexer(boolean storePositions) {
+        this(storePositions, Analyzer.STANDARD);
+    }
+
+    /**
+     * Creates an index with a given analyzer.
+     *
+     * @param storePositions Whether to record the position of every term
+     *                       occurrence, required for phrase queries.
+     * @param analyzer       The analyzer applied to the indexed content.
      */
-    private final Map<String, HashSet<String>> index = new HashMap<>();
+    public Indexer(boolean storePositions, Analyzer analyzer) {
+        this.storePositions = storePositions;
+        this.analyzer = analyzer;
+        this.tokenizer = new Tokenizer(analyzer);
+    }
 
     /**
      * Inserts the content of a file into the index.
@@ -30,8 +162,327 @@ public class Indexer {
      * @param content  The content of the file to be indexed.
      */
     public void insert(String fileName, String content) {
-        Arrays.stream(content.toLowerCase().split("\\W+"))
-                .forEach(word -> index.computeIfAbsent(word, k -> new HashSet<>()).add(fileName));
+        insert(fileName, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Inserts the UTF-8 encoded content of a file into the index, tokenizing the
+     * raw bytes without decoding them into a {@link String} first.
+     *
+     * @param fileName The name of the file being indexed.
+     * @param content  The UTF-8 encoded content of the file to be indexed.
+     */
+    public void insert(String fileName, byte[] content) {
+        generation++;
+        int doc = documents.add(fileName);
+        nextPosition = 0;
+        if (!storePositions) {
+            tokenizer.tokenize(content, token -> addOccurrence(token, doc));
+            documents.setLength(doc, nextPosition);
+            return;
+        }
+
+        currentSentences = SentenceTable.split(content);
+        currentSentence = 0;
+        tokenizer.tokenize(content, token -> addOccurrence(token, doc));
+        for (int sentence = currentSentence + 1; sentence < SentenceTable.count(currentSentences); sentence++)
+            SentenceTable.setFirstToken(currentSentences, sentence, nextPosition);
+        sentences.put(doc, currentSentences);
+        currentSentences = null;
+        documents.setLength(doc, nextPosition);
+    }
+
+    /**
+     * Replaces the indexed content of a file, or indexes it if it is new.
+     *
+     * @param fileName The name of the file.
+     * @param content  The new content of the file.
+     */
+    public void updateDocument(String fileName, String content) {
+        updateDocument(fileName, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Replaces the indexed content of a file, or indexes it if it is new. Only
+     * the posting lists of the terms in the new content are modified.
+     *
+     * @param fileName The name of the file.
+     * @param content  The new UTF-8 encoded content of the file.
+     */
+    public void updateDocument(String fileName, byte[] content) {
+        removeDocument(fileName);
+        insert(fileName, content);
+    }
+
+    /**
+     * Removes a file from the index. Searches stop returning it immediately;
+     * its postings are purged by the next {@link #compact()}.
+     *
+     * @param fileName The name of the file.
+     * @return {@code true} if the file was indexed.
+     */
+    public boolean removeDocument(String fileName) {
+        int doc = documents.remove(fileName);
+        if (doc < 0)
+            return false;
+
+        generation++;
+        if (doc >= deleted.words().length * Long.SIZE) {
+            DocBitSet grown = new DocBitSet(Math.max(documents.size(), deleted.words().length * 2 * Long.SIZE));
+            grown.or(deleted);
+            deleted = grown;
+        }
+        deleted.set(doc);
+        deletedCount++;
+        if (storePositions)
+            sentences.put(doc, null);
+
+        if (deletedCount * COMPACTION_RATIO > documents.size())
+            compact();
+        return true;
+    }
+
+    /**
+     * Purges the postings of removed documents and renumbers the remaining ones
+     * densely, then freezes the rewritten lists. Document IDs obtained before
+     * compaction are invalidated; file names stay valid.
+     */
+    public void compact() {
+        if (deletedCount == 0)
+            return;
+
+        int[] mapping = documents.compact();
+        for (int id = 0; id < index.size(); id++) {
+            PostingList remapped = new PostingList();
+            PostingsIterator iterator = index.get(id).iterator();
+            for (int doc = iterator.nextDoc(); doc != DocIdIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                if (mapping[doc] >= 0)
+                    remapped.add(mapping[doc], iterator.frequency());
+            }
+            remapped.freeze();
+            index.set(id, remapped);
+
+            if (storePositions) {
+                TermPositions source = positions.get(id);
+                TermPositions target = new TermPositions();
+                for (int entry = 0; entry < source.size(); entry++) {
+                    int doc = mapping[source.docAt(entry)];
+                    if (doc < 0)
+                        continue;
+                    for (int position : source.positionsAt(entry))
+                        target.add(doc, position);
+                }
+                target.freeze();
+                positions.set(id, target);
+            }
+        }
+        sentences.remap(mapping);
+        deleted = new DocBitSet(0);
+        deletedCount = 0;
+    }
+
+    private void addOccurrence(CharSequence token, int doc) {
+        int id = termId(token);
+        index.get(id).add(doc);
+        if (storePositions) {
+            positions.get(id).add(doc, nextPosition);
+            int start = tokenizer.tokenStart();
+            int count = SentenceTable.count(currentSentences);
+            while (currentSentence + 1 < count && SentenceTable.start(currentSentences, currentSentence + 1) <= start)
+                SentenceTable.setFirstToken(currentSentences, ++currentSentence, nextPosition);
+        }
+        nextPosition++;
+    }
+
+    private int termId(CharSequence term) {
+        int id = dictionary.intern(term);
+        if (id == index.size()) {
+            index.add(new PostingList());
+            if (storePositions)
+                positions.add(new TermPositions());
+        }
+        return id;
+    }
+
+    /**
+     * Returns the modification count of the index. It changes whenever a
+     * document is inserted, updated or removed, or postings are added, so a
+     * result computed at one generation is valid for as long as the generation
+     * stays the same. Compaction renumbers documents without changing any
+     * result and keeps the generation.
+     *
+     * @return The current generation.
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Returns the posting list of a term, e.g. to read its term frequencies.
+     *
+     * @param term The term.
+     * @return The term's postings, or {@code null} if the term is unknown. The
+     *         list must not be modified.
+     */
+    public PostingList postings(String term) {
+        int id = dictionary.id(Analyzer.fold(term));
+        return id < 0 ? null : index.get(id);
+    }
+
+    /**
+     * Expands a query term into the indexed terms it stands for.
+     *
+     * @param term The query term, possibly a wildcard pattern.
+     * @return The term itself, lower-cased, if it is not a pattern; otherwise
+     *         the matching indexed terms in lexicographic order, possibly none.
+     * @throws IllegalArgumentException if the pattern matches more than
+     *                                  {@value #MAX_EXPANSIONS} terms.
+     */
+    public String[] expand(String term) {
+        return expand(term, 0);
+    }
+
+    /**
+     * Expands a query term into the indexed terms it stands for, allowing
+     * typos when {@code maxEdits} is positive.
+     *
+     * @param term     The query term, possibly a wildcard pattern.
+     * @param maxEdits The edit distance allowed for terms that are not
+     *                 patterns, from 0 to {@value #MAX_EDITS}.
+     * @return The term itself, lower-cased, for an exact term; the matching
+     *         indexed terms, lexicographically for a pattern and closest first
+     *         for a fuzzy term.
+     * @throws IllegalArgumentException if a pattern matches more than
+     *                                  {@value #MAX_EXPANSIONS} terms or the
+     *                                  edit distance is out of range.
+     */
+    public String[] expand(String term, int maxEdits) {
+        String normalized = Analyzer.fold(term);
+        if (!TermDictionary.isPattern(normalized) && allowedEdits(normalized, maxEdits) == 0)
+            return new String[] { normalized };
+
+        int[] ids = termIds(normalized, maxEdits);
+        String[] expanded = new String[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            expanded[i] = dictionary.term(ids[i]);
+        return expanded;
+    }
+
+    /**
+     * Expands every query term, see {@link #expand(String)}, e.g. to rank or
+     * highlight the terms a wildcard query actually matched.
+     *
+     * @param terms The query terms.
+     * @return The distinct expanded terms, in query order.
+     * @throws IllegalArgumentException if a pattern matches too many terms.
+     */
+    public String[] expandAll(String[] terms) {
+        return expandAll(terms, 0);
+    }
+
+    /**
+     * Expands every query term, see {@link #expand(String, int)}.
+     *
+     * @param terms    The query terms.
+     * @param maxEdits The edit distance allowed for terms that are not
+     *                 patterns.
+     * @return The distinct expanded terms, in query order.
+     * @throws IllegalArgumentException if a pattern matches too many terms or
+     *                                  the edit distance is out of range.
+     */
+    public String[] expandAll(String[] terms, int maxEdits) {
+        Set<String> expanded = new LinkedHashSet<>();
+        for (String term : terms)
+            expanded.addAll(Arrays.asList(expand(term, maxEdits)));
+        return expanded.toArray(new String[0]);
+    }
+
+    /**
+     * Resolves a normalized query term to the IDs of the indexed terms it
+     * stands for: the term itself, the terms matching a pattern, or the
+     * closest terms within the allowed edit distance.
+     */
+    private int[] termIds(String term, int maxEdits) {
+        if (TermDictionary.isPattern(term)) {
+            int[] ids = dictionary.match(term, MAX_EXPANSIONS + 1);
+            if (ids.length > MAX_EXPANSIONS)
+                throw new IllegalArgumentException(
+                        "Pattern \"" + term + "\" matches more than " + MAX_EXPANSIONS + " terms");
+            return ids;
+        }
+
+        int edits = allowedEdits(term, maxEdits);
+        if (edits > 0)
+            return dictionary.fuzzyMatch(term, edits, MAX_FUZZY_EXPANSIONS);
+        int id = dictionary.id(term);
+        return id < 0 ? new int[0] : new int[] { id };
+    }
+
+    /**
+     * Caps the requested edit distance by the length of the term: terms of up
+     * to two characters must match exactly and terms of up to five allow a
+     * single edit, since more edits than that match mostly unrelated words.
+     */
+    private static int allowedEdits(String term, int maxEdits) {
+        if (maxEdits < 0 || maxEdits > MAX_EDITS)
+            throw new IllegalArgumentException(
+                    "Edit distance must be between 0 and " + MAX_EDITS + ": " + maxEdits);
+        int lengthCap = term.length() <= 2 ? 0 : term.length() <= 5 ? 1 : 2;
+        return Math.min(maxEdits, lengthCap);
+    }
+
+    /**
+     * Resolves a query term to its postings. When it stands for a single
+     * indexed term that term's list is used directly; otherwise the matching
+     * lists are ORed into a bitmap.
+     *
+     * @param term     The query term, possibly a wildcard pattern.
+     * @param maxEdits The edit distance allowed if the term is not a pattern.
+     * @return The postings of every document holding the term or one of its
+     *         expansions, or {@code null} if there is none. Removed documents
+     *         may still be listed. The list must not be modified.
+     * @throws IllegalArgumentException if a pattern matches too many terms or
+     *                                  the edit distance is out of range.
+     */
+    public PostingList termPostings(String term, int maxEdits) {
+        int[] ids = termIds(Analyzer.fold(term), maxEdits);
+        if (ids.length == 0)
+            return null;
+        if (ids.length == 1)
+            return index.get(ids[0]);
+        DocBitSet union = new DocBitSet(documents.size());
+        for (int id : ids)
+            index.get(id).addTo(union);
+        return PostingList.fromBitmap(union.words(), union.cardinality());
+    }
+
+    /**
+     * Resolves a phrase term to its positions, merging the positions of every
+     * indexed term it stands for.
+     */
+    private TermPositions phrasePositions(String term, int maxEdits) {
+        int[] ids = termIds(Analyzer.fold(term), maxEdits);
+        if (ids.length <= 1)
+            return ids.length == 0 ? null : positions.get(ids[0]);
+        long[] occurrences = new long[16];
+        int count = 0;
+        for (int id : ids) {
+            TermPositions source = positions.get(id);
+            for (int entry = 0; entry < source.size(); entry++) {
+                long doc = (long) source.docAt(entry) << 32;
+                for (int position : source.positionsAt(entry)) {
+                    if (count == occurrences.length)
+                        occurrences = Arrays.copyOf(occurrences, count * 2);
+                    occurrences[count++] = doc | position;
+                }
+            }
+        }
+        Arrays.sort(occurrences, 0, count);
+        TermPositions merged = new TermPositions();
+        for (int i = 0; i < count; i++)
+            merged.add((int) (occurrences[i] >>> 32), (int) occurrences[i]);
+        merged.freeze();
+        return merged;
     }
 
     /**
@@ -41,25 +492,261 @@ public class Indexer {
      * It optimizes the search by starting with the least common term and uses early
      * termination
      * if the result set becomes empty.
+     * <p>
+     * Posting lists are only read through cursors, so the index is never
+     * modified and any number of searches may run against it concurrently.
+     * Terms stored as bitmaps are first ANDed together word by word and then
+     * joined with the sparse terms.
      *
      * @param terms An array of search terms to look for.
      * @return A Set of file names that contain all the search terms.
      */
     public Set<String> search(String[] terms) {
+        return search(terms, 0);
+    }
+
+    /**
+     * Typo-tolerant variant of {@link #search(String[])}: every term that is
+     * not a pattern matches the up to {@value #MAX_FUZZY_EXPANSIONS} closest
+     * indexed terms within {@code maxEdits} insertions, deletions or
+     * substitutions.
+     *
+     * @param terms    An array of search terms to look for.
+     * @param maxEdits The edit distance allowed per term, from 0 (exact) to
+     *                 {@value #MAX_EDITS}.
+     * @return A Set of file names that contain a match for every term.
+     * @throws IllegalArgumentException if the edit distance is out of range.
+     */
+    public Set<String> search(String[] terms, int maxEdits) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int doc : searchIds(terms, maxEdits))
+            result.add(documents.name(doc));
+        return result;
+    }
+
+    /**
+     * Same as {@link #search(String[])} but returns the matching document IDs,
+     * in ascending order, without resolving their names.
+     *
+     * @param terms An array of search terms to look for.
+     * @return The IDs of the documents that contain all the search terms.
+     */
+    public int[] searchIds(String[] terms) {
+        return searchIds(terms, 0);
+    }
+
+    /**
+     * Same as {@link #search(String[], int)} but returns the matching document
+     * IDs, in ascending order.
+     *
+     * @param terms    An array of search terms to look for.
+     * @param maxEdits The edit distance allowed per term.
+     * @return The IDs of the documents that contain a match for every term.
+     */
+    public int[] searchIds(String[] terms, int maxEdits) {
+        return conjunction(terms, maxEdits, null);
+    }
+
+    /**
+     * Searches for files containing the given terms as a phrase: consecutive
+     * and in order when {@code slop} is zero, or in order with at most
+     * {@code slop} other tokens between each pair of consecutive terms.
+     *
+     * @param terms The phrase terms, in order.
+     * @param slop  The number of extra tokens allowed between consecutive terms.
+     * @return A Set of file names that contain the phrase.
+     * @throws IllegalStateException if the index does not store positions.
+     */
+    public Set<String> searchPhrase(String[] terms, int slop) {
+        return searchPhrase(terms, slop, 0);
+    }
+
+    /**
+     * Typo-tolerant variant of {@link #searchPhrase(String[], int)}, in which
+     * every phrase term may be any of its fuzzy matches.
+     *
+     * @param terms    The phrase terms, in order.
+     * @param slop     The number of extra tokens allowed between consecutive
+     *                 terms.
+     * @param maxEdits The edit distance allowed per term.
+     * @return A Set of file names that contain the phrase.
+     * @throws IllegalStateException if the index does not store positions.
+     */
+    public Set<String> searchPhrase(String[] terms, int slop, int maxEdits) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int doc : searchPhraseIds(terms, slop, maxEdits))
+            result.add(documents.name(doc));
+        return result;
+    }
+
+    /**
+     * Same as {@link #searchPhrase(String[], int)} but returns the matching
+     * document IDs, ascending. Adjacency is checked on each candidate as the
+     * intersection produces it, so no document is re-read.
+     *
+     * @param terms The phrase terms, in order.
+     * @param slop  The number of extra tokens allowed between consecutive terms.
+     * @return The IDs of the documents that contain the phrase.
+     * @throws IllegalStateException if the index does not store positions.
+     */
+    public int[] searchPhraseIds(String[] terms, int slop) {
+        return searchPhraseIds(terms, slop, 0);
+    }
+
+    /**
+     * Same as {@link #searchPhrase(String[], int, int)} but returns the
+     * matching document IDs, ascending.
+     *
+     * @param terms    The phrase terms, in order.
+     * @param slop     The number of extra tokens allowed between consecutive
+     *                 terms.
+     * @param maxEdits The edit distance allowed per term.
+     * @return The IDs of the documents that contain the phrase.
+     * @throws IllegalStateException if the index does not store positions.
+     */
+    public int[] searchPhraseIds(String[] terms, int slop, int maxEdits) {
+        if (!storePositions)
+            throw new IllegalStateException("Phrase queries need an index built with positions");
+        if (terms.length < 2)
+            return searchIds(terms, maxEdits);
+
+        TermPositions[] phrase = new TermPositions[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            phrase[i] = phrasePositions(terms[i], maxEdits);
+            if (phrase[i] == null)
+                return new int[0];
+        }
+        return conjunction(terms, maxEdits, doc -> matchesPhrase(phrase, doc, slop));
+    }
+
+    /**
+     * Checks whether the terms occur in order with at most {@code slop} tokens
+     * between neighbours. For each occurrence of the first term the earliest
+     * valid occurrence of every following term is taken, which is optimal since
+     * an earlier choice never rules out a later match.
+     */
+    private static boolean matchesPhrase(TermPositions[] phrase, int doc, int slop) {
+        int[][] occurrences = new int[phrase.length][];
+        for (int i = 0; i < phrase.length; i++)
+            occurrences[i] = phrase[i].positions(doc);
+
+        int[] cursors = new int[phrase.length];
+        starts:
+        for (int start : occurrences[0]) {
+            int previous = start;
+            for (int i = 1; i < phrase.length; i++) {
+                int[] candidates = occurrences[i];
+                int cursor = cursors[i];
+                while (cursor < candidates.length && candidates[cursor] <= previous)
+                    cursor++;
+                cursors[i] = cursor;
+                if (cursor == candidates.length)
+                    return false;
+                if (candidates[cursor] > previous + 1 + slop)
+                    continue starts;
+                previous = candidates[cursor];
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private int[] conjunction(String[] terms, int maxEdits, IntPredicate filter) {
         if (terms.length == 0)
-            return new HashSet<>();
+            return new int[0];
+        if (deletedCount > 0) {
+            DocBitSet removed = deleted;
+            IntPredicate extra = filter;
+            filter = extra == null ? doc -> !removed.get(doc) : doc -> !removed.get(doc) && extra.test(doc);
+        }
+
+        PostingList[] lists = new PostingList[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            lists[i] = termPostings(terms[i], maxEdits);
+            if (lists[i] == null)
+                return new int[0];
+        }
+        Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
 
-        Set<String> result = index.getOrDefault(terms[0].toLowerCase(), new HashSet<>());
-        if (terms.length == 1)
-            return result;
+        List<DocIdIterator> iterators = new ArrayList<>(lists.length);
+        DocBitSet dense = null;
+        boolean copied = false;
+        for (PostingList list : lists) {
+            DocBitSet bitmap = list.bitmap();
+            if (bitmap == null) {
+                iterators.add(list.iterator());
+            } else if (dense == null) {
+                dense = bitmap;
+            } else {
+                if (!copied) {
+                    dense = dense.copy();
+                    copied = true;
+                }
+                dense.and(bitmap);
+            }
+        }
+        if (dense != null) {
+            long cardinality = dense.cardinality();
+            if (cardinality == 0)
+                return new int[0];
+            iterators.add(dense.iterator(cardinality));
+        }
+        iterators.sort(Comparator.comparingLong(DocIdIterator::cost));
+        return intersect(iterators.toArray(new DocIdIterator[0]), filter);
+    }
 
+    /**
+     * Searches for documents containing any of the given terms (OR). Dense
+     * lists are merged a 64-bit word at a time through a {@link DocBitSet}.
+     *
+     * @param terms An array of search terms to look for.
+     * @return The IDs of the documents containing at least one of the terms,
+     *         ascending.
+     */
+    public int[] searchAnyIds(String[] terms) {
+        DocBitSet union = new DocBitSet(documents.size());
         for (String term : terms) {
-            if (!index.containsKey(term))
-                return new HashSet<>();
-            result.retainAll(index.getOrDefault(term.toLowerCase(), new HashSet<>()));
+            PostingList list = termPostings(term, 0);
+            if (list != null)
+                list.addTo(union);
         }
+        if (deletedCount > 0)
+            union.andNot(deleted);
+        return union.toArray();
+    }
 
-        return result;
+    /**
+     * Leapfrog intersection: the rarest list leads and every other list is
+     * advanced to its candidate, skipping ahead with galloping search. When a
+     * list overshoots, the leader jumps to that document instead. The cost is
+     * bounded by the length of the rarest list times the skip cost, not by the
+     * length of the common ones.
+     *
+     * @param iterators Cursors ordered from the rarest to the most common term.
+     * @param filter    Extra condition every match must satisfy, or
+     *                  {@code null}.
+     * @return The document IDs present in every cursor, ascending.
+     */
+    private static int[] intersect(DocIdIterator[] iterators, IntPredicate filter) {
+        DocIdIterator lead = iterators[0];
+        int[] result = new int[(int) lead.cost()];
+        int count = 0;
+
+        int doc = lead.nextDoc();
+        candidates:
+        while (doc != DocIdIterator.NO_MORE_DOCS) {
+            for (int i = 1; i < iterators.length; i++) {
+                int other = iterators[i].advance(doc);
+                if (other != doc) {
+                    doc = lead.advance(other);
+                    continue candidates;
+                }
+            }
+            if (filter == null || filter.test(doc))
+                result[count++] = doc;
+            doc = lead.nextDoc();
+        }
+        return Arrays.copyOf(result, count);
     }
 
     /**
@@ -72,9 +759,344 @@ public class Indexer {
      * @return The number of terms from the input that appear in the specified file.
      */
     public int countOccurrences(String fileName, String[] terms) {
-        return (int) Arrays.stream(terms)
-                .map(String::toLowerCase)
-                .filter(term -> index.getOrDefault(term, new HashSet<>()).contains(fileName))
-                .count();
+        int doc = documents.id(fileName);
+        if (doc < 0)
+            return 0;
+
+        int count = 0;
+        for (String term : terms) {
+            PostingList postings = termPostings(term, 0);
+            if (postings != null && postings.contains(doc))
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Registers a document without indexing any content, returning its ID.
+     * Used together with {@link #addPostings} to restore the index from a
+     * snapshot without re-tokenizing the original files.
+     *
+     * @param fileName The name of the file.
+     * @return The document ID assigned to the file.
+     */
+    public int addDocument(String fileName) {
+        generation++;
+        return documents.add(fileName);
+    }
+
+    /**
+     * Adds a precomputed posting list for a term. If the term is already indexed
+     * the document IDs are merged into its existing list.
+     *
+     * @param term     The term, already normalized to lower case.
+     * @param postings The IDs of the documents containing the term, as returned
+     *                 by {@link #addDocument}.
+     */
+    public void addPostings(String term, PostingList postings) {
+        generation++;
+        int id = dictionary.intern(term);
+        if (id == index.size()) {
+            index.add(postings);
+            if (storePositions)
+                positions.add(new TermPositions());
+            return;
+        }
+        PostingList existing = index.get(id);
+        PostingsIterator iterator = postings.iterator();
+        for (int doc = iterator.nextDoc(); doc != DocIdIterator.NO_MORE_DOCS; doc = iterator.nextDoc())
+            existing.add(doc, iterator.frequency());
+    }
+
+    /**
+     * Adds precomputed positions for a term already registered through
+     * {@link #addPostings}. Ignored when the index does not store positions.
+     *
+     * @param term          The term, already normalized to lower case.
+     * @param termPositions The positions of the term in each document.
+     */
+    public void addPositions(String term, TermPositions termPositions) {
+        int id = dictionary.id(term);
+        if (!storePositions || id < 0)
+            return;
+        generation++;
+        if (positions.get(id).size() == 0) {
+            positions.set(id, termPositions);
+            return;
+        }
+        TermPositions existing = positions.get(id);
+        for (int entry = 0; entry < termPositions.size(); entry++) {
+            for (int position : termPositions.positionsAt(entry))
+                existing.add(termPositions.docAt(entry), position);
+        }
+    }
+
+    /**
+     * Returns the positions of a term, if the index stores them.
+     *
+     * @param term The term.
+     * @return The term's positions, or {@code null} if the term is unknown or
+     *         positions are not stored.
+     */
+    public TermPositions termPositions(String term) {
+        int id = dictionary.id(Analyzer.fold(term));
+        return storePositions && id >= 0 ? positions.get(id) : null;
+    }
+
+    /**
+     * Finds the byte range of the sentence in which a token occurs, so callers
+     * can read just that part of the original file.
+     *
+     * @param doc      The document ID.
+     * @param position The token position, as stored in {@link TermPositions}.
+     * @return {@code {start, end}} byte offsets of the sentence (end exclusive,
+     *         excluding the terminating period), or {@code null} if no sentences
+     *         were recorded for the document.
+     */
+    public int[] sentenceContaining(int doc, int position) {
+        return sentences.sentenceContaining(doc, position);
+    }
+
+    /**
+     * @param doc The document ID.
+     * @return The sentence table of the document, as described in
+     *         {@link SentenceTable}, or {@code null}. Must not be modified.
+     */
+    public int[] sentences(int doc) {
+        return sentences.get(doc);
+    }
+
+    /**
+     * Restores the sentence table of a document, e.g. from a snapshot.
+     *
+     * @param doc   The document ID.
+     * @param table The sentence table, as returned by {@link #sentences(int)}.
+     */
+    public void addSentences(int doc, int[] table) {
+        sentences.put(doc, table);
+    }
+
+    /**
+     * Restores the length of a document, e.g. from a snapshot.
+     *
+     * @param doc    The document ID.
+     * @param length The number of tokens in the document.
+     */
+    public void setDocumentLength(int doc, int length) {
+        documents.setLength(doc, length);
+    }
+
+    /**
+     * @param doc The document ID.
+     * @return The number of tokens in the document.
+     */
+    public int documentLength(int doc) {
+        return documents.length(doc);
+    }
+
+    /**
+     * @return The number of tokens in all documents.
+     */
+    public long totalDocumentLength() {
+        return documents.totalLength();
+    }
+
+    /**
+     * @return The mean number of tokens per document.
+     */
+    public double averageDocumentLength() {
+        return documents.averageLength();
+    }
+
+    /**
+     * Looks up the ID of an indexed file.
+     *
+     * @param fileName The file name.
+     * @return The document ID, or -1 if the file is not indexed.
+     */
+    public int documentId(String fileName) {
+        return documents.id(fileName);
+    }
+
+    /**
+     * @return {@code true} if the index records term positions.
+     */
+    public boolean storesPositions() {
+        return storePositions;
+    }
+
+    /**
+     * @return The analyzer of the indexed content, which queries against this
+     *         index must be tokenized with.
+     */
+    public Analyzer analyzer() {
+        return analyzer;
+    }
+
+    /**
+     * Visits every term of the index together with its posting list.
+     * The posting lists must not be modified by the consumer.
+     *
+     * @param consumer Callback receiving each term and its posting list.
+     */
+    public void forEachTerm(BiConsumer<String, PostingList> consumer) {
+        for (int id = 0; id < index.size(); id++)
+            consumer.accept(dictionary.term(id), index.get(id));
+    }
+
+    /**
+     * Visits every term of the index together with its posting list, in the
+     * order of {@link TermDictionary#compareTerms}. Snapshots store terms in
+     * this order, so that loading them needs no sort.
+     *
+     * @param consumer Callback receiving each term and its posting list.
+     */
+    public void forEachSortedTerm(BiConsumer<String, PostingList> consumer) {
+        SortedTerms order = dictionary.sortedTerms();
+        for (int i = 0; i < order.size(); i++) {
+            int id = order.id(i);
+            consumer.accept(dictionary.term(id), index.get(id));
+        }
+    }
+
+    /**
+     * @return The number of distinct terms.
+     */
+    public int termCount() {
+        return index.size();
+    }
+
+    /**
+     * @return The number of postings, i.e. of (term, document) pairs, over
+     *         all terms, including those of removed documents not yet
+     *         compacted away.
+     */
+    public long postingCount() {
+        long count = 0;
+        for (PostingList postings : index)
+            count += postings.size();
+        return count;
+    }
+
+    /**
+     * @return The number of allocated document IDs, including documents removed
+     *         since the last {@link #compact()}; every document ID is below it.
+     */
+    public int documentCount() {
+        return documents.size();
+    }
+
+    /**
+     * @return The number of documents that were not removed.
+     */
+    public int liveDocumentCount() {
+        return documents.liveCount();
+    }
+
+    /**
+     * Resolves a document ID to its file name.
+     *
+     * @param doc The document ID.
+     * @return The file name, or {@code null} if the document was removed.
+     */
+    public String documentName(int doc) {
+        return documents.name(doc);
+    }
+
+    /**
+     * Removes every document and term, leaving the index as it was created,
+     * e.g. after a snapshot failed to load halfway, so it can be rebuilt from
+     * the files without merging into what was already decoded.
+     */
+    public void clear() {
+        generation++;
+        documents = new DocumentTable();
+        dictionary = new TermDictionary();
+        index.clear();
+        positions.clear();
+        sentences = new SentenceTable();
+        deleted = new DocBitSet(0);
+        deletedCount = 0;
+    }
+
+    /**
+     * Compacts every posting list into its most compact container, trims
+     * the position lists and sorts the term dictionary for prefix and fuzzy
+     * queries. Call once loading is finished; later inserts still work but
+     * decode the lists they touch.
+     */
+    public void freeze() {
+        index.forEach(PostingList::freeze);
+        positions.forEach(TermPositions::freeze);
+        dictionary.freeze();
+    }
+
+    /**
+     * Moves all postings of another index into this one and leaves the other
+     * index empty. An empty index that stores positions the same way takes
+     * over the other's tables instead of copying them, so the last step of
+     * parallel ingestion, which starts from an empty index, costs nothing.
+     *
+     * @param other The index whose postings are moved to this one.
+     */
+    public void absorb(Indexer other) {
+        if (documents.size() > 0 || !index.isEmpty() || storePositions != other.storePositions) {
+            merge(other);
+        } else {
+            generation++;
+            documents = other.documents;
+            dictionary = other.dictionary;
+            index.addAll(other.index);
+            positions.addAll(other.positions);
+            sentences = other.sentences;
+            deleted = other.deleted;
+            deletedCount = other.deletedCount;
+        }
+        other.clear();
+    }
+
+    /**
+     * Merges all postings of another index into this one. Used to combine the
+     * partial indexes built by parallel ingestion workers.
+     *
+     * @param other The index whose postings are added to this one. It is not
+     *              modified.
+     */
+    public void merge(Indexer other) {
+        generation++;
+        int[] mapping = new int[other.documents.size()];
+        for (int doc = 0; doc < mapping.length; doc++) {
+            String name = other.documents.name(doc);
+            if (name == null) {
+                mapping[doc] = -1;
+                continue;
+            }
+            mapping[doc] = documents.add(name);
+            documents.setLength(mapping[doc], other.documents.length(doc));
+            int[] table = other.sentences.get(doc);
+            if (storePositions && table != null)
+                sentences.put(mapping[doc], table);
+        }
+
+        other.forEachTerm((term, postings) -> {
+            int id = termId(term);
+            PostingList target = index.get(id);
+            PostingsIterator iterator = postings.iterator();
+            for (int doc = iterator.nextDoc(); doc != DocIdIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                if (mapping[doc] >= 0)
+                    target.add(mapping[doc], iterator.frequency());
+            }
+
+            TermPositions source = other.termPositions(term);
+            if (storePositions && source != null) {
+                TermPositions targetPositions = positions.get(id);
+                for (int entry = 0; entry < source.size(); entry++) {
+                    if (mapping[source.docAt(entry)] < 0)
+                        continue;
+                    for (int position : source.positionsAt(entry))
+                        targetPositions.add(mapping[source.docAt(entry)], position);
+                }
+            }
+        });
     }
 }
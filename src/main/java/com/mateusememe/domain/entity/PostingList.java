@@ -0,0 +1,756 @@
+package com.mateusememe.domain.entity;
+
+import java.util.Arrays;
+
+/**
+ * Sorted list of the document IDs that contain a term.
+ * <p>
+ * While the index is being built the IDs live in a growable {@code int[]}.
+ * {@link #freeze()} compacts them into a delta + varint encoded byte array:
+ * every ID is stored as the gap to its predecessor (the first one as the gap
+ * to zero), seven bits per byte with the high bit marking continuation.
+ * Dense lists of small gaps therefore cost about one byte per posting.
+ * Adding to a frozen list transparently decodes it again.
+ * <p>
+ * The encoding is split into blocks of {@value #BLOCK_SIZE} IDs with a skip
+ * table holding the last ID and the byte offset of each block, so a
+ * {@link #iterator() cursor} can jump over whole blocks with a galloping search
+ * instead of decoding them.
+ * <p>
+ * Freezing picks the smallest of three containers for the term's density,
+ * Roaring style: the varint array above for sparse terms, a
+ * {@link DocBitSet bitmap} for terms present in a large fraction of the
+ * documents, and run-length pairs for terms covering long consecutive ID
+ * ranges. Dense containers let AND/OR work a 64-bit word at a time.
+ * <p>
+ * Next to the IDs every list keeps the term frequency of each posting, one
+ * unsigned byte per document in ID order, saturated at
+ * {@value #MAX_FREQUENCY} (relevance scores flatten out long before that).
+ * The containers map a document to its ordinal directly (varint), through
+ * cumulative run lengths (runs) or through a per-word rank table (bitmap), so
+ * {@link PostingsIterator#frequency()} is O(1) on the current document.
+ */
+public final class PostingList {
+    static final int BLOCK_SIZE = 128;
+
+    /**
+     * Largest term frequency stored for a posting.
+     */
+    public static final int MAX_FREQUENCY = 255;
+
+    /**
+     * Physical representation of a posting list.
+     */
+    public enum Encoding {
+        /** Growable sorted {@code int[]}, used while the list is being built. */
+        MUTABLE,
+        /** Delta + varint encoded sorted IDs with a block skip table. */
+        VARINT,
+        /** One bit per document ID. */
+        BITMAP,
+        /** Inclusive {@code [start, end]} ranges of consecutive IDs. */
+        RUNS
+    }
+
+    private Encoding encoding = Encoding.MUTABLE;
+    private int[] docs;
+    private int size;
+    private byte[] encoded;
+    private int[] blockLast;
+    private int[] blockOffset;
+    private DocBitSet bitmap;
+    private int[] runStarts;
+    private int[] runEnds;
+    private byte[] freqs;
+    private int[] ranks;
+
+    /**
+     * Creates an empty, mutable posting list.
+     */
+    public PostingList() {
+        this.docs = new int[4];
+        this.freqs = new byte[4];
+    }
+
+    private PostingList(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Wraps an already encoded posting list, as produced by {@link #encoded()}.
+     *
+     * @param encoded The delta + varint encoded document IDs.
+     * @param size    The number of document IDs in the encoding.
+     * @return A frozen posting list backed by the given bytes.
+     */
+    public static PostingList fromEncoded(byte[] encoded, int size) {
+        return fromEncoded(encoded, size, ones(size));
+    }
+
+    /**
+     * Wraps an already encoded posting list together with its term
+     * frequencies, as produced by {@link #encoded()} and {@link #frequencies()}.
+     *
+     * @param encoded     The delta + varint encoded document IDs.
+     * @param size        The number of document IDs in the encoding.
+     * @param frequencies The term frequency of every posting, in ID order.
+     * @return A frozen posting list backed by the given arrays.
+     */
+    public static PostingList fromEncoded(byte[] encoded, int size, byte[] frequencies) {
+        PostingList list = new PostingList(size);
+        list.freqs = frequencies;
+        list.useVarint(encoded);
+        return list;
+    }
+
+    /**
+     * Wraps a bitmap container, as produced by {@link #bitmapWords()}.
+     *
+     * @param words The bitmap words.
+     * @param size  The number of document IDs set in the bitmap.
+     * @return A frozen posting list backed by the given words.
+     */
+    public static PostingList fromBitmap(long[] words, int size) {
+        return fromBitmap(words, size, ones(size));
+    }
+
+    /**
+     * Wraps a bitmap container together with its term frequencies.
+     *
+     * @param words       The bitmap words.
+     * @param size        The number of document IDs set in the bitmap.
+     * @param frequencies The term frequency of every posting, in ID order.
+     * @return A frozen posting list backed by the given arrays.
+     */
+    public static PostingList fromBitmap(long[] words, int size, byte[] frequencies) {
+        PostingList list = new PostingList(size);
+        list.freqs = frequencies;
+        list.useBitmap(DocBitSet.wrap(words));
+        return list;
+    }
+
+    /**
+     * Wraps a run container, as produced by {@link #runStarts()} and
+     * {@link #runEnds()}.
+     *
+     * @param starts The first ID of every run, ascending.
+     * @param ends   The last ID (inclusive) of every run.
+     * @return A frozen posting list backed by the given runs.
+     */
+    public static PostingList fromRuns(int[] starts, int[] ends) {
+        return fromRuns(starts, ends, null);
+    }
+
+    /**
+     * Wraps a run container together with its term frequencies.
+     *
+     * @param starts      The first ID of every run, ascending.
+     * @param ends        The last ID (inclusive) of every run.
+     * @param frequencies The term frequency of every posting, in ID order, or
+     *                    {@code null} to count every posting once.
+     * @return A frozen posting list backed by the given arrays.
+     */
+    public static PostingList fromRuns(int[] starts, int[] ends, byte[] frequencies) {
+        int size = 0;
+        for (int i = 0; i < starts.length; i++)
+            size += ends[i] - starts[i] + 1;
+        PostingList list = new PostingList(size);
+        list.freqs = frequencies == null ? ones(size) : frequencies;
+        list.useRuns(starts, ends);
+        return list;
+    }
+
+    private static byte[] ones(int size) {
+        byte[] frequencies = new byte[size];
+        Arrays.fill(frequencies, (byte) 1);
+        return frequencies;
+    }
+
+    /**
+     * Records one occurrence of the term in a document, keeping the list sorted
+     * and free of duplicates: adding a document that is already present
+     * increments its term frequency. Appending IDs in ascending order, which is
+     * what indexing does, is O(1).
+     *
+     * @param doc The document ID.
+     */
+    public void add(int doc) {
+        add(doc, 1);
+    }
+
+    /**
+     * Records {@code frequency} occurrences of the term in a document.
+     *
+     * @param doc       The document ID.
+     * @param frequency The number of occurrences to add.
+     */
+    public void add(int doc, int frequency) {
+        if (encoding != Encoding.MUTABLE)
+            thaw();
+
+        if (size > 0 && docs[size - 1] >= doc) {
+            int position = docs[size - 1] == doc ? size - 1 : Arrays.binarySearch(docs, 0, size, doc);
+            if (position >= 0) {
+                freqs[position] = saturate((freqs[position] & 0xFF) + frequency);
+                return;
+            }
+            insertAt(-position - 1, doc, frequency);
+            return;
+        }
+
+        if (size == docs.length)
+            grow();
+        docs[size] = doc;
+        freqs[size++] = saturate(frequency);
+    }
+
+    private void insertAt(int position, int doc, int frequency) {
+        if (size == docs.length)
+            grow();
+        System.arraycopy(docs, position, docs, position + 1, size - position);
+        System.arraycopy(freqs, position, freqs, position + 1, size - position);
+        docs[position] = doc;
+        freqs[position] = saturate(frequency);
+        size++;
+    }
+
+    private void grow() {
+        docs = Arrays.copyOf(docs, size * 2);
+        freqs = Arrays.copyOf(freqs, size * 2);
+    }
+
+    private static byte saturate(int frequency) {
+        return (byte) Math.min(frequency, MAX_FREQUENCY);
+    }
+
+    /**
+     * @return The number of documents in the list (the term's document
+     *         frequency).
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the list contains a document. On a frozen list only the
+     * block that may hold the document is decoded.
+     *
+     * @param doc The document ID.
+     * @return {@code true} if the document is in the list.
+     */
+    public boolean contains(int doc) {
+        switch (encoding) {
+            case MUTABLE:
+                return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+            case BITMAP:
+                return bitmap.get(doc);
+            case RUNS:
+                int run = gallop(runEnds, 0, runEnds.length, doc);
+                return run < runEnds.length && runStarts[run] <= doc;
+            default:
+                return iterator().advance(doc) == doc;
+        }
+    }
+
+    /**
+     * Returns the term frequency of a document.
+     *
+     * @param doc The document ID.
+     * @return The number of occurrences of the term in the document (saturated
+     *         at {@value #MAX_FREQUENCY}), or 0 if the document is not in the
+     *         list.
+     */
+    public int frequency(int doc) {
+        PostingsIterator iterator = iterator();
+        return iterator.advance(doc) == doc ? iterator.frequency() : 0;
+    }
+
+    /**
+     * Returns a cursor over the document IDs and their term frequencies.
+     * Cursors never modify the list, so any number of them may read it
+     * concurrently.
+     *
+     * @return A new, unpositioned cursor.
+     */
+    public PostingsIterator iterator() {
+        switch (encoding) {
+            case MUTABLE:
+                return new ArrayCursor(docs, freqs, size);
+            case BITMAP:
+                return new BitmapCursor();
+            case RUNS:
+                return new RunCursor();
+            default:
+                return new EncodedCursor();
+        }
+    }
+
+    /**
+     * Returns the document IDs in ascending order.
+     *
+     * @return A new array holding the document IDs.
+     */
+    public int[] toArray() {
+        switch (encoding) {
+            case MUTABLE:
+                return Arrays.copyOf(docs, size);
+            case BITMAP:
+                return bitmap.toArray();
+            case RUNS:
+                int[] values = new int[size];
+                int count = 0;
+                for (int run = 0; run < runStarts.length; run++)
+                    for (int doc = runStarts[run]; doc <= runEnds[run]; doc++)
+                        values[count++] = doc;
+                return values;
+            default:
+                return decode(encoded, size);
+        }
+    }
+
+    /**
+     * Adds every document of this list to a bit set, a whole word at a time
+     * for bitmap and run containers.
+     *
+     * @param target The bit set to fill. It must be able to hold every ID of
+     *               this list.
+     */
+    public void addTo(DocBitSet target) {
+        switch (encoding) {
+            case BITMAP:
+                target.or(bitmap);
+                break;
+            case RUNS:
+                for (int run = 0; run < runStarts.length; run++)
+                    target.set(runStarts[run], runEnds[run]);
+                break;
+            default:
+                DocIdIterator iterator = iterator();
+                for (int doc = iterator.nextDoc(); doc != DocIdIterator.NO_MORE_DOCS; doc = iterator.nextDoc())
+                    target.set(doc);
+        }
+    }
+
+    /**
+     * Compacts the list into the smallest of the varint, bitmap and run
+     * containers and releases the uncompressed array.
+     */
+    public void freeze() {
+        if (encoding != Encoding.MUTABLE)
+            return;
+
+        freqs = Arrays.copyOf(freqs, size);
+        byte[] varint = encode(docs, size);
+        long bitmapBytes = size == 0 ? Long.MAX_VALUE : ((docs[size - 1] >>> 6) + 1L) * Long.BYTES;
+        int runs = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || docs[i] != docs[i - 1] + 1)
+                runs++;
+        }
+        long runBytes = runs * 2L * Integer.BYTES;
+
+        if (runBytes < varint.length && runBytes <= bitmapBytes) {
+            int[] starts = new int[runs];
+            int[] ends = new int[runs];
+            int run = -1;
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || docs[i] != docs[i - 1] + 1)
+                    starts[++run] = docs[i];
+                ends[run] = docs[i];
+            }
+            useRuns(starts, ends);
+        } else if (bitmapBytes < varint.length) {
+            DocBitSet bits = new DocBitSet(docs[size - 1] + 1);
+            for (int i = 0; i < size; i++)
+                bits.set(docs[i]);
+            useBitmap(bits);
+        } else {
+            useVarint(varint);
+        }
+    }
+
+    /**
+     * @return {@code true} if the list is currently stored in a compact
+     *         container.
+     */
+    public boolean isFrozen() {
+        return encoding != Encoding.MUTABLE;
+    }
+
+    /**
+     * @return The container currently used to store the list.
+     */
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    /**
+     * Returns the delta + varint encoding of the list. Only valid when
+     * {@link #encoding()} is {@link Encoding#VARINT}. The returned array must
+     * not be modified.
+     *
+     * @return The encoded document IDs.
+     */
+    public byte[] encoded() {
+        return encoded;
+    }
+
+    /**
+     * @return The term frequency of every posting, in ID order. Only trimmed to
+     *         {@link #size()} once the list is frozen; must not be modified.
+     */
+    public byte[] frequencies() {
+        return freqs;
+    }
+
+    /**
+     * @return The bitmap words when {@link #encoding()} is
+     *         {@link Encoding#BITMAP}. They must not be modified.
+     */
+    public long[] bitmapWords() {
+        return bitmap.words();
+    }
+
+    /**
+     * @return The first ID of every run when {@link #encoding()} is
+     *         {@link Encoding#RUNS}. It must not be modified.
+     */
+    public int[] runStarts() {
+        return runStarts;
+    }
+
+    /**
+     * @return The last ID of every run when {@link #encoding()} is
+     *         {@link Encoding#RUNS}. It must not be modified.
+     */
+    public int[] runEnds() {
+        return runEnds;
+    }
+
+    /**
+     * @return The bitmap container if the list is stored as a bitmap, otherwise
+     *         {@code null}.
+     */
+    DocBitSet bitmap() {
+        return bitmap;
+    }
+
+    private void useVarint(byte[] bytes) {
+        encoding = Encoding.VARINT;
+        encoded = bytes;
+        docs = null;
+        buildSkipTable();
+    }
+
+    private void useBitmap(DocBitSet bits) {
+        encoding = Encoding.BITMAP;
+        bitmap = bits;
+        docs = null;
+        long[] words = bits.words();
+        ranks = new int[words.length];
+        for (int i = 1; i < words.length; i++)
+            ranks[i] = ranks[i - 1] + Long.bitCount(words[i - 1]);
+    }
+
+    private void useRuns(int[] starts, int[] ends) {
+        encoding = Encoding.RUNS;
+        runStarts = starts;
+        runEnds = ends;
+        docs = null;
+        ranks = new int[starts.length];
+        for (int run = 1; run < starts.length; run++)
+            ranks[run] = ranks[run - 1] + runEnds[run - 1] - runStarts[run - 1] + 1;
+    }
+
+    private void thaw() {
+        docs = toArray();
+        if (docs.length == 0)
+            docs = new int[4];
+        freqs = Arrays.copyOf(freqs, docs.length);
+        encoding = Encoding.MUTABLE;
+        encoded = null;
+        blockLast = null;
+        blockOffset = null;
+        bitmap = null;
+        runStarts = null;
+        runEnds = null;
+        ranks = null;
+    }
+
+    private void buildSkipTable() {
+        int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        blockLast = new int[blocks];
+        blockOffset = new int[blocks];
+        int position = 0;
+        int current = 0;
+        for (int i = 0; i < size; i++) {
+            if (i % BLOCK_SIZE == 0)
+                blockOffset[i / BLOCK_SIZE] = position;
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = encoded[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            current += value;
+            blockLast[i / BLOCK_SIZE] = current;
+        }
+    }
+
+    private static byte[] encode(int[] values, int count) {
+        byte[] buffer = new byte[count * 5];
+        int position = 0;
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int value = values[i] - previous;
+            previous = values[i];
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private static int[] decode(byte[] bytes, int count) {
+        int[] values = new int[count];
+        int position = 0;
+        int current = 0;
+        for (int i = 0; i < count; i++) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            current += value;
+            values[i] = current;
+        }
+        return values;
+    }
+
+    /**
+     * Finds the first index in {@code [from, to)} whose value is at least
+     * {@code target}, probing at exponentially growing distances before the
+     * final binary search so short jumps stay cheap.
+     */
+    static int gallop(int[] values, int from, int to, int target) {
+        if (from >= to)
+            return to;
+        if (values[from] >= target)
+            return from;
+
+        int bound = 1;
+        while (from + bound < to && values[from + bound] < target)
+            bound <<= 1;
+        int low = from + (bound >> 1) + 1;
+        int high = Math.min(from + bound, to - 1);
+        if (values[high] < target)
+            return to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < target)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return high;
+    }
+
+    /**
+     * Cursor over the uncompressed array of a list that is still being built.
+     */
+    private static final class ArrayCursor implements PostingsIterator {
+        private final int[] docs;
+        private final byte[] freqs;
+        private final int size;
+        private int index = -1;
+        private int doc = -1;
+
+        ArrayCursor(int[] docs, byte[] freqs, int size) {
+            this.docs = docs;
+            this.freqs = freqs;
+            this.size = size;
+        }
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            return doc = ++index < size ? docs[index] : NO_MORE_DOCS;
+        }
+
+        @Override
+        public int advance(int target) {
+            if (doc >= target)
+                return doc;
+            if (index + 1 >= size)
+                return doc = NO_MORE_DOCS;
+            index = gallop(docs, index + 1, size, target);
+            return doc = index < size ? docs[index] : NO_MORE_DOCS;
+        }
+
+        @Override
+        public int frequency() {
+            return freqs[index] & 0xFF;
+        }
+
+        @Override
+        public long cost() {
+            return size;
+        }
+    }
+
+    /**
+     * Cursor over the bitmap container; the rank table turns the current
+     * document into its posting ordinal.
+     */
+    private final class BitmapCursor implements PostingsIterator {
+        private int doc = -1;
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            return doc = doc == NO_MORE_DOCS ? NO_MORE_DOCS : bitmap.nextSetBit(doc + 1);
+        }
+
+        @Override
+        public int advance(int target) {
+            if (doc >= target)
+                return doc;
+            return doc = bitmap.nextSetBit(target);
+        }
+
+        @Override
+        public int frequency() {
+            int word = doc >>> 6;
+            int ordinal = ranks[word] + Long.bitCount(bitmap.words()[word] & ((1L << doc) - 1));
+            return freqs[ordinal] & 0xFF;
+        }
+
+        @Override
+        public long cost() {
+            return size;
+        }
+    }
+
+    /**
+     * Cursor over the run container; advancing gallops over the run ends.
+     */
+    private final class RunCursor implements PostingsIterator {
+        private int run;
+        private int doc = -1;
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            if (doc == NO_MORE_DOCS)
+                return doc;
+            if (doc >= 0 && doc < runEnds[run])
+                return ++doc;
+            if (doc >= 0)
+                run++;
+            return doc = run < runStarts.length ? runStarts[run] : NO_MORE_DOCS;
+        }
+
+        @Override
+        public int advance(int target) {
+            if (doc >= target)
+                return doc;
+            run = gallop(runEnds, run, runEnds.length, target);
+            return doc = run < runStarts.length ? Math.max(target, runStarts[run]) : NO_MORE_DOCS;
+        }
+
+        @Override
+        public int frequency() {
+            return freqs[ranks[run] + doc - runStarts[run]] & 0xFF;
+        }
+
+        @Override
+        public long cost() {
+            return size;
+        }
+    }
+
+    /**
+     * Cursor over the encoded form that uses the skip table to jump blocks.
+     */
+    private final class EncodedCursor implements PostingsIterator {
+        private int index = -1;
+        private int position;
+        private int doc = -1;
+        private int current;
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            if (++index >= size)
+                return doc = NO_MORE_DOCS;
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = encoded[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            current += value;
+            return doc = current;
+        }
+
+        @Override
+        public int advance(int target) {
+            if (doc >= target)
+                return doc;
+
+            int block = index < 0 ? 0 : index / BLOCK_SIZE;
+            if (blockLast.length == 0)
+                return doc = NO_MORE_DOCS;
+            if (blockLast[block] < target) {
+                int next = gallop(blockLast, block + 1, blockLast.length, target);
+                if (next == blockLast.length) {
+                    index = size;
+                    return doc = NO_MORE_DOCS;
+                }
+                index = next * BLOCK_SIZE - 1;
+                position = blockOffset[next];
+                current = blockLast[next - 1];
+            }
+
+            while (nextDoc() < target) {
+                // decode within the block until the target is reached
+            }
+            return doc;
+        }
+
+        @Override
+        public int frequency() {
+            return freqs[index] & 0xFF;
+        }
+
+        @Override
+        public long cost() {
+            return size;
+        }
+    }
+}
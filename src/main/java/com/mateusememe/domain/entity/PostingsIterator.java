@@ -0,0 +1,15 @@
+package com.mateusememe.domain.entity;
+
+/**
+ * {@link DocIdIterator} over a {@link PostingList} that also exposes how often
+ * the term occurs in the current document, which is what relevance scoring
+ * needs.
+ */
+public interface PostingsIterator extends DocIdIterator {
+    /**
+     * @return The number of occurrences of the term in the current document,
+     *         saturated at {@link PostingList#MAX_FREQUENCY}. Only meaningful
+     *         while the iterator is positioned on a document.
+     */
+    int frequency();
+}
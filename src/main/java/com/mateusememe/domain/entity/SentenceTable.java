@@ -0,0 +1,161 @@
+package com.mateusememe.domain.entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sentence boundaries of every indexed document, recorded at index time so a
+ * snippet can be served by reading only the bytes of one sentence.
+ * <p>
+ * A sentence ends at a period followed by whitespace (the former
+ * {@code split("\\.\\s+")}). For each sentence the table keeps three ints: the
+ * byte offset where it starts, the byte offset of its terminating period (or
+ * the end of the document) and the position of its first token, which maps the
+ * positional index onto sentences.
+ */
+public class SentenceTable {
+    private static final int START = 0;
+    private static final int END = 1;
+    private static final int FIRST_TOKEN = 2;
+    private static final int STRIDE = 3;
+
+    private final List<int[]> sentences = new ArrayList<>();
+
+    /**
+     * Splits UTF-8 content into sentences. The first-token slot of every
+     * sentence is left at 0 for the caller to fill while tokenizing.
+     *
+     * @param content The UTF-8 encoded document.
+     * @return The sentences, {@value #STRIDE} ints each.
+     */
+    public static int[] split(byte[] content) {
+        int[] result = new int[STRIDE * 8];
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i + 1 < content.length; i++) {
+            if (content[i] != '.' || !isWhitespace(content[i + 1]))
+                continue;
+            int next = i + 1;
+            while (next < content.length && isWhitespace(content[next]))
+                next++;
+            result = append(result, count++, start, i);
+            start = next;
+            i = next - 1;
+        }
+        if (start < content.length)
+            result = append(result, count++, start, content.length);
+        return Arrays.copyOf(result, count * STRIDE);
+    }
+
+    private static int[] append(int[] table, int index, int start, int end) {
+        if ((index + 1) * STRIDE > table.length)
+            table = Arrays.copyOf(table, table.length * 2);
+        table[index * STRIDE + START] = start;
+        table[index * STRIDE + END] = end;
+        return table;
+    }
+
+    /**
+     * Same whitespace class as the regex {@code \s}.
+     */
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    /**
+     * @param sentences The sentences of a document, as returned by
+     *                  {@link #split(byte[])}.
+     * @return The number of sentences.
+     */
+    public static int count(int[] sentences) {
+        return sentences.length / STRIDE;
+    }
+
+    /**
+     * @param sentences The sentences of a document.
+     * @param sentence  The sentence index.
+     * @return The byte offset where the sentence starts.
+     */
+    public static int start(int[] sentences, int sentence) {
+        return sentences[sentence * STRIDE + START];
+    }
+
+    /**
+     * Records the position of the first token of a sentence.
+     *
+     * @param sentences The sentences of a document.
+     * @param sentence  The sentence index.
+     * @param position  The token position.
+     */
+    public static void setFirstToken(int[] sentences, int sentence, int position) {
+        sentences[sentence * STRIDE + FIRST_TOKEN] = position;
+    }
+
+    /**
+     * Stores the sentences of a document.
+     *
+     * @param doc       The document ID.
+     * @param sentences The sentences, as returned by {@link #split(byte[])} with
+     *                  their first tokens filled in.
+     */
+    public void put(int doc, int[] sentences) {
+        while (this.sentences.size() <= doc)
+            this.sentences.add(null);
+        this.sentences.set(doc, sentences);
+    }
+
+    /**
+     * @param doc The document ID.
+     * @return The sentences of the document, or {@code null} if none were
+     *         recorded. Must not be modified.
+     */
+    public int[] get(int doc) {
+        return doc < sentences.size() ? sentences.get(doc) : null;
+    }
+
+    /**
+     * Moves every document's sentences to its new ID, dropping removed
+     * documents.
+     *
+     * @param mapping The new ID of every old ID, or -1 for removed documents.
+     */
+    public void remap(int[] mapping) {
+        List<int[]> remapped = new ArrayList<>(sentences.size());
+        for (int doc = 0; doc < sentences.size() && doc < mapping.length; doc++) {
+            if (mapping[doc] < 0)
+                continue;
+            while (remapped.size() < mapping[doc])
+                remapped.add(null);
+            remapped.add(sentences.get(doc));
+        }
+        sentences.clear();
+        sentences.addAll(remapped);
+    }
+
+    /**
+     * Finds the byte range of the sentence that holds a token.
+     *
+     * @param doc      The document ID.
+     * @param position The token position.
+     * @return {@code {start, end}} byte offsets of the sentence, the end being
+     *         exclusive, or {@code null} if the document has no recorded
+     *         sentences.
+     */
+    public int[] sentenceContaining(int doc, int position) {
+        int[] table = get(doc);
+        if (table == null || table.length == 0)
+            return null;
+
+        int low = 0;
+        int high = count(table) - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (table[middle * STRIDE + FIRST_TOKEN] <= position)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+        return new int[] { table[low * STRIDE + START], table[low * STRIDE + END] };
+    }
+}
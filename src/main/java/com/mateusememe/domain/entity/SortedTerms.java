@@ -0,0 +1,222 @@
+package com.mateusememe.domain.entity;
+
+import java.util.Arrays;
+
+/**
+ * Immutable lexicographically sorted view of a {@link TermDictionary}.
+ * <p>
+ * The view is only an array of term IDs ordered by the UTF-8 bytes of their
+ * terms, which is code point order; every comparison reads the bytes straight
+ * from the dictionary's arena, so the view costs four bytes per term and no
+ * copy of the terms themselves. Range scans and the trie-like walks of fuzzy
+ * matching step through the arena a code point at a time.
+ */
+final class SortedTerms {
+    private final TermDictionary dictionary;
+    private final int[] ids;
+
+    /**
+     * @param dictionary The dictionary holding the terms.
+     * @param ids        The term IDs, already in sorted order.
+     */
+    SortedTerms(TermDictionary dictionary, int[] ids) {
+        this.dictionary = dictionary;
+        this.ids = ids;
+    }
+
+    /**
+     * Sorts the first {@code size} term IDs of a dictionary.
+     *
+     * @param dictionary The dictionary.
+     * @param size       The number of terms to sort.
+     * @return The sorted view.
+     */
+    static SortedTerms build(TermDictionary dictionary, int size) {
+        int[] ids = new int[size];
+        for (int id = 0; id < size; id++)
+            ids[id] = id;
+        sort(dictionary, ids, 0, size, new int[size]);
+        return new SortedTerms(dictionary, ids);
+    }
+
+    /**
+     * Extends the view to the first {@code size} term IDs of its dictionary.
+     * Only the IDs added since are sorted; each finds its place in the view by
+     * binary search, and the view is copied around them in runs, so terms
+     * added between lookups cost {@code O(k log V)} comparisons and one copy of
+     * the ID array rather than a full sort.
+     *
+     * @param size The number of terms, at least {@link #size()}.
+     * @return The extended view, or this view if no term was added.
+     */
+    SortedTerms extend(int size) {
+        int known = ids.length;
+        if (size == known)
+            return this;
+        int added = size - known;
+        int[] delta = new int[added];
+        for (int i = 0; i < added; i++)
+            delta[i] = known + i;
+        sort(dictionary, delta, 0, added, new int[added]);
+
+        int[] merged = new int[size];
+        int from = 0;
+        int out = 0;
+        for (int id : delta) {
+            int to = upperBound(id, from);
+            System.arraycopy(ids, from, merged, out, to - from);
+            out += to - from;
+            merged[out++] = id;
+            from = to;
+        }
+        System.arraycopy(ids, from, merged, out, known - from);
+        return new SortedTerms(dictionary, merged);
+    }
+
+    /**
+     * @return The first position from {@code from} on whose term is greater
+     *         than the term {@code id}.
+     */
+    private int upperBound(int id, int from) {
+        int low = from;
+        int high = ids.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (dictionary.compare(ids[middle], id) <= 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Stable merge sort of term IDs by their bytes, on primitive arrays, so
+     * sorting allocates one scratch array whatever the vocabulary size.
+     */
+    private static void sort(TermDictionary dictionary, int[] ids, int from, int to, int[] scratch) {
+        if (to - from < 16) {
+            for (int i = from + 1; i < to; i++) {
+                int id = ids[i];
+                int j = i;
+                for (; j > from && dictionary.compare(ids[j - 1], id) > 0; j--)
+                    ids[j] = ids[j - 1];
+                ids[j] = id;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sort(dictionary, ids, from, middle, scratch);
+        sort(dictionary, ids, middle, to, scratch);
+        if (dictionary.compare(ids[middle - 1], ids[middle]) <= 0)
+            return;
+
+        System.arraycopy(ids, from, scratch, from, middle - from);
+        int left = from;
+        int right = middle;
+        int out = from;
+        while (left < middle && right < to)
+            ids[out++] = dictionary.compare(scratch[left], ids[right]) <= 0 ? scratch[left++] : ids[right++];
+        System.arraycopy(scratch, left, ids, out, middle - left);
+    }
+
+    /**
+     * @return The number of terms.
+     */
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param index A position in the sorted order.
+     * @return The ID of the term at that position.
+     */
+    int id(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @param index A position in the sorted order.
+     * @return The length in bytes of the term at that position.
+     */
+    int length(int index) {
+        return dictionary.byteLength(ids[index]);
+    }
+
+    /**
+     * @param index A position in the sorted order.
+     * @param depth A byte offset within the term, at a code point boundary.
+     * @return The code point of the term starting at that offset.
+     */
+    int codePointAt(int index, int depth) {
+        byte[] arena = dictionary.arena();
+        int p = dictionary.start(ids[index]) + depth;
+        int lead = arena[p] & 0xFF;
+        if (lead < 0x80)
+            return lead;
+        if (lead < 0xE0)
+            return (lead & 0x1F) << 6 | arena[p + 1] & 0x3F;
+        if (lead < 0xF0)
+            return (lead & 0x0F) << 12 | (arena[p + 1] & 0x3F) << 6 | arena[p + 2] & 0x3F;
+        return (lead & 0x07) << 18 | (arena[p + 1] & 0x3F) << 12 | (arena[p + 2] & 0x3F) << 6 | arena[p + 3] & 0x3F;
+    }
+
+    /**
+     * @return Whether the term at {@code index} starts with the UTF-8 bytes
+     *         {@code prefix}.
+     */
+    boolean startsWith(int index, byte[] prefix) {
+        int id = ids[index];
+        if (dictionary.byteLength(id) < prefix.length)
+            return false;
+        int start = dictionary.start(id);
+        return Arrays.equals(dictionary.arena(), start, start + prefix.length, prefix, 0, prefix.length);
+    }
+
+    /**
+     * @return The first position whose term is not less than the UTF-8 bytes
+     *         {@code key}.
+     */
+    int lowerBound(byte[] key) {
+        int low = 0;
+        int high = ids.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (dictionary.compare(ids[middle], key) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Finds where the run of terms sharing the code point at byte offset
+     * {@code depth} with the term at {@code from} ends. All terms of
+     * {@code [from, to)} must share their first {@code depth} bytes and be
+     * longer than that. Gallops from {@code from}, since such runs are
+     * usually short.
+     *
+     * @return The first position after the run.
+     */
+    int childEnd(int from, int to, int depth) {
+        int c = codePointAt(from, depth);
+        int last = from;
+        int probe = from + 1;
+        for (int step = 2; probe < to && codePointAt(probe, depth) == c; step <<= 1) {
+            last = probe;
+            probe = from + step;
+        }
+
+        int low = last + 1;
+        int high = Math.min(probe, to);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (codePointAt(middle, depth) == c)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+}
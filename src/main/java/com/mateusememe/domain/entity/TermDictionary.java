@@ -0,0 +1,624 @@
+package com.mateusememe.domain.entity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Maps terms to dense integer term IDs.
+ * <p>
+ * The terms are stored back to back as UTF-8 in a single byte arena, with an
+ * offset per term ID, instead of as one {@link String} per term: a term costs
+ * its bytes plus two ints (offset and hash), and the whole vocabulary is a
+ * handful of arrays for the garbage collector to mark, however many millions
+ * of terms it holds.
+ * <p>
+ * Lookups accept any {@link CharSequence}, so the reusable token buffer of the
+ * tokenizer can be resolved without creating a {@link String}, or a slice of
+ * UTF-8 bytes; both hash and compare against the arena in place and never
+ * allocate. The lookup table is an open-addressing hash table (linear
+ * probing) of term IDs. {@link #term(int)} decodes a new string and is meant
+ * for results, not for the indexing hot path.
+ * <p>
+ * For prefix, wildcard and fuzzy queries the dictionary also keeps a
+ * {@link SortedTerms} view: its term IDs in lexicographic order of their
+ * UTF-8 bytes, compared in place in the arena. It is built by
+ * {@link #freeze()} once loading is done, or else on the first such lookup;
+ * terms added later are sorted on their own and merged into it on the
+ * next one, so interleaving interns and lookups never re-sorts the whole
+ * vocabulary.
+ * <p>
+ * The sorted order doubles as an implicit trie for fuzzy lookups: every
+ * prefix shared by some terms is a contiguous range, and its children are
+ * found by searching on the next code point.
+ */
+public class TermDictionary {
+    /** Matches any single character in a pattern. */
+    public static final char ANY_CHAR = '?';
+    /** Matches any sequence of characters, including none, in a pattern. */
+    public static final char ANY_CHARS = '*';
+
+    private byte[] arena = new byte[256];
+    private int[] offsets = new int[17]; // term ID -> start in the arena; offsets[size] is the arena length
+    private int[] hashes = new int[16];
+    private int[] table = new int[32]; // term ID + 1, 0 marks an empty slot
+    private int size;
+    private volatile SortedTerms sorted;
+
+    /**
+     * Looks up the ID of a term.
+     *
+     * @param term The term.
+     * @return The term ID, or -1 if the term is not in the dictionary.
+     */
+    public int id(CharSequence term) {
+        int hash = hash(term);
+        int mask = table.length - 1;
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0)
+                return -1;
+            if (hashes[entry - 1] == hash && contentEquals(entry - 1, term))
+                return entry - 1;
+        }
+    }
+
+    /**
+     * Looks up the ID of a term given as UTF-8 bytes.
+     *
+     * @param utf8   The buffer holding the term.
+     * @param offset The start of the term in the buffer.
+     * @param length The length of the term in bytes.
+     * @return The term ID, or -1 if the term is not in the dictionary.
+     */
+    public int id(byte[] utf8, int offset, int length) {
+        int hash = hash(utf8, offset, length);
+        int mask = table.length - 1;
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0)
+                return -1;
+            if (hashes[entry - 1] == hash && contentEquals(entry - 1, utf8, offset, length))
+                return entry - 1;
+        }
+    }
+
+    /**
+     * Returns the ID of a term, adding it to the dictionary if it is new.
+     *
+     * @param term The term. It is copied when added, so a reusable buffer may
+     *             be passed.
+     * @return The term ID.
+     */
+    public int intern(CharSequence term) {
+        int hash = hash(term);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        for (;; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0)
+                break;
+            if (hashes[entry - 1] == hash && contentEquals(entry - 1, term))
+                return entry - 1;
+        }
+
+        int end = offsets[size];
+        ensureArena(end + utf8Length(term));
+        for (int i = 0; i < term.length(); i++) {
+            int codePoint = codePointAt(term, i);
+            int length = utf8Length(codePoint);
+            for (int k = 0; k < length; k++)
+                arena[end++] = (byte) utf8Byte(codePoint, length, k);
+            if (codePoint > Character.MAX_VALUE)
+                i++;
+        }
+        return add(slot, hash, end);
+    }
+
+    /**
+     * Same as {@link #intern(CharSequence)} for a term given as UTF-8 bytes,
+     * e.g. read from a snapshot.
+     *
+     * @param utf8   The buffer holding the term; the bytes are copied.
+     * @param offset The start of the term in the buffer.
+     * @param length The length of the term in bytes.
+     * @return The term ID.
+     */
+    public int intern(byte[] utf8, int offset, int length) {
+        int hash = hash(utf8, offset, length);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        for (;; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0)
+                break;
+            if (hashes[entry - 1] == hash && contentEquals(entry - 1, utf8, offset, length))
+                return entry - 1;
+        }
+
+        int end = offsets[size];
+        ensureArena(end + length);
+        System.arraycopy(utf8, offset, arena, end, length);
+        return add(slot, hash, end + length);
+    }
+
+    /**
+     * Registers the term just written to the arena, ending at {@code end}, in
+     * the empty table slot its probe stopped at.
+     */
+    private int add(int slot, int hash, int end) {
+        if (size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, hashes.length * 2);
+            offsets = Arrays.copyOf(offsets, hashes.length + 1);
+        }
+        int id = size++;
+        offsets[size] = end;
+        hashes[id] = hash;
+        table[slot] = id + 1;
+        if (size * 2 > table.length)
+            rehash();
+        return id;
+    }
+
+    /**
+     * Resolves a term ID to its term.
+     *
+     * @param id The term ID.
+     * @return The term, decoded from the arena.
+     */
+    public String term(int id) {
+        return new String(arena, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The number of distinct terms.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of bytes the terms take in the arena.
+     */
+    public int arenaSize() {
+        return offsets[size];
+    }
+
+    /**
+     * @return The arena the terms are stored in; valid until the next term is
+     *         added.
+     */
+    byte[] arena() {
+        return arena;
+    }
+
+    /**
+     * @param id A term ID.
+     * @return The offset of the term's first byte in the {@link #arena()}.
+     */
+    int start(int id) {
+        return offsets[id];
+    }
+
+    /**
+     * @param id A term ID.
+     * @return The length of the term in UTF-8 bytes.
+     */
+    int byteLength(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * Compares two terms by their UTF-8 bytes, which orders them by code
+     * point.
+     */
+    int compare(int id, int other) {
+        return Arrays.compareUnsigned(arena, offsets[id], offsets[id + 1], arena, offsets[other],
+                offsets[other + 1]);
+    }
+
+    /**
+     * Compares a term with UTF-8 bytes, as {@link #compare(int, int)} does.
+     */
+    int compare(int id, byte[] utf8) {
+        return Arrays.compareUnsigned(arena, offsets[id], offsets[id + 1], utf8, 0, utf8.length);
+    }
+
+    /**
+     * @param term A query term.
+     * @return Whether the term contains {@value #ANY_CHAR} or
+     *         {@value #ANY_CHARS} and must be expanded with {@link #match}.
+     */
+    public static boolean isPattern(String term) {
+        return term.indexOf(ANY_CHAR) >= 0 || term.indexOf(ANY_CHARS) >= 0;
+    }
+
+    /**
+     * Finds the terms matching a wildcard pattern, in lexicographic order.
+     * <p>
+     * The literal prefix before the first wildcard is located by binary search
+     * in the sorted order, and only the terms sharing it are tested against the
+     * rest of the pattern. A pure prefix pattern such as {@code termin*} thus
+     * costs O(log V + matches); a pattern starting with a wildcard has no
+     * prefix and scans the whole vocabulary.
+     *
+     * @param pattern The pattern, with {@value #ANY_CHAR} for one character and
+     *                {@value #ANY_CHARS} for any sequence.
+     * @param limit   The maximum number of IDs to return.
+     * @return The IDs of the matching terms, at most {@code limit} of them.
+     */
+    public int[] match(String pattern, int limit) {
+        SortedTerms order = sortedTerms();
+        int wildcard = firstWildcard(pattern);
+        byte[] prefix = utf8(pattern.substring(0, wildcard));
+        boolean prefixOnly = wildcard == pattern.length() - 1 && pattern.charAt(wildcard) == ANY_CHARS;
+
+        int[] result = new int[Math.min(limit, 16)];
+        int count = 0;
+        for (int i = order.lowerBound(prefix); i < order.size() && count < limit; i++) {
+            if (!order.startsWith(i, prefix))
+                break;
+            if (!prefixOnly && !matches(pattern, wildcard, term(order.id(i)), wildcard))
+                continue;
+            if (count == result.length)
+                result = Arrays.copyOf(result, Math.min(limit, count * 2));
+            result[count++] = order.id(i);
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Finds the terms within a Levenshtein distance of a query term, closest
+     * first.
+     * <p>
+     * The sorted terms are walked as a trie, depth first, carrying one row of
+     * the edit distance matrix, over code points, per prefix: the row of a
+     * child is computed from
+     * its parent's in O(|term|), which is how a Levenshtein automaton would
+     * step. A prefix whose row has no entry within {@code maxEdits} cannot lead
+     * to a match, so its whole range is skipped. Only prefixes close to the
+     * query are ever visited, not the whole vocabulary. Once a range holds
+     * just a few terms, they are finished one by one instead of splitting the
+     * range further.
+     *
+     * @param term     The query term.
+     * @param maxEdits The maximum number of insertions, deletions and
+     *                 substitutions.
+     * @param limit    The maximum number of IDs to return; the closest terms
+     *                 are kept, ties in lexicographic order.
+     * @return The IDs of the matching terms, by distance and then term.
+     */
+    public int[] fuzzyMatch(String term, int maxEdits, int limit) {
+        SortedTerms order = sortedTerms();
+        if (order.size() == 0)
+            return new int[0];
+
+        FuzzyWalk walk = new FuzzyWalk(order, term, maxEdits);
+        walk.visit(0, order.size(), 0, 0);
+        long[] found = Arrays.copyOf(walk.matches, walk.count);
+        Arrays.sort(found);
+
+        int[] result = new int[Math.min(limit, found.length)];
+        for (int i = 0; i < result.length; i++)
+            result[i] = order.id((int) found[i]);
+        return result;
+    }
+
+    /**
+     * State of one fuzzy lookup. Rows of the edit distance matrix are kept per
+     * depth and reused by sibling prefixes, so the walk allocates only when it
+     * goes deeper than before.
+     */
+    private static final class FuzzyWalk {
+        /** Ranges at most this large are finished term by term. */
+        private static final int SCAN_THRESHOLD = 8;
+
+        private final SortedTerms order;
+        private final int[] query;
+        private final int maxEdits;
+        private int[][] rows;
+        /** Matches packed as distance (high half) and sorted position (low). */
+        long[] matches = new long[16];
+        int count;
+
+        FuzzyWalk(SortedTerms order, String query, int maxEdits) {
+            this.order = order;
+            this.query = query.codePoints().toArray();
+            this.maxEdits = maxEdits;
+            this.rows = new int[this.query.length + maxEdits + 2][];
+            rows[0] = new int[this.query.length + 1];
+            for (int j = 0; j <= this.query.length; j++)
+                rows[0][j] = j;
+        }
+
+        /**
+         * Visits {@code [from, to)}, whose terms share a prefix of
+         * {@code depth} bytes, or {@code codePoints} code points, with
+         * distance row {@code rows[codePoints]}.
+         */
+        void visit(int from, int to, int depth, int codePoints) {
+            int i = from;
+            if (order.length(i) == depth) {
+                accept(i, rows[codePoints][query.length]);
+                i++;
+            }
+            if (to - i <= SCAN_THRESHOLD) {
+                for (; i < to; i++)
+                    scan(i, depth, codePoints);
+                return;
+            }
+            while (i < to) {
+                int end = order.childEnd(i, to, depth);
+                int c = order.codePointAt(i, depth);
+                if (step(codePoints, c) <= maxEdits)
+                    visit(i, end, depth + utf8Length(c), codePoints + 1);
+                i = end;
+            }
+        }
+
+        /**
+         * Finishes a single term from the row of its first {@code depth}
+         * bytes.
+         */
+        private void scan(int index, int depth, int codePoints) {
+            int length = order.length(index);
+            while (depth < length) {
+                int c = order.codePointAt(index, depth);
+                if (step(codePoints++, c) > maxEdits)
+                    return;
+                depth += utf8Length(c);
+            }
+            accept(index, rows[codePoints][query.length]);
+        }
+
+        /**
+         * Computes {@code rows[depth + 1]} from {@code rows[depth]} for the
+         * next code point. Only the diagonal band of {@code 2 * maxEdits + 1}
+         * entries around the new depth can be within {@code maxEdits}; the
+         * entries outside it keep the value {@code maxEdits + 1} they were
+         * filled with, which is all the walk needs to know about them.
+         *
+         * @return The smallest entry of the new row.
+         */
+        private int step(int depth, int c) {
+            if (depth + 1 == rows.length)
+                rows = Arrays.copyOf(rows, rows.length * 2);
+            int[] row = rows[depth];
+            int[] next = rows[depth + 1];
+            if (next == null) {
+                next = rows[depth + 1] = new int[row.length];
+                Arrays.fill(next, maxEdits + 1);
+            }
+
+            int d = depth + 1;
+            next[0] = Math.min(d, maxEdits + 1);
+            int best = next[0];
+            int last = Math.min(row.length - 1, d + maxEdits);
+            for (int j = Math.max(1, d - maxEdits); j <= last; j++) {
+                int substitution = row[j - 1] + (query[j - 1] == c ? 0 : 1);
+                next[j] = Math.min(maxEdits + 1, Math.min(substitution, Math.min(row[j], next[j - 1]) + 1));
+                best = Math.min(best, next[j]);
+            }
+            return best;
+        }
+
+        private void accept(int index, int distance) {
+            if (distance > maxEdits)
+                return;
+            if (count == matches.length)
+                matches = Arrays.copyOf(matches, count * 2);
+            matches[count++] = ((long) distance << 32) | index;
+        }
+    }
+
+    /**
+     * Brings the sorted view up to date, so that the first prefix, wildcard
+     * or fuzzy lookup does not pay for it. Terms interned in lexicographic
+     * order, as a snapshot stores them, are verified in linear time instead of
+     * sorted.
+     */
+    public void freeze() {
+        sortedTerms();
+    }
+
+    /**
+     * Compares two terms in the order of {@link #match} and of the sorted
+     * view: by code point, which is the order of their UTF-8 bytes.
+     *
+     * @param a A term.
+     * @param b Another term.
+     * @return A negative number, zero or a positive number as {@code a} sorts
+     *         before, with or after {@code b}.
+     */
+    public static int compareTerms(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int x = codePointAt(a, i);
+            int y = codePointAt(b, j);
+            if (x != y)
+                return Integer.compare(x, y);
+            i += Character.charCount(x);
+            j += Character.charCount(y);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    /**
+     * @return The sorted view, brought up to date.
+     */
+    SortedTerms sortedTerms() {
+        SortedTerms order = sorted;
+        if (order == null) {
+            order = SortedTerms.build(this, size);
+            sorted = order;
+        } else if (order.size() < size) {
+            order = order.extend(size);
+            sorted = order;
+        }
+        return order;
+    }
+
+    /**
+     * Encodes a string as the arena would, lone surrogates included.
+     */
+    private static byte[] utf8(String term) {
+        byte[] bytes = new byte[utf8Length(term)];
+        int position = 0;
+        for (int i = 0; i < term.length(); i++) {
+            int codePoint = codePointAt(term, i);
+            int length = utf8Length(codePoint);
+            for (int k = 0; k < length; k++)
+                bytes[position++] = (byte) utf8Byte(codePoint, length, k);
+            if (codePoint > Character.MAX_VALUE)
+                i++;
+        }
+        return bytes;
+    }
+
+    private static int firstWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == ANY_CHAR || c == ANY_CHARS)
+                return i;
+        }
+        return pattern.length();
+    }
+
+    /**
+     * Glob matching with single-star backtracking: on a mismatch the most
+     * recent {@value #ANY_CHARS} absorbs one more character, which is enough
+     * since later stars can only widen what earlier ones need to cover.
+     */
+    private static boolean matches(String pattern, int p, String term, int t) {
+        int star = -1;
+        int resume = 0;
+        while (t < term.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == ANY_CHAR || pattern.charAt(p) == term.charAt(t))) {
+                p++;
+                t++;
+            } else if (p < pattern.length() && pattern.charAt(p) == ANY_CHARS) {
+                star = p++;
+                resume = t;
+            } else if (star >= 0) {
+                p = star + 1;
+                t = ++resume;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == ANY_CHARS)
+            p++;
+        return p == pattern.length();
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = id + 1;
+        }
+    }
+
+    private void ensureArena(int capacity) {
+        if (capacity > arena.length)
+            arena = Arrays.copyOf(arena, Math.max(capacity, arena.length * 2));
+    }
+
+    private boolean contentEquals(int id, CharSequence term) {
+        int position = offsets[id];
+        int end = offsets[id + 1];
+        for (int i = 0; i < term.length(); i++) {
+            int codePoint = codePointAt(term, i);
+            int length = utf8Length(codePoint);
+            if (end - position < length)
+                return false;
+            for (int k = 0; k < length; k++) {
+                if ((arena[position++] & 0xFF) != utf8Byte(codePoint, length, k))
+                    return false;
+            }
+            if (codePoint > Character.MAX_VALUE)
+                i++;
+        }
+        return position == end;
+    }
+
+    private boolean contentEquals(int id, byte[] utf8, int offset, int length) {
+        return Arrays.equals(arena, offsets[id], offsets[id + 1], utf8, offset, offset + length);
+    }
+
+    /**
+     * Hashes the UTF-8 encoding of a term without materializing it, so a term
+     * hashes the same whether it is looked up as characters or as bytes.
+     */
+    private static int hash(CharSequence term) {
+        int hash = 0;
+        for (int i = 0; i < term.length(); i++) {
+            int codePoint = codePointAt(term, i);
+            if (codePoint < 0x80) {
+                hash = 31 * hash + codePoint;
+                continue;
+            }
+            int length = utf8Length(codePoint);
+            for (int k = 0; k < length; k++)
+                hash = 31 * hash + utf8Byte(codePoint, length, k);
+            if (codePoint > Character.MAX_VALUE)
+                i++;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int hash(byte[] utf8, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++)
+            hash = 31 * hash + (utf8[i] & 0xFF);
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return The code point at {@code i}, combining a surrogate pair; a lone
+     *         surrogate is returned as is and encoded like any other char.
+     */
+    private static int codePointAt(CharSequence term, int i) {
+        char c = term.charAt(i);
+        if (Character.isHighSurrogate(c) && i + 1 < term.length()) {
+            char low = term.charAt(i + 1);
+            if (Character.isLowSurrogate(low))
+                return Character.toCodePoint(c, low);
+        }
+        return c;
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x80)
+            return 1;
+        if (codePoint < 0x800)
+            return 2;
+        return codePoint < 0x10000 ? 3 : 4;
+    }
+
+    private static int utf8Length(CharSequence term) {
+        int length = 0;
+        for (int i = 0; i < term.length(); i++) {
+            int codePoint = codePointAt(term, i);
+            length += utf8Length(codePoint);
+            if (codePoint > Character.MAX_VALUE)
+                i++;
+        }
+        return length;
+    }
+
+    /**
+     * @return Byte {@code k} of the {@code length}-byte UTF-8 encoding of a
+     *         code point, as an unsigned value.
+     */
+    private static int utf8Byte(int codePoint, int length, int k) {
+        if (length == 1)
+            return codePoint;
+        if (k == 0)
+            return (0xF00 >> length & 0xF0) | codePoint >>> (6 * (length - 1));
+        return 0x80 | (codePoint >>> (6 * (length - 1 - k)) & 0x3F);
+    }
+}
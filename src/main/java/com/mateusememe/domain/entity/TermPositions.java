@@ -0,0 +1,206 @@
+package com.mateusememe.domain.entity;
+
+import java.util.Arrays;
+
+/**
+ * Positions at which a term occurs in each document, used for phrase and
+ * proximity queries.
+ * <p>
+ * Entries are kept per document in ascending document order. The positions of
+ * one document are delta + varint encoded into a shared byte array (the first
+ * position as the gap to zero), so a typical occurrence costs one or two bytes.
+ * Positions are token ordinals within the document, not character offsets.
+ */
+public final class TermPositions {
+    private int[] docs;
+    private int[] offsets;
+    private byte[] data;
+    private int count;
+    private int length;
+    private int lastPosition;
+    private boolean sorted = true;
+
+    /**
+     * Creates an empty position list.
+     */
+    public TermPositions() {
+        this.docs = new int[2];
+        this.offsets = new int[2];
+        this.data = new byte[8];
+    }
+
+    private TermPositions(int[] docs, int[] offsets, byte[] data) {
+        this.docs = docs;
+        this.offsets = offsets;
+        this.data = data;
+        this.count = docs.length;
+        this.length = data.length;
+    }
+
+    /**
+     * Restores a position list from its serialized parts, as returned by
+     * {@link #docs()}, {@link #offsets()} and {@link #data()}.
+     *
+     * @param docs    The documents with positions, ascending.
+     * @param offsets The start of each document's positions in {@code data}.
+     * @param data    The encoded positions.
+     * @return The restored position list.
+     */
+    public static TermPositions of(int[] docs, int[] offsets, byte[] data) {
+        return new TermPositions(docs, offsets, data);
+    }
+
+    /**
+     * Records an occurrence. Positions of a document must be added in
+     * ascending order and without interleaving documents.
+     *
+     * @param doc      The document ID.
+     * @param position The token position within the document.
+     */
+    public void add(int doc, int position) {
+        if (count == 0 || docs[count - 1] != doc) {
+            if (count > 0 && docs[count - 1] > doc)
+                sorted = false;
+            if (count == docs.length) {
+                docs = Arrays.copyOf(docs, Math.max(2, count * 2));
+                offsets = Arrays.copyOf(offsets, Math.max(2, count * 2));
+            }
+            docs[count] = doc;
+            offsets[count] = length;
+            count++;
+            lastPosition = 0;
+        }
+        writeVarint(position - lastPosition);
+        lastPosition = position;
+    }
+
+    /**
+     * Returns the positions of the term in a document.
+     *
+     * @param doc The document ID.
+     * @return The ascending token positions, or an empty array if the term does
+     *         not occur in the document.
+     */
+    public int[] positions(int doc) {
+        int entry = sorted ? Arrays.binarySearch(docs, 0, count, doc) : linearSearch(doc);
+        return entry < 0 ? new int[0] : positionsAt(entry);
+    }
+
+    /**
+     * @param entry The entry index, in {@code [0, size())}.
+     * @return The document ID of the entry.
+     */
+    public int docAt(int entry) {
+        return docs[entry];
+    }
+
+    /**
+     * @param entry The entry index, in {@code [0, size())}.
+     * @return The ascending token positions of the entry.
+     */
+    public int[] positionsAt(int entry) {
+        int end = entry + 1 < count ? offsets[entry + 1] : length;
+        int[] positions = new int[end - offsets[entry]];
+        int size = 0;
+        int position = offsets[entry];
+        int current = 0;
+        while (position < end) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            current += value;
+            positions[size++] = current;
+        }
+        return Arrays.copyOf(positions, size);
+    }
+
+    /**
+     * Sorts the entries by document if needed and trims the buffers.
+     */
+    public void freeze() {
+        if (!sorted) {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++)
+                order[i] = i;
+            Arrays.sort(order, (a, b) -> Integer.compare(docs[a], docs[b]));
+
+            int[] sortedDocs = new int[count];
+            int[] sortedOffsets = new int[count];
+            byte[] sortedData = new byte[length];
+            int position = 0;
+            for (int i = 0; i < count; i++) {
+                int entry = order[i];
+                int start = offsets[entry];
+                int end = entry + 1 < count ? offsets[entry + 1] : length;
+                sortedDocs[i] = docs[entry];
+                sortedOffsets[i] = position;
+                System.arraycopy(data, start, sortedData, position, end - start);
+                position += end - start;
+            }
+            docs = sortedDocs;
+            offsets = sortedOffsets;
+            data = sortedData;
+            sorted = true;
+        }
+        if (docs.length != count) {
+            docs = Arrays.copyOf(docs, count);
+            offsets = Arrays.copyOf(offsets, count);
+        }
+        if (data.length != length)
+            data = Arrays.copyOf(data, length);
+    }
+
+    /**
+     * @return The number of documents with recorded positions.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return The documents with positions, ascending. Only valid after
+     *         {@link #freeze()}; must not be modified.
+     */
+    public int[] docs() {
+        return docs;
+    }
+
+    /**
+     * @return The start offset of each document's positions in {@link #data()}.
+     *         Only valid after {@link #freeze()}; must not be modified.
+     */
+    public int[] offsets() {
+        return offsets;
+    }
+
+    /**
+     * @return The delta + varint encoded positions. Only valid after
+     *         {@link #freeze()}; must not be modified.
+     */
+    public byte[] data() {
+        return data;
+    }
+
+    private int linearSearch(int doc) {
+        for (int i = 0; i < count; i++) {
+            if (docs[i] == doc)
+                return i;
+        }
+        return -1;
+    }
+
+    private void writeVarint(int value) {
+        if (length + 5 > data.length)
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+}
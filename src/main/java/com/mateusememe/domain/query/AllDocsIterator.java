@@ -0,0 +1,42 @@
+package com.mateusememe.domain.query;
+
+import com.mateusememe.domain.entity.DocIdIterator;
+
+/**
+ * Every document ID below a bound, the base a negation is subtracted from
+ * when nothing narrower is available. Removed documents are included; they
+ * are dropped when the results are collected.
+ */
+final class AllDocsIterator implements DocIdIterator {
+    private final int maxDoc;
+    private int doc = -1;
+
+    /**
+     * @param maxDoc The exclusive upper bound of document IDs.
+     */
+    AllDocsIterator(int maxDoc) {
+        this.maxDoc = maxDoc;
+    }
+
+    @Override
+    public int docID() {
+        return doc;
+    }
+
+    @Override
+    public int nextDoc() {
+        return advance(doc + 1);
+    }
+
+    @Override
+    public int advance(int target) {
+        if (target <= doc)
+            return doc;
+        return doc = target < maxDoc ? target : NO_MORE_DOCS;
+    }
+
+    @Override
+    public long cost() {
+        return maxDoc;
+    }
+}
@@ -0,0 +1,50 @@
+package com.mateusememe.domain.query;
+
+import java.util.Arrays;
+
+import com.mateusememe.domain.entity.DocIdIterator;
+
+/**
+ * Iterator over an ascending array of document IDs, used for clauses the
+ * index answers eagerly, such as phrases.
+ */
+final class ArrayDocIdIterator implements DocIdIterator {
+    private final int[] docs;
+    private int index = -1;
+
+    /**
+     * @param docs Distinct document IDs, ascending.
+     */
+    ArrayDocIdIterator(int[] docs) {
+        this.docs = docs;
+    }
+
+    @Override
+    public int docID() {
+        if (index < 0)
+            return -1;
+        return index < docs.length ? docs[index] : NO_MORE_DOCS;
+    }
+
+    @Override
+    public int nextDoc() {
+        if (index < docs.length)
+            index++;
+        return docID();
+    }
+
+    @Override
+    public int advance(int target) {
+        if (index >= 0 && docID() >= target)
+            return docID();
+        int from = Math.max(index, 0);
+        int found = Arrays.binarySearch(docs, from, docs.length, target);
+        index = found >= 0 ? found : -found - 1;
+        return docID();
+    }
+
+    @Override
+    public long cost() {
+        return docs.length;
+    }
+}
@@ -0,0 +1,61 @@
+package com.mateusememe.domain.query;
+
+import com.mateusememe.domain.entity.DocIdIterator;
+
+/**
+ * Lazy intersection of iterators, using the same leapfrog strategy as
+ * {@link com.mateusememe.domain.entity.Indexer#search(String[])}: the cheapest
+ * iterator leads and the others are advanced to its candidates, and when one
+ * overshoots the leader jumps to that document.
+ */
+final class ConjunctionIterator implements DocIdIterator {
+    private final DocIdIterator lead;
+    private final DocIdIterator[] others;
+    private int doc = -1;
+
+    /**
+     * @param iterators At least two iterators, ordered from the cheapest.
+     */
+    ConjunctionIterator(DocIdIterator[] iterators) {
+        this.lead = iterators[0];
+        this.others = new DocIdIterator[iterators.length - 1];
+        System.arraycopy(iterators, 1, others, 0, others.length);
+    }
+
+    @Override
+    public int docID() {
+        return doc;
+    }
+
+    @Override
+    public int nextDoc() {
+        return doc = align(lead.nextDoc());
+    }
+
+    @Override
+    public int advance(int target) {
+        if (target <= doc)
+            return doc;
+        return doc = align(lead.advance(target));
+    }
+
+    @Override
+    public long cost() {
+        return lead.cost();
+    }
+
+    private int align(int candidate) {
+        candidates:
+        while (candidate != NO_MORE_DOCS) {
+            for (DocIdIterator other : others) {
+                int found = other.advance(candidate);
+                if (found != candidate) {
+                    candidate = lead.advance(found);
+                    continue candidates;
+                }
+            }
+            return candidate;
+        }
+        return NO_MORE_DOCS;
+    }
+}
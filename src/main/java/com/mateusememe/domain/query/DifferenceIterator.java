@@ -0,0 +1,53 @@
+package com.mateusememe.domain.query;
+
+import com.mateusememe.domain.entity.DocIdIterator;
+
+/**
+ * Documents of one iterator that another iterator does not return. The
+ * excluded iterator is only advanced to the candidates of the base, so a rare
+ * base is never slowed down by a common exclusion.
+ */
+final class DifferenceIterator implements DocIdIterator {
+    private final DocIdIterator base;
+    private final DocIdIterator excluded;
+    private int doc = -1;
+
+    DifferenceIterator(DocIdIterator base, DocIdIterator excluded) {
+        this.base = base;
+        this.excluded = excluded;
+    }
+
+    @Override
+    public int docID() {
+        return doc;
+    }
+
+    @Override
+    public int nextDoc() {
+        return doc = skipExcluded(base.nextDoc());
+    }
+
+    @Override
+    public int advance(int target) {
+        if (target <= doc)
+            return doc;
+        return doc = skipExcluded(base.advance(target));
+    }
+
+    @Override
+    public long cost() {
+        return base.cost();
+    }
+
+    private int skipExcluded(int candidate) {
+        while (candidate != NO_MORE_DOCS) {
+            int other = excluded.docID();
+            if (other < candidate)
+                other = excluded.advance(candidate);
+            if (other != candidate)
+                return candidate;
+            candidate = base.nextDoc();
+        }
+        return NO_MORE_DOCS;
+    }
+}
@@ -0,0 +1,57 @@
+package com.mateusememe.domain.query;
+
+import com.mateusememe.domain.entity.DocIdIterator;
+
+/**
+ * Lazy union of iterators. The current document is the smallest one any
+ * iterator is on; user queries rarely OR more than a handful of clauses, so a
+ * linear scan is used instead of a heap. Wildcard and fuzzy expansions never
+ * reach this class, they are merged into a single bitmap by the index.
+ */
+final class DisjunctionIterator implements DocIdIterator {
+    private final DocIdIterator[] iterators;
+    private final long cost;
+    private int doc = -1;
+
+    /**
+     * @param iterators  At least two iterators.
+     * @param maxDoc     The exclusive upper bound of document IDs, which caps
+     *                   the cost.
+     */
+    DisjunctionIterator(DocIdIterator[] iterators, int maxDoc) {
+        this.iterators = iterators;
+        long sum = 0;
+        for (DocIdIterator iterator : iterators)
+            sum += iterator.cost();
+        this.cost = Math.min(sum, maxDoc);
+    }
+
+    @Override
+    public int docID() {
+        return doc;
+    }
+
+    @Override
+    public int nextDoc() {
+        return advance(doc + 1);
+    }
+
+    @Override
+    public int advance(int target) {
+        if (target <= doc)
+            return doc;
+        int min = NO_MORE_DOCS;
+        for (DocIdIterator iterator : iterators) {
+            int current = iterator.docID();
+            if (current < target)
+                current = iterator.advance(target);
+            min = Math.min(min, current);
+        }
+        return doc = min;
+    }
+
+    @Override
+    public long cost() {
+        return cost;
+    }
+}
@@ -0,0 +1,186 @@
+package com.mateusememe.domain.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Operator tree of a parsed boolean query, as built by {@link QueryParser} and
+ * evaluated by {@link QueryPlanner}.
+ * <p>
+ * Nodes are immutable. Their {@link #toString()} is a canonical form in which
+ * the operands of {@code AND} and {@code OR} are sorted, so equivalent queries
+ * written in a different order print, and cache, the same.
+ */
+public abstract class Query {
+
+    private Query() {
+    }
+
+    /**
+     * Collects the terms that can contribute to a match, i.e. every term and
+     * phrase word outside a {@code NOT}, for ranking and highlighting.
+     *
+     * @return The positive terms, in query order, without duplicates.
+     */
+    public String[] terms() {
+        Set<String> terms = new LinkedHashSet<>();
+        collectTerms(terms);
+        return terms.toArray(new String[0]);
+    }
+
+    abstract void collectTerms(Set<String> terms);
+
+    /**
+     * A single, lowercased term, possibly a wildcard pattern.
+     */
+    public static final class Term extends Query {
+        private final String term;
+
+        Term(String term) {
+            this.term = term;
+        }
+
+        /**
+         * @return The term.
+         */
+        public String term() {
+            return term;
+        }
+
+        @Override
+        void collectTerms(Set<String> terms) {
+            terms.add(term);
+        }
+
+        @Override
+        public String toString() {
+            return term;
+        }
+    }
+
+    /**
+     * Words that must appear consecutively and in order.
+     */
+    public static final class Phrase extends Query {
+        private final String[] words;
+
+        Phrase(String[] words) {
+            this.words = words;
+        }
+
+        /**
+         * @return A copy of the phrase words, in order.
+         */
+        public String[] words() {
+            return words.clone();
+        }
+
+        @Override
+        void collectTerms(Set<String> terms) {
+            terms.addAll(Arrays.asList(words));
+        }
+
+        @Override
+        public String toString() {
+            return "\"" + String.join(" ", words) + "\"";
+        }
+    }
+
+    /**
+     * Documents that do not match the operand.
+     */
+    public static final class Not extends Query {
+        private final Query operand;
+
+        Not(Query operand) {
+            this.operand = operand;
+        }
+
+        /**
+         * @return The negated query.
+         */
+        public Query operand() {
+            return operand;
+        }
+
+        @Override
+        void collectTerms(Set<String> terms) {
+        }
+
+        @Override
+        public String toString() {
+            return "-" + operand;
+        }
+    }
+
+    /**
+     * Documents that match every operand. Without operands it matches
+     * nothing, which is what a blank query parses to.
+     */
+    public static final class And extends Query {
+        private final List<Query> operands;
+
+        And(List<Query> operands) {
+            this.operands = Collections.unmodifiableList(new ArrayList<>(operands));
+        }
+
+        /**
+         * @return The operands.
+         */
+        public List<Query> operands() {
+            return operands;
+        }
+
+        @Override
+        void collectTerms(Set<String> terms) {
+            for (Query operand : operands)
+                operand.collectTerms(terms);
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " AND ");
+        }
+    }
+
+    /**
+     * Documents that match at least one operand.
+     */
+    public static final class Or extends Query {
+        private final List<Query> operands;
+
+        Or(List<Query> operands) {
+            this.operands = Collections.unmodifiableList(new ArrayList<>(operands));
+        }
+
+        /**
+         * @return The operands.
+         */
+        public List<Query> operands() {
+            return operands;
+        }
+
+        @Override
+        void collectTerms(Set<String> terms) {
+            for (Query operand : operands)
+                operand.collectTerms(terms);
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " OR ");
+        }
+    }
+
+    private static String join(List<Query> operands, String separator) {
+        List<String> parts = new ArrayList<>(operands.size());
+        for (Query operand : operands)
+            parts.add(operand.toString());
+        Collections.sort(parts);
+        return "(" + String.join(separator, parts) + ")";
+    }
+}
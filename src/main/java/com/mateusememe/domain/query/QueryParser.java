@@ -0,0 +1,246 @@
+package com.mateusememe.domain.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mateusememe.domain.analysis.Analyzer;
+import com.mateusememe.domain.analysis.Tokenizer;
+
+/**
+ * Parses the boolean query language into a {@link Query} tree.
+ * <p>
+ * Words next to each other must all match (implicit {@code AND}). The
+ * operators {@code AND}, {@code OR} and {@code NOT} are only recognized in
+ * upper case, so the lowercase words "and", "or" and "not" remain searchable.
+ * {@code -word} is a shorthand for {@code NOT word}, parentheses group and
+ * double quotes delimit a phrase. {@code NOT} binds tightest, then
+ * {@code AND}, then {@code OR}:
+ *
+ * <pre>
+ * star (wars OR trek) -"the next generation"
+ * </pre>
+ *
+ * Each word is split with {@link Tokenizer#queryTerms(String, Analyzer)}, so
+ * {@code sci-fi} requires both "sci" and "fi", exactly as a plain search
+ * does, and wildcard patterns are kept. Words the analyzer drops, such as
+ * stopwords, are skipped.
+ */
+public final class QueryParser {
+    private static final int END = 0;
+    private static final int WORD = 1;
+    private static final int PHRASE = 2;
+    private static final int OPEN = 3;
+    private static final int CLOSE = 4;
+    private static final int AND = 5;
+    private static final int OR = 6;
+    private static final int NOT = 7;
+
+    private final String input;
+    private final Analyzer analyzer;
+    private int position;
+    private int token;
+    private String text;
+
+    private QueryParser(String input, Analyzer analyzer) {
+        this.input = input;
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Parses a query. A query without any searchable word yields an empty
+     * {@link Query.And}, which matches nothing.
+     *
+     * @param query The query as typed, not lowercased.
+     * @return The operator tree.
+     * @throws IllegalArgumentException if the query is malformed, e.g. has
+     *                                  unbalanced parentheses or quotes or an
+     *                                  operator without an operand.
+     */
+    public static Query parse(String query) {
+        return parse(query, Analyzer.STANDARD);
+    }
+
+    /**
+     * Parses a query for an index built with a given analyzer.
+     *
+     * @param query    The query as typed, not lowercased.
+     * @param analyzer The analyzer of the index the query runs against.
+     * @return The operator tree.
+     * @throws IllegalArgumentException if the query is malformed.
+     */
+    public static Query parse(String query, Analyzer analyzer) {
+        QueryParser parser = new QueryParser(query, analyzer);
+        parser.next();
+        Query result = parser.parseOr();
+        if (parser.token == CLOSE)
+            throw new IllegalArgumentException("Unbalanced ')' in query: " + query);
+        return result != null ? result : new Query.And(List.of());
+    }
+
+    /**
+     * or := and ("OR" and)*
+     */
+    private Query parseOr() {
+        if (token == OR)
+            throw new IllegalArgumentException("Missing operand before OR in query: " + input);
+        List<Query> operands = new ArrayList<>();
+        add(operands, parseAnd(), Query.Or.class);
+        while (token == OR) {
+            next();
+            if (token == END || token == CLOSE || token == OR)
+                throw new IllegalArgumentException("Missing operand after OR in query: " + input);
+            add(operands, parseAnd(), Query.Or.class);
+        }
+        if (operands.size() <= 1)
+            return operands.isEmpty() ? null : operands.get(0);
+        return new Query.Or(operands);
+    }
+
+    /**
+     * and := unary ("AND"? unary)*
+     */
+    private Query parseAnd() {
+        if (token == AND)
+            throw new IllegalArgumentException("Missing operand before AND in query: " + input);
+        List<Query> operands = new ArrayList<>();
+        while (token != END && token != CLOSE && token != OR) {
+            if (token == AND) {
+                next();
+                if (token == END || token == CLOSE || token == OR || token == AND)
+                    throw new IllegalArgumentException("Missing operand after AND in query: " + input);
+            }
+            add(operands, parseUnary(), Query.And.class);
+        }
+        if (operands.size() <= 1)
+            return operands.isEmpty() ? null : operands.get(0);
+        return new Query.And(operands);
+    }
+
+    /**
+     * unary := ("NOT" | "-")* primary
+     */
+    private Query parseUnary() {
+        if (token != NOT)
+            return parsePrimary();
+        next();
+        if (token == END || token == CLOSE || token == OR || token == AND)
+            throw new IllegalArgumentException("Missing operand after NOT in query: " + input);
+        Query operand = parseUnary();
+        if (operand == null)
+            return null;
+        return operand instanceof Query.Not ? ((Query.Not) operand).operand() : new Query.Not(operand);
+    }
+
+    /**
+     * primary := "(" or ")" | phrase | word
+     */
+    private Query parsePrimary() {
+        switch (token) {
+            case OPEN: {
+                next();
+                Query group = parseOr();
+                if (token != CLOSE)
+                    throw new IllegalArgumentException("Unbalanced '(' in query: " + input);
+                next();
+                return group;
+            }
+            case PHRASE: {
+                String[] words = Tokenizer.queryTerms(text, analyzer);
+                next();
+                if (words.length <= 1)
+                    return words.length == 0 ? null : new Query.Term(words[0]);
+                return new Query.Phrase(words);
+            }
+            default: {
+                String[] terms = Tokenizer.queryTerms(text, analyzer);
+                next();
+                List<Query> operands = new ArrayList<>(terms.length);
+                for (String term : terms)
+                    operands.add(new Query.Term(term));
+                if (operands.size() <= 1)
+                    return operands.isEmpty() ? null : operands.get(0);
+                return new Query.And(operands);
+            }
+        }
+    }
+
+    /**
+     * Appends an operand, skipping words without searchable characters and
+     * flattening nested operators of the same kind.
+     */
+    private static void add(List<Query> operands, Query operand, Class<? extends Query> kind) {
+        if (operand == null)
+            return;
+        if (kind == Query.And.class && operand instanceof Query.And)
+            operands.addAll(((Query.And) operand).operands());
+        else if (kind == Query.Or.class && operand instanceof Query.Or)
+            operands.addAll(((Query.Or) operand).operands());
+        else
+            operands.add(operand);
+    }
+
+    /**
+     * Reads the next token into {@link #token} and {@link #text}.
+     */
+    private void next() {
+        while (position < input.length() && Character.isWhitespace(input.charAt(position)))
+            position++;
+        if (position == input.length()) {
+            token = END;
+            return;
+        }
+
+        char c = input.charAt(position);
+        switch (c) {
+            case '(':
+                position++;
+                token = OPEN;
+                return;
+            case ')':
+                position++;
+                token = CLOSE;
+                return;
+            case '"': {
+                int close = input.indexOf('"', position + 1);
+                if (close < 0)
+                    throw new IllegalArgumentException("Unbalanced '\"' in query: " + input);
+                text = input.substring(position + 1, close);
+                position = close + 1;
+                token = PHRASE;
+                return;
+            }
+            case '-':
+                if (position + 1 < input.length() && !Character.isWhitespace(input.charAt(position + 1))) {
+                    position++;
+                    token = NOT;
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+
+        int start = position;
+        while (position < input.length()) {
+            char current = input.charAt(position);
+            if (Character.isWhitespace(current) || current == '(' || current == ')' || current == '"')
+                break;
+            position++;
+        }
+        text = input.substring(start, position);
+        switch (text) {
+            case "AND":
+                token = AND;
+                break;
+            case "OR":
+                token = OR;
+                break;
+            case "NOT":
+                token = NOT;
+                break;
+            default:
+                token = WORD;
+                break;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.mateusememe.domain.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.mateusememe.domain.entity.DocIdIterator;
+import com.mateusememe.domain.entity.Indexer;
+import com.mateusememe.domain.entity.PostingList;
+
+/**
+ * Compiles a {@link Query} into a tree of lazy {@link DocIdIterator}s over an
+ * {@link Indexer} and collects its matches.
+ * <p>
+ * Planning uses the document frequency of every clause, which the iterators
+ * expose as their {@link DocIdIterator#cost() cost}:
+ * <ul>
+ * <li>the operands of an {@code AND} are intersected from the rarest, so the
+ * work is bounded by the rarest operand;</li>
+ * <li>negated operands of an {@code AND} are not evaluated on their own but
+ * subtracted from the intersection of the others, and only probed at its
+ * candidates;</li>
+ * <li>an {@code AND} with an operand that matches nothing is empty without
+ * reading any list, and operands of an {@code OR} that match nothing are
+ * dropped.</li>
+ * </ul>
+ * Like {@link Indexer#search(String[])}, a planner only reads the index, so
+ * any number of them may run concurrently.
+ */
+public final class QueryPlanner {
+    private final Indexer indexer;
+    private final int maxEdits;
+
+    /**
+     * @param indexer  The index to search.
+     * @param maxEdits The edit distance allowed per term, from 0 (exact) to
+     *                 {@link Indexer#MAX_EDITS}.
+     */
+    public QueryPlanner(Indexer indexer, int maxEdits) {
+        this.indexer = indexer;
+        this.maxEdits = maxEdits;
+    }
+
+    /**
+     * Evaluates a query.
+     *
+     * @param query The query.
+     * @return The IDs of the documents matching the query, ascending.
+     * @throws IllegalArgumentException if a term expands to too many terms or
+     *                                  the edit distance is out of range.
+     * @throws IllegalStateException    if the query holds a phrase and the
+     *                                  index does not store positions.
+     */
+    public int[] searchIds(Query query) {
+        DocIdIterator iterator = plan(query);
+        if (iterator == null)
+            return new int[0];
+
+        int[] result = new int[(int) Math.min(iterator.cost(), indexer.documentCount())];
+        int count = 0;
+        for (int doc = iterator.nextDoc(); doc != DocIdIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+            if (indexer.documentName(doc) == null)
+                continue;
+            if (count == result.length)
+                result = Arrays.copyOf(result, Math.max(16, count * 2));
+            result[count++] = doc;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Same as {@link #searchIds(Query)} but resolves the file names.
+     *
+     * @param query The query.
+     * @return The names of the files matching the query, in document order.
+     */
+    public Set<String> search(Query query) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int doc : searchIds(query))
+            result.add(indexer.documentName(doc));
+        return result;
+    }
+
+    /**
+     * @return An iterator over the documents matching the query, or
+     *         {@code null} if it is known to match nothing.
+     */
+    private DocIdIterator plan(Query query) {
+        if (query instanceof Query.Term)
+            return planTerm((Query.Term) query);
+        if (query instanceof Query.Phrase)
+            return planPhrase((Query.Phrase) query);
+        if (query instanceof Query.Not)
+            return planAnd(List.of(query));
+        if (query instanceof Query.And)
+            return planAnd(((Query.And) query).operands());
+        return planOr(((Query.Or) query).operands());
+    }
+
+    private DocIdIterator planTerm(Query.Term term) {
+        PostingList postings = indexer.termPostings(term.term(), maxEdits);
+        return postings == null || postings.size() == 0 ? null : postings.iterator();
+    }
+
+    private DocIdIterator planPhrase(Query.Phrase phrase) {
+        int[] docs = indexer.searchPhraseIds(phrase.words(), 0, maxEdits);
+        return docs.length == 0 ? null : new ArrayDocIdIterator(docs);
+    }
+
+    private DocIdIterator planAnd(List<Query> operands) {
+        if (operands.isEmpty())
+            return null;
+
+        List<DocIdIterator> required = new ArrayList<>();
+        for (Query operand : operands) {
+            if (operand instanceof Query.Not)
+                continue;
+            DocIdIterator iterator = plan(operand);
+            if (iterator == null)
+                return null;
+            required.add(iterator);
+        }
+        // Only plan the exclusions once the intersection is known not to be
+        // trivially empty.
+        List<DocIdIterator> excluded = new ArrayList<>();
+        for (Query operand : operands) {
+            if (!(operand instanceof Query.Not))
+                continue;
+            DocIdIterator negated = plan(((Query.Not) operand).operand());
+            if (negated != null)
+                excluded.add(negated);
+        }
+
+        DocIdIterator base;
+        if (required.isEmpty()) {
+            base = new AllDocsIterator(indexer.documentCount());
+        } else if (required.size() == 1) {
+            base = required.get(0);
+        } else {
+            required.sort(Comparator.comparingLong(DocIdIterator::cost));
+            base = new ConjunctionIterator(required.toArray(new DocIdIterator[0]));
+        }
+        if (excluded.isEmpty())
+            return base;
+        return new DifferenceIterator(base, union(excluded));
+    }
+
+    private DocIdIterator planOr(List<Query> operands) {
+        List<DocIdIterator> iterators = new ArrayList<>(operands.size());
+        for (Query operand : operands) {
+            DocIdIterator iterator = plan(operand);
+            if (iterator != null)
+                iterators.add(iterator);
+        }
+        return iterators.isEmpty() ? null : union(iterators);
+    }
+
+    private DocIdIterator union(List<DocIdIterator> iterators) {
+        if (iterators.size() == 1)
+            return iterators.get(0);
+        return new DisjunctionIterator(iterators.toArray(new DocIdIterator[0]), indexer.documentCount());
+    }
+}
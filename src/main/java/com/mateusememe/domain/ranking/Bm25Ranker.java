@@ -0,0 +1,165 @@
+package com.mateusememe.domain.ranking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.mateusememe.domain.entity.DocIdIterator;
+import com.mateusememe.domain.entity.Indexer;
+import com.mateusememe.domain.entity.PostingList;
+import com.mateusememe.domain.entity.PostingsIterator;
+
+/**
+ * Ranks search results with Okapi BM25 and keeps only the best {@code k}.
+ * <p>
+ * Scores are accumulated term at a time: the candidates are sorted by ID once
+ * and each query term's posting cursor is advanced over them, reading the term
+ * frequency stored next to the posting and the document length kept by the
+ * index. Every (term, document) pair is therefore visited once, with no
+ * dictionary lookups per document. A min-heap bounded to {@code k} entries
+ * then selects the best results in O(n log k) instead of sorting all of them.
+ * <p>
+ * The document count, average length and document frequencies come from the
+ * index itself unless {@link CollectionStatistics} are given, which lets the
+ * shards of a sharded index score against the whole collection.
+ */
+public class Bm25Ranker {
+    /** Term frequency saturation. */
+    static final double K1 = 1.2;
+    /** Strength of the document length normalization. */
+    static final double B = 0.75;
+
+    /**
+     * Best results first: higher score, then file name ascending.
+     */
+    private static final Comparator<ScoredDocument> BEST_FIRST = Comparator
+            .comparingDouble(ScoredDocument::score).reversed()
+            .thenComparing(ScoredDocument::name);
+
+    private final Indexer indexer;
+
+    /**
+     * @param indexer The index the results come from.
+     */
+    public Bm25Ranker(Indexer indexer) {
+        this.indexer = indexer;
+    }
+
+    /**
+     * Scores the given files against the query terms and returns the best
+     * {@code limit} of them, best first. Ties are broken by file name. Files
+     * unknown to the index score zero.
+     *
+     * @param fileNames The matching files, e.g. from {@link Indexer#search}.
+     * @param terms     The query terms.
+     * @param limit     The maximum number of results to return.
+     * @return At most {@code limit} scored results, best first.
+     */
+    public List<ScoredDocument> topK(Collection<String> fileNames, String[] terms, int limit) {
+        return topK(fileNames, terms, limit, null);
+    }
+
+    /**
+     * Same as {@link #topK(Collection, String[], int)}, scoring with the given
+     * collection statistics instead of the index's own. Terms the statistics
+     * do not cover fall back to the index's document frequency.
+     *
+     * @param fileNames  The matching files, e.g. from {@link Indexer#search}.
+     * @param terms      The query terms.
+     * @param limit      The maximum number of results to return.
+     * @param statistics The statistics to score with, or {@code null} for the
+     *                   index's own.
+     * @return At most {@code limit} scored results, best first.
+     */
+    public List<ScoredDocument> topK(Collection<String> fileNames, String[] terms, int limit,
+            CollectionStatistics statistics) {
+        if (limit <= 0 || fileNames.isEmpty())
+            return Collections.emptyList();
+
+        String[] names = fileNames.toArray(new String[0]);
+        long[] keys = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            int doc = indexer.documentId(names[i]);
+            keys[i] = ((long) doc << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] docs = new int[names.length];
+        for (int i = 0; i < keys.length; i++)
+            docs[i] = (int) (keys[i] >> 32);
+        double[] scores = new double[docs.length];
+        int[] matched = new int[docs.length];
+        accumulate(docs, distinct(terms), scores, matched, statistics);
+
+        PriorityQueue<ScoredDocument> heap = new PriorityQueue<>(Math.min(limit, docs.length) + 1,
+                BEST_FIRST.reversed());
+        for (int i = 0; i < docs.length; i++) {
+            ScoredDocument candidate = new ScoredDocument(names[(int) keys[i]], scores[i], matched[i]);
+            if (heap.size() < limit) {
+                heap.add(candidate);
+            } else if (BEST_FIRST.compare(candidate, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+
+        List<ScoredDocument> result = new ArrayList<>(heap);
+        result.sort(BEST_FIRST);
+        return result;
+    }
+
+    /**
+     * Adds the BM25 contribution of every term to the candidates holding it.
+     *
+     * @param docs       Candidate document IDs, ascending; -1 for unknown
+     *                   files.
+     * @param terms      The distinct query terms.
+     * @param scores     Score accumulator, parallel to {@code docs}.
+     * @param matched    Matched-term counter, parallel to {@code docs}.
+     * @param statistics The collection statistics to score with, or
+     *                   {@code null} for the index's own.
+     */
+    private void accumulate(int[] docs, Set<String> terms, double[] scores, int[] matched,
+            CollectionStatistics statistics) {
+        int documentCount = statistics != null ? statistics.documentCount() : indexer.liveDocumentCount();
+        double averageLength = Math.max(
+                statistics != null ? statistics.averageLength() : indexer.averageDocumentLength(), 1);
+        for (String term : terms) {
+            PostingList postings = indexer.postings(term);
+            if (postings == null)
+                continue;
+
+            int df = statistics != null ? statistics.documentFrequency(term) : -1;
+            if (df < 0)
+                df = postings.size();
+            double idf = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+            PostingsIterator iterator = postings.iterator();
+            for (int i = 0; i < docs.length; i++) {
+                if (docs[i] < 0)
+                    continue;
+                int doc = iterator.advance(docs[i]);
+                if (doc == DocIdIterator.NO_MORE_DOCS)
+                    break;
+                if (doc != docs[i])
+                    continue;
+                int tf = iterator.frequency();
+                double norm = K1 * (1 - B + B * indexer.documentLength(doc) / averageLength);
+                scores[i] += idf * tf * (K1 + 1) / (tf + norm);
+                matched[i]++;
+            }
+        }
+    }
+
+    private static Set<String> distinct(String[] terms) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String term : terms)
+            unique.add(term.toLowerCase());
+        return unique;
+    }
+}
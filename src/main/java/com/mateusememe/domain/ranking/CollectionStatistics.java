@@ -0,0 +1,111 @@
+package com.mateusememe.domain.ranking;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mateusememe.domain.entity.Indexer;
+import com.mateusememe.domain.entity.PostingList;
+
+/**
+ * The collection-wide figures BM25 scores with: the number of documents,
+ * their total length and the document frequency of each query term.
+ * <p>
+ * An index computes them for itself with {@link #of(Indexer, String[])}. A
+ * sharded index adds up the statistics of all its shards with
+ * {@link #sum(List)} and ranks every shard with the total, so that a file
+ * scores the same as it would in a single index over all the files.
+ */
+public final class CollectionStatistics {
+    private final int documentCount;
+    private final long totalLength;
+    private final Map<String, Integer> documentFrequencies;
+
+    /**
+     * @param documentCount       The number of live documents.
+     * @param totalLength         The number of tokens in them.
+     * @param documentFrequencies The number of documents holding each term,
+     *                            by lower-case term.
+     */
+    public CollectionStatistics(int documentCount, long totalLength, Map<String, Integer> documentFrequencies) {
+        this.documentCount = documentCount;
+        this.totalLength = totalLength;
+        this.documentFrequencies = Collections.unmodifiableMap(documentFrequencies);
+    }
+
+    /**
+     * Collects the statistics of an index for the given terms. Terms unknown
+     * to the index get a document frequency of zero.
+     *
+     * @param indexer The index.
+     * @param terms   The indexed terms, e.g. the expanded query terms.
+     * @return The statistics.
+     */
+    public static CollectionStatistics of(Indexer indexer, String[] terms) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : terms) {
+            PostingList postings = indexer.postings(term);
+            frequencies.put(term.toLowerCase(), postings == null ? 0 : postings.size());
+        }
+        return new CollectionStatistics(indexer.liveDocumentCount(), indexer.totalDocumentLength(), frequencies);
+    }
+
+    /**
+     * Adds up the statistics of disjoint parts of a collection.
+     *
+     * @param parts The statistics of each part.
+     * @return The statistics of the whole collection, covering every term
+     *         known to any part.
+     */
+    public static CollectionStatistics sum(List<CollectionStatistics> parts) {
+        int documentCount = 0;
+        long totalLength = 0;
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (CollectionStatistics part : parts) {
+            documentCount += part.documentCount;
+            totalLength += part.totalLength;
+            part.documentFrequencies.forEach((term, frequency) -> frequencies.merge(term, frequency, Integer::sum));
+        }
+        return new CollectionStatistics(documentCount, totalLength, frequencies);
+    }
+
+    /**
+     * @return The number of live documents.
+     */
+    public int documentCount() {
+        return documentCount;
+    }
+
+    /**
+     * @return The number of tokens in all documents.
+     */
+    public long totalLength() {
+        return totalLength;
+    }
+
+    /**
+     * @return The mean document length in tokens, or 0 for an empty
+     *         collection.
+     */
+    public double averageLength() {
+        return documentCount == 0 ? 0 : (double) totalLength / documentCount;
+    }
+
+    /**
+     * @param term A lower-case term.
+     * @return The number of documents holding the term, or -1 if these
+     *         statistics do not cover it.
+     */
+    public int documentFrequency(String term) {
+        Integer frequency = documentFrequencies.get(term);
+        return frequency == null ? -1 : frequency;
+    }
+
+    /**
+     * @return The document frequency of every covered term.
+     */
+    public Map<String, Integer> documentFrequencies() {
+        return documentFrequencies;
+    }
+}
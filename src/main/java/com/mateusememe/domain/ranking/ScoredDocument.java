@@ -0,0 +1,42 @@
+package com.mateusememe.domain.ranking;
+
+/**
+ * A search result together with its relevance score.
+ */
+public final class ScoredDocument {
+    private final String name;
+    private final double score;
+    private final int matchedTerms;
+
+    /**
+     * @param name         The file name.
+     * @param score        The relevance score, higher is better.
+     * @param matchedTerms The number of distinct query terms found in the file.
+     */
+    public ScoredDocument(String name, double score, int matchedTerms) {
+        this.name = name;
+        this.score = score;
+        this.matchedTerms = matchedTerms;
+    }
+
+    /**
+     * @return The file name.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return The relevance score, higher is better.
+     */
+    public double score() {
+        return score;
+    }
+
+    /**
+     * @return The number of distinct query terms found in the file.
+     */
+    public int matchedTerms() {
+        return matchedTerms;
+    }
+}
@@ -2,6 +2,7 @@ package com.mateusememe.infrastructure.cli;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * The ArgumentParser class provides functionality to parse command-line
@@ -11,6 +12,20 @@ import java.util.List;
  * and collecting positional arguments that are not prefixed by a flag.
  */
 public class ArgumentParser {
+    /**
+     * Flags that consume the following argument as their value.
+     */
+    private static final Set<String> VALUE_FLAGS = Set.of("-l", "-t", "--slop", "--port", "--batch", "--cache", "--fuzzy",
+            "--format", "--shards", "--shard", "--remote-shards", "--index-memory");
+
+    /**
+     * Flags that take no value. Any other argument starting with a single
+     * {@code -} is positional, so queries can exclude words with {@code -word}.
+     */
+    private static final Set<String> SWITCH_FLAGS = Set.of("-h", "--help", "-v", "--verbose", "-p", "--phrase",
+            "--rebuild", "--watch", "--serve", "--stats", "--stopwords", "--stem",
+            "--doc-store", "--no-positions");
+
     private final List<String> args;
 
     /**
@@ -55,21 +70,34 @@ public class ArgumentParser {
         return defaultValue;
     }
 
+    /**
+     * Retrieves the string value associated with a specified flag.
+     *
+     * @param flag         the flag whose associated value is to be retrieved
+     * @param defaultValue the default value to return if the flag is not found
+     *                     or has no value
+     * @return the value following the flag or the default value if not found
+     */
+    public String getValue(String flag, String defaultValue) {
+        int index = args.indexOf(flag);
+        return index != -1 && index + 1 < args.size() ? args.get(index + 1) : defaultValue;
+    }
+
     /**
      * Retrieves a list of positional arguments from the command-line arguments.
-     * Positional arguments are those that do not start with a flag (e.g., "-").
+     * Positional arguments are those that are neither a known flag, the value
+     * of a flag, nor start with "--".
      *
      * @return a list of positional arguments
      */
     public List<String> getPositionalArgs() {
         List<String> positionalArgs = new ArrayList<>();
         for (int index = 0; index < args.size(); index++) {
-            if (args.get(index).startsWith("-")) {
-                if (args.get(index).equals("-l")) {
-                    index++; // Skip the next argument as it's the value for -l
-                }
-            } else {
-                positionalArgs.add(args.get(index));
+            String arg = args.get(index);
+            if (VALUE_FLAGS.contains(arg)) {
+                index++; // Skip the next argument as it's the value of the flag
+            } else if (!SWITCH_FLAGS.contains(arg) && !arg.startsWith("--")) {
+                positionalArgs.add(arg);
             }
         }
         return positionalArgs;
@@ -0,0 +1,371 @@
+package com.mateusememe.infrastructure.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.mateusememe.application.usecase.SearchMovies;
+import com.mateusememe.domain.entity.Indexer;
+import com.mateusememe.domain.ranking.Bm25Ranker;
+import com.mateusememe.domain.ranking.CollectionStatistics;
+import com.mateusememe.domain.ranking.ScoredDocument;
+import com.mateusememe.infrastructure.io.Json;
+import com.mateusememe.infrastructure.io.MovieFileReader;
+import com.mateusememe.infrastructure.io.OutputPrinter;
+import com.mateusememe.infrastructure.metrics.Metrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Long-running HTTP front end that keeps the index resident and answers
+ * {@code GET /search} requests, one virtual thread per request.
+ * <p>
+ * Query parameters mirror the CLI: {@code q} (required), {@code l} (limit),
+ * {@code v} (verbose), {@code p} (phrase), {@code slop} and {@code fuzzy}
+ * (edit distance allowed per word), plus
+ * {@code format=json} (the default), {@code format=text} for the exact CLI
+ * output, or {@code format=jsonl} and {@code format=tsv} for one record per
+ * file. The {@value #TOTAL_HEADER} header always holds the number of matches.
+ * <p>
+ * For the shards of a sharded index, {@code GET /statistics} takes {@code q},
+ * {@code p} and {@code fuzzy} and answers with the ranking statistics of the
+ * query in the format of {@link #formatStatistics(CollectionStatistics)}, and
+ * {@code /search} accepts the same text in {@code stats} to rank verbose
+ * results with the statistics of the whole collection.
+ * {@code GET /metrics} exposes the process {@link Metrics} in the Prometheus
+ * text format. Searching never modifies the index, so requests run fully in
+ * parallel without any lock; the index must not be modified while the server
+ * is running.
+ */
+public class SearchServer {
+    private static final int BACKLOG = 1024;
+    /**
+     * Response header holding the number of matching files, which the
+     * machine formats do not carry in their body.
+     */
+    public static final String TOTAL_HEADER = "X-Total-Count";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final SearchMovies searchMovies;
+    private final Indexer indexer;
+    private final MovieFileReader movieFileReader;
+    private final Bm25Ranker ranker;
+
+    /**
+     * Creates a server bound to the given address. It does not accept requests
+     * until {@link #start()} is called.
+     *
+     * @param searchMovies    The search use case.
+     * @param indexer         The loaded index, used for ranking.
+     * @param movieFileReader The reader used for snippets.
+     * @param address         The address to listen on; port 0 picks a free
+     *                        port.
+     * @throws IOException if the address cannot be bound.
+     */
+    public SearchServer(SearchMovies searchMovies, Indexer indexer, MovieFileReader movieFileReader,
+            InetSocketAddress address) throws IOException {
+        this.searchMovies = searchMovies;
+        this.indexer = indexer;
+        this.movieFileReader = movieFileReader;
+        this.ranker = new Bm25Ranker(indexer);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/search", this::handleSearch);
+        server.createContext("/statistics", this::handleStatistics);
+        server.createContext("/metrics", this::handleMetrics);
+    }
+
+    /**
+     * Starts accepting requests in the background.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits for the running ones to finish.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Método não suportado");
+                return;
+            }
+
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            String rawQuery = parameters.getOrDefault("q", "").trim();
+            String searchQuery = rawQuery.toLowerCase();
+            if (searchQuery.isEmpty()) {
+                sendError(exchange, 400, "É necessário um argumento de pesquisa (parâmetro q)");
+                return;
+            }
+
+            int resultLimit;
+            int slop;
+            int fuzzy;
+            try {
+                resultLimit = Integer.parseInt(parameters.getOrDefault("l", String.valueOf(Integer.MAX_VALUE)));
+                slop = Math.max(0, Integer.parseInt(parameters.getOrDefault("slop", "0")));
+                fuzzy = Integer.parseInt(parameters.getOrDefault("fuzzy", "0"));
+            } catch (NumberFormatException e) {
+                sendError(exchange, 400, "Valor numérico inválido: " + e.getMessage());
+                return;
+            }
+            boolean verbose = isTrue(parameters.get("v"));
+            boolean phrase = isTrue(parameters.get("p"));
+            CollectionStatistics statistics = null;
+            if (parameters.containsKey("stats")) {
+                try {
+                    statistics = parseStatistics(parameters.get("stats"));
+                } catch (IllegalArgumentException e) {
+                    sendError(exchange, 400, "Estatísticas inválidas: " + e.getMessage());
+                    return;
+                }
+            }
+            String formatName = parameters.getOrDefault("format", "json");
+            OutputPrinter.Format format = null;
+            if (!formatName.equals("json")) {
+                try {
+                    format = OutputPrinter.Format.parse(formatName);
+                } catch (IllegalArgumentException e) {
+                    sendError(exchange, 400, "Formato inválido: " + formatName);
+                    return;
+                }
+            }
+
+            long startSearchTime = System.nanoTime();
+            SearchMovies.Result found;
+            try {
+                found = Metrics.global().time(Metrics.Phase.SEARCH,
+                        () -> searchMovies.search(rawQuery, phrase, slop, fuzzy));
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+            Set<String> result = found.getFiles();
+            String[] searchTerms = found.getTerms();
+            double searchTime = (System.nanoTime() - startSearchTime) / 1_000_000.0;
+            exchange.getResponseHeaders().set(TOTAL_HEADER, String.valueOf(result.size()));
+            String[] matchedTerms = verbose ? indexer.expandAll(searchTerms, fuzzy) : searchTerms;
+
+            if (format != null) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                try (PrintStream out = new PrintStream(buffer, false, StandardCharsets.UTF_8)) {
+                    OutputPrinter printer = new OutputPrinter(indexer, movieFileReader, out, format);
+                    if (verbose)
+                        printer.printVerbose(result.size(), rank(result, matchedTerms, resultLimit, statistics),
+                                name -> movieFileReader.getSnippet(name, matchedTerms), searchQuery, matchedTerms,
+                                searchTime);
+                    else
+                        printer.printSimple(result, searchQuery, resultLimit, searchTime);
+                }
+                send(exchange, 200, contentType(format), buffer.toByteArray());
+                return;
+            }
+
+            String body = verbose
+                    ? verboseJson(result, searchQuery, matchedTerms, resultLimit, statistics, searchTime)
+                    : simpleJson(result, searchQuery, resultLimit, searchTime);
+            send(exchange, 200, "application/json; charset=utf-8", body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void handleStatistics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Método não suportado");
+                return;
+            }
+
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            String rawQuery = parameters.getOrDefault("q", "").trim();
+            if (rawQuery.isEmpty()) {
+                sendError(exchange, 400, "É necessário um argumento de pesquisa (parâmetro q)");
+                return;
+            }
+            int fuzzy;
+            try {
+                fuzzy = Integer.parseInt(parameters.getOrDefault("fuzzy", "0"));
+            } catch (NumberFormatException e) {
+                sendError(exchange, 400, "Valor numérico inválido: " + e.getMessage());
+                return;
+            }
+            CollectionStatistics statistics;
+            try {
+                String[] terms = searchMovies.queryTerms(rawQuery, isTrue(parameters.get("p")));
+                statistics = CollectionStatistics.of(indexer, indexer.expandAll(terms, fuzzy));
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+            send(exchange, 200, contentType(OutputPrinter.Format.TSV),
+                    formatStatistics(statistics).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Método não suportado");
+                return;
+            }
+            send(exchange, 200, "text/plain; version=0.0.4; charset=utf-8",
+                    Metrics.global().toPrometheus().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private String simpleJson(Set<String> result, String searchQuery, int resultLimit, double searchTime) {
+        List<String> files = OutputPrinter.firstByName(result, resultLimit);
+        StringBuilder json = header(searchQuery, result.size(), searchTime);
+        for (int i = 0; i < files.size(); i++) {
+            if (i > 0)
+                json.append(',');
+            Json.quote(json, files.get(i));
+        }
+        return json.append("]}").toString();
+    }
+
+    private List<ScoredDocument> rank(Set<String> result, String[] searchTerms, int resultLimit,
+            CollectionStatistics statistics) {
+        return Metrics.global().time(Metrics.Phase.RANK,
+                () -> ranker.topK(result, searchTerms, resultLimit, statistics));
+    }
+
+    private String verboseJson(Set<String> result, String searchQuery, String[] searchTerms, int resultLimit,
+            CollectionStatistics statistics, double searchTime) {
+        List<ScoredDocument> ranked = rank(result, searchTerms, resultLimit, statistics);
+        StringBuilder json = header(searchQuery, result.size(), searchTime);
+        for (int i = 0; i < ranked.size(); i++) {
+            ScoredDocument document = ranked.get(i);
+            if (i > 0)
+                json.append(',');
+            json.append("{\"file\":");
+            Json.quote(json, document.name());
+            json.append(",\"occurrences\":").append(document.matchedTerms());
+            json.append(",\"score\":").append(String.format(Locale.ROOT, "%.4f", document.score()));
+            json.append(",\"snippet\":");
+            Json.quote(json, movieFileReader.getSnippet(document.name(), searchTerms));
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static StringBuilder header(String searchQuery, int total, double searchTime) {
+        StringBuilder json = new StringBuilder(256).append("{\"query\":");
+        Json.quote(json, searchQuery);
+        json.append(",\"total\":").append(total);
+        json.append(",\"timeMillis\":").append(String.format(Locale.ROOT, "%.4f", searchTime));
+        return json.append(",\"results\":[");
+    }
+
+    /**
+     * Writes ranking statistics as text: a line with the document count and
+     * the total length, then one line per term with its document frequency,
+     * fields separated by tabs.
+     *
+     * @param statistics The statistics.
+     * @return The text.
+     */
+    public static String formatStatistics(CollectionStatistics statistics) {
+        StringBuilder text = new StringBuilder(64);
+        text.append(statistics.documentCount()).append('\t').append(statistics.totalLength()).append('\n');
+        statistics.documentFrequencies()
+                .forEach((term, frequency) -> text.append(term).append('\t').append(frequency).append('\n'));
+        return text.toString();
+    }
+
+    /**
+     * Reads statistics written by {@link #formatStatistics(CollectionStatistics)}.
+     *
+     * @param text The text.
+     * @return The statistics.
+     * @throws IllegalArgumentException if the text is malformed.
+     */
+    public static CollectionStatistics parseStatistics(String text) {
+        List<String> lines = text.lines().toList();
+        if (lines.isEmpty())
+            throw new IllegalArgumentException("Missing document count");
+        String[] totals = lines.get(0).split("\t", -1);
+        if (totals.length != 2)
+            throw new IllegalArgumentException("Malformed totals: " + lines.get(0));
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 2)
+                throw new IllegalArgumentException("Malformed document frequency: " + line);
+            frequencies.put(fields[0], Integer.parseInt(fields[1]));
+        }
+        return new CollectionStatistics(Integer.parseInt(totals[0]), Long.parseLong(totals[1]), frequencies);
+    }
+
+    private static String contentType(OutputPrinter.Format format) {
+        switch (format) {
+            case JSONL:
+                return "application/x-ndjson; charset=utf-8";
+            case TSV:
+                return "text/tab-separated-values; charset=utf-8";
+            default:
+                return "text/plain; charset=utf-8";
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        Json.quote(json, message).append('}');
+        send(exchange, status, "application/json; charset=utf-8", json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static boolean isTrue(String value) {
+        return value != null && (value.isEmpty() || value.equals("1") || value.equalsIgnoreCase("true"));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null)
+            return parameters;
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty())
+                continue;
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+}
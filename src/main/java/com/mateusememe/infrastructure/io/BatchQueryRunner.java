@@ -0,0 +1,277 @@
+package com.mateusememe.infrastructure.io;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.mateusememe.application.usecase.QueryCache;
+import com.mateusememe.application.usecase.SearchMovies;
+import com.mateusememe.domain.entity.Indexer;
+import com.mateusememe.infrastructure.metrics.Metrics;
+
+/**
+ * Runs many queries against an already loaded index, one per input line.
+ * <p>
+ * Queries are executed concurrently on a fixed pool, but at most a bounded
+ * window of them is in flight: once the window is full the oldest query is
+ * awaited and written before the next line is read. Output therefore streams
+ * in input order, and memory stays bounded no matter how long the input is.
+ * Each query is printed exactly as the single-query CLI would print it,
+ * including its search time, and a throughput summary closes the output.
+ */
+public class BatchQueryRunner {
+    /**
+     * Queries allowed in flight per worker thread.
+     */
+    private static final int WINDOW_PER_THREAD = 4;
+
+    private final SearchMovies searchMovies;
+    private final Indexer indexer;
+    private final MovieFileReader movieFileReader;
+    private final int threads;
+    private final int resultLimit;
+    private final boolean verbose;
+    private final boolean phrase;
+    private final int slop;
+    private final int fuzzy;
+    private final OutputPrinter.Format format;
+    private final QueryHandler handler;
+
+    /**
+     * Searches one query and prints its results, for runs that do not search
+     * a local index, e.g. of a sharded one.
+     */
+    @FunctionalInterface
+    public interface QueryHandler {
+        /**
+         * @param searchQuery The query, as read from the input.
+         * @param out         Where the results are printed.
+         * @throws IOException if the search cannot be run.
+         */
+        void handle(String searchQuery, PrintStream out) throws IOException;
+    }
+
+    /**
+     * Totals of a batch run.
+     */
+    public static final class Summary {
+        private final int queries;
+        private final long elapsedNanos;
+        private final long[] latenciesNanos;
+
+        Summary(int queries, long elapsedNanos, long[] latenciesNanos) {
+            this.queries = queries;
+            this.elapsedNanos = elapsedNanos;
+            this.latenciesNanos = latenciesNanos;
+        }
+
+        /**
+         * @return The number of queries executed.
+         */
+        public int getQueries() {
+            return queries;
+        }
+
+        /**
+         * @return The wall-clock time of the whole batch in milliseconds.
+         */
+        public double getElapsedMillis() {
+            return elapsedNanos / 1_000_000.0;
+        }
+
+        /**
+         * @return The number of queries answered per second.
+         */
+        public double getQueriesPerSecond() {
+            return elapsedNanos == 0 ? 0 : queries * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        /**
+         * @param percentile The percentile, in {@code (0, 100]}.
+         * @return The latency of a single query (search and formatting) at the
+         *         given percentile, in milliseconds.
+         */
+        public double getLatencyMillis(double percentile) {
+            if (latenciesNanos.length == 0)
+                return 0;
+            int rank = (int) Math.ceil(percentile / 100 * latenciesNanos.length) - 1;
+            return latenciesNanos[Math.max(0, Math.min(rank, latenciesNanos.length - 1))] / 1_000_000.0;
+        }
+    }
+
+    /**
+     * @param searchMovies    The search use case.
+     * @param indexer         The loaded index, used for ranking verbose output.
+     * @param movieFileReader The reader used for snippets.
+     * @param threads         The number of queries executed concurrently.
+     * @param resultLimit     The maximum number of results printed per query.
+     * @param verbose         Whether to print the verbose format.
+     * @param phrase          Whether queries are phrases.
+     * @param slop            The phrase slop.
+     * @param fuzzy           The edit distance allowed per query word.
+     * @param format          The output format. With a machine format the
+     *                        records of all queries are written back to back,
+     *                        without the summary, and errors go to the
+     *                        standard error.
+     */
+    public BatchQueryRunner(SearchMovies searchMovies, Indexer indexer, MovieFileReader movieFileReader, int threads,
+            int resultLimit, boolean verbose, boolean phrase, int slop, int fuzzy, OutputPrinter.Format format) {
+        this.searchMovies = searchMovies;
+        this.indexer = indexer;
+        this.movieFileReader = movieFileReader;
+        this.threads = Math.max(1, threads);
+        this.resultLimit = resultLimit;
+        this.verbose = verbose;
+        this.phrase = phrase;
+        this.slop = slop;
+        this.fuzzy = fuzzy;
+        this.format = format;
+        this.handler = this::search;
+    }
+
+    /**
+     * Creates a runner that delegates every query to a handler.
+     *
+     * @param handler Searches and prints one query; it must allow concurrent
+     *                calls. Its {@link IllegalArgumentException}s are printed
+     *                as errors of the query.
+     * @param threads The number of queries executed concurrently.
+     * @param format  The output format the handler prints in.
+     */
+    public BatchQueryRunner(QueryHandler handler, int threads, OutputPrinter.Format format) {
+        this.searchMovies = null;
+        this.indexer = null;
+        this.movieFileReader = null;
+        this.threads = Math.max(1, threads);
+        this.resultLimit = 0;
+        this.verbose = false;
+        this.phrase = false;
+        this.slop = 0;
+        this.fuzzy = 0;
+        this.format = format;
+        this.handler = handler;
+    }
+
+    /**
+     * Reads queries until the end of the input, writes their results in input
+     * order followed by a summary in the text format, and flushes the output.
+     *
+     * @param input  One query per line; blank lines are skipped.
+     * @param output Where results are written. It is not closed.
+     * @return The totals of the run.
+     * @throws IOException if reading the input or writing the output fails.
+     */
+    public Summary run(BufferedReader input, Writer output) throws IOException {
+        int window = threads * WINDOW_PER_THREAD;
+        Deque<Future<Result>> pending = new ArrayDeque<>(window);
+        long[] latencies = new long[64];
+        int count = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            for (String line = input.readLine(); line != null; line = input.readLine()) {
+                if (line.isBlank())
+                    continue;
+                String searchQuery = line.trim();
+                pending.addLast(executor.submit(() -> execute(searchQuery)));
+                if (pending.size() >= window) {
+                    latencies = record(latencies, count++, write(pending.removeFirst(), output));
+                }
+            }
+            while (!pending.isEmpty())
+                latencies = record(latencies, count++, write(pending.removeFirst(), output));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        Summary summary = new Summary(count, System.nanoTime() - start, sorted);
+        if (format != OutputPrinter.Format.TEXT) {
+            output.flush();
+            return summary;
+        }
+        output.write(String.format(Locale.ROOT,
+                "%nConsultas: %d | Tempo total: %.2f ms | Vazão: %.1f consultas/s | Latência p50: %.4f ms, p99: %.4f ms",
+                summary.getQueries(), summary.getElapsedMillis(), summary.getQueriesPerSecond(),
+                summary.getLatencyMillis(50), summary.getLatencyMillis(99)));
+        QueryCache cache = searchMovies == null ? null : searchMovies.getCache();
+        if (cache != null)
+            output.write(" | Cache: " + cache.getHits() + " acertos, " + cache.getMisses() + " falhas");
+        output.write(System.lineSeparator());
+        output.flush();
+        return summary;
+    }
+
+    private static long[] record(long[] latencies, int index, long latency) {
+        if (index == latencies.length)
+            latencies = Arrays.copyOf(latencies, index * 2);
+        latencies[index] = latency;
+        return latencies;
+    }
+
+    private long write(Future<Result> future, Writer output) throws IOException {
+        try {
+            Result result = future.get();
+            output.write(result.text);
+            if (format == OutputPrinter.Format.TEXT)
+                output.write(System.lineSeparator());
+            return result.latencyNanos;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running queries", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Query failed", e.getCause());
+        }
+    }
+
+    private Result execute(String searchQuery) throws IOException {
+        long start = System.nanoTime();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(buffer, false, StandardCharsets.UTF_8)) {
+            try {
+                handler.handle(searchQuery, out);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                (format == OutputPrinter.Format.TEXT ? out : System.err).println("Erro: " + e.getMessage());
+            }
+        }
+        return new Result(buffer.toString(StandardCharsets.UTF_8), System.nanoTime() - start);
+    }
+
+    private void search(String searchQuery, PrintStream out) {
+        String displayQuery = searchQuery.toLowerCase();
+        long startSearchTime = System.nanoTime();
+        SearchMovies.Result result = Metrics.global().time(Metrics.Phase.SEARCH,
+                () -> searchMovies.search(searchQuery, phrase, slop, fuzzy));
+        double searchTime = (System.nanoTime() - startSearchTime) / 1_000_000.0;
+
+        OutputPrinter printer = new OutputPrinter(indexer, movieFileReader, out, format);
+        if (verbose)
+            printer.printVerbose(result.getFiles(), displayQuery, indexer.expandAll(result.getTerms(), fuzzy),
+                    resultLimit, searchTime);
+        else
+            printer.printSimple(result.getFiles(), displayQuery, resultLimit, searchTime);
+    }
+
+    private static final class Result {
+        final String text;
+        final long latencyNanos;
+
+        Result(String text, long latencyNanos) {
+            this.text = text;
+            this.latencyNanos = latencyNanos;
+        }
+    }
+}
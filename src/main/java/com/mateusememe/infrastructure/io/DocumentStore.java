@@ -0,0 +1,524 @@
+package com.mateusememe.infrastructure.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.mateusememe.infrastructure.metrics.Metrics;
+
+/**
+ * Keeps the contents of the indexed files packed in a single block-compressed
+ * file, so snippets are served without opening the original files.
+ * <p>
+ * Every ingestion thread concatenates the contents of the files it reads
+ * into its own blocks of at most {@code blockSize} bytes, each compressed on
+ * its own with {@link Lz4Codec} (or stored as is when that does not make it
+ * smaller), and the finished blocks of all threads are appended to the file
+ * as they come. A file therefore starts at some offset in a block and, if it
+ * does not fit, continues in the next block of the same thread, which the
+ * table links to. The table maps every file to where it starts and every
+ * block to its offset in the file, so reading a sentence costs one
+ * positional read and the decompression of the block, rarely two, that hold
+ * it. The table is loaded into memory when the store is opened; the blocks
+ * are read on demand.
+ * <p>
+ * Layout of {@code documents.bin} (big-endian, strings as in the snapshot):
+ *
+ * <pre>
+ * int magic, int version, int blockSize
+ * blocks
+ * int fileCount, fileCount x (string path, long size, long lastModified, int block, int offset, int length)
+ * int blockCount, blockCount x (long blockOffset, int rawLength, int nextBlock), long blocksEnd
+ * long tableOffset
+ * </pre>
+ *
+ * Every file is recorded with the size and modification time it had in the
+ * {@link SnapshotManifest} the store was built from. When the store is opened
+ * only the files whose manifest entry is unchanged are served; the others are
+ * left to the caller to read from disk.
+ */
+public class DocumentStore implements Closeable {
+    private static final int MAGIC = 0x53495444; // "SITD"
+    private static final int FORMAT_VERSION = 2;
+    private static final String FILE_NAME = "documents.bin";
+
+    /**
+     * Uncompressed size of a block: large enough for the codec to find
+     * repetitions across sentences, small enough that serving one sentence
+     * decompresses little else.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+    /**
+     * Where a file's content starts: a block and an offset in it.
+     */
+    private static final class Location {
+        final int block;
+        final int offset;
+        final int length;
+
+        Location(int block, int offset, int length) {
+            this.block = block;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The last block decompressed, kept because the candidate sentences of a
+     * snippet usually share one.
+     */
+    private static final class Block {
+        final int index;
+        final byte[] bytes;
+
+        Block(int index, byte[] bytes) {
+            this.index = index;
+            this.bytes = bytes;
+        }
+    }
+
+    private final FileChannel channel;
+    private final long[] blockOffsets;
+    private final int[] rawLengths;
+    private final int[] nextBlocks;
+    private final Map<String, Location> locations;
+    private volatile Block lastBlock;
+
+    private DocumentStore(FileChannel channel, long[] blockOffsets, int[] rawLengths, int[] nextBlocks,
+            Map<String, Location> locations) {
+        this.channel = channel;
+        this.blockOffsets = blockOffsets;
+        this.rawLengths = rawLengths;
+        this.nextBlocks = nextBlocks;
+        this.locations = locations;
+    }
+
+    /**
+     * Opens the store kept in a directory.
+     *
+     * @param directory The directory, usually the snapshot directory.
+     * @param current   The manifest of the data directory as it is now; files
+     *                  that changed since the store was built are not served.
+     * @return The store, or {@code null} if there is none or it is unreadable.
+     * @throws IOException if the store exists but cannot be read.
+     */
+    public static DocumentStore open(Path directory, SnapshotManifest current) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.isRegularFile(file))
+            return null;
+
+        Map<String, SnapshotManifest.Entry> entries = new HashMap<>();
+        for (SnapshotManifest.Entry entry : current.getEntries())
+            entries.put(entry.getPath(), entry);
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(channel, 0, 3 * Integer.BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION)
+                return close(channel);
+            int blockSize = header.getInt();
+            long tableOffset = read(channel, channel.size() - Long.BYTES, Long.BYTES).getLong();
+            if (blockSize <= 0 || tableOffset < 0 || tableOffset > channel.size() - Long.BYTES)
+                return close(channel);
+
+            ByteBuffer table = read(channel, tableOffset, Math.toIntExact(channel.size() - Long.BYTES - tableOffset));
+            int fileCount = table.getInt();
+            Map<String, Location> locations = new ConcurrentHashMap<>();
+            List<Location> all = new ArrayList<>();
+            for (int i = 0; i < fileCount; i++) {
+                String path = SnapshotManifest.readString(table);
+                SnapshotManifest.Entry recorded = new SnapshotManifest.Entry(path, table.getLong(), table.getLong());
+                Location location = new Location(table.getInt(), table.getInt(), table.getInt());
+                all.add(location);
+                if (recorded.equals(entries.get(path)))
+                    locations.put(path, location);
+            }
+            int blockCount = table.getInt();
+            if (blockCount < 0 || blockCount > (table.remaining() - Long.BYTES) / (Long.BYTES + 2 * Integer.BYTES))
+                return close(channel);
+            long[] blockOffsets = new long[blockCount + 1];
+            int[] rawLengths = new int[blockCount];
+            int[] nextBlocks = new int[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                blockOffsets[i] = table.getLong();
+                rawLengths[i] = table.getInt();
+                nextBlocks[i] = table.getInt();
+            }
+            blockOffsets[blockCount] = table.getLong();
+            if (!isValid(blockSize, tableOffset, blockOffsets, rawLengths, nextBlocks, all))
+                return close(channel);
+            return new DocumentStore(channel, blockOffsets, rawLengths, nextBlocks, locations);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException
+                | ArithmeticException | EOFException e) {
+            return close(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks the table against itself, so that reads can trust it: blocks
+     * follow the header and each other up to the table, no block is stored
+     * larger than it decompresses or decompresses larger than a block, every
+     * block links forward to the next of its thread, and every file lies
+     * within the chain of blocks it starts in.
+     */
+    private static boolean isValid(int blockSize, long tableOffset, long[] blockOffsets, int[] rawLengths,
+            int[] nextBlocks, List<Location> files) {
+        int blockCount = rawLengths.length;
+        if (blockOffsets[0] != 3 * Integer.BYTES || blockOffsets[blockCount] != tableOffset)
+            return false;
+        for (int i = 0; i < blockCount; i++) {
+            long stored = blockOffsets[i + 1] - blockOffsets[i];
+            if (stored < 0 || stored > rawLengths[i] || rawLengths[i] > blockSize)
+                return false;
+            if (nextBlocks[i] != -1 && (nextBlocks[i] <= i || nextBlocks[i] >= blockCount))
+                return false;
+        }
+        for (Location location : files) {
+            if (location.length < 0)
+                return false;
+            if (location.length == 0)
+                continue;
+            if (location.block < 0 || location.block >= blockCount || location.offset < 0
+                    || location.offset >= rawLengths[location.block])
+                return false;
+            long available = rawLengths[location.block] - location.offset;
+            for (int index = location.block; available < location.length;) {
+                index = nextBlocks[index];
+                if (index < 0)
+                    return false;
+                available += rawLengths[index];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the store of a directory's files by reading them, for an index
+     * that was loaded from its snapshot instead of being built with a
+     * {@link Writer}, and opens it.
+     *
+     * @param directory The directory to keep the store in.
+     * @param manifest  The files to pack.
+     * @return The store.
+     * @throws IOException if a file cannot be read or the store cannot be
+     *                     written.
+     */
+    public static DocumentStore pack(Path directory, SnapshotManifest manifest) throws IOException {
+        try (Writer writer = new Writer(directory, DEFAULT_BLOCK_SIZE)) {
+            for (SnapshotManifest.Entry entry : manifest.getEntries()) {
+                byte[] content = Metrics.global().time(Metrics.Phase.READ,
+                        () -> Files.readAllBytes(Paths.get(entry.getPath())));
+                Metrics.global().time(Metrics.Phase.STORE, () -> writer.add(entry.getPath(), content));
+            }
+            writer.commit(manifest);
+        }
+        return open(directory, manifest);
+    }
+
+    /**
+     * @param path The path of a file, as indexed.
+     * @return Whether the store holds the file's current content.
+     */
+    public boolean contains(String path) {
+        return locations.containsKey(path);
+    }
+
+    /**
+     * Stops serving a file, e.g. after it changed on disk.
+     *
+     * @param path The path of the file.
+     */
+    public void forget(String path) {
+        locations.remove(path);
+    }
+
+    /**
+     * @param path The path of a file.
+     * @return The whole content of the file, or {@code null} if the store does
+     *         not hold it.
+     * @throws IOException if the store cannot be read or is corrupt.
+     */
+    public byte[] read(String path) throws IOException {
+        return read(path, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads a byte range of a file, decompressing only the blocks it spans.
+     *
+     * @param path  The path of a file.
+     * @param start The first byte of the range.
+     * @param end   The end of the range, exclusive; clamped to the file's
+     *              length.
+     * @return The bytes, or {@code null} if the store does not hold the file.
+     * @throws IOException if the store cannot be read or is corrupt.
+     */
+    public byte[] read(String path, int start, int end) throws IOException {
+        Location location = locations.get(path);
+        if (location == null)
+            return null;
+        start = Math.max(0, Math.min(start, location.length));
+        end = Math.max(start, Math.min(end, location.length));
+
+        byte[] result = new byte[end - start];
+        int index = location.block;
+        long position = (long) location.offset + start;
+        for (int copied = 0; copied < result.length;) {
+            while (position >= rawLengths[index]) {
+                position -= rawLengths[index];
+                index = nextBlocks[index];
+                if (index < 0)
+                    throw new IOException("Corrupt document store: " + path + " runs past its last block");
+            }
+            byte[] block = block(index);
+            int chunk = (int) Math.min(result.length - copied, block.length - position);
+            System.arraycopy(block, (int) position, result, copied, chunk);
+            copied += chunk;
+            position += chunk;
+        }
+        return result;
+    }
+
+    private byte[] block(int index) throws IOException {
+        Block cached = lastBlock;
+        if (cached != null && cached.index == index)
+            return cached.bytes;
+
+        int rawLength = rawLengths[index];
+        int storedLength = (int) (blockOffsets[index + 1] - blockOffsets[index]);
+        byte[] stored = read(channel, blockOffsets[index], storedLength).array();
+        byte[] bytes = stored;
+        if (storedLength != rawLength) {
+            bytes = new byte[rawLength];
+            try {
+                Lz4Codec.decompress(stored, 0, storedLength, bytes, 0, rawLength);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt block " + index + " in the document store", e);
+            }
+        }
+        lastBlock = new Block(index, bytes);
+        return bytes;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException("Truncated document store");
+        }
+        return buffer.flip();
+    }
+
+    private static DocumentStore close(FileChannel channel) throws IOException {
+        channel.close();
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Writes a store while files are being ingested. Files may be added from
+     * several threads: each thread fills and compresses its own blocks and
+     * only takes the writer's lock to append a finished block and record where
+     * its files start. The store only replaces the previous one on
+     * {@link #commit}, which must not run concurrently with {@link #add};
+     * closing an uncommitted writer discards what was written.
+     */
+    public static class Writer implements Closeable {
+        private final Path file;
+        private final Path temporary;
+        private final DataOutputStream out;
+        private final int blockSize;
+        private final List<Filler> fillers = new ArrayList<>();
+        private final ThreadLocal<Filler> filler = ThreadLocal.withInitial(this::newFiller);
+        private final List<String> paths = new ArrayList<>();
+        private int[] starts = new int[48]; // block, offset and length of each file
+        private long[] blockOffsets = new long[16];
+        private int[] rawLengths = new int[16];
+        private int[] nextBlocks = new int[16];
+        private int blockCount;
+        private long written;
+        private boolean committed;
+
+        /**
+         * The block a thread is filling, with the files starting in it.
+         */
+        private static final class Filler {
+            final byte[] buffer;
+            final byte[] compressed;
+            final int[] table = Lz4Codec.newTable();
+            final List<String> paths = new ArrayList<>();
+            int[] starts = new int[8]; // offset and length of each file
+            int filled;
+            int lastBlock = -1;
+
+            Filler(int blockSize) {
+                buffer = new byte[blockSize];
+                compressed = new byte[Lz4Codec.maxCompressedLength(blockSize)];
+            }
+        }
+
+        /**
+         * @param directory The directory to keep the store in; created if
+         *                  needed.
+         * @param blockSize The uncompressed size of a block.
+         * @throws IOException if the store cannot be created.
+         */
+        public Writer(Path directory, int blockSize) throws IOException {
+            Files.createDirectories(directory);
+            this.file = directory.resolve(FILE_NAME);
+            this.temporary = directory.resolve(FILE_NAME + ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16));
+            this.blockSize = blockSize;
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(blockSize);
+            written = 3 * Integer.BYTES;
+        }
+
+        private synchronized Filler newFiller() {
+            Filler created = new Filler(blockSize);
+            fillers.add(created);
+            return created;
+        }
+
+        /**
+         * Appends the content of a file to the calling thread's blocks.
+         *
+         * @param path    The path of the file, as indexed.
+         * @param content The content.
+         * @throws IOException if the store cannot be written.
+         */
+        public void add(String path, byte[] content) throws IOException {
+            Filler target = filler.get();
+            int count = target.paths.size();
+            if (2 * count == target.starts.length)
+                target.starts = Arrays.copyOf(target.starts, target.starts.length * 2);
+            target.paths.add(path);
+            target.starts[2 * count] = target.filled;
+            target.starts[2 * count + 1] = content.length;
+
+            for (int offset = 0; offset < content.length;) {
+                int chunk = Math.min(content.length - offset, blockSize - target.filled);
+                System.arraycopy(content, offset, target.buffer, target.filled, chunk);
+                target.filled += chunk;
+                offset += chunk;
+                if (target.filled == blockSize)
+                    flushBlock(target);
+            }
+        }
+
+        /**
+         * Compresses a thread's block, then appends it.
+         */
+        private void flushBlock(Filler target) throws IOException {
+            int length = Lz4Codec.compress(target.buffer, 0, target.filled, target.compressed, 0, target.table);
+            if (length < target.filled)
+                append(target, target.compressed, length);
+            else
+                append(target, target.buffer, target.filled);
+            target.filled = 0;
+            target.paths.clear();
+        }
+
+        private synchronized void append(Filler target, byte[] bytes, int length) throws IOException {
+            if (blockCount + 1 >= blockOffsets.length) {
+                blockOffsets = Arrays.copyOf(blockOffsets, blockOffsets.length * 2);
+                rawLengths = Arrays.copyOf(rawLengths, blockOffsets.length);
+                nextBlocks = Arrays.copyOf(nextBlocks, blockOffsets.length);
+            }
+            int index = blockCount++;
+            blockOffsets[index] = written;
+            rawLengths[index] = target.filled;
+            nextBlocks[index] = -1;
+            if (target.lastBlock >= 0)
+                nextBlocks[target.lastBlock] = index;
+            target.lastBlock = index;
+            out.write(bytes, 0, length);
+            written += length;
+
+            for (int i = 0; i < target.paths.size(); i++) {
+                int count = paths.size();
+                if (3 * count + 3 > starts.length)
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+                paths.add(target.paths.get(i));
+                starts[3 * count] = index;
+                starts[3 * count + 1] = target.starts[2 * i];
+                starts[3 * count + 2] = target.starts[2 * i + 1];
+            }
+        }
+
+        /**
+         * Writes the threads' last blocks and the table, and moves the store
+         * into place.
+         *
+         * @param manifest The manifest of the ingested files, captured before
+         *                 reading them; files missing from it are recorded but
+         *                 never served.
+         * @throws IOException if the store cannot be written.
+         */
+        public synchronized void commit(SnapshotManifest manifest) throws IOException {
+            for (Filler target : fillers) {
+                if (target.filled > 0 || !target.paths.isEmpty())
+                    flushBlock(target);
+            }
+            long tableOffset = written;
+
+            Map<String, SnapshotManifest.Entry> entries = new HashMap<>();
+            for (SnapshotManifest.Entry entry : manifest.getEntries())
+                entries.put(entry.getPath(), entry);
+            out.writeInt(paths.size());
+            for (int i = 0; i < paths.size(); i++) {
+                SnapshotManifest.Entry entry = entries.get(paths.get(i));
+                SnapshotManifest.writeString(out, paths.get(i));
+                out.writeLong(entry == null ? -1 : entry.getSize());
+                out.writeLong(entry == null ? -1 : entry.getLastModified());
+                out.writeInt(starts[3 * i]);
+                out.writeInt(starts[3 * i + 1]);
+                out.writeInt(starts[3 * i + 2]);
+            }
+            out.writeInt(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                out.writeLong(blockOffsets[i]);
+                out.writeInt(rawLengths[i]);
+                out.writeInt(nextBlocks[i]);
+            }
+            out.writeLong(written);
+            out.writeLong(tableOffset);
+            out.close();
+
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (committed)
+                return;
+            out.close();
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
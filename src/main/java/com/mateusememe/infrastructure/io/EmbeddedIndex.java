@@ -0,0 +1,118 @@
+package com.mateusememe.infrastructure.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mateusememe.domain.entity.Indexer;
+
+/**
+ * An index built while the native image is compiled and stored in its image
+ * heap, so a query costs only process start-up plus the lookup.
+ * <p>
+ * The {@code embedded-index} Maven profile passes
+ * {@code -D}{@value #DIRECTORY_PROPERTY}{@code =data}, and the project
+ * directory as {@value #BASE_PROPERTY}, to {@code native-image} and
+ * initializes this class, together with the domain classes it references,
+ * at build time: the static initializer indexes the directory and the frozen
+ * {@link Indexer} becomes part of the executable. Without the property, as on
+ * a regular JVM, nothing is embedded and {@link #get()} returns {@code null}.
+ * <p>
+ * The manifest of the indexed directory is embedded as well, so callers can
+ * tell when the files on disk no longer match and fall back to the snapshot
+ * or a rebuild.
+ */
+public final class EmbeddedIndex {
+    /**
+     * System property naming the directory to embed, read when this class
+     * is initialized.
+     */
+    public static final String DIRECTORY_PROPERTY = "search.it.embed";
+    /**
+     * System property naming the directory {@value #DIRECTORY_PROPERTY} is
+     * relative to, since the image builder may not run from the directory
+     * the executable is later run from. Defaults to the working directory.
+     */
+    public static final String BASE_PROPERTY = "search.it.embed.base";
+
+    private static final EmbeddedIndex EMBEDDED = build(System.getProperty(DIRECTORY_PROPERTY),
+            System.getProperty(BASE_PROPERTY, ""));
+
+    private final Indexer indexer;
+    private final SnapshotManifest manifest;
+
+    private EmbeddedIndex(Indexer indexer, SnapshotManifest manifest) {
+        this.indexer = indexer;
+        this.manifest = manifest;
+    }
+
+    /**
+     * @return The index embedded in this executable, or {@code null} if none
+     *         was.
+     */
+    public static EmbeddedIndex get() {
+        return EMBEDDED;
+    }
+
+    /**
+     * Indexes a directory the same way {@link MovieFileReader#loadFiles(String)}
+     * does, but on the calling thread and without metrics, since it runs
+     * inside the image builder.
+     * <p>
+     * File names and the manifest are recorded relative to the base
+     * directory, as the application sees them at run time.
+     *
+     * @param directoryPath The directory to index, or {@code null}.
+     * @param basePath      The directory {@code directoryPath} is relative
+     *                      to; empty for the working directory.
+     * @return The index and the manifest of the directory, or {@code null} if
+     *         no directory is given.
+     * @throws UncheckedIOException if the directory cannot be read, which
+     *                              fails the image build.
+     */
+    static EmbeddedIndex build(String directoryPath, String basePath) {
+        if (directoryPath == null || directoryPath.isBlank())
+            return null;
+        Path directory = Paths.get(basePath).resolve(directoryPath);
+        try {
+            List<SnapshotManifest.Entry> entries = new ArrayList<>();
+            Indexer indexer = new Indexer(true);
+            for (SnapshotManifest.Entry entry : SnapshotManifest.scan(directory.toString()).getEntries()) {
+                Path file = Paths.get(entry.getPath());
+                String name = Paths.get(directoryPath).resolve(directory.relativize(file)).toString();
+                indexer.insert(name, Files.readAllBytes(file));
+                entries.add(new SnapshotManifest.Entry(name, entry.getSize(), entry.getLastModified()));
+            }
+            indexer.freeze();
+            return new EmbeddedIndex(indexer, new SnapshotManifest(directoryPath, entries));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot embed the index of " + directoryPath, e);
+        }
+    }
+
+    /**
+     * @return The embedded index.
+     */
+    public Indexer getIndexer() {
+        return indexer;
+    }
+
+    /**
+     * @return The manifest of the directory the index was built from.
+     */
+    public SnapshotManifest getManifest() {
+        return manifest;
+    }
+
+    /**
+     * @param current The manifest of the directory as it is now.
+     * @return Whether the embedded index still reflects it.
+     */
+    public boolean matches(SnapshotManifest current) {
+        return manifest.equals(current);
+    }
+}
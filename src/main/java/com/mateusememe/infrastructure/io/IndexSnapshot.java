@@ -0,0 +1,423 @@
+package com.mateusememe.infrastructure.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mateusememe.domain.entity.Indexer;
+import com.mateusememe.domain.entity.PostingList;
+import com.mateusememe.domain.entity.TermPositions;
+
+/**
+ * Persists the contents of an {@link Indexer} in a binary file so that later
+ * runs can restore the index without re-reading and re-tokenizing the data
+ * directory.
+ * <p>
+ * A snapshot is made of two files inside the snapshot directory:
+ * {@code index.bin}, holding the file table, term dictionary and postings, and
+ * {@code index.manifest}, the {@link SnapshotManifest} of the data directory
+ * the index was built from. The snapshot is only reused while the manifest
+ * still matches the data directory.
+ * <p>
+ * Layout of {@code index.bin} (big-endian):
+ *
+ * <pre>
+ * int magic, int version, byte positional, string analyzer
+ * int fileCount, fileCount x (string, int length)   (document table, indexed by ID)
+ * int termCount, termCount x (string term, postings, [positions])
+ * [fileCount x (int length, length x int sentenceTable)]   (positional only)
+ * </pre>
+ *
+ * where a string is an int byte length followed by its UTF-8 bytes. Postings
+ * start with a byte naming the {@link PostingList.Encoding container} and are
+ * stored in that container's native form, so loading needs no re-encoding:
+ *
+ * <pre>
+ * VARINT: int postingCount, int byteLength, byte[] deltas
+ * BITMAP: int postingCount, int wordCount, long[] words
+ * RUNS:   int runCount, runCount x (int start, int end)
+ * </pre>
+ *
+ * followed by one term frequency byte per posting, in ID order. Document
+ * lengths are in tokens; together with the frequencies they feed relevance
+ * scoring.
+ *
+ * Positions are only present when the index stores them, as
+ * {@code int docCount, docCount x (int doc, int offset), int byteLength, byte[] data}
+ * in the layout of {@link TermPositions}; the per-document sentence tables of
+ * {@link com.mateusememe.domain.entity.SentenceTable} follow the terms, a
+ * length of -1 marking a document without one. A snapshot whose positional flag
+ * or analyzer name differs from the target indexer's is treated as stale.
+ */
+public class IndexSnapshot {
+    private static final int MAGIC = 0x53495458; // "SITX"
+    private static final int FORMAT_VERSION = 7;
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** The largest part of the file mapped at once, well below the 2 GiB cap of one mapping. */
+    private static final int REGION_SIZE = 1 << 30;
+
+    private final Path snapshotFile;
+    private final Path manifestFile;
+    private final int regionSize;
+
+    /**
+     * Creates a snapshot store rooted at the given directory.
+     *
+     * @param directory The directory where the snapshot files are kept. It is
+     *                  created on the first {@link #save}.
+     */
+    public IndexSnapshot(Path directory) {
+        this(directory, REGION_SIZE);
+    }
+
+    /**
+     * Creates a snapshot store that maps its file in regions of a given size,
+     * so tests can cross region boundaries with small files.
+     */
+    IndexSnapshot(Path directory, int regionSize) {
+        this.snapshotFile = directory.resolve("index.bin");
+        this.manifestFile = directory.resolve("index.manifest");
+        this.regionSize = regionSize;
+    }
+
+    /**
+     * Restores the index from disk if the stored snapshot was built from a data
+     * directory identical to {@code current}. The snapshot file is
+     * memory-mapped one region of at most 1 GiB at a time, so its size is not
+     * bounded by the 2 GiB limit of a single mapping, and decoded
+     * sequentially into the indexer; if decoding fails halfway the indexer is
+     * {@link Indexer#clear() cleared}, so it can be rebuilt.
+     * <p>
+     * Every posting list is copied to the heap here rather than decoded
+     * lazily on first use, so a restore still costs one pass over the whole
+     * file before the first query. What it saves is reading and tokenizing
+     * the data directory, not the load itself.
+     *
+     * @param indexer The (empty) indexer to fill.
+     * @param current The manifest of the data directory as it is now.
+     * @return {@code true} if the index was restored, {@code false} if the
+     *         snapshot is missing, stale or was built with other options and
+     *         the index must be rebuilt.
+     * @throws IOException if the snapshot cannot be read or is truncated or
+     *                     corrupt; the message names the cause.
+     */
+    public boolean load(Indexer indexer, SnapshotManifest current) throws IOException {
+        if (!current.equals(SnapshotManifest.read(manifestFile)) || !Files.isRegularFile(snapshotFile))
+            return false;
+
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            Input in = new Input(channel, regionSize);
+            try {
+                if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION)
+                    return false;
+                boolean positional = in.get() != 0;
+                if (positional != indexer.storesPositions() || !in.getString().equals(indexer.analyzer().name()))
+                    return false;
+
+                int fileCount = in.getLength();
+                for (int i = 0; i < fileCount; i++) {
+                    int doc = indexer.addDocument(in.getString());
+                    indexer.setDocumentLength(doc, in.getInt());
+                }
+
+                int termCount = in.getLength();
+                for (int i = 0; i < termCount; i++) {
+                    String term = in.getString();
+                    indexer.addPostings(term, readPostings(in));
+                    if (positional)
+                        indexer.addPositions(term, readPositions(in));
+                }
+
+                if (positional) {
+                    for (int doc = 0; doc < fileCount; doc++) {
+                        int length = in.getInt();
+                        if (length < 0)
+                            continue;
+                        int[] table = new int[in.checkLength(length)];
+                        in.get(table);
+                        indexer.addSentences(doc, table);
+                    }
+                }
+                indexer.freeze();
+                return true;
+            } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException
+                    | ArithmeticException e) {
+                indexer.clear();
+                throw new IOException("Corrupt index snapshot " + snapshotFile + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Writes the index and the manifest it was built from. The manifest is
+     * written last, so an interrupted save leaves a snapshot that is simply
+     * considered stale. Removed documents are compacted away first, so the
+     * snapshot only holds live documents.
+     *
+     * @param indexer  The indexer to persist.
+     * @param manifest The manifest of the data directory the index was built
+     *                 from, captured before loading the files.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public void save(Indexer indexer, SnapshotManifest manifest) throws IOException {
+        indexer.compact();
+        Path temporary = beginWrite();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+            writeHeader(out, indexer.storesPositions(), indexer.analyzer().name());
+            out.writeInt(indexer.documentCount());
+            for (int doc = 0; doc < indexer.documentCount(); doc++) {
+                SnapshotManifest.writeString(out, indexer.documentName(doc));
+                out.writeInt(indexer.documentLength(doc));
+            }
+
+            List<String> terms = new ArrayList<>();
+            List<PostingList> postings = new ArrayList<>();
+            indexer.forEachSortedTerm((term, list) -> {
+                terms.add(term);
+                postings.add(list);
+            });
+            out.writeInt(terms.size());
+            for (int i = 0; i < terms.size(); i++) {
+                SnapshotManifest.writeString(out, terms.get(i));
+                writePostings(out, postings.get(i));
+                if (indexer.storesPositions())
+                    writePositions(out, indexer.termPositions(terms.get(i)));
+            }
+
+            if (indexer.storesPositions()) {
+                for (int doc = 0; doc < indexer.documentCount(); doc++) {
+                    int[] table = indexer.sentences(doc);
+                    out.writeInt(table == null ? -1 : table.length);
+                    if (table != null) {
+                        for (int value : table)
+                            out.writeInt(value);
+                    }
+                }
+            }
+        }
+        commitWrite(temporary, manifest);
+    }
+
+    /**
+     * @return The directory the snapshot files are kept in.
+     */
+    public Path getDirectory() {
+        return snapshotFile.getParent();
+    }
+
+    /**
+     * Invalidates the current snapshot and returns the temporary file a new
+     * {@code index.bin} is to be written to, for writers that stream the
+     * snapshot instead of going through {@link #save}.
+     */
+    Path beginWrite() throws IOException {
+        Files.createDirectories(snapshotFile.getParent());
+        Files.deleteIfExists(manifestFile);
+        return snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+    }
+
+    /**
+     * Moves a snapshot written by {@link #beginWrite()} into place and then
+     * records the manifest it was built from.
+     */
+    void commitWrite(Path temporary, SnapshotManifest manifest) throws IOException {
+        Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        manifest.write(manifestFile);
+    }
+
+    static void writeHeader(DataOutputStream out, boolean positional, String analyzer) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeByte(positional ? 1 : 0);
+        SnapshotManifest.writeString(out, analyzer);
+    }
+
+    static void writePostings(DataOutputStream out, PostingList postings) throws IOException {
+        postings.freeze();
+        out.writeByte(postings.encoding().ordinal());
+        switch (postings.encoding()) {
+            case BITMAP:
+                long[] words = postings.bitmapWords();
+                out.writeInt(postings.size());
+                out.writeInt(words.length);
+                for (long word : words)
+                    out.writeLong(word);
+                break;
+            case RUNS:
+                int[] starts = postings.runStarts();
+                int[] ends = postings.runEnds();
+                out.writeInt(starts.length);
+                for (int run = 0; run < starts.length; run++) {
+                    out.writeInt(starts[run]);
+                    out.writeInt(ends[run]);
+                }
+                break;
+            default:
+                byte[] encoded = postings.encoded();
+                out.writeInt(postings.size());
+                out.writeInt(encoded.length);
+                out.write(encoded);
+        }
+        out.write(postings.frequencies());
+    }
+
+    private static PostingList readPostings(Input in) throws IOException {
+        int ordinal = in.get();
+        if (ordinal < 0 || ordinal >= PostingList.Encoding.values().length)
+            throw new IOException("Unexpected posting encoding: " + ordinal);
+        switch (PostingList.Encoding.values()[ordinal]) {
+            case BITMAP:
+                int cardinality = in.getLength();
+                long[] words = new long[in.getLength()];
+                in.get(words);
+                return PostingList.fromBitmap(words, cardinality, readFrequencies(in, cardinality));
+            case RUNS:
+                int runs = in.getLength();
+                int[] starts = new int[runs];
+                int[] ends = new int[runs];
+                long postings = 0;
+                for (int run = 0; run < runs; run++) {
+                    starts[run] = in.getInt();
+                    ends[run] = in.getInt();
+                    postings += ends[run] - starts[run] + 1L;
+                }
+                return PostingList.fromRuns(starts, ends,
+                        readFrequencies(in, in.checkLength(Math.toIntExact(postings))));
+            default:
+                int size = in.getLength();
+                byte[] encoded = new byte[in.getLength()];
+                in.get(encoded);
+                return PostingList.fromEncoded(encoded, size, readFrequencies(in, size));
+        }
+    }
+
+    private static byte[] readFrequencies(Input in, int size) throws IOException {
+        byte[] frequencies = new byte[size];
+        in.get(frequencies);
+        return frequencies;
+    }
+
+    static void writePositions(DataOutputStream out, TermPositions positions) throws IOException {
+        positions.freeze();
+        int[] docs = positions.docs();
+        int[] offsets = positions.offsets();
+        out.writeInt(docs.length);
+        for (int i = 0; i < docs.length; i++) {
+            out.writeInt(docs[i]);
+            out.writeInt(offsets[i]);
+        }
+        out.writeInt(positions.data().length);
+        out.write(positions.data());
+    }
+
+    private static TermPositions readPositions(Input in) throws IOException {
+        int count = in.getLength();
+        int[] docs = new int[count];
+        int[] offsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            docs[i] = in.getInt();
+            offsets[i] = in.getInt();
+        }
+        byte[] data = new byte[in.getLength()];
+        in.get(data);
+        return TermPositions.of(docs, offsets, data);
+    }
+
+    /**
+     * Sequential reader of a snapshot file through a sliding mapped region.
+     * A value that would straddle the end of the region is read after
+     * remapping from its first byte. Lengths read from the file are checked
+     * against its size before anything is allocated for them, so a corrupt
+     * length fails instead of exhausting the heap.
+     */
+    private static final class Input {
+        private final FileChannel channel;
+        private final long size;
+        private final int regionSize;
+        private MappedByteBuffer buffer;
+        private long regionStart;
+
+        Input(FileChannel channel, int regionSize) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.regionSize = regionSize;
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(regionSize, size));
+        }
+
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes)
+                return;
+            long position = regionStart + buffer.position();
+            if (size - position < bytes)
+                throw new EOFException("Truncated index snapshot");
+            regionStart = position;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, size - position));
+        }
+
+        byte get() throws IOException {
+            require(1);
+            return buffer.get();
+        }
+
+        int getInt() throws IOException {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        int checkLength(int length) throws IOException {
+            if (length < 0 || length > size)
+                throw new IOException("Invalid length: " + length);
+            return length;
+        }
+
+        int getLength() throws IOException {
+            return checkLength(getInt());
+        }
+
+        String getString() throws IOException {
+            byte[] bytes = new byte[getLength()];
+            get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void get(byte[] target) throws IOException {
+            for (int done = 0; done < target.length;) {
+                require(1);
+                int count = Math.min(buffer.remaining(), target.length - done);
+                buffer.get(target, done, count);
+                done += count;
+            }
+        }
+
+        void get(int[] target) throws IOException {
+            for (int done = 0; done < target.length;) {
+                require(Integer.BYTES);
+                int count = Math.min(buffer.remaining() / Integer.BYTES, target.length - done);
+                buffer.asIntBuffer().get(target, done, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                done += count;
+            }
+        }
+
+        void get(long[] target) throws IOException {
+            for (int done = 0; done < target.length;) {
+                require(Long.BYTES);
+                int count = Math.min(buffer.remaining() / Long.BYTES, target.length - done);
+                buffer.asLongBuffer().get(target, done, count);
+                buffer.position(buffer.position() + count * Long.BYTES);
+                done += count;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.mateusememe.infrastructure.io;
+
+/**
+ * Minimal JSON encoding helpers for the few flat documents the server and the
+ * JSON Lines output emit, so no JSON library is needed.
+ */
+public final class Json {
+    private Json() {
+    }
+
+    /**
+     * Appends a string as a quoted JSON string literal.
+     *
+     * @param target The builder to append to.
+     * @param value  The string to encode.
+     * @return The builder, for chaining.
+     */
+    public static StringBuilder quote(StringBuilder target, String value) {
+        target.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    target.append("\\\"");
+                    break;
+                case '\\':
+                    target.append("\\\\");
+                    break;
+                case '\n':
+                    target.append("\\n");
+                    break;
+                case '\r':
+                    target.append("\\r");
+                    break;
+                case '\t':
+                    target.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20)
+                        target.append(String.format("\\u%04x", (int) c));
+                    else
+                        target.append(c);
+            }
+        }
+        return target.append('"');
+    }
+}
@@ -0,0 +1,236 @@
+package com.mateusememe.infrastructure.io;
+
+import java.util.Arrays;
+
+/**
+ * Pure Java compressor and decompressor for the LZ4 block format, used by the
+ * {@link DocumentStore} to pack file contents.
+ * <p>
+ * A block is a series of sequences, each a token byte (high nibble: literal
+ * count, low nibble: match length minus 4, 15 meaning that 255-terminated
+ * extension bytes follow), the literals, a little-endian 16-bit offset back
+ * into the output and the match length extension. The last sequence holds
+ * literals only. The compressor is the greedy single-probe hash matcher of
+ * the reference implementation: it trades ratio for speed, and text
+ * typically shrinks to about half, while decompression is a plain copy loop.
+ */
+public final class Lz4Codec {
+    private static final int MIN_MATCH = 4;
+    /** The last bytes of a block are always literals. */
+    private static final int LAST_LITERALS = 5;
+    /** A match may not start within this many bytes of the end of a block. */
+    private static final int MATCH_FIND_LIMIT = 12;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int HASH_LOG = 14;
+    /** The search step grows by one after this many misses in a row (log2). */
+    private static final int SKIP_TRIGGER = 6;
+
+    private Lz4Codec() {
+    }
+
+    /**
+     * @param length The number of bytes to compress.
+     * @return The largest size their compressed form can take.
+     */
+    public static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * @return A match table for {@link #compress(byte[], int, int, byte[], int, int[])},
+     *         which a caller compressing many blocks can keep and reuse.
+     */
+    public static int[] newTable() {
+        return new int[1 << HASH_LOG];
+    }
+
+    /**
+     * Compresses a range of bytes into one LZ4 block, with a match table of
+     * its own.
+     *
+     * @param source       The bytes to compress.
+     * @param sourceOffset The start of the range.
+     * @param length       The length of the range.
+     * @param target       The buffer the block is written to, with room for
+     *                     {@link #maxCompressedLength(int)} bytes.
+     * @param targetOffset Where the block starts in the buffer.
+     * @return The length of the block.
+     */
+    public static int compress(byte[] source, int sourceOffset, int length, byte[] target, int targetOffset) {
+        return compress(source, sourceOffset, length, target, targetOffset, newTable());
+    }
+
+    /**
+     * Compresses a range of bytes into one LZ4 block.
+     *
+     * @param source       The bytes to compress.
+     * @param sourceOffset The start of the range.
+     * @param length       The length of the range.
+     * @param target       The buffer the block is written to, with room for
+     *                     {@link #maxCompressedLength(int)} bytes.
+     * @param targetOffset Where the block starts in the buffer.
+     * @param table        A table from {@link #newTable()}, overwritten; it
+     *                     must not be shared by concurrent calls.
+     * @return The length of the block.
+     */
+    public static int compress(byte[] source, int sourceOffset, int length, byte[] target, int targetOffset,
+            int[] table) {
+        if (table.length != 1 << HASH_LOG)
+            throw new IllegalArgumentException("Match table must hold " + (1 << HASH_LOG) + " entries");
+        int end = sourceOffset + length;
+        int anchor = sourceOffset;
+        int out = targetOffset;
+
+        if (length > MATCH_FIND_LIMIT) {
+            int matchLimit = end - LAST_LITERALS;
+            int findLimit = end - MATCH_FIND_LIMIT;
+            Arrays.fill(table, -1);
+
+            int position = sourceOffset;
+            int misses = 0;
+            while (position < findLimit) {
+                int hash = hash(readInt(source, position));
+                int candidate = table[hash];
+                table[hash] = position;
+                if (candidate < 0 || position - candidate > MAX_OFFSET
+                        || readInt(source, candidate) != readInt(source, position)) {
+                    position += 1 + (misses++ >>> SKIP_TRIGGER);
+                    continue;
+                }
+                misses = 0;
+
+                while (position > anchor && candidate > sourceOffset && source[position - 1] == source[candidate - 1]) {
+                    position--;
+                    candidate--;
+                }
+                int matchEnd = position + MIN_MATCH;
+                int reference = candidate + MIN_MATCH;
+                while (matchEnd < matchLimit && source[matchEnd] == source[reference]) {
+                    matchEnd++;
+                    reference++;
+                }
+
+                out = writeSequence(source, anchor, position - anchor, position - candidate,
+                        matchEnd - position - MIN_MATCH, target, out);
+                anchor = matchEnd;
+                position = matchEnd;
+                if (position - 2 > sourceOffset && position < findLimit)
+                    table[hash(readInt(source, position - 2))] = position - 2;
+            }
+        }
+
+        int literals = end - anchor;
+        int token = out++;
+        target[token] = (byte) (Math.min(literals, 15) << 4);
+        out = writeLength(literals, target, out);
+        System.arraycopy(source, anchor, target, out, literals);
+        return out + literals - targetOffset;
+    }
+
+    /**
+     * Decompresses one LZ4 block.
+     *
+     * @param source       The buffer holding the block.
+     * @param sourceOffset Where the block starts.
+     * @param length       The length of the block.
+     * @param target       The buffer the bytes are written to.
+     * @param targetOffset Where the bytes start in the buffer.
+     * @param rawLength    The exact number of bytes the block holds.
+     * @throws IllegalArgumentException if the block is malformed or does not
+     *                                  hold exactly {@code rawLength} bytes.
+     */
+    public static void decompress(byte[] source, int sourceOffset, int length, byte[] target, int targetOffset,
+            int rawLength) {
+        int in = sourceOffset;
+        int end = sourceOffset + length;
+        int out = targetOffset;
+        int outEnd = targetOffset + rawLength;
+
+        while (in < end) {
+            int token = source[in++] & 0xFF;
+            int literals = token >>> 4;
+            if (literals == 15) {
+                int next;
+                do {
+                    if (in == end)
+                        throw malformed();
+                    next = source[in++] & 0xFF;
+                    literals += next;
+                } while (next == 255 && literals > 0);
+            }
+            if (literals < 0 || literals > end - in || literals > outEnd - out)
+                throw malformed();
+            System.arraycopy(source, in, target, out, literals);
+            in += literals;
+            out += literals;
+            if (in == end)
+                break;
+
+            if (end - in < 2)
+                throw malformed();
+            int offset = (source[in] & 0xFF) | (source[in + 1] & 0xFF) << 8;
+            in += 2;
+            int matchLength = token & 0x0F;
+            if (matchLength == 15) {
+                int next;
+                do {
+                    if (in == end)
+                        throw malformed();
+                    next = source[in++] & 0xFF;
+                    matchLength += next;
+                } while (next == 255 && matchLength > 0);
+            }
+            matchLength += MIN_MATCH;
+            if (offset == 0 || offset > out - targetOffset || matchLength < MIN_MATCH || matchLength > outEnd - out)
+                throw malformed();
+
+            int reference = out - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(target, reference, target, out, matchLength);
+            } else {
+                for (int i = 0; i < matchLength; i++)
+                    target[out + i] = target[reference + i]; // overlapping copy repeats the pattern
+            }
+            out += matchLength;
+        }
+        if (out != outEnd)
+            throw malformed();
+    }
+
+    private static int writeSequence(byte[] source, int literalStart, int literals, int offset, int matchLength,
+            byte[] target, int out) {
+        int token = out++;
+        target[token] = (byte) (Math.min(literals, 15) << 4 | Math.min(matchLength, 15));
+        out = writeLength(literals, target, out);
+        System.arraycopy(source, literalStart, target, out, literals);
+        out += literals;
+        target[out++] = (byte) offset;
+        target[out++] = (byte) (offset >>> 8);
+        return writeLength(matchLength, target, out);
+    }
+
+    /**
+     * Writes the extension bytes of a length whose nibble was saturated.
+     */
+    private static int writeLength(int length, byte[] target, int out) {
+        if (length < 15)
+            return out;
+        for (length -= 15; length >= 255; length -= 255)
+            target[out++] = (byte) 255;
+        target[out++] = (byte) length;
+        return out;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset + 2] & 0xFF) << 16
+                | (bytes[offset + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int value) {
+        return (value * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static IllegalArgumentException malformed() {
+        return new IllegalArgumentException("Malformed LZ4 block");
+    }
+}
@@ -1,12 +1,42 @@
 package com.mateusememe.infrastructure.io;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.mateusememe.domain.analysis.Analyzer;
+import com.mateusememe.domain.analysis.Tokenizer;
 import com.mateusememe.domain.entity.Indexer;
+import com.mateusememe.domain.entity.TermPositions;
+import com.mateusememe.infrastructure.metrics.Metrics;
 
 /**
  * Class responsible for reading movie files and inserting their
@@ -15,44 +45,319 @@ import com.mateusememe.domain.entity.Indexer;
  * preprocessing on them.
  */
 public class MovieFileReader {
+    /**
+     * How long the watcher waits for further events before re-scanning, so a
+     * burst of writes to the same files is handled once.
+     */
+    private static final long WATCH_DEBOUNCE_MILLIS = 200;
 
     private final Indexer invertedIndex;
+    private final int threads;
+    private DocumentStore.Writer documentWriter;
+    private volatile DocumentStore documentStore;
 
     /**
-     * Constructor that initializes the file reader with the inverted index entity.
+     * Constructor that initializes the file reader with the inverted index entity,
+     * ingesting files with one thread per available processor.
      *
      * @param invertedIndex Data structure of the inverted index used to
      *                      store the data from the files.
      */
     public MovieFileReader(Indexer invertedIndex) {
+        this(invertedIndex, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor that initializes the file reader with the inverted index entity
+     * and the number of threads used to ingest files.
+     *
+     * @param invertedIndex Data structure of the inverted index used to
+     *                      store the data from the files.
+     * @param threads       Number of ingestion threads; values below 1 are
+     *                      treated as 1.
+     */
+    public MovieFileReader(Indexer invertedIndex, int threads) {
         this.invertedIndex = invertedIndex;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Makes the following loads also append every file they read to a
+     * document store, so its contents are packed while they are ingested.
+     *
+     * @param writer The store to fill, or {@code null} to stop filling one.
+     */
+    public void packDocuments(DocumentStore.Writer writer) {
+        this.documentWriter = writer;
+    }
+
+    /**
+     * Serves snippets from a document store instead of the original files,
+     * for the files the store holds.
+     *
+     * @param store The store, or {@code null} to always read the files.
+     */
+    public void setDocumentStore(DocumentStore store) {
+        this.documentStore = store;
     }
 
     /**
      * Loads files from the specified directory, reading their content and inserting
      * it into an inverted index.
+     * <p>
+     * With more than one thread, every worker pulls files from a shared cursor
+     * and indexes them into its own partial {@link Indexer}, so no locking is
+     * needed on the hot path. The partial indexes are then merged pairwise in
+     * parallel and the result is merged into the inverted index, whose posting
+     * lists are then frozen into their compact encoding.
      *
      * @param directoryPath the path to the directory containing the files to be
      *                      loaded
      * @throws IOException if an I/O error occurs while reading files
      */
     public void loadFiles(String directoryPath) throws IOException {
-        try (Stream<Path> paths = Files.walk(Paths.get(directoryPath))) {
-            paths.filter(Files::isRegularFile).forEach(file -> {
-                try {
-                    invertedIndex.insert(file.toString(), Files.readString(file));
-                } catch (IOException e) {
-                    e.printStackTrace();
+        loadFiles(directoryPath, file -> true);
+    }
+
+    /**
+     * Same as {@link #loadFiles(String)} but only loads the files accepted by
+     * a filter, e.g. the files of one shard.
+     *
+     * @param directoryPath the path to the directory containing the files to be
+     *                      loaded
+     * @param filter        selects the files to load
+     * @throws IOException if an I/O error occurs while reading files
+     */
+    public void loadFiles(String directoryPath, Predicate<Path> filter) throws IOException {
+        List<Path> files = listFiles(directoryPath, filter);
+        int workers = Math.min(threads, files.size());
+        if (workers <= 1) {
+            files.forEach(file -> indexFile(invertedIndex, file, documentWriter));
+            Metrics.global().time(Metrics.Phase.MERGE, invertedIndex::freeze);
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            AtomicInteger cursor = new AtomicInteger();
+            List<Future<Indexer>> partials = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                partials.add(executor.submit(() -> {
+                    Indexer partial = new Indexer(invertedIndex.storesPositions(), invertedIndex.analyzer());
+                    for (int next = cursor.getAndIncrement(); next < files.size(); next = cursor.getAndIncrement()) {
+                        indexFile(partial, files.get(next), documentWriter);
+                    }
+                    return partial;
+                }));
+            }
+
+            while (partials.size() > 1) {
+                List<Future<Indexer>> merged = new ArrayList<>((partials.size() + 1) / 2);
+                for (int i = 0; i + 1 < partials.size(); i += 2) {
+                    Future<Indexer> left = partials.get(i);
+                    Future<Indexer> right = partials.get(i + 1);
+                    merged.add(executor.submit(() -> {
+                        Indexer target = left.get();
+                        Indexer source = right.get();
+                        Metrics.global().time(Metrics.Phase.MERGE, () -> target.absorb(source));
+                        return target;
+                    }));
+                }
+                if (partials.size() % 2 == 1) {
+                    merged.add(partials.get(partials.size() - 1));
                 }
+                partials = merged;
+            }
+
+            Indexer merged = partials.get(0).get();
+            Metrics.global().time(Metrics.Phase.MERGE, () -> {
+                invertedIndex.absorb(merged);
+                invertedIndex.freeze();
             });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading files", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to load files", e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
     }
 
+    /**
+     * Same as {@link #loadFiles(String, Predicate)} but with the heap used by
+     * ingestion bounded by a memory budget: the index is built by a
+     * {@link SegmentedIndexBuilder}, which spills partial indexes to disk and
+     * merges them straight into the snapshot, and the inverted index is then
+     * loaded from that snapshot. Only the final, compact index has to fit in
+     * memory, not the structures used while building it.
+     *
+     * @param directoryPath the path to the directory containing the files to be
+     *                      loaded
+     * @param filter        selects the files to load
+     * @param snapshot      the snapshot to build; its directory also holds the
+     *                      segments during the build
+     * @param manifest      the manifest of the files, captured before loading
+     *                      them
+     * @param memoryBudget  the heap, in bytes, the partial indexes may take
+     * @throws IOException if an I/O error occurs while reading files or writing
+     *                     or loading the snapshot
+     */
+    public void loadFilesSegmented(String directoryPath, Predicate<Path> filter, IndexSnapshot snapshot,
+            SnapshotManifest manifest, long memoryBudget) throws IOException {
+        SegmentedIndexBuilder builder = new SegmentedIndexBuilder(threads, memoryBudget,
+                invertedIndex.storesPositions(), invertedIndex.analyzer(), snapshot.getDirectory().resolve("segments"));
+        builder.build(listFiles(directoryPath, filter), snapshot, manifest, documentWriter);
+        if (!Metrics.global().time(Metrics.Phase.SNAPSHOT, () -> snapshot.load(invertedIndex, manifest)))
+            throw new IOException("The merged index snapshot does not match the manifest it was built from");
+    }
+
+    private static List<Path> listFiles(String directoryPath, Predicate<Path> filter) throws IOException {
+        return Metrics.global().time(Metrics.Phase.WALK, () -> {
+            try (Stream<Path> paths = Files.walk(Paths.get(directoryPath))) {
+                return paths.filter(Files::isRegularFile).filter(filter).collect(Collectors.toList());
+            }
+        });
+    }
+
+    /**
+     * Brings the index up to date with a directory, re-indexing only the files
+     * whose size or modification time differ between the two manifests and
+     * removing the files that disappeared, which the document store then no
+     * longer serves. Changed files are read before the
+     * index is touched; the index itself is modified while holding its monitor,
+     * so readers that synchronize on the {@link Indexer} never see a partially
+     * applied change.
+     *
+     * @param previous The manifest the index currently reflects.
+     * @param current  The manifest of the directory as it is now.
+     * @return The number of files that were re-indexed or removed.
+     */
+    public int refresh(SnapshotManifest previous, SnapshotManifest current) {
+        DocumentStore store = documentStore;
+        Map<String, SnapshotManifest.Entry> removed = new HashMap<>();
+        for (SnapshotManifest.Entry entry : previous.getEntries())
+            removed.put(entry.getPath(), entry);
+
+        Map<String, byte[]> changed = new LinkedHashMap<>();
+        for (SnapshotManifest.Entry entry : current.getEntries()) {
+            SnapshotManifest.Entry known = removed.remove(entry.getPath());
+            if (entry.equals(known))
+                continue;
+            try {
+                changed.put(entry.getPath(),
+                        Metrics.global().time(Metrics.Phase.READ, () -> Files.readAllBytes(Paths.get(entry.getPath()))));
+            } catch (IOException e) {
+                removed.put(entry.getPath(), entry); // deleted again before it could be read
+            }
+        }
+
+        if (store != null) {
+            removed.keySet().forEach(store::forget);
+            changed.keySet().forEach(store::forget);
+        }
+        synchronized (invertedIndex) {
+            removed.keySet().forEach(invertedIndex::removeDocument);
+            Metrics.global().time(Metrics.Phase.INDEX, () -> changed.forEach(invertedIndex::updateDocument));
+        }
+        return removed.size() + changed.size();
+    }
+
+    /**
+     * Watches a directory and keeps the index in sync with it until the calling
+     * thread is interrupted.
+     * <p>
+     * File system events only signal that something changed: after a burst of
+     * events the directory is re-scanned and {@link #refresh} compares sizes
+     * and modification times, so lost or coalesced events (including
+     * {@code OVERFLOW}) never leave the index stale, and every change costs
+     * only the files that actually changed. Subdirectories, including ones
+     * created later, are watched too.
+     *
+     * @param directoryPath The data directory.
+     * @param baseline      The manifest the index currently reflects.
+     * @param onChange      Called after each refresh that changed the index,
+     *                      with the number of files re-indexed or removed.
+     * @throws IOException          if the directory cannot be watched or
+     *                              scanned.
+     * @throws InterruptedException when the watching thread is interrupted.
+     */
+    public void watch(String directoryPath, SnapshotManifest baseline, IntConsumer onChange)
+            throws IOException, InterruptedException {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            registerTree(watcher, Paths.get(directoryPath));
+            SnapshotManifest known = baseline;
+            while (true) {
+                WatchKey key = watcher.take();
+                do {
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() != StandardWatchEventKinds.ENTRY_CREATE)
+                            continue;
+                        Path created = directory.resolve((Path) event.context());
+                        if (Files.isDirectory(created))
+                            registerTree(watcher, created);
+                    }
+                    key.reset();
+                } while ((key = watcher.poll(WATCH_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+
+                SnapshotManifest current = SnapshotManifest.scan(directoryPath);
+                int changed = refresh(known, current);
+                known = current;
+                if (changed > 0)
+                    onChange.accept(changed);
+            }
+        }
+    }
+
+    private static void registerTree(WatchService watcher, Path root) throws IOException {
+        List<Path> directories;
+        try (Stream<Path> paths = Files.walk(root)) {
+            directories = paths.filter(Files::isDirectory).collect(Collectors.toList());
+        }
+        for (Path directory : directories) {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+    }
+
+    /**
+     * Reads a file and inserts it into an index and, if given, a document
+     * store.
+     */
+    static void indexFile(Indexer target, Path file, DocumentStore.Writer documents) {
+        Metrics metrics = Metrics.global();
+        String name = file.toString();
+        byte[] content;
+        try {
+            content = metrics.time(Metrics.Phase.READ, () -> Files.readAllBytes(file));
+            if (documents != null)
+                metrics.time(Metrics.Phase.STORE, () -> documents.add(name, content));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        metrics.time(Metrics.Phase.INDEX, () -> target.insert(name, content));
+        metrics.add(Metrics.Counter.FILES, 1);
+        metrics.add(Metrics.Counter.BYTES, content.length);
+        metrics.add(Metrics.Counter.TOKENS, target.documentLength(target.documentId(name)));
+    }
+
     /**
      * Searches for and returns a snippet of the file content that contains any
      * of the search terms. Highlights the sentence that contains the searched term
      * for
      * easier visualization.
+     * <p>
+     * When the index stores positions, the sentence holding the earliest
+     * occurrence of a term is located through the sentence offsets recorded at
+     * index time and only that byte range of the file is read, so the cost does
+     * not depend on the file size. Otherwise, or if the file no longer matches
+     * the index, the whole file is scanned. Files held by the
+     * {@link #setDocumentStore document store} are read from it, decompressing
+     * only the block that holds the sentence, rather than from the data
+     * directory.
      *
      * @param fileName    Name of the file where the terms will be searched.
      * @param searchTerms Array of search terms to be located in the content of the
@@ -60,16 +365,23 @@ public class MovieFileReader {
      * @return A string with the sentence that contains any of the search terms.
      */
     public String getSnippet(String fileName, String[] searchTerms) {
+        return Metrics.global().time(Metrics.Phase.SNIPPET, () -> findSnippet(fileName, searchTerms));
+    }
+
+    private String findSnippet(String fileName, String[] searchTerms) {
+        String snippet = getIndexedSnippet(fileName, searchTerms);
+        if (snippet != null)
+            return snippet;
+
         try {
-            String content = Files.readString(Paths.get(fileName));
+            byte[] stored = documentStore == null ? null : documentStore.read(fileName);
+            String content = stored != null ? new String(stored, StandardCharsets.UTF_8)
+                    : Files.readString(Paths.get(fileName));
             String[] sentences = content.split("\\.\\s+");
             for (String sentence : sentences) {
                 String trimmedSentence = sentence.trim();
-                for (String term : searchTerms) {
-                    if (trimmedSentence.toLowerCase().contains(term.toLowerCase())) {
-                        return trimmedSentence + "."; // Returns the sentence that contains the term
-                    }
-                }
+                if (mentions(trimmedSentence, searchTerms))
+                    return trimmedSentence + "."; // Returns the sentence that contains the term
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -77,4 +389,111 @@ public class MovieFileReader {
 
         return "Não há pré-visualização disponível.";
     }
+
+    /**
+     * Reads only the sentences that the positional index points at, in document
+     * order, and returns the first one that really contains a term.
+     *
+     * @return The snippet, or {@code null} if it cannot be served from the index.
+     */
+    private String getIndexedSnippet(String fileName, String[] searchTerms) {
+        int doc = invertedIndex.documentId(fileName);
+        if (doc < 0 || invertedIndex.sentences(doc) == null)
+            return null;
+
+        int[] candidates = new int[0];
+        for (String term : searchTerms) {
+            String[] tokens = Tokenizer.terms(term, invertedIndex.analyzer());
+            TermPositions termPositions = tokens.length == 0 ? null : invertedIndex.termPositions(tokens[0]);
+            if (termPositions != null)
+                candidates = mergeSorted(candidates, termPositions.positions(doc));
+        }
+
+        DocumentStore store = documentStore;
+        if (store != null && store.contains(fileName)) {
+            try {
+                return firstMention(doc, candidates, searchTerms, (start, end) -> {
+                    byte[] bytes = store.read(fileName, start, end);
+                    if (bytes == null)
+                        throw new IOException(fileName + " is no longer in the document store");
+                    return new String(bytes, StandardCharsets.UTF_8);
+                });
+            } catch (IOException e) {
+                // forgotten or unreadable meanwhile: read the file instead
+            }
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            return firstMention(doc, candidates, searchTerms, (start, end) -> readRange(channel, start, end));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a byte range of a document's content.
+     */
+    @FunctionalInterface
+    private interface RangeReader {
+        String read(int start, int end) throws IOException;
+    }
+
+    private String firstMention(int doc, int[] candidates, String[] searchTerms, RangeReader reader)
+            throws IOException {
+        int lastStart = -1;
+        for (int position : candidates) {
+            int[] range = invertedIndex.sentenceContaining(doc, position);
+            if (range == null || range[0] == lastStart)
+                continue;
+            lastStart = range[0];
+
+            String sentence = reader.read(range[0], range[1]).trim();
+            if (mentions(sentence, searchTerms))
+                return sentence + ".";
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a sentence contains a search term, ignoring case and
+     * accents. When the analyzer does more than fold, e.g. stems, a term also
+     * counts if one of the sentence's analyzed tokens equals it, so the
+     * stemmed term {@code filme} is found in "Os filmes".
+     */
+    private boolean mentions(String sentence, String[] searchTerms) {
+        String folded = Analyzer.fold(sentence);
+        for (String term : searchTerms) {
+            if (folded.contains(Analyzer.fold(term)))
+                return true;
+        }
+        if (!invertedIndex.analyzer().hasFilters())
+            return false;
+
+        Set<String> tokens = new HashSet<>(Arrays.asList(Tokenizer.terms(sentence, invertedIndex.analyzer())));
+        for (String term : searchTerms) {
+            if (tokens.contains(Analyzer.fold(term)))
+                return true;
+        }
+        return false;
+    }
+
+    private static String readRange(FileChannel channel, int start, int end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(end - start);
+        while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+            // keep reading until the range is complete or the file ends
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    private static int[] mergeSorted(int[] left, int[] right) {
+        int[] merged = new int[left.length + right.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < left.length || j < right.length) {
+            int next = j == right.length || (i < left.length && left[i] <= right[j]) ? left[i++] : right[j++];
+            if (count == 0 || merged[count - 1] != next)
+                merged[count++] = next;
+        }
+        return Arrays.copyOf(merged, count);
+    }
 }
@@ -1,34 +1,167 @@
 package com.mateusememe.infrastructure.io;
 
-import java.util.Map;
+import java.io.BufferedOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.function.Function;
 
+import com.mateusememe.domain.analysis.Analyzer;
+import com.mateusememe.domain.analysis.Tokenizer;
 import com.mateusememe.domain.entity.Indexer;
+import com.mateusememe.domain.ranking.Bm25Ranker;
+import com.mateusememe.domain.ranking.ScoredDocument;
+import com.mateusememe.infrastructure.metrics.Metrics;
 
 /**
  * Class responsible for printing search results in different formats.
+ * <p>
+ * Every print call writes its whole output and then flushes once, so the
+ * terminal printer buffers through a large, non-autoflushing stream instead
+ * of flushing each line.
  */
 public class OutputPrinter {
+    /**
+     * Size of the buffer in front of the standard output.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
     private final Indexer indexer;
     private final MovieFileReader movieFileReader;
+    private final Bm25Ranker ranker;
+    private final PrintStream out;
+    private final Format format;
+
+    /**
+     * Output formats. {@link #TEXT} is meant for people; the others print one
+     * record per result and nothing else, for piping into other tools.
+     */
+    public enum Format {
+        /**
+         * The human-readable report, with counts, time and highlighting.
+         */
+        TEXT,
+        /**
+         * One JSON object per line.
+         */
+        JSONL,
+        /**
+         * One tab-separated row per line.
+         */
+        TSV;
+
+        /**
+         * @param name The format name, case-insensitive.
+         * @return The format.
+         * @throws IllegalArgumentException if there is no such format.
+         */
+        public static Format parse(String name) {
+            switch (name.toLowerCase(Locale.ROOT)) {
+                case "text":
+                    return TEXT;
+                case "jsonl":
+                    return JSONL;
+                case "tsv":
+                    return TSV;
+                default:
+                    throw new IllegalArgumentException("Unknown output format: " + name);
+            }
+        }
+    }
 
     /**
      * Constructor for OutputPrinter.
      *
-     * @param indexer         The Indexer instance used for searching and counting
-     *                        occurrences.
+     * @param indexer         The Indexer instance whose term frequencies and
+     *                        document lengths rank the results.
      * @param movieFileReader The MovieFileReader instance used for getting
      *                        snippets.
      */
     public OutputPrinter(Indexer indexer, MovieFileReader movieFileReader) {
+        this(indexer, movieFileReader, Format.TEXT);
+    }
+
+    /**
+     * Constructor for an OutputPrinter that writes to the terminal in the
+     * given format.
+     *
+     * @param indexer         The Indexer instance whose term frequencies and
+     *                        document lengths rank the results.
+     * @param movieFileReader The MovieFileReader instance used for getting
+     *                        snippets.
+     * @param format          The output format.
+     */
+    public OutputPrinter(Indexer indexer, MovieFileReader movieFileReader, Format format) {
+        this(indexer, movieFileReader, terminal(), format);
+    }
+
+    /**
+     * Constructor for an OutputPrinter of results that were selected and
+     * ranked elsewhere, e.g. by the shards of a distributed index. Only
+     * {@link #printSimple(int, List, String, double)} and
+     * {@link #printVerbose(int, List, Function, String, String[], double)} may
+     * be used.
+     *
+     * @param out    The stream the results are printed to.
+     * @param format The output format.
+     */
+    public OutputPrinter(PrintStream out, Format format) {
+        this(null, null, out, format);
+    }
+
+    /**
+     * @return A large, non-autoflushing stream in front of the standard
+     *         output.
+     */
+    public static PrintStream terminal() {
+        return new PrintStream(new BufferedOutputStream(System.out, BUFFER_SIZE), false, System.out.charset());
+    }
+
+    /**
+     * Constructor for an OutputPrinter that writes somewhere other than the
+     * terminal, e.g. into an HTTP response.
+     *
+     * @param indexer         The Indexer instance whose term frequencies and
+     *                        document lengths rank the results.
+     * @param movieFileReader The MovieFileReader instance used for getting
+     *                        snippets.
+     * @param out             The stream the results are printed to.
+     */
+    public OutputPrinter(Indexer indexer, MovieFileReader movieFileReader, PrintStream out) {
+        this(indexer, movieFileReader, out, Format.TEXT);
+    }
+
+    /**
+     * Constructor for an OutputPrinter that writes to a stream in the given
+     * format.
+     *
+     * @param indexer         The Indexer instance whose term frequencies and
+     *                        document lengths rank the results.
+     * @param movieFileReader The MovieFileReader instance used for getting
+     *                        snippets.
+     * @param out             The stream the results are printed to.
+     * @param format          The output format.
+     */
+    public OutputPrinter(Indexer indexer, MovieFileReader movieFileReader, PrintStream out, Format format) {
         this.indexer = indexer;
         this.movieFileReader = movieFileReader;
+        this.ranker = indexer == null ? null : new Bm25Ranker(indexer);
+        this.out = out;
+        this.format = format;
     }
 
     /**
-     * Prints the search results in a simple format.
+     * Prints the search results in a simple format: the file names in
+     * alphabetical order. Only the first {@code resultLimit} names are
+     * selected, so a limited listing of a large result set is never fully
+     * sorted.
      *
      * @param result      The set of file names that match the search query.
      * @param searchQuery The original search query.
@@ -36,19 +169,51 @@ public class OutputPrinter {
      * @param searchTime  The time taken for the search operation.
      */
     public void printSimple(Set<String> result, String searchQuery, int resultLimit, double searchTime) {
-        System.out.println("Foram encontradas " + result.size() + " ocorrências pelo termo \"" + searchQuery + "\".");
-        System.out.println("Os arquivos que possuem \"" + searchQuery + "\" são:");
-        result.stream()
-                .sorted()
-                .limit(resultLimit)
-                .forEach(System.out::println);
+        printSimple(result.size(), firstByName(result, resultLimit), searchQuery, searchTime);
+    }
+
+    /**
+     * Prints already selected results in the simple format.
+     *
+     * @param total       The number of files that match the search query.
+     * @param files       The file names to list, in order.
+     * @param searchQuery The original search query.
+     * @param searchTime  The time taken for the search operation.
+     */
+    public void printSimple(int total, List<String> files, String searchQuery, double searchTime) {
+        Metrics.global().time(Metrics.Phase.PRINT, () -> writeSimple(total, files, searchQuery, searchTime));
+    }
 
-        System.out.printf("Tempo de busca: %.4f milisegundos%n", searchTime);
+    private void writeSimple(int total, List<String> files, String searchQuery, double searchTime) {
+        switch (format) {
+            case JSONL:
+                for (String file : files) {
+                    StringBuilder line = new StringBuilder(64).append("{\"query\":");
+                    Json.quote(line, searchQuery).append(",\"file\":");
+                    out.println(Json.quote(line, file).append('}'));
+                }
+                break;
+            case TSV:
+                for (String file : files)
+                    out.println(tsv(searchQuery) + '\t' + tsv(file));
+                break;
+            default:
+                out.println("Foram encontradas " + total + " ocorrências pelo termo \"" + searchQuery + "\".");
+                out.println("Os arquivos que possuem \"" + searchQuery + "\" são:");
+                for (String file : files)
+                    out.println(file);
+                out.printf("Tempo de busca: %.4f milisegundos%n", searchTime);
+                break;
+        }
+        out.flush();
     }
 
     /**
      * Prints the search results in a verbose format, highlighting the search terms
-     * in the content.
+     * in the content. Results are ranked by BM25 relevance and only the best
+     * {@code resultLimit} are selected, so large result sets are never fully
+     * sorted. Wildcard terms are ranked and highlighted as the indexed terms
+     * they expand to.
      *
      * @param result      The set of file names that match the search query.
      * @param searchQuery The original search query.
@@ -56,46 +221,155 @@ public class OutputPrinter {
      * @param searchTime  The time taken for the search operation.
      */
     public void printVerbose(Set<String> result, String searchQuery, int resultLimit, double searchTime) {
-        System.out.println("Foram encontradas " + result.size() + " ocorrências pelo termo \"" + searchQuery + "\".");
-        System.out.println("Os arquivos que possuem \"" + searchQuery + "\" são:");
-        String[] searchTerms = searchQuery.toLowerCase().split("\\s+");
-        Map<String, Integer> sortedResults = new TreeMap<>((a, b) -> {
-            int compByOccurrences = Integer.compare(indexer.countOccurrences(b, searchTerms),
-                    indexer.countOccurrences(a, searchTerms));
-            return compByOccurrences != 0 ? compByOccurrences : a.compareTo(b);
-        });
+        printVerbose(result, searchQuery, indexer.expandAll(Tokenizer.queryTerms(searchQuery, indexer.analyzer())), resultLimit,
+                searchTime);
+    }
+
+    /**
+     * Same as {@link #printVerbose(Set, String, int, double)}, ranking and
+     * highlighting the given indexed terms, e.g. the fuzzy matches of the
+     * query words, instead of the words themselves. The machine formats carry
+     * the snippet without highlighting.
+     *
+     * @param result      The set of file names that match the search query.
+     * @param searchQuery The original search query.
+     * @param searchTerms The indexed terms the query matched.
+     * @param resultLimit The maximum number of results to display.
+     * @param searchTime  The time taken for the search operation.
+     */
+    public void printVerbose(Set<String> result, String searchQuery, String[] searchTerms, int resultLimit,
+            double searchTime) {
+        List<ScoredDocument> ranked = Metrics.global().time(Metrics.Phase.RANK,
+                () -> ranker.topK(result, searchTerms, resultLimit));
+        printVerbose(result.size(), ranked, name -> movieFileReader.getSnippet(name, searchTerms), searchQuery,
+                searchTerms, searchTime);
+    }
+
+    /**
+     * Prints already ranked results in the verbose format.
+     *
+     * @param total       The number of files that match the search query.
+     * @param ranked      The results to list, best first.
+     * @param snippets    Gives the snippet of a listed file name.
+     * @param searchQuery The original search query.
+     * @param searchTerms The indexed terms the query matched, highlighted in
+     *                    the snippets.
+     * @param searchTime  The time taken for the search operation.
+     */
+    public void printVerbose(int total, List<ScoredDocument> ranked, Function<String, String> snippets,
+            String searchQuery, String[] searchTerms, double searchTime) {
+        Metrics.global().time(Metrics.Phase.PRINT,
+                () -> writeVerbose(total, ranked, snippets, searchQuery, searchTerms, searchTime));
+    }
 
-        result.forEach(fileName -> sortedResults.put(fileName, indexer.countOccurrences(fileName, searchTerms)));
+    private void writeVerbose(int total, List<ScoredDocument> ranked, Function<String, String> snippets,
+            String searchQuery, String[] searchTerms, double searchTime) {
+        if (format == Format.TEXT) {
+            out.println("Foram encontradas " + total + " ocorrências pelo termo \"" + searchQuery + "\".");
+            out.println("Os arquivos que possuem \"" + searchQuery + "\" são:");
+        }
 
-        sortedResults.entrySet().stream()
-                .limit(resultLimit)
-                .forEach(entry -> {
-                    System.out.println("\nArquivo: " + entry.getKey());
-                    System.out.println("Ocorrências: " + entry.getValue());
-                    String snippet = movieFileReader.getSnippet(entry.getKey(), searchTerms);
-                    System.out.println("Trecho: " + highlightTerms(snippet, searchTerms));
-                });
+        for (ScoredDocument document : ranked) {
+            String snippet = snippets.apply(document.name());
+            String score = String.format(Locale.ROOT, "%.4f", document.score());
+            switch (format) {
+                case JSONL: {
+                    StringBuilder line = new StringBuilder(256).append("{\"query\":");
+                    Json.quote(line, searchQuery).append(",\"file\":");
+                    Json.quote(line, document.name());
+                    line.append(",\"occurrences\":").append(document.matchedTerms());
+                    line.append(",\"score\":").append(score).append(",\"snippet\":");
+                    out.println(Json.quote(line, snippet).append('}'));
+                    break;
+                }
+                case TSV:
+                    out.println(tsv(searchQuery) + '\t' + tsv(document.name()) + '\t' + document.matchedTerms()
+                            + '\t' + score + '\t' + tsv(snippet));
+                    break;
+                default: {
+                    String highlighted = Metrics.global().time(Metrics.Phase.HIGHLIGHT,
+                            () -> highlightTerms(snippet, searchTerms));
+                    out.println("\nArquivo: " + document.name());
+                    out.println("Ocorrências: " + document.matchedTerms());
+                    out.printf("Relevância: %.4f%n", document.score());
+                    out.println("Trecho: " + highlighted);
+                    break;
+                }
+            }
+        }
 
-        System.out.printf("%nTempo de busca: %.4f milisegundos%n", searchTime);
+        if (format == Format.TEXT)
+            out.printf("%nTempo de busca: %.4f milisegundos%n", searchTime);
+        out.flush();
+    }
+
+    /**
+     * Selects the alphabetically first names of a result. Results that are
+     * already a naturally ordered {@link SortedSet} are read in order; when
+     * fewer names than the result holds are wanted, a bounded heap keeps the
+     * smallest ones, in {@code O(n log limit)} instead of a full sort.
+     *
+     * @param result The file names.
+     * @param limit  The maximum number of names to select.
+     * @return The selected names, in alphabetical order.
+     */
+    public static List<String> firstByName(Set<String> result, int limit) {
+        int count = Math.max(0, Math.min(limit, result.size()));
+        if (result instanceof SortedSet && ((SortedSet<String>) result).comparator() == null) {
+            List<String> names = new ArrayList<>(count);
+            for (String name : result) {
+                if (names.size() == count)
+                    break;
+                names.add(name);
+            }
+            return names;
+        }
+        if (count == result.size()) {
+            String[] names = result.toArray(new String[0]);
+            Arrays.sort(names);
+            return Arrays.asList(names);
+        }
+
+        PriorityQueue<String> largest = new PriorityQueue<>(count + 1, Collections.reverseOrder());
+        for (String name : result) {
+            if (largest.size() < count) {
+                largest.add(name);
+            } else if (count > 0 && name.compareTo(largest.peek()) < 0) {
+                largest.poll();
+                largest.add(name);
+            }
+        }
+        String[] names = largest.toArray(new String[0]);
+        Arrays.sort(names);
+        return Arrays.asList(names);
+    }
+
+    /**
+     * Makes a value safe for a TSV field by turning tabs and line breaks into
+     * spaces.
+     */
+    private static String tsv(String value) {
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
     }
 
     /**
      * Highlights whole words that match the search terms in a given text.
+     * Package-private so the benchmarks can measure it.
      *
      * @param text        The text to process.
      * @param searchTerms The search terms to highlight.
      * @return The text with whole words matching search terms highlighted.
      */
-    private String highlightTerms(String text, String[] searchTerms) {
-        String lowercaseText = text.toLowerCase();
+    String highlightTerms(String text, String[] searchTerms) {
+        String foldedText = Analyzer.fold(text);
         TreeSet<Integer> highlightPositions = new TreeSet<>();
 
         for (String term : searchTerms) {
-            int index = lowercaseText.indexOf(term);
+            int index = foldedText.indexOf(term);
             while (index >= 0) {
                 highlightPositions.add(index);
                 highlightPositions.add(index + term.length());
-                index = lowercaseText.indexOf(term, index + 1);
+                index = foldedText.indexOf(term, index + 1);
             }
         }
 
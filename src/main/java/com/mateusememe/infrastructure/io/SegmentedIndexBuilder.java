@@ -0,0 +1,430 @@
+package com.mateusememe.infrastructure.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mateusememe.domain.analysis.Analyzer;
+import com.mateusememe.domain.entity.DocIdIterator;
+import com.mateusememe.domain.entity.Indexer;
+import com.mateusememe.domain.entity.PostingList;
+import com.mateusememe.domain.entity.PostingsIterator;
+import com.mateusememe.domain.entity.TermDictionary;
+import com.mateusememe.domain.entity.TermPositions;
+import com.mateusememe.infrastructure.metrics.Metrics;
+
+/**
+ * Builds an {@link IndexSnapshot} of a set of files in bounded memory with
+ * single-pass in-memory indexing (SPIMI).
+ * <p>
+ * Ingestion workers index files into their own partial {@link Indexer}, as
+ * {@link MovieFileReader#loadFiles(String)} does, but once the estimated heap
+ * size of a partial index reaches the worker's share of the memory budget it
+ * is spilled to disk as a segment, its terms in sorted order, and a fresh
+ * partial index is started. The segments are then merged in one sequential
+ * pass straight into {@code index.bin}: the document tables are concatenated,
+ * every segment's document IDs shifted past those of the segments before it,
+ * and the terms are merged k-way through a priority queue, so only the
+ * postings of one term are in memory at a time.
+ * <p>
+ * Layout of a segment (big-endian, strings as in the snapshot):
+ *
+ * <pre>
+ * int docCount, docCount x (string name, int length)
+ * int termCount, termCount x (string term, int postingCount, postingCount x (int doc, byte frequency), [positions])
+ * [docCount x (int length, length x int sentenceTable)]   (positional only)
+ * </pre>
+ *
+ * where positions are stored as in the snapshot and document IDs are local
+ * to the segment.
+ */
+public class SegmentedIndexBuilder {
+    /**
+     * Estimated heap bytes per distinct term of a partial index: its
+     * dictionary entry and its posting and position lists with their initial
+     * arrays.
+     */
+    static final int BYTES_PER_TERM = 160;
+    /**
+     * Estimated heap bytes per token: at most one posting (ID and frequency),
+     * doubled for the slack of growing arrays.
+     */
+    static final int BYTES_PER_TOKEN = 10;
+    /**
+     * Estimated heap bytes per token for its encoded position, when positions
+     * are stored.
+     */
+    static final int BYTES_PER_POSITION = 4;
+    /**
+     * Estimated heap bytes per document besides its name: table entries and
+     * sentence table.
+     */
+    static final int BYTES_PER_DOCUMENT = 128;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final int threads;
+    private final long memoryBudget;
+    private final boolean storePositions;
+    private final Analyzer analyzer;
+    private final Path workDirectory;
+    private final AtomicInteger nextSegment = new AtomicInteger();
+
+    /**
+     * @param threads        Number of ingestion threads; values below 1 are
+     *                       treated as 1.
+     * @param memoryBudget   Heap, in bytes, the partial indexes of all
+     *                       threads may take together before they are spilled.
+     * @param storePositions Whether to record term positions.
+     * @param analyzer       The analyzer applied to the content.
+     * @param workDirectory  Directory for the segments; created if needed and
+     *                       emptied of segments once the build ends.
+     */
+    public SegmentedIndexBuilder(int threads, long memoryBudget, boolean storePositions, Analyzer analyzer,
+            Path workDirectory) {
+        this.threads = Math.max(1, threads);
+        this.memoryBudget = Math.max(1, memoryBudget);
+        this.storePositions = storePositions;
+        this.analyzer = analyzer;
+        this.workDirectory = workDirectory;
+    }
+
+    /**
+     * Indexes the files and writes the merged index to the snapshot, followed
+     * by the manifest, as {@link IndexSnapshot#save} would.
+     *
+     * @param files    The files to index.
+     * @param snapshot The snapshot to write.
+     * @param manifest The manifest of the files, captured before reading them.
+     * @return The number of segments spilled.
+     * @throws IOException if a segment or the snapshot cannot be written.
+     */
+    public int build(List<Path> files, IndexSnapshot snapshot, SnapshotManifest manifest) throws IOException {
+        return build(files, snapshot, manifest, null);
+    }
+
+    /**
+     * Same as {@link #build(List, IndexSnapshot, SnapshotManifest)} but also
+     * appends every file read to a document store.
+     *
+     * @param files     The files to index.
+     * @param snapshot  The snapshot to write.
+     * @param manifest  The manifest of the files, captured before reading them.
+     * @param documents The document store to fill, or {@code null}.
+     * @return The number of segments spilled.
+     * @throws IOException if a segment or the snapshot cannot be written.
+     */
+    public int build(List<Path> files, IndexSnapshot snapshot, SnapshotManifest manifest,
+            DocumentStore.Writer documents) throws IOException {
+        Files.createDirectories(workDirectory);
+        List<Path> segments = Collections.synchronizedList(new ArrayList<>());
+        try {
+            spillAll(files, segments, documents);
+            segments.sort(Comparator.comparingInt(SegmentedIndexBuilder::segmentNumber));
+            Metrics.global().time(Metrics.Phase.MERGE, () -> merge(segments, snapshot, manifest));
+            return segments.size();
+        } finally {
+            for (Path segment : segments)
+                Files.deleteIfExists(segment);
+        }
+    }
+
+    private void spillAll(List<Path> files, List<Path> segments, DocumentStore.Writer documentWriter)
+            throws IOException {
+        int workers = Math.max(1, Math.min(threads, files.size()));
+        long share = Math.max(1, memoryBudget / workers);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            AtomicInteger cursor = new AtomicInteger();
+            List<Future<?>> running = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                running.add(executor.submit(() -> {
+                    Indexer partial = new Indexer(storePositions, analyzer);
+                    long estimate = 0;
+                    for (int next = cursor.getAndIncrement(); next < files.size(); next = cursor.getAndIncrement()) {
+                        int terms = partial.termCount();
+                        int documents = partial.documentCount();
+                        MovieFileReader.indexFile(partial, files.get(next), documentWriter);
+                        estimate += estimate(partial, terms, documents);
+                        if (estimate >= share) {
+                            segments.add(spill(partial));
+                            partial = new Indexer(storePositions, analyzer);
+                            estimate = 0;
+                        }
+                    }
+                    if (partial.documentCount() > 0)
+                        segments.add(spill(partial));
+                    return null;
+                }));
+            }
+            for (Future<?> worker : running)
+                worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing files", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to index files", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Estimates the heap taken by what the last insert added to a partial
+     * index.
+     */
+    private long estimate(Indexer partial, int termsBefore, int documentsBefore) {
+        long bytes = (long) (partial.termCount() - termsBefore) * BYTES_PER_TERM;
+        for (int doc = documentsBefore; doc < partial.documentCount(); doc++) {
+            bytes += BYTES_PER_DOCUMENT + 2L * partial.documentName(doc).length();
+            bytes += (long) partial.documentLength(doc) * (BYTES_PER_TOKEN + (storePositions ? BYTES_PER_POSITION : 0));
+        }
+        return bytes;
+    }
+
+    private Path spill(Indexer partial) throws IOException {
+        partial.freeze();
+        List<String> terms = new ArrayList<>(partial.termCount());
+        List<PostingList> postings = new ArrayList<>(partial.termCount());
+        partial.forEachSortedTerm((term, list) -> {
+            terms.add(term);
+            postings.add(list);
+        });
+
+        Path segment = workDirectory.resolve("segment-" + nextSegment.getAndIncrement() + ".seg");
+        Metrics.global().time(Metrics.Phase.SPILL, () -> writeSegment(segment, partial, terms, postings));
+        return segment;
+    }
+
+    private void writeSegment(Path segment, Indexer partial, List<String> terms, List<PostingList> postings)
+            throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(segment), BUFFER_SIZE))) {
+            out.writeInt(partial.documentCount());
+            for (int doc = 0; doc < partial.documentCount(); doc++) {
+                SnapshotManifest.writeString(out, partial.documentName(doc));
+                out.writeInt(partial.documentLength(doc));
+            }
+
+            out.writeInt(terms.size());
+            for (int i = 0; i < terms.size(); i++) {
+                SnapshotManifest.writeString(out, terms.get(i));
+                PostingList list = postings.get(i);
+                out.writeInt(list.size());
+                PostingsIterator iterator = list.iterator();
+                for (int doc = iterator.nextDoc(); doc != DocIdIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                    out.writeInt(doc);
+                    out.writeByte(iterator.frequency());
+                }
+                if (storePositions)
+                    IndexSnapshot.writePositions(out, partial.termPositions(terms.get(i)));
+            }
+
+            if (storePositions)
+                writeSentences(out, partial);
+        }
+    }
+
+    private static void writeSentences(DataOutputStream out, Indexer partial) throws IOException {
+        for (int doc = 0; doc < partial.documentCount(); doc++) {
+            int[] table = partial.sentences(doc);
+            out.writeInt(table == null ? -1 : table.length);
+            if (table != null) {
+                for (int value : table)
+                    out.writeInt(value);
+            }
+        }
+    }
+
+    private void merge(List<Path> segments, IndexSnapshot snapshot, SnapshotManifest manifest) throws IOException {
+        List<SegmentReader> readers = new ArrayList<>(segments.size());
+        try {
+            for (int i = 0; i < segments.size(); i++)
+                readers.add(new SegmentReader(i, segments.get(i)));
+
+            Path temporary = snapshot.beginWrite();
+            long termCountPosition;
+            int termCount = 0;
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+                IndexSnapshot.writeHeader(out, storePositions, analyzer.name());
+                int documents = 0;
+                for (SegmentReader reader : readers) {
+                    reader.base = documents;
+                    documents += reader.docCount;
+                }
+                out.writeInt(documents);
+                for (SegmentReader reader : readers) {
+                    for (int doc = 0; doc < reader.docCount; doc++) {
+                        SnapshotManifest.writeString(out, SnapshotManifest.readString(reader.in));
+                        out.writeInt(reader.in.readInt());
+                    }
+                }
+
+                termCountPosition = out.size();
+                out.writeInt(0);
+                PriorityQueue<SegmentReader> queue = new PriorityQueue<>(Math.max(1, readers.size()),
+                        Comparator.comparing((SegmentReader reader) -> reader.term, TermDictionary::compareTerms)
+                                .thenComparingInt(reader -> reader.segment));
+                for (SegmentReader reader : readers) {
+                    reader.termsLeft = reader.in.readInt();
+                    if (reader.advance())
+                        queue.add(reader);
+                }
+
+                List<TermPositions> parts = new ArrayList<>();
+                List<SegmentReader> owners = new ArrayList<>();
+                while (!queue.isEmpty()) {
+                    String term = queue.peek().term;
+                    PostingList merged = new PostingList();
+                    parts.clear();
+                    owners.clear();
+                    while (!queue.isEmpty() && queue.peek().term.equals(term)) {
+                        SegmentReader reader = queue.poll();
+                        reader.readPostings(merged);
+                        if (storePositions) {
+                            parts.add(reader.readPositions());
+                            owners.add(reader);
+                        }
+                        if (reader.advance())
+                            queue.add(reader);
+                    }
+
+                    SnapshotManifest.writeString(out, term);
+                    IndexSnapshot.writePostings(out, merged);
+                    if (storePositions)
+                        IndexSnapshot.writePositions(out, concatenate(parts, owners));
+                    termCount++;
+                }
+
+                if (storePositions) {
+                    for (SegmentReader reader : readers) {
+                        for (int doc = 0; doc < reader.docCount; doc++) {
+                            int length = reader.in.readInt();
+                            out.writeInt(length);
+                            for (int i = 0; i < length; i++)
+                                out.writeInt(reader.in.readInt());
+                        }
+                    }
+                }
+            }
+
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, termCount), termCountPosition);
+            }
+            snapshot.commitWrite(temporary, manifest);
+        } finally {
+            for (SegmentReader reader : readers)
+                reader.close();
+        }
+    }
+
+    /**
+     * Joins the position lists of one term from consecutive segments, shifting
+     * document IDs and data offsets; the encoded positions are copied as is.
+     */
+    private static TermPositions concatenate(List<TermPositions> parts, List<SegmentReader> owners) {
+        int entries = 0;
+        int bytes = 0;
+        for (TermPositions part : parts) {
+            entries += part.docs().length;
+            bytes += part.data().length;
+        }
+        int[] docs = new int[entries];
+        int[] offsets = new int[entries];
+        byte[] data = new byte[bytes];
+        int entry = 0;
+        int position = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            TermPositions part = parts.get(i);
+            int base = owners.get(i).base;
+            for (int j = 0; j < part.docs().length; j++) {
+                docs[entry] = base + part.docs()[j];
+                offsets[entry++] = position + part.offsets()[j];
+            }
+            System.arraycopy(part.data(), 0, data, position, part.data().length);
+            position += part.data().length;
+        }
+        return TermPositions.of(docs, offsets, data);
+    }
+
+    private static int segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring("segment-".length(), name.length() - ".seg".length()));
+    }
+
+    /**
+     * Streams one segment from start to end while it is merged.
+     */
+    private static final class SegmentReader implements Closeable {
+        private final int segment;
+        private final DataInputStream in;
+        private final int docCount;
+        private int base;
+        private int termsLeft;
+        private String term;
+
+        SegmentReader(int segment, Path file) throws IOException {
+            this.segment = segment;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+            this.docCount = in.readInt();
+        }
+
+        /**
+         * Moves to the next term of the segment.
+         *
+         * @return {@code false} once the terms are exhausted.
+         */
+        boolean advance() throws IOException {
+            if (termsLeft == 0)
+                return false;
+            termsLeft--;
+            term = SnapshotManifest.readString(in);
+            return true;
+        }
+
+        void readPostings(PostingList target) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int doc = in.readInt();
+                target.add(base + doc, in.readUnsignedByte());
+            }
+        }
+
+        TermPositions readPositions() throws IOException {
+            int count = in.readInt();
+            int[] docs = new int[count];
+            int[] offsets = new int[count];
+            for (int i = 0; i < count; i++) {
+                docs[i] = in.readInt();
+                offsets[i] = in.readInt();
+            }
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            return TermPositions.of(docs, offsets, data);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
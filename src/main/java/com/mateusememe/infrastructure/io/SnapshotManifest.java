@@ -0,0 +1,239 @@
+package com.mateusememe.infrastructure.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Describes the state of a data directory at the moment an index was built:
+ * the path, size and modification time of every regular file in it.
+ * Two manifests are equal only when the directory holds exactly the same files
+ * with the same sizes and mtimes, which is what decides whether a persisted
+ * index snapshot can be reused.
+ */
+public class SnapshotManifest {
+    private static final int MAGIC = 0x5349544d; // "SITM"
+    private static final int FORMAT_VERSION = 1;
+
+    private final String rootDirectory;
+    private final List<Entry> entries;
+
+    /**
+     * A single file recorded in the manifest.
+     */
+    public static final class Entry {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+
+        /**
+         * @param path         The file path, as produced by walking the data
+         *                     directory.
+         * @param size         The file size in bytes.
+         * @param lastModified The modification time in milliseconds since the
+         *                     epoch.
+         */
+        public Entry(String path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other)
+                return true;
+            if (!(other instanceof Entry))
+                return false;
+            Entry entry = (Entry) other;
+            return size == entry.size && lastModified == entry.lastModified && path.equals(entry.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, size, lastModified);
+        }
+    }
+
+    /**
+     * Creates a manifest from already collected entries.
+     *
+     * @param rootDirectory The data directory the entries belong to.
+     * @param entries       The files of the directory, in any order.
+     */
+    public SnapshotManifest(String rootDirectory, List<Entry> entries) {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(Entry::getPath));
+        this.rootDirectory = rootDirectory;
+        this.entries = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * Walks the given directory and records every regular file found in it.
+     * Only file attributes are read, so this is much cheaper than loading the
+     * files themselves.
+     *
+     * @param directoryPath The data directory to scan.
+     * @return The manifest describing the directory's current state.
+     * @throws IOException if the directory cannot be walked.
+     */
+    public static SnapshotManifest scan(String directoryPath) throws IOException {
+        return scan(directoryPath, file -> true);
+    }
+
+    /**
+     * Same as {@link #scan(String)} but only records the files accepted by a
+     * filter, e.g. the files of one shard.
+     *
+     * @param directoryPath The data directory to scan.
+     * @param filter        Selects the files to record.
+     * @return The manifest describing the selected files' current state.
+     * @throws IOException if the directory cannot be walked.
+     */
+    public static SnapshotManifest scan(String directoryPath, Predicate<Path> filter) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(Paths.get(directoryPath))) {
+            paths.filter(filter).forEach(file -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (attributes.isRegularFile()) {
+                        entries.add(new Entry(file.toString(), attributes.size(),
+                                attributes.lastModifiedTime().toMillis()));
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+        return new SnapshotManifest(directoryPath, entries);
+    }
+
+    /**
+     * Reads a manifest previously written with {@link #write(Path)}.
+     *
+     * @param file The manifest file.
+     * @return The stored manifest, or {@code null} if the file does not exist or
+     *         is not a valid manifest.
+     * @throws IOException if the file exists but cannot be read.
+     */
+    public static SnapshotManifest read(Path file) throws IOException {
+        if (!Files.isRegularFile(file))
+            return null;
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION)
+                return null;
+
+            String rootDirectory = readString(buffer);
+            int count = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String path = readString(buffer);
+                entries.add(new Entry(path, buffer.getLong(), buffer.getLong()));
+            }
+            return new SnapshotManifest(rootDirectory, entries);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the manifest to disk. The file is written to a temporary sibling
+     * first and then moved into place, so readers never see a partial manifest.
+     *
+     * @param file The destination file.
+     * @throws IOException if the manifest cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, rootDirectory);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                writeString(out, entry.path);
+                out.writeLong(entry.size);
+                out.writeLong(entry.lastModified);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public String getRootDirectory() {
+        return rootDirectory;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof SnapshotManifest))
+            return false;
+        SnapshotManifest manifest = (SnapshotManifest) other;
+        return rootDirectory.equals(manifest.rootDirectory) && entries.equals(manifest.entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(rootDirectory, entries);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining())
+            throw new IllegalArgumentException("Invalid string length: " + length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            throw new IOException("Invalid string length: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
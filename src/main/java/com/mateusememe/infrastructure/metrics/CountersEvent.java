@@ -0,0 +1,37 @@
+package com.mateusememe.infrastructure.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Periodic JFR event with the current value of every {@link Metrics.Counter}.
+ */
+@Name("com.mateusememe.Counters")
+@Label("Counters")
+@Category("Search.it")
+@Description("Files, bytes, tokens, terms and postings indexed so far")
+@Period("1 s")
+@StackTrace(false)
+final class CountersEvent extends Event {
+    @Label("Files")
+    long files;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Tokens")
+    long tokens;
+
+    @Label("Terms")
+    long terms;
+
+    @Label("Postings")
+    long postings;
+}
@@ -0,0 +1,104 @@
+package com.mateusememe.infrastructure.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with HDR-style log-linear buckets.
+ * <p>
+ * Values below {@code 2^SUB_BUCKET_BITS} nanoseconds get a bucket each; above
+ * that every power of two is split into {@code 2^SUB_BUCKET_BITS} linear
+ * sub-buckets, so any recorded value is reported within about 1.6% whatever
+ * its magnitude, from nanoseconds to hours, in a fixed array of counters.
+ * Recording is one array increment plus a few adders and never allocates.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one measurement.
+     *
+     * @param nanos The duration in nanoseconds; negative values count as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        total.add(value);
+        if (value > max.get())
+            max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * @return The number of measurements.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The sum of all measurements, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return total.sum();
+    }
+
+    /**
+     * @return The largest measurement, in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * @return The mean measurement in nanoseconds, or 0 without measurements.
+     */
+    public double getMeanNanos() {
+        long measurements = getCount();
+        return measurements == 0 ? 0 : (double) getTotalNanos() / measurements;
+    }
+
+    /**
+     * Finds the value below which a given share of the measurements fall.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The highest value equivalent to the bucket holding that
+     *         percentile, capped at the maximum, or 0 without measurements.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long measurements = getCount();
+        if (measurements == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * measurements));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank)
+                return Math.min(highestValueOf(bucket), getMaxNanos());
+        }
+        return getMaxNanos();
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,321 @@
+package com.mateusememe.infrastructure.metrics;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Latency histograms per phase and counters of indexed data, shared by the
+ * whole process.
+ * <p>
+ * Every phase is timed with {@link #time}, or with a {@link Span} where the
+ * timed code does not fit in a lambda, which records into the phase's
+ * {@link LatencyHistogram} and emits a {@link PhaseEvent} when a JFR
+ * recording is running; the counters are also published as a periodic JFR
+ * event. Phases nest: {@code print} includes the {@code snippet} and
+ * {@code highlight} time of verbose output. Recording is always on, since it
+ * costs two {@link System#nanoTime()} calls per file or per query phase.
+ */
+public final class Metrics {
+
+    /**
+     * A timed phase of indexing or searching.
+     */
+    public enum Phase {
+        /** Listing the files of the data directory. */
+        WALK("walk"),
+        /** Reading a file's bytes. */
+        READ("read"),
+        /** Tokenizing a file and inserting its terms, done in one pass. */
+        INDEX("index"),
+        /** Appending a file's bytes to the document store, compression included. */
+        STORE("store"),
+        /** Writing a partial index to disk as a sorted segment. */
+        SPILL("spill"),
+        /** Merging partial indexes or segments and freezing the posting lists. */
+        MERGE("merge"),
+        /** Loading the index from its snapshot. */
+        SNAPSHOT("snapshot"),
+        /** Parsing and evaluating a query. */
+        SEARCH("search"),
+        /** Scoring the matches of a verbose query. */
+        RANK("rank"),
+        /** Extracting the snippet of one file. */
+        SNIPPET("snippet"),
+        /** Highlighting the terms of one snippet. */
+        HIGHLIGHT("highlight"),
+        /** Formatting and writing the results of a query. */
+        PRINT("print");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return The name used in reports.
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * A count of indexed data. Terms and postings are added when an index is
+     * loaded, so with several shards they are summed over all shards.
+     */
+    public enum Counter {
+        FILES("files"),
+        BYTES("bytes"),
+        TOKENS("tokens"),
+        TERMS("terms"),
+        POSTINGS("postings");
+
+        private final String label;
+
+        Counter(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return The name used in reports.
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * Code timed by {@link #time(Phase, Action)}.
+     *
+     * @param <T> The type of its result.
+     * @param <E> The checked exception it may throw, if any.
+     */
+    @FunctionalInterface
+    public interface Action<T, E extends Exception> {
+        /**
+         * @return The result.
+         * @throws E if the action fails.
+         */
+        T run() throws E;
+    }
+
+    /**
+     * Code without a result timed by {@link #time(Phase, Task)}.
+     *
+     * @param <E> The checked exception it may throw, if any.
+     */
+    @FunctionalInterface
+    public interface Task<E extends Exception> {
+        /**
+         * @throws E if the task fails.
+         */
+        void run() throws E;
+    }
+
+    private static final double[] PERCENTILES = { 50, 90, 99 };
+    private static final Metrics GLOBAL = new Metrics();
+
+    static {
+        FlightRecorder.addPeriodicEvent(CountersEvent.class, () -> {
+            CountersEvent event = new CountersEvent();
+            event.files = GLOBAL.get(Counter.FILES);
+            event.bytes = GLOBAL.get(Counter.BYTES);
+            event.tokens = GLOBAL.get(Counter.TOKENS);
+            event.terms = GLOBAL.get(Counter.TERMS);
+            event.postings = GLOBAL.get(Counter.POSTINGS);
+            event.commit();
+        });
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+    private final LongAdder[] counters = new LongAdder[Counter.values().length];
+
+    /**
+     * Creates an empty, independent set of metrics. The application records
+     * into {@link #global()}.
+     */
+    public Metrics() {
+        for (int i = 0; i < histograms.length; i++)
+            histograms[i] = new LatencyHistogram();
+        for (int i = 0; i < counters.length; i++)
+            counters[i] = new LongAdder();
+    }
+
+    /**
+     * @return The metrics of this process.
+     */
+    public static Metrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Starts timing a phase; close the span, typically with
+     * try-with-resources, when the phase ends.
+     *
+     * @param phase The phase.
+     * @return The running span.
+     */
+    public Span start(Phase phase) {
+        return new Span(phase);
+    }
+
+    /**
+     * Runs an action as one span of a phase.
+     *
+     * @param phase  The phase.
+     * @param action The action.
+     * @return What the action returns.
+     * @throws E if the action throws it; the span is recorded all the same.
+     */
+    public <T, E extends Exception> T time(Phase phase, Action<T, E> action) throws E {
+        Span span = start(phase);
+        try {
+            return action.run();
+        } finally {
+            span.close();
+        }
+    }
+
+    /**
+     * Runs a task as one span of a phase.
+     *
+     * @param phase The phase.
+     * @param task  The task.
+     * @throws E if the task throws it; the span is recorded all the same.
+     */
+    public <E extends Exception> void time(Phase phase, Task<E> task) throws E {
+        Span span = start(phase);
+        try {
+            task.run();
+        } finally {
+            span.close();
+        }
+    }
+
+    /**
+     * @param phase The phase.
+     * @return The latencies recorded for the phase.
+     */
+    public LatencyHistogram histogram(Phase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    /**
+     * @param counter The counter.
+     * @param delta   The amount to add.
+     */
+    public void add(Counter counter, long delta) {
+        counters[counter.ordinal()].add(delta);
+    }
+
+    /**
+     * @param counter The counter.
+     * @return Its current value.
+     */
+    public long get(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    /**
+     * Writes a table with the calls, total, mean, percentiles and maximum of
+     * every phase that ran, in milliseconds, followed by the counters.
+     *
+     * @param out The stream to write to.
+     */
+    public void printReport(PrintStream out) {
+        StringBuilder report = new StringBuilder("Estatísticas (ms):\n");
+        report.append(String.format(Locale.ROOT, "%-10s %9s %12s %10s %10s %10s %10s %10s%n", "fase", "chamadas",
+                "total", "média", "p50", "p90", "p99", "máximo"));
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram histogram = histogram(phase);
+            if (histogram.getCount() == 0)
+                continue;
+            report.append(String.format(Locale.ROOT, "%-10s %9d %12.3f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    phase.getLabel(), histogram.getCount(), millis(histogram.getTotalNanos()),
+                    histogram.getMeanNanos() / 1_000_000.0, millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(90)), millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getMaxNanos())));
+        }
+        report.append("Contadores:");
+        for (Counter counter : Counter.values())
+            report.append(' ').append(counter.getLabel()).append('=').append(get(counter));
+        out.println(report);
+        out.flush();
+    }
+
+    /**
+     * Renders the metrics in the Prometheus text exposition format: a
+     * {@code summary} of seconds per phase, a gauge with each phase's
+     * maximum and one series per counter.
+     *
+     * @return The exposition text.
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder(4096);
+        text.append("# HELP searchit_phase_seconds Time spent per phase.\n");
+        text.append("# TYPE searchit_phase_seconds summary\n");
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram histogram = histogram(phase);
+            for (double percentile : PERCENTILES) {
+                text.append("searchit_phase_seconds{phase=\"").append(phase.getLabel()).append("\",quantile=\"")
+                        .append(percentile / 100).append("\"} ")
+                        .append(seconds(histogram.getValueAtPercentile(percentile))).append('\n');
+            }
+            text.append("searchit_phase_seconds_sum{phase=\"").append(phase.getLabel()).append("\"} ")
+                    .append(seconds(histogram.getTotalNanos())).append('\n');
+            text.append("searchit_phase_seconds_count{phase=\"").append(phase.getLabel()).append("\"} ")
+                    .append(histogram.getCount()).append('\n');
+        }
+        text.append("# HELP searchit_phase_max_seconds Longest run of each phase.\n");
+        text.append("# TYPE searchit_phase_max_seconds gauge\n");
+        for (Phase phase : Phase.values()) {
+            text.append("searchit_phase_max_seconds{phase=\"").append(phase.getLabel()).append("\"} ")
+                    .append(seconds(histogram(phase).getMaxNanos())).append('\n');
+        }
+        for (Counter counter : Counter.values()) {
+            String name = "searchit_" + counter.getLabel() + "_total";
+            text.append("# TYPE ").append(name).append(" counter\n");
+            text.append(name).append(' ').append(get(counter)).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1_000_000_000.0);
+    }
+
+    /**
+     * A running measurement of one phase.
+     */
+    public final class Span implements AutoCloseable {
+        private final Phase phase;
+        private final PhaseEvent event = new PhaseEvent();
+        private final long start;
+
+        private Span(Phase phase) {
+            this.phase = phase;
+            event.begin();
+            start = System.nanoTime();
+        }
+
+        /**
+         * Records the elapsed time of the phase.
+         */
+        @Override
+        public void close() {
+            histogram(phase).record(System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.phase = phase.getLabel();
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.mateusememe.infrastructure.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning one timed {@link Metrics.Phase}, so a recording shows
+ * where indexing and searching spend their time next to GC and I/O events.
+ */
+@Name("com.mateusememe.Phase")
+@Label("Phase")
+@Category("Search.it")
+@Description("A timed phase of indexing or searching")
+@StackTrace(false)
+final class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+}
@@ -0,0 +1,67 @@
+package com.mateusememe.infrastructure.shard;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.mateusememe.application.usecase.SearchMovies;
+import com.mateusememe.domain.entity.Indexer;
+import com.mateusememe.domain.ranking.Bm25Ranker;
+import com.mateusememe.domain.ranking.CollectionStatistics;
+import com.mateusememe.domain.ranking.ScoredDocument;
+import com.mateusememe.infrastructure.io.MovieFileReader;
+import com.mateusememe.infrastructure.io.OutputPrinter;
+import com.mateusememe.infrastructure.metrics.Metrics;
+
+/**
+ * A shard whose index lives in this process. Verbose results are ranked with
+ * the statistics sent in the request, or the shard's own when there are none.
+ */
+public class LocalShard implements Shard {
+    private final SearchMovies searchMovies;
+    private final Indexer indexer;
+    private final MovieFileReader movieFileReader;
+    private final Bm25Ranker ranker;
+
+    /**
+     * @param searchMovies    The search use case over the shard's index.
+     * @param indexer         The shard's index, used for ranking.
+     * @param movieFileReader The reader used for snippets.
+     */
+    public LocalShard(SearchMovies searchMovies, Indexer indexer, MovieFileReader movieFileReader) {
+        this.searchMovies = searchMovies;
+        this.indexer = indexer;
+        this.movieFileReader = movieFileReader;
+        this.ranker = new Bm25Ranker(indexer);
+    }
+
+    @Override
+    public ShardResult search(ShardRequest request) {
+        SearchMovies.Result found = Metrics.global().time(Metrics.Phase.SEARCH, () -> searchMovies
+                .search(request.getQuery(), request.isPhrase(), request.getSlop(), request.getFuzzy()));
+        Set<String> result = found.getFiles();
+
+        if (!request.isVerbose()) {
+            List<ScoredDocument> documents = new ArrayList<>();
+            for (String name : OutputPrinter.firstByName(result, request.getLimit()))
+                documents.add(new ScoredDocument(name, 0, 0));
+            return new ShardResult(result.size(), documents, Map.of());
+        }
+
+        String[] matchedTerms = indexer.expandAll(found.getTerms(), request.getFuzzy());
+        List<ScoredDocument> ranked = Metrics.global().time(Metrics.Phase.RANK,
+                () -> ranker.topK(result, matchedTerms, request.getLimit(), request.getStatistics()));
+        Map<String, String> snippets = new HashMap<>();
+        for (ScoredDocument document : ranked)
+            snippets.put(document.name(), movieFileReader.getSnippet(document.name(), matchedTerms));
+        return new ShardResult(result.size(), ranked, snippets);
+    }
+
+    @Override
+    public CollectionStatistics statistics(ShardRequest request) {
+        String[] terms = searchMovies.queryTerms(request.getQuery(), request.isPhrase());
+        return CollectionStatistics.of(indexer, indexer.expandAll(terms, request.getFuzzy()));
+    }
+}
@@ -0,0 +1,112 @@
+package com.mateusememe.infrastructure.shard;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mateusememe.domain.ranking.CollectionStatistics;
+import com.mateusememe.domain.ranking.ScoredDocument;
+import com.mateusememe.infrastructure.http.SearchServer;
+
+/**
+ * A shard served by another process running {@link SearchServer}, usually
+ * started with {@code --serve --shard i/n}. Requests use the TSV format, one
+ * line per file, and read the total from the
+ * {@value SearchServer#TOTAL_HEADER} header. Statistics come from
+ * {@code /statistics} and are sent back in the {@code stats} parameter.
+ */
+public class RemoteShard implements Shard {
+    private final HttpClient client;
+    private final URI base;
+
+    /**
+     * @param client  The client used for every request; it may be shared.
+     * @param address The shard's address, e.g. {@code localhost:8081} or
+     *                {@code http://localhost:8081}.
+     */
+    public RemoteShard(HttpClient client, String address) {
+        this.client = client;
+        this.base = URI.create(address.contains("://") ? address : "http://" + address);
+    }
+
+    @Override
+    public ShardResult search(ShardRequest request) throws IOException {
+        String uri = base.resolve("/search") + "?format=tsv&q=" + encode(request.getQuery()) + "&l="
+                + request.getLimit() + "&v=" + request.isVerbose() + "&p=" + request.isPhrase() + "&slop="
+                + request.getSlop() + "&fuzzy=" + request.getFuzzy();
+        if (request.getStatistics() != null)
+            uri += "&stats=" + encode(SearchServer.formatStatistics(request.getStatistics()));
+        HttpResponse<String> response = get(uri);
+
+        int total = Integer.parseInt(response.headers().firstValue(SearchServer.TOTAL_HEADER)
+                .orElseThrow(() -> new IOException("Shard " + base + " did not send a total")));
+        List<ScoredDocument> documents = new ArrayList<>();
+        Map<String, String> snippets = new HashMap<>();
+        for (String line : response.body().lines().toList()) {
+            if (line.isEmpty())
+                continue;
+            String[] fields = line.split("\t", -1);
+            if (!request.isVerbose()) {
+                documents.add(new ScoredDocument(fields[1], 0, 0));
+                continue;
+            }
+            documents.add(new ScoredDocument(fields[1], Double.parseDouble(fields[3]), Integer.parseInt(fields[2])));
+            snippets.put(fields[1], fields[4]);
+        }
+        return new ShardResult(total, documents, snippets);
+    }
+
+    @Override
+    public CollectionStatistics statistics(ShardRequest request) throws IOException {
+        HttpResponse<String> response = get(base.resolve("/statistics") + "?q=" + encode(request.getQuery())
+                + "&p=" + request.isPhrase() + "&fuzzy=" + request.getFuzzy());
+        try {
+            return SearchServer.parseStatistics(response.body());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Shard " + base + " sent malformed statistics: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sends a request and checks its status.
+     *
+     * @throws IllegalArgumentException if the shard rejected the query.
+     */
+    private HttpResponse<String> get(String uri) throws IOException {
+        HttpResponse<String> response;
+        try {
+            response = client.send(HttpRequest.newBuilder(URI.create(uri)).build(),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while querying shard " + base, e);
+        }
+        if (response.statusCode() == 400)
+            throw new IllegalArgumentException(errorMessage(response.body()));
+        if (response.statusCode() != 200)
+            throw new IOException("Shard " + base + " answered HTTP " + response.statusCode());
+        return response;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Extracts the message of a {@code {"error":"..."}} body.
+     */
+    private static String errorMessage(String body) {
+        String prefix = "{\"error\":\"";
+        if (!body.startsWith(prefix) || !body.endsWith("\"}"))
+            return body;
+        return body.substring(prefix.length(), body.length() - 2).replace("\\\"", "\"").replace("\\\\", "\\");
+    }
+}
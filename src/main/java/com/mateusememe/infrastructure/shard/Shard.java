@@ -0,0 +1,36 @@
+package com.mateusememe.infrastructure.shard;
+
+import java.io.IOException;
+
+import com.mateusememe.domain.ranking.CollectionStatistics;
+
+/**
+ * One partition of a sharded index, searched by a {@link ShardCoordinator}.
+ * Implementations must allow concurrent searches.
+ */
+public interface Shard {
+    /**
+     * Searches this shard.
+     *
+     * @param request The query.
+     * @return The shard's total and at most {@link ShardRequest#getLimit()} of
+     *         its best files.
+     * @throws IOException              if the shard cannot be reached.
+     * @throws IllegalArgumentException if the query is invalid.
+     * @throws IllegalStateException    if the shard cannot run the query, e.g.
+     *                                  a phrase without positions.
+     */
+    ShardResult search(ShardRequest request) throws IOException;
+
+    /**
+     * Collects the ranking statistics of this shard for a query: its document
+     * count and total length, and the document frequency of every indexed
+     * term the query words expand to here.
+     *
+     * @param request The query.
+     * @return The shard's statistics.
+     * @throws IOException              if the shard cannot be reached.
+     * @throws IllegalArgumentException if the query is invalid.
+     */
+    CollectionStatistics statistics(ShardRequest request) throws IOException;
+}
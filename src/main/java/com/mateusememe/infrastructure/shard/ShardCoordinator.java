@@ -0,0 +1,187 @@
+package com.mateusememe.infrastructure.shard;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import com.mateusememe.domain.ranking.CollectionStatistics;
+import com.mateusememe.domain.ranking.ScoredDocument;
+
+/**
+ * Scatter-gather front of a sharded index.
+ * <p>
+ * The data directory is partitioned by a stable hash of each file's path, so
+ * every process computes the same assignment without coordination. A query
+ * is sent to all shards at once; each answers with its total and at most
+ * {@code limit} files, already sorted, and the coordinator merges those
+ * sorted lists with a heap until the global limit is reached. Simple results
+ * merge by name and verbose ones by score, then name, which is the order
+ * {@link com.mateusememe.domain.ranking.Bm25Ranker} uses.
+ * <p>
+ * A verbose query takes two rounds: every shard first reports its document
+ * count, total length and the document frequencies of the terms the query
+ * expands to, and the sums are sent with the search, so each shard scores
+ * with the statistics of the whole collection. A file therefore gets the
+ * same score, and the top results the same order, as in a single index.
+ */
+public class ShardCoordinator implements AutoCloseable {
+    private static final Comparator<ScoredDocument> BY_NAME = Comparator.comparing(ScoredDocument::name);
+    private static final Comparator<ScoredDocument> BEST_FIRST = Comparator
+            .comparingDouble(ScoredDocument::score).reversed()
+            .thenComparing(ScoredDocument::name);
+
+    private final List<Shard> shards;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param shards The shards, at least one.
+     */
+    public ShardCoordinator(List<Shard> shards) {
+        if (shards.isEmpty())
+            throw new IllegalArgumentException("A coordinator needs at least one shard");
+        this.shards = List.copyOf(shards);
+    }
+
+    /**
+     * @param path   A file path as stored in the index.
+     * @param shards The number of shards.
+     * @return The shard the file belongs to, in {@code [0, shards)}.
+     */
+    public static int shardOf(String path, int shards) {
+        return Math.floorMod(path.hashCode(), shards);
+    }
+
+    /**
+     * @param shard  The shard number.
+     * @param shards The number of shards.
+     * @return A filter accepting the files of that shard.
+     */
+    public static Predicate<Path> partition(int shard, int shards) {
+        return file -> shardOf(file.toString(), shards) == shard;
+    }
+
+    /**
+     * @return The number of shards.
+     */
+    public int size() {
+        return shards.size();
+    }
+
+    /**
+     * Runs a query on every shard in parallel and merges their answers.
+     *
+     * @param request The query.
+     * @return The total over all shards and the best {@code limit} files.
+     * @throws IOException              if a shard cannot be reached.
+     * @throws IllegalArgumentException if the query is invalid.
+     * @throws IllegalStateException    if a shard cannot run the query.
+     */
+    public ShardResult search(ShardRequest request) throws IOException {
+        ShardRequest sent = request.isVerbose() && shards.size() > 1
+                ? request.withStatistics(CollectionStatistics.sum(scatter(shard -> shard.statistics(request))))
+                : request;
+        List<ShardResult> partials = scatter(shard -> shard.search(sent));
+        return merge(partials, request.getLimit(), request.isVerbose() ? BEST_FIRST : BY_NAME);
+    }
+
+    /**
+     * Runs a call on every shard in parallel.
+     *
+     * @return The answers, in shard order.
+     */
+    private <T> List<T> scatter(ShardCall<T> call) throws IOException {
+        List<Future<T>> pending = new ArrayList<>(shards.size());
+        for (Shard shard : shards)
+            pending.add(executor.submit(() -> call.apply(shard)));
+
+        List<T> answers = new ArrayList<>(shards.size());
+        try {
+            for (Future<T> future : pending)
+                answers.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while querying shards", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException("Shard query failed", cause);
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
+        return answers;
+    }
+
+    /**
+     * K-way merge of sorted partial results, stopping at {@code limit}.
+     */
+    static ShardResult merge(List<ShardResult> partials, int limit, Comparator<ScoredDocument> order) {
+        int total = 0;
+        Map<String, String> allSnippets = new HashMap<>();
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(partials.size(),
+                (a, b) -> order.compare(a.current(), b.current()));
+        for (ShardResult partial : partials) {
+            total += partial.getTotal();
+            allSnippets.putAll(partial.getSnippets());
+            if (!partial.getDocuments().isEmpty())
+                heads.add(new Cursor(partial.getDocuments()));
+        }
+
+        List<ScoredDocument> merged = new ArrayList<>();
+        Map<String, String> snippets = new HashMap<>();
+        while (merged.size() < limit && !heads.isEmpty()) {
+            Cursor head = heads.poll();
+            ScoredDocument document = head.current();
+            merged.add(document);
+            if (allSnippets.containsKey(document.name()))
+                snippets.put(document.name(), allSnippets.get(document.name()));
+            if (head.advance())
+                heads.add(head);
+        }
+        return new ShardResult(total, merged, snippets);
+    }
+
+    /**
+     * Stops the threads that wait for shards.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A request to one shard.
+     */
+    private interface ShardCall<T> {
+        T apply(Shard shard) throws IOException;
+    }
+
+    private static final class Cursor {
+        private final List<ScoredDocument> documents;
+        private int index;
+
+        Cursor(List<ScoredDocument> documents) {
+            this.documents = documents;
+        }
+
+        ScoredDocument current() {
+            return documents.get(index);
+        }
+
+        boolean advance() {
+            return ++index < documents.size();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.mateusememe.infrastructure.shard;
+
+import com.mateusememe.domain.ranking.CollectionStatistics;
+
+/**
+ * A query as it is sent to every shard.
+ */
+public final class ShardRequest {
+    private final String query;
+    private final int limit;
+    private final boolean verbose;
+    private final boolean phrase;
+    private final int slop;
+    private final int fuzzy;
+    private final CollectionStatistics statistics;
+
+    /**
+     * @param query   The query as typed by the user.
+     * @param limit   The maximum number of results wanted overall, which is
+     *                also the most any single shard can contribute.
+     * @param verbose Whether results are ranked and carry snippets; otherwise
+     *                they are listed by name.
+     * @param phrase  Whether the query is a phrase.
+     * @param slop    The phrase slop.
+     * @param fuzzy   The edit distance allowed per query word.
+     */
+    public ShardRequest(String query, int limit, boolean verbose, boolean phrase, int slop, int fuzzy) {
+        this(query, limit, verbose, phrase, slop, fuzzy, null);
+    }
+
+    private ShardRequest(String query, int limit, boolean verbose, boolean phrase, int slop, int fuzzy,
+            CollectionStatistics statistics) {
+        this.query = query;
+        this.limit = limit;
+        this.verbose = verbose;
+        this.phrase = phrase;
+        this.slop = slop;
+        this.fuzzy = fuzzy;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @param statistics The statistics of the whole collection.
+     * @return The same query, ranked with the given statistics instead of
+     *         each shard's own.
+     */
+    public ShardRequest withStatistics(CollectionStatistics statistics) {
+        return new ShardRequest(query, limit, verbose, phrase, slop, fuzzy, statistics);
+    }
+
+    /**
+     * @return The query as typed by the user.
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * @return The maximum number of results wanted.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return Whether results are ranked and carry snippets.
+     */
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    /**
+     * @return Whether the query is a phrase.
+     */
+    public boolean isPhrase() {
+        return phrase;
+    }
+
+    /**
+     * @return The phrase slop.
+     */
+    public int getSlop() {
+        return slop;
+    }
+
+    /**
+     * @return The edit distance allowed per query word.
+     */
+    public int getFuzzy() {
+        return fuzzy;
+    }
+
+    /**
+     * @return The statistics verbose results are ranked with, or {@code null}
+     *         for each shard's own.
+     */
+    public CollectionStatistics getStatistics() {
+        return statistics;
+    }
+}
@@ -0,0 +1,74 @@
+package com.mateusememe.infrastructure.shard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.mateusememe.domain.ranking.ScoredDocument;
+import com.mateusememe.infrastructure.io.OutputPrinter;
+
+/**
+ * The answer of one shard, or the merged answer of all of them.
+ */
+public final class ShardResult {
+    private final int total;
+    private final List<ScoredDocument> documents;
+    private final Map<String, String> snippets;
+
+    /**
+     * @param total     The number of matching files, including the ones not
+     *                  returned.
+     * @param documents The returned files: by name for simple requests, best
+     *                  first for verbose ones, where they are scored.
+     * @param snippets  The snippet of every returned file for verbose
+     *                  requests, empty otherwise.
+     */
+    public ShardResult(int total, List<ScoredDocument> documents, Map<String, String> snippets) {
+        this.total = total;
+        this.documents = Collections.unmodifiableList(documents);
+        this.snippets = Collections.unmodifiableMap(snippets);
+    }
+
+    /**
+     * @return The number of matching files.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The returned files, in order.
+     */
+    public List<ScoredDocument> getDocuments() {
+        return documents;
+    }
+
+    /**
+     * @return The snippets of the returned files, by file name.
+     */
+    public Map<String, String> getSnippets() {
+        return snippets;
+    }
+
+    /**
+     * Prints this result like a search of a single index would be printed.
+     *
+     * @param printer     The printer.
+     * @param searchQuery The query as displayed.
+     * @param searchTerms The terms highlighted in verbose snippets.
+     * @param verbose     Whether to print the verbose format.
+     * @param searchTime  The time taken by the search, in milliseconds.
+     */
+    public void print(OutputPrinter printer, String searchQuery, String[] searchTerms, boolean verbose,
+            double searchTime) {
+        if (verbose) {
+            printer.printVerbose(total, documents, snippets::get, searchQuery, searchTerms, searchTime);
+            return;
+        }
+        List<String> files = new ArrayList<>(documents.size());
+        for (ScoredDocument document : documents)
+            files.add(document.name());
+        printer.printSimple(total, files, searchQuery, searchTime);
+    }
+}
@@ -0,0 +1,110 @@
+package com.mateusememe.application.usecase;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class QueryCacheTest {
+
+    private static Set<String> files(String... names) {
+        return new LinkedHashSet<>(List.of(names));
+    }
+
+    @Test
+    @DisplayName("Conjunction keys should ignore term order, case and repetitions")
+    void testConjunctionKey() {
+        assertEquals(QueryCache.conjunctionKey(new String[] { "star", "wars" }),
+                QueryCache.conjunctionKey(new String[] { "Wars", "star", "wars" }));
+        assertNotEquals(QueryCache.conjunctionKey(new String[] { "star", "wars" }),
+                QueryCache.phraseKey(new String[] { "star", "wars" }, 0));
+        assertNotEquals(QueryCache.phraseKey(new String[] { "star", "wars" }, 0),
+                QueryCache.phraseKey(new String[] { "wars", "star" }, 0));
+        assertNotEquals(QueryCache.phraseKey(new String[] { "star", "wars" }, 0),
+                QueryCache.phraseKey(new String[] { "star", "wars" }, 1));
+    }
+
+    @Test
+    @DisplayName("get should count hits and misses")
+    void testGet_Counters() {
+        QueryCache cache = new QueryCache(100);
+        assertNull(cache.get("a", 1));
+        Set<String> shared = cache.put("a", files("x.txt"), 1);
+
+        assertSame(shared, cache.get("a", 1));
+        assertSame(shared, cache.get("a", 1));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertThrows(UnsupportedOperationException.class, () -> shared.add("y.txt"));
+    }
+
+    @Test
+    @DisplayName("A new generation should drop every entry and reject stale results")
+    void testGeneration() {
+        QueryCache cache = new QueryCache(100);
+        cache.put("a", files("x.txt"), 1);
+
+        assertNull(cache.get("a", 2));
+        assertEquals(0, cache.size());
+        cache.put("b", files("y.txt"), 1);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Entries beyond the weight limit should be evicted unless used since the clock last passed")
+    void testEviction() {
+        QueryCache cache = new QueryCache(6);
+        cache.put("a", files("1", "2"), 1);
+        cache.put("b", files("3"), 1);
+        cache.get("a", 1);
+        cache.put("c", files("4", "5"), 1);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b", 1));
+        cache.put("huge", files("1", "2", "3", "4", "5", "6"), 1);
+        assertNull(cache.get("huge", 1));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    @DisplayName("Concurrent lookups and stores should count every access and respect the weight limit")
+    void testConcurrentAccess() throws Exception {
+        QueryCache cache = new QueryCache(50);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        String key = "q" + (i * 31 + seed) % 40;
+                        Set<String> result = cache.get(key, 1);
+                        if (result == null)
+                            cache.put(key, files(key, key + ".txt"), 1);
+                        else
+                            assertTrue(result.contains(key));
+                    }
+                }));
+            }
+            for (Future<?> task : tasks)
+                task.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(80_000, cache.getHits() + cache.getMisses());
+        assertTrue(cache.size() <= 50 / 3, "size " + cache.size());
+    }
+}
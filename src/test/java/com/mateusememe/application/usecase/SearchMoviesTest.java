@@ -3,6 +3,7 @@ package com.mateusememe.application.usecase;
 import java.util.Set;
 import java.util.TreeSet;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
@@ -63,4 +64,54 @@ class SearchMoviesTest {
 
         assertTrue(actualResults.isEmpty());
     }
+
+    @Test
+    @DisplayName("Cached searches should be answered from the cache until the index changes")
+    void shouldCacheResultsUntilIndexChanges() {
+        SearchMovies cached = new SearchMovies(indexer, new QueryCache(100));
+
+        assertEquals(Set.of("movie1.txt", "movie3.txt"), cached.execute(new String[] { "action", "movie" }));
+        assertEquals(Set.of("movie1.txt", "movie3.txt"), cached.execute(new String[] { "movie", "action" }));
+        assertEquals(1, cached.getCache().getHits());
+        assertEquals(1, cached.getCache().getMisses());
+
+        indexer.updateDocument("movie2.txt", "romantic action movie");
+        assertEquals(Set.of("movie1.txt", "movie2.txt", "movie3.txt"),
+                cached.execute(new String[] { "action", "movie" }));
+        indexer.removeDocument("movie1.txt");
+        assertEquals(Set.of("movie2.txt", "movie3.txt"), cached.execute(new String[] { "action", "movie" }));
+        assertEquals(3, cached.getCache().getMisses());
+    }
+
+    @Test
+    @DisplayName("Boolean queries should be planned and cached by their canonical form")
+    void shouldExecuteBooleanQueries() {
+        SearchMovies cached = new SearchMovies(indexer, new QueryCache(100));
+
+        assertEquals(Set.of("movie1.txt", "movie2.txt"), cached.execute("love OR (action -space)"));
+        assertEquals(Set.of("movie1.txt", "movie2.txt"), cached.execute("(NOT space action) OR love"));
+        assertEquals(1, cached.getCache().getHits());
+
+        Indexer positional = new Indexer(true);
+        positional.insert("movie3.txt", "sci-fi action movie in space");
+        assertEquals(Set.of("movie3.txt"), new SearchMovies(positional).execute("\"sci fi\" -love"));
+    }
+
+    @Test
+    @DisplayName("search should run a phrase or a boolean query and return its terms")
+    void shouldSearchPhraseOrBooleanQuery() {
+        Indexer positional = new Indexer(true);
+        positional.insert("movie1.txt", "action movie with great stunts");
+        positional.insert("movie3.txt", "sci-fi action movie in space");
+        SearchMovies search = new SearchMovies(positional);
+
+        SearchMovies.Result phrase = search.search("Action Movie", true, 0, 0);
+        assertEquals(Set.of("movie1.txt", "movie3.txt"), phrase.getFiles());
+        assertArrayEquals(new String[] { "action", "movie" }, phrase.getTerms());
+        assertEquals(Set.of(), search.search("movie action", true, 0, 0).getFiles());
+
+        SearchMovies.Result query = search.search("action -space", false, 0, 0);
+        assertEquals(Set.of("movie1.txt"), query.getFiles());
+        assertArrayEquals(new String[] { "action" }, query.getTerms());
+    }
 }
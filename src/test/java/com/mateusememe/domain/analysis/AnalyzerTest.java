@@ -0,0 +1,63 @@
+package com.mateusememe.domain.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AnalyzerTest {
+
+    private static String stem(String word) {
+        char[] chars = word.toCharArray();
+        return new String(chars, 0, new PortugueseLightStemmer().filter(chars, chars.length));
+    }
+
+    @Test
+    @DisplayName("fold should lowercase and strip diacritics without changing the length")
+    void testFold() {
+        assertEquals("acao e reacao, cafe*", Analyzer.fold("AÇÃO e Reação, Café*"));
+        assertEquals("ελληνικα", Analyzer.fold("Ελληνικά"));
+        assertEquals('o', Analyzer.fold('Ø'));
+        assertEquals(0, Analyzer.fold('-'));
+        assertEquals(Analyzer.IGNORABLE, Analyzer.fold('́'));
+        assertEquals("Ação".length(), Analyzer.fold("Ação").length());
+    }
+
+    @Test
+    @DisplayName("The stemmer should reduce Portuguese plurals and leave stems unchanged")
+    void testStemmer() {
+        String[][] cases = { { "filmes", "filme" }, { "acoes", "acao" }, { "paes", "pao" }, { "animais", "animal" },
+                { "papeis", "papel" }, { "viagens", "viagem" }, { "flores", "flor" }, { "vozes", "voz" },
+                { "casas", "casa" }, { "gatos", "gato" }, { "lapis", "lapis" }, { "mes", "mes" } };
+        for (String[] c : cases) {
+            assertEquals(c[1], stem(c[0]), c[0]);
+            assertEquals(c[1], stem(c[1]), c[1]);
+        }
+    }
+
+    @Test
+    @DisplayName("StopFilter should match folded stopwords only")
+    void testStopFilter() {
+        StopFilter filter = new StopFilter(StopFilter.PORTUGUESE);
+
+        assertTrue(filter.contains("voce".toCharArray(), 4));
+        assertTrue(filter.contains("sao".toCharArray(), 3));
+        assertTrue(filter.contains("dasxyz".toCharArray(), 3));
+        assertFalse(filter.contains("filme".toCharArray(), 5));
+        assertEquals(0, filter.filter("nos".toCharArray(), 3));
+    }
+
+    @Test
+    @DisplayName("of should name each chain and apply its filters in order")
+    void testOf() {
+        assertEquals(Analyzer.STANDARD, Analyzer.of(false, false));
+        assertFalse(Analyzer.STANDARD.hasFilters());
+        assertEquals("standard+stop+stem", Analyzer.of(true, true).name());
+        assertArrayEquals(new String[] { "acao", "filme" },
+                Tokenizer.terms("As ações do filme", Analyzer.of(true, true)));
+        assertArrayEquals(new String[] { "as", "acao", "do", "filme" },
+                Tokenizer.terms("As ações do filme", Analyzer.of(false, true)));
+    }
+}
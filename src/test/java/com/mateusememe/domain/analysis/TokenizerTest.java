@@ -0,0 +1,92 @@
+package com.mateusememe.domain.analysis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TokenizerTest {
+
+    @Test
+    @DisplayName("Terms should match the former split(\"\\\\W+\") on lowercased text")
+    void testTerms_MatchesRegexSplit() {
+        String text = "Star Wars: Episode IV - A New_Hope (1977)... it's great!";
+        String[] expected = text.toLowerCase().split("\\W+");
+
+        assertArrayEquals(expected, Tokenizer.terms(text));
+    }
+
+    @Test
+    @DisplayName("Terms should skip leading and trailing separators")
+    void testTerms_NoEmptyTokens() {
+        assertArrayEquals(new String[]{"hello", "world"}, Tokenizer.terms("  --Hello, WORLD!! "));
+        assertArrayEquals(new String[0], Tokenizer.terms(" ... "));
+    }
+
+    @Test
+    @DisplayName("Byte tokenization should produce the same tokens as char tokenization")
+    void testTokenize_BytesMatchChars() {
+        String text = "Ação e Reação: o filme; Sequel 2";
+        List<String> fromChars = new ArrayList<>();
+        List<String> fromBytes = new ArrayList<>();
+        Tokenizer tokenizer = new Tokenizer();
+
+        tokenizer.tokenize(text, token -> fromChars.add(token.toString()));
+        tokenizer.tokenize(text.getBytes(StandardCharsets.UTF_8), token -> fromBytes.add(token.toString()));
+
+        assertEquals(fromChars, fromBytes);
+        assertEquals(List.of("acao", "e", "reacao", "o", "filme", "sequel", "2"), fromChars);
+    }
+
+    @Test
+    @DisplayName("Tokenization should keep Unicode letters together and fold case and accents")
+    void testTokenize_Unicode() {
+        String text = "CORAÇÃO naïve Ærø Straße, Ελληνικά кино 東京 𝐀lpha a\u0301gua";
+        String[] expected = { "coracao", "naive", "æro", "straße", "ελληνικα", "кино", "東京", "𝐀lpha", "agua" };
+        List<String> fromBytes = new ArrayList<>();
+        new Tokenizer().tokenize(text.getBytes(StandardCharsets.UTF_8), token -> fromBytes.add(token.toString()));
+
+        assertArrayEquals(expected, Tokenizer.terms(text));
+        assertEquals(List.of(expected), fromBytes);
+    }
+
+    @Test
+    @DisplayName("Byte tokenization should report byte offsets and treat malformed UTF-8 as a separator")
+    void testTokenize_BytesOffsetsAndMalformed() {
+        byte[] utf8 = { 'a', (byte) 0xC3, (byte) 0xA7, ' ', 'b', (byte) 0xFF, 'c', (byte) 0xE2, 'd' };
+        List<String> tokens = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        Tokenizer tokenizer = new Tokenizer();
+
+        tokenizer.tokenize(utf8, token -> {
+            tokens.add(token.toString());
+            starts.add(tokenizer.tokenStart());
+        });
+
+        assertEquals(List.of("ac", "b", "c", "d"), tokens);
+        assertEquals(List.of(0, 4, 6, 8), starts);
+    }
+
+    @Test
+    @DisplayName("The analyzer's filters should apply at index and query time alike, but not to patterns")
+    void testFilters_IndexAndQuery() {
+        Analyzer analyzer = Analyzer.of(true, true);
+        List<String> indexed = new ArrayList<>();
+        new Tokenizer(analyzer).tokenize("As Ações dos Animais e os Filmes", token -> indexed.add(token.toString()));
+
+        assertEquals(List.of("acao", "animal", "filme"), indexed);
+        assertArrayEquals(indexed.toArray(new String[0]), Tokenizer.queryTerms("ações DE animais, filmes", analyzer));
+        assertArrayEquals(new String[] { "filmes*", "acao" }, Tokenizer.queryTerms("Filmes* da ação", analyzer));
+    }
+
+    @Test
+    @DisplayName("Query terms should keep wildcards inside tokens")
+    void testQueryTerms_KeepsWildcards() {
+        assertArrayEquals(new String[]{"termin*", "f?o*", "star"}, Tokenizer.queryTerms("Termin* F?o*, star!"));
+        assertArrayEquals(Tokenizer.terms("Star Wars: Episode IV"), Tokenizer.queryTerms("Star Wars: Episode IV"));
+    }
+}
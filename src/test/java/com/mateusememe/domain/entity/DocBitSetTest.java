@@ -0,0 +1,62 @@
+package com.mateusememe.domain.entity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class DocBitSetTest {
+
+    @Test
+    @DisplayName("Range set should fill partial and whole words")
+    void testSetRange() {
+        DocBitSet bits = new DocBitSet(300);
+        bits.set(60, 200);
+
+        assertEquals(141, bits.cardinality());
+        assertFalse(bits.get(59));
+        assertTrue(bits.get(60));
+        assertTrue(bits.get(200));
+        assertFalse(bits.get(201));
+    }
+
+    @Test
+    @DisplayName("And, or and andNot should combine sets word by word")
+    void testBooleanOperations() {
+        DocBitSet left = new DocBitSet(200);
+        DocBitSet right = new DocBitSet(100);
+        left.set(1);
+        left.set(70);
+        left.set(150);
+        right.set(70);
+        right.set(99);
+
+        DocBitSet and = left.copy();
+        and.and(right);
+        DocBitSet or = left.copy();
+        or.or(right);
+        DocBitSet andNot = left.copy();
+        andNot.andNot(right);
+
+        assertArrayEquals(new int[]{70}, and.toArray());
+        assertArrayEquals(new int[]{1, 70, 99, 150}, or.toArray());
+        assertArrayEquals(new int[]{1, 150}, andNot.toArray());
+    }
+
+    @Test
+    @DisplayName("Iterator should walk set bits and honor advance")
+    void testIterator() {
+        DocBitSet bits = new DocBitSet(1_000);
+        bits.set(3);
+        bits.set(64);
+        bits.set(999);
+
+        DocIdIterator iterator = bits.iterator(-1);
+        assertEquals(3, iterator.cost());
+        assertEquals(3, iterator.nextDoc());
+        assertEquals(999, iterator.advance(65));
+        assertEquals(DocIdIterator.NO_MORE_DOCS, iterator.nextDoc());
+    }
+}
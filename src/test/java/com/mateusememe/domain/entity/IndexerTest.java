@@ -2,7 +2,11 @@ package com.mateusememe.domain.entity;
 
 import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -115,4 +119,249 @@ class IndexerTest {
         assertEquals(1, result.size());
         assertTrue(result.contains("file1.txt"));
     }
+
+    @Test
+    @DisplayName("Merge should combine postings from another index")
+    void testMerge() {
+        indexer.insert("file1.txt", "Hello world");
+        Indexer other = new Indexer();
+        other.insert("file2.txt", "Hello Java");
+
+        indexer.merge(other);
+
+        assertEquals(Set.of("file1.txt", "file2.txt"), indexer.search(new String[]{"hello"}));
+        assertEquals(Set.of("file2.txt"), indexer.search(new String[]{"java"}));
+    }
+
+    @Test
+    @DisplayName("Absorb should take over the tables of another index when empty and merge otherwise")
+    void testAbsorb() {
+        Indexer first = new Indexer(true);
+        first.insert("file1.txt", "new york new york");
+        long generation = indexer.generation();
+        Indexer positional = new Indexer(true);
+        positional.absorb(first);
+
+        assertEquals(0, first.documentCount());
+        assertEquals(Set.of(), first.search(new String[]{"york"}));
+        assertEquals(Set.of("file1.txt"), positional.search(new String[]{"york"}));
+
+        Indexer second = new Indexer(true);
+        second.insert("file2.txt", "york is new");
+        positional.absorb(second);
+        positional.freeze();
+
+        assertEquals(0, second.documentCount());
+        assertEquals(Set.of("file1.txt"), positional.searchPhrase(new String[]{"new", "york"}, 0));
+        assertEquals(Set.of("file2.txt"), positional.searchPhrase(new String[]{"york", "is", "new"}, 0));
+        assertEquals(Set.of("file1.txt", "file2.txt"), positional.search(new String[]{"new"}));
+
+        Indexer plain = new Indexer();
+        plain.insert("file3.txt", "hello");
+        indexer.absorb(plain);
+        assertTrue(indexer.generation() > generation);
+        assertEquals(Set.of("file3.txt"), indexer.search(new String[]{"hello"}));
+    }
+
+    @Test
+    @DisplayName("Search should not modify the index between queries")
+    void testSearch_DoesNotMutateIndex() {
+        indexer.insert("file1.txt", "star wars");
+        indexer.insert("file2.txt", "star trek");
+        indexer.insert("file3.txt", "wars of the worlds");
+        indexer.freeze();
+
+        assertEquals(Set.of("file1.txt"), indexer.search(new String[]{"star", "wars"}));
+        assertEquals(Set.of("file1.txt", "file2.txt"), indexer.search(new String[]{"star"}));
+        assertEquals(Set.of("file1.txt", "file3.txt"), indexer.search(new String[]{"wars"}));
+    }
+
+    @Test
+    @DisplayName("Search should combine dense and sparse terms correctly")
+    void testSearch_DenseAndSparseTerms() {
+        for (int i = 0; i < 1_000; i++) {
+            String content = "the movie" + (i % 2 == 0 ? " even" : "") + (i % 250 == 0 ? " rare" : "");
+            indexer.insert("file" + i + ".txt", content);
+        }
+        indexer.freeze();
+
+        assertEquals(Set.of("file0.txt", "file250.txt", "file500.txt", "file750.txt"),
+                indexer.search(new String[]{"the", "rare", "movie"}));
+        assertEquals(500, indexer.search(new String[]{"the", "even", "movie"}).size());
+        assertArrayEquals(new int[]{0, 250, 500, 750}, indexer.searchIds(new String[]{"rare", "even"}));
+    }
+
+    @Test
+    @DisplayName("SearchAnyIds should return the union of the terms' documents")
+    void testSearchAnyIds() {
+        indexer.insert("file1.txt", "star wars");
+        indexer.insert("file2.txt", "star trek");
+        indexer.insert("file3.txt", "the matrix");
+        indexer.freeze();
+
+        assertArrayEquals(new int[]{0, 1}, indexer.searchAnyIds(new String[]{"wars", "trek", "missing"}));
+    }
+
+    @Test
+    @DisplayName("Phrase search should only match adjacent terms in order")
+    void testSearchPhrase() {
+        Indexer positional = new Indexer(true);
+        positional.insert("file1.txt", "Star Wars: a new hope");
+        positional.insert("file2.txt", "wars among the stars, star trek");
+        positional.insert("file3.txt", "the star of the wars");
+        positional.freeze();
+
+        assertEquals(Set.of("file1.txt"), positional.searchPhrase(new String[]{"star", "wars"}, 0));
+        assertEquals(Set.of("file1.txt", "file3.txt"), positional.searchPhrase(new String[]{"star", "wars"}, 2));
+        assertTrue(positional.searchPhrase(new String[]{"wars", "star", "hope"}, 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Phrase search should keep working after merging positional indexes")
+    void testSearchPhrase_AfterMerge() {
+        Indexer positional = new Indexer(true);
+        positional.insert("file1.txt", "new york new york");
+        Indexer other = new Indexer(true);
+        other.insert("file2.txt", "york is new");
+        positional.merge(other);
+        positional.freeze();
+
+        assertEquals(Set.of("file1.txt"), positional.searchPhrase(new String[]{"new", "york"}, 0));
+        assertEquals(Set.of("file2.txt"), positional.searchPhrase(new String[]{"york", "is", "new"}, 0));
+    }
+
+    @Test
+    @DisplayName("Phrase search should fail on an index without positions")
+    void testSearchPhrase_WithoutPositions() {
+        indexer.insert("file1.txt", "star wars");
+
+        assertThrows(IllegalStateException.class, () -> indexer.searchPhrase(new String[]{"star", "wars"}, 0));
+    }
+
+    @Test
+    @DisplayName("Removed documents should disappear from every kind of search")
+    void testRemoveDocument() {
+        indexer.insert("file1.txt", "Hello world");
+        indexer.insert("file2.txt", "Hello Java");
+        indexer.insert("file3.txt", "Java world");
+        indexer.insert("file4.txt", "Hello again");
+        indexer.freeze();
+
+        assertTrue(indexer.removeDocument("file2.txt"));
+        assertFalse(indexer.removeDocument("file2.txt"));
+
+        assertEquals(Set.of("file1.txt", "file4.txt"), indexer.search(new String[]{"hello"}));
+        assertEquals(0, indexer.countOccurrences("file2.txt", new String[]{"hello"}));
+        assertEquals(-1, indexer.documentId("file2.txt"));
+        assertEquals(3, indexer.liveDocumentCount());
+        assertArrayEquals(new int[]{indexer.documentId("file3.txt")}, indexer.searchAnyIds(new String[]{"java"}));
+    }
+
+    @Test
+    @DisplayName("Updating a document should replace its terms and positions")
+    void testUpdateDocument() {
+        Indexer positional = new Indexer(true);
+        positional.insert("file1.txt", "star wars");
+        positional.insert("file2.txt", "star trek");
+        positional.insert("file3.txt", "wars of stars");
+        positional.insert("file4.txt", "lost in space");
+        positional.insert("file5.txt", "alien");
+        positional.freeze();
+
+        positional.updateDocument("file1.txt", "the empire strikes back. star wars again");
+
+        assertTrue(positional.search(new String[]{"empire"}).contains("file1.txt"));
+        assertEquals(Set.of("file1.txt"), positional.searchPhrase(new String[]{"star", "wars"}, 0));
+        int doc = positional.documentId("file1.txt");
+        assertArrayEquals(new int[]{4}, positional.termPositions("star").positions(doc));
+        assertEquals(7, positional.documentLength(doc));
+        assertArrayEquals(new int[]{25, 40}, positional.sentenceContaining(doc, 4));
+    }
+
+    @Test
+    @DisplayName("Compaction should purge removed documents and renumber the rest")
+    void testCompact() {
+        Indexer positional = new Indexer(true);
+        for (int i = 0; i < 8; i++)
+            positional.insert("file" + i + ".txt", "common words here. term" + i + " common");
+        positional.freeze();
+
+        positional.removeDocument("file1.txt");
+        positional.removeDocument("file4.txt");
+        assertEquals(8, positional.documentCount());
+        positional.removeDocument("file6.txt");
+
+        assertEquals(5, positional.documentCount());
+        assertEquals(5, positional.postings("common").size());
+        assertEquals(Set.of("file0.txt", "file2.txt", "file3.txt", "file5.txt", "file7.txt"),
+                positional.search(new String[]{"common"}));
+        assertEquals(Set.of("file7.txt"), positional.searchPhrase(new String[]{"term7", "common"}, 0));
+        assertTrue(positional.search(new String[]{"term4"}).isEmpty());
+        int doc = positional.documentId("file5.txt");
+        assertEquals(3, doc);
+        assertArrayEquals(new int[]{19, 31}, positional.sentenceContaining(doc, 4));
+    }
+
+    @Test
+    @DisplayName("The generation should change on every modification but not on searches")
+    void testGeneration() {
+        indexer.insert("file1.txt", "Hello world");
+        long afterInsert = indexer.generation();
+        indexer.search(new String[]{"hello"});
+        assertEquals(afterInsert, indexer.generation());
+
+        indexer.updateDocument("file1.txt", "Hello Java");
+        long afterUpdate = indexer.generation();
+        assertTrue(afterUpdate > afterInsert);
+        assertFalse(indexer.removeDocument("missing.txt"));
+        assertEquals(afterUpdate, indexer.generation());
+        assertTrue(indexer.removeDocument("file1.txt"));
+        assertTrue(indexer.generation() > afterUpdate);
+    }
+
+    @Test
+    @DisplayName("Wildcard terms should match the union of the terms they expand to")
+    void testSearch_Wildcards() {
+        Indexer positional = new Indexer(true);
+        positional.insert("file1.txt", "The terminal is open");
+        positional.insert("file2.txt", "Terminate the process");
+        positional.insert("file3.txt", "A term paper");
+        positional.insert("file4.txt", "The terminator returns");
+
+        assertEquals(Set.of("file1.txt", "file2.txt", "file4.txt"), positional.search(new String[]{"termin*"}));
+        assertEquals(Set.of("file2.txt", "file4.txt"), positional.search(new String[]{"termin?t*", "the"}));
+        assertEquals(Set.of("file2.txt"), positional.searchPhrase(new String[]{"termin*", "the"}, 0));
+        assertTrue(positional.search(new String[]{"zzz*"}).isEmpty());
+        assertArrayEquals(new String[]{"terminal", "terminate", "terminator", "term"},
+                positional.expandAll(new String[]{"termin*", "term"}));
+    }
+
+    @Test
+    @DisplayName("Patterns matching too many terms should be rejected")
+    void testSearch_TooManyExpansions() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i <= Indexer.MAX_EXPANSIONS; i++)
+            content.append("word").append(i).append(' ');
+        indexer.insert("file1.txt", content.toString());
+
+        assertThrows(IllegalArgumentException.class, () -> indexer.search(new String[]{"word*"}));
+        assertEquals(Set.of("file1.txt"), indexer.search(new String[]{"word10?"}));
+    }
+
+    @Test
+    @DisplayName("Fuzzy search should tolerate typos within the edit distance")
+    void testSearch_Fuzzy() {
+        Indexer positional = new Indexer(true);
+        positional.insert("file1.txt", "The Godfather returns");
+        positional.insert("file2.txt", "Godfathers of the galaxy");
+        positional.insert("file3.txt", "Star Wars");
+
+        assertTrue(positional.search(new String[]{"godfathr"}).isEmpty());
+        assertEquals(Set.of("file1.txt", "file2.txt"), positional.search(new String[]{"godfathr"}, 2));
+        assertEquals(Set.of("file1.txt"), positional.search(new String[]{"godfather", "retrns"}, 1));
+        assertEquals(Set.of("file3.txt"), positional.searchPhrase(new String[]{"starr", "wrs"}, 0, 1));
+        assertTrue(positional.search(new String[]{"wr"}, 2).isEmpty());
+        assertArrayEquals(new String[]{"godfather", "godfathers"}, positional.expandAll(new String[]{"godfathr"}, 2));
+        assertThrows(IllegalArgumentException.class, () -> positional.search(new String[]{"star"}, 3));
+    }
 }
@@ -0,0 +1,280 @@
+package com.mateusememe.domain.entity;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class PostingListTest {
+
+    private PostingList postings;
+
+    @BeforeEach
+    void setUp() {
+        postings = new PostingList();
+    }
+
+    @Test
+    @DisplayName("Add should keep IDs sorted and without duplicates")
+    void testAdd_SortedAndUnique() {
+        postings.add(5);
+        postings.add(5);
+        postings.add(9);
+        postings.add(2);
+        postings.add(9);
+
+        assertEquals(3, postings.size());
+        assertArrayEquals(new int[]{2, 5, 9}, postings.toArray());
+    }
+
+    @Test
+    @DisplayName("Freeze should round-trip IDs through the varint encoding")
+    void testFreeze_RoundTrip() {
+        int[] expected = {0, 1, 127, 128, 300, 16_384, 2_000_000, Integer.MAX_VALUE};
+        for (int doc : expected)
+            postings.add(doc);
+
+        postings.freeze();
+
+        assertTrue(postings.isFrozen());
+        assertArrayEquals(expected, postings.toArray());
+        assertArrayEquals(expected, PostingList.fromEncoded(postings.encoded(), expected.length).toArray());
+    }
+
+    @Test
+    @DisplayName("Contains should work on frozen lists")
+    void testContains_Frozen() {
+        postings.add(3);
+        postings.add(70);
+        postings.add(1_000);
+        postings.freeze();
+
+        assertTrue(postings.contains(70));
+        assertTrue(postings.contains(1_000));
+        assertFalse(postings.contains(4));
+        assertFalse(postings.contains(5_000));
+    }
+
+    @Test
+    @DisplayName("Add after freeze should decode the list and keep it consistent")
+    void testAdd_AfterFreeze() {
+        postings.add(1);
+        postings.add(10);
+        postings.freeze();
+
+        postings.add(5);
+
+        assertFalse(postings.isFrozen());
+        assertArrayEquals(new int[]{1, 5, 10}, postings.toArray());
+    }
+
+    @Test
+    @DisplayName("Cursor advance should agree with a linear scan on mutable and frozen lists")
+    void testIterator_Advance() {
+        Random random = new Random(42);
+        int doc = 0;
+        for (int i = 0; i < 5_000; i++) {
+            doc += 1 + random.nextInt(20);
+            postings.add(doc);
+        }
+        int[] expected = postings.toArray();
+        PostingList frozen = PostingList.fromEncoded(encode(expected), expected.length);
+        PostingList mutable = new PostingList();
+        for (int value : expected)
+            mutable.add(value);
+
+        for (PostingList list : new PostingList[]{mutable, frozen}) {
+            DocIdIterator iterator = list.iterator();
+            int target = 0;
+            while (true) {
+                target += random.nextInt(400);
+                int found = iterator.advance(target);
+                int index = Arrays.binarySearch(expected, target);
+                int insertion = index >= 0 ? index : -index - 1;
+                int want = insertion < expected.length ? expected[insertion] : DocIdIterator.NO_MORE_DOCS;
+                assertEquals(want, found);
+                if (found == DocIdIterator.NO_MORE_DOCS)
+                    break;
+                target = found;
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("NextDoc should visit every ID in order")
+    void testIterator_NextDoc() {
+        for (int doc = 0; doc < 1_000; doc += 3)
+            postings.add(doc);
+        postings.freeze();
+
+        DocIdIterator iterator = postings.iterator();
+        for (int doc = 0; doc < 1_000; doc += 3)
+            assertEquals(doc, iterator.nextDoc());
+        assertEquals(DocIdIterator.NO_MORE_DOCS, iterator.nextDoc());
+    }
+
+    @Test
+    @DisplayName("Freeze should pick the container that fits the term density")
+    void testFreeze_AdaptiveContainers() {
+        PostingList dense = new PostingList();
+        PostingList runs = new PostingList();
+        for (int doc = 0; doc < 10_000; doc++) {
+            if (doc % 3 != 0)
+                dense.add(doc);
+            if (doc < 4_000 || doc >= 9_000)
+                runs.add(doc);
+        }
+        postings.add(10);
+        postings.add(5_000);
+        postings.add(9_999);
+
+        dense.freeze();
+        runs.freeze();
+        postings.freeze();
+
+        assertEquals(PostingList.Encoding.BITMAP, dense.encoding());
+        assertEquals(PostingList.Encoding.RUNS, runs.encoding());
+        assertEquals(PostingList.Encoding.VARINT, postings.encoding());
+        assertEquals(5_000, runs.size());
+        assertTrue(dense.contains(9_998));
+        assertFalse(dense.contains(9_999));
+        assertTrue(runs.contains(9_000));
+        assertFalse(runs.contains(4_000));
+    }
+
+    @Test
+    @DisplayName("Cursors of every container should agree with a linear scan")
+    void testIterator_AllContainers() {
+        Random random = new Random(7);
+        int[] expected = new int[3_000];
+        int doc = 0;
+        for (int i = 0; i < expected.length; i++) {
+            doc += random.nextInt(10) < 8 ? 1 : 2 + random.nextInt(30);
+            expected[i] = doc;
+        }
+        PostingList bitmap = new PostingList();
+        for (int value : expected)
+            bitmap.add(value);
+        bitmap.freeze();
+        PostingList[] lists = {
+                bitmap,
+                PostingList.fromBitmap(toWords(expected), expected.length),
+                runsOf(expected),
+                PostingList.fromEncoded(encode(expected), expected.length)
+        };
+
+        for (PostingList list : lists) {
+            assertArrayEquals(expected, list.toArray());
+            DocIdIterator iterator = list.iterator();
+            int target = 0;
+            while (true) {
+                target += random.nextInt(60);
+                int found = iterator.advance(target);
+                int index = Arrays.binarySearch(expected, target);
+                int insertion = index >= 0 ? index : -index - 1;
+                assertEquals(insertion < expected.length ? expected[insertion] : DocIdIterator.NO_MORE_DOCS, found);
+                if (found == DocIdIterator.NO_MORE_DOCS)
+                    break;
+                if (random.nextBoolean()) {
+                    int next = iterator.nextDoc();
+                    assertEquals(insertion + 1 < expected.length ? expected[insertion + 1] : DocIdIterator.NO_MORE_DOCS,
+                            next);
+                    if (next == DocIdIterator.NO_MORE_DOCS)
+                        break;
+                    target = next;
+                } else {
+                    target = found;
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Term frequencies should follow their postings into every container")
+    void testFrequency_AllContainers() {
+        PostingList dense = new PostingList();
+        PostingList runs = new PostingList();
+        for (int doc = 0; doc < 10_000; doc++) {
+            if (doc % 3 != 0)
+                dense.add(doc, doc % 7 + 1);
+            if (doc < 4_000 || doc >= 9_000)
+                runs.add(doc, doc % 7 + 1);
+        }
+        postings.add(10, 10 % 7 + 1);
+        postings.add(5_000, 5_000 % 7 + 1);
+        postings.add(9_999, 9_999 % 7 + 1);
+
+        for (PostingList list : new PostingList[] { dense, runs, postings }) {
+            list.freeze();
+            PostingsIterator iterator = list.iterator();
+            for (int doc = iterator.nextDoc(); doc != DocIdIterator.NO_MORE_DOCS; doc = iterator.nextDoc())
+                assertEquals(doc % 7 + 1, iterator.frequency(), list.encoding() + " doc " + doc);
+        }
+        assertEquals(PostingList.Encoding.BITMAP, dense.encoding());
+        assertEquals(PostingList.Encoding.RUNS, runs.encoding());
+        assertEquals(PostingList.Encoding.VARINT, postings.encoding());
+        assertEquals(0, dense.frequency(9_999));
+
+        runs.add(9_500);
+        runs.add(4_500, 2);
+        assertEquals(9_500 % 7 + 2, runs.frequency(9_500));
+        assertEquals(2, runs.frequency(4_500));
+        assertEquals(3_999 % 7 + 1, runs.frequency(3_999));
+    }
+
+    @Test
+    @DisplayName("Repeated adds should count occurrences and saturate")
+    void testFrequency_CountsAndSaturates() {
+        postings.add(4);
+        postings.add(4);
+        postings.add(1);
+        postings.add(4);
+        postings.add(8, 300);
+
+        assertEquals(1, postings.frequency(1));
+        assertEquals(3, postings.frequency(4));
+        assertEquals(PostingList.MAX_FREQUENCY, postings.frequency(8));
+        assertEquals(0, postings.frequency(5));
+    }
+
+    private static long[] toWords(int[] docs) {
+        DocBitSet bits = new DocBitSet(docs[docs.length - 1] + 1);
+        for (int doc : docs)
+            bits.set(doc);
+        return bits.words();
+    }
+
+    private static PostingList runsOf(int[] docs) {
+        int[] starts = new int[docs.length];
+        int[] ends = new int[docs.length];
+        int runs = 0;
+        for (int i = 0; i < docs.length; i++) {
+            if (i == 0 || docs[i] != docs[i - 1] + 1)
+                starts[runs++] = docs[i];
+            ends[runs - 1] = docs[i];
+        }
+        return PostingList.fromRuns(Arrays.copyOf(starts, runs), Arrays.copyOf(ends, runs));
+    }
+
+    private static byte[] encode(int[] docs) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int previous = 0;
+        for (int doc : docs) {
+            int value = doc - previous;
+            previous = doc;
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,42 @@
+package com.mateusememe.domain.entity;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SentenceTableTest {
+
+    @Test
+    @DisplayName("Split should break on a period followed by whitespace, like split(\"\\\\.\\\\s+\")")
+    void testSplit() {
+        String text = "First one. Second... one.\n\nThird 3.5 one.";
+        int[] sentences = SentenceTable.split(text.getBytes(StandardCharsets.UTF_8));
+
+        String[] expected = text.split("\\.\\s+");
+        assertEquals(expected.length, SentenceTable.count(sentences));
+        for (int i = 0; i < expected.length; i++) {
+            int start = SentenceTable.start(sentences, i);
+            int end = sentences[i * 3 + 1];
+            assertEquals(expected[i], text.substring(start, end));
+        }
+    }
+
+    @Test
+    @DisplayName("Indexer should map token positions to sentence byte ranges")
+    void testSentenceContaining() {
+        Indexer indexer = new Indexer(true);
+        indexer.insert("file1.txt", "Olá mundo. Star wars rocks. The end");
+
+        int doc = indexer.documentId("file1.txt");
+        int wars = indexer.termPositions("wars").positions(doc)[0];
+        int end = indexer.termPositions("end").positions(doc)[0];
+
+        assertArrayEquals(new int[]{12, 27}, indexer.sentenceContaining(doc, wars));
+        assertArrayEquals(new int[]{29, 36}, indexer.sentenceContaining(doc, end));
+        assertNull(new Indexer().sentenceContaining(0, 0));
+    }
+}
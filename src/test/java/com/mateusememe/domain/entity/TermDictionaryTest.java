@@ -0,0 +1,239 @@
+package com.mateusememe.domain.entity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TermDictionaryTest {
+
+    private TermDictionary dictionary;
+
+    @BeforeEach
+    void setUp() {
+        dictionary = new TermDictionary();
+    }
+
+    @Test
+    @DisplayName("Intern should assign dense IDs and return the same ID for equal terms")
+    void testIntern() {
+        assertEquals(0, dictionary.intern("star"));
+        assertEquals(1, dictionary.intern(new StringBuilder("wars")));
+        assertEquals(0, dictionary.intern(new StringBuilder("star")));
+        assertEquals(2, dictionary.size());
+        assertEquals("wars", dictionary.term(1));
+    }
+
+    @Test
+    @DisplayName("Id should return -1 for unknown terms")
+    void testId_Unknown() {
+        dictionary.intern("star");
+
+        assertEquals(-1, dictionary.id("trek"));
+        assertEquals(0, dictionary.id("star"));
+    }
+
+    @Test
+    @DisplayName("Dictionary should keep every term reachable after growing")
+    void testGrowth() {
+        for (int i = 0; i < 10_000; i++)
+            assertEquals(i, dictionary.intern("term" + i));
+
+        for (int i = 0; i < 10_000; i++)
+            assertEquals(i, dictionary.id("term" + i));
+        assertEquals(10_000, dictionary.size());
+    }
+
+    @Test
+    @DisplayName("Dictionary should store non-ASCII terms as UTF-8 and decode them unchanged")
+    void testIntern_NonAscii() {
+        String[] terms = { "ação", "coração", "naïve", "日本", "𝄞clef", "a" };
+        for (int i = 0; i < terms.length; i++)
+            assertEquals(i, dictionary.intern(new StringBuilder(terms[i])));
+
+        int bytes = 0;
+        for (int i = 0; i < terms.length; i++) {
+            assertEquals(terms[i], dictionary.term(i));
+            assertEquals(i, dictionary.id(terms[i]));
+            bytes += terms[i].getBytes(StandardCharsets.UTF_8).length;
+        }
+        assertEquals(bytes, dictionary.arenaSize());
+        assertEquals(-1, dictionary.id("acao"));
+        assertEquals(-1, dictionary.id("açã"));
+    }
+
+    @Test
+    @DisplayName("Byte lookups should resolve the same IDs as character lookups")
+    void testId_Utf8Bytes() {
+        dictionary.intern("ação");
+        byte[] buffer = "xx ação yy".getBytes(StandardCharsets.UTF_8);
+        int length = "ação".getBytes(StandardCharsets.UTF_8).length;
+
+        assertEquals(0, dictionary.id(buffer, 3, length));
+        assertEquals(-1, dictionary.id(buffer, 3, length - 1));
+        assertEquals(1, dictionary.intern(buffer, 0, 2));
+        assertEquals(1, dictionary.id("xx"));
+        assertEquals(0, dictionary.intern(buffer, 3, length));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    @DisplayName("Match should expand prefixes and wildcards in lexicographic order")
+    void testMatch() {
+        for (String term : new String[] { "terminal", "term", "foo", "terminate", "fao", "fooo", "fo", "termite" })
+            dictionary.intern(term);
+
+        assertArrayEquals(new String[] { "terminal", "terminate" }, terms(dictionary.match("termin*", 10)));
+        assertArrayEquals(new String[] { "fao", "foo", "fooo" }, terms(dictionary.match("f?o*", 10)));
+        assertArrayEquals(new String[] { "termite" }, terms(dictionary.match("*ite", 10)));
+        assertArrayEquals(new String[] { "term" }, terms(dictionary.match("term", 10)));
+        assertEquals(2, dictionary.match("*", 2).length);
+        assertEquals(0, dictionary.match("bar*", 10).length);
+    }
+
+    @Test
+    @DisplayName("Match should see terms interned after a previous lookup")
+    void testMatch_AfterIntern() {
+        dictionary.intern("star");
+        assertEquals(1, dictionary.match("st*", 10).length);
+
+        dictionary.intern("stand");
+        assertArrayEquals(new String[] { "stand", "star" }, terms(dictionary.match("st*", 10)));
+    }
+
+    private String[] terms(int[] ids) {
+        String[] terms = new String[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            terms[i] = dictionary.term(ids[i]);
+        return terms;
+    }
+
+    @Test
+    @DisplayName("Lookups interleaved with interns should see the same order as a fresh dictionary")
+    void testMatch_InterleavedWithInterns() {
+        Random random = new Random(3);
+        TreeSet<String> expected = new TreeSet<>();
+        for (int round = 0; round < 50; round++) {
+            for (int i = random.nextInt(40); i > 0; i--) {
+                char[] chars = new char[1 + random.nextInt(5)];
+                for (int j = 0; j < chars.length; j++)
+                    chars[j] = (char) ('a' + random.nextInt(3));
+                String term = new String(chars);
+                dictionary.intern(term);
+                expected.add(term);
+            }
+            assertArrayEquals(expected.toArray(new String[0]), terms(dictionary.match("*", 100_000)));
+            Set<String> fuzzy = new TreeSet<>(List.of(terms(dictionary.fuzzyMatch("abc", 1, 100_000))));
+            Set<String> close = new TreeSet<>();
+            for (String term : expected) {
+                if (distance("abc", term) <= 1)
+                    close.add(term);
+            }
+            assertEquals(close, fuzzy);
+        }
+    }
+
+    @Test
+    @DisplayName("compareTerms should order terms as match does, by code point")
+    void testCompareTerms() {
+        String[] sorted = { "", "a", "ab", "b", "\uD7FF", "\uFB01", "\uD83C\uDFAC" };
+        for (String term : new String[] { "\uD83C\uDFAC", "b", "\uFB01", "ab", "a", "\uD7FF", "" })
+            dictionary.intern(term);
+
+        assertArrayEquals(sorted, terms(dictionary.match("*", 100)));
+        for (int i = 0; i < sorted.length; i++) {
+            for (int j = 0; j < sorted.length; j++)
+                assertEquals(Integer.signum(Integer.compare(i, j)),
+                        Integer.signum(TermDictionary.compareTerms(sorted[i], sorted[j])), sorted[i] + " " + sorted[j]);
+        }
+    }
+
+    @Test
+    @DisplayName("Fuzzy match should find the terms within the edit distance, closest first")
+    void testFuzzyMatch() {
+        for (String term : new String[] { "star", "stars", "start", "scar", "tsar", "wars", "sta", "stair" })
+            dictionary.intern(term);
+
+        assertArrayEquals(new String[] { "star", "scar", "sta", "stair", "stars", "start" },
+                terms(dictionary.fuzzyMatch("star", 1, 10)));
+        assertArrayEquals(new String[] { "star", "scar" }, terms(dictionary.fuzzyMatch("star", 1, 2)));
+        assertArrayEquals(new String[] { "stars", "star", "start" }, terms(dictionary.fuzzyMatch("stars", 1, 10)));
+        assertEquals(0, new TermDictionary().fuzzyMatch("star", 2, 10).length);
+    }
+
+    @Test
+    @DisplayName("Fuzzy match should agree with a brute-force edit distance")
+    void testFuzzyMatch_MatchesBruteForce() {
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            char[] chars = new char[2 + random.nextInt(6)];
+            for (int j = 0; j < chars.length; j++)
+                chars[j] = (char) ('a' + random.nextInt(4));
+            dictionary.intern(new String(chars));
+        }
+
+        for (String query : new String[] { "abca", "dd", "abcdab", "bbbbbbb" }) {
+            for (int edits = 1; edits <= 2; edits++) {
+                Set<String> expected = new TreeSet<>();
+                for (int id = 0; id < dictionary.size(); id++) {
+                    if (distance(query, dictionary.term(id)) <= edits)
+                        expected.add(dictionary.term(id));
+                }
+                Set<String> actual = new TreeSet<>(List.of(terms(dictionary.fuzzyMatch(query, edits, 100_000))));
+                assertEquals(expected, actual, query + "~" + edits);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Prefix and fuzzy match should step through multi-byte characters whole")
+    void testMatch_MultiByte() {
+        Random random = new Random(11);
+        char[] alphabet = { 'a', 'é', 'ж', '中' };
+        for (int i = 0; i < 3_000; i++) {
+            char[] chars = new char[1 + random.nextInt(5)];
+            for (int j = 0; j < chars.length; j++)
+                chars[j] = alphabet[random.nextInt(alphabet.length)];
+            dictionary.intern(new String(chars));
+        }
+
+        Set<String> prefixed = new TreeSet<>();
+        for (int id = 0; id < dictionary.size(); id++) {
+            if (dictionary.term(id).startsWith("жé"))
+                prefixed.add(dictionary.term(id));
+        }
+        assertArrayEquals(prefixed.toArray(new String[0]), terms(dictionary.match("жé*", 100_000)));
+
+        for (String query : new String[] { "中a", "éжж中", "aaé" }) {
+            Set<String> expected = new TreeSet<>();
+            for (int id = 0; id < dictionary.size(); id++) {
+                if (distance(query, dictionary.term(id)) <= 1)
+                    expected.add(dictionary.term(id));
+            }
+            Set<String> actual = new TreeSet<>(List.of(terms(dictionary.fuzzyMatch(query, 1, 100_000))));
+            assertEquals(expected, actual, query);
+        }
+    }
+
+    private static int distance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++)
+            d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++)
+            d[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                d[i][j] = Math.min(substitution, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
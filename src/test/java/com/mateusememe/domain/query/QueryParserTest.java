@@ -0,0 +1,69 @@
+package com.mateusememe.domain.query;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class QueryParserTest {
+
+    @Test
+    @DisplayName("Adjacent words should form an AND split like plain search terms")
+    void testParse_ImplicitAnd() {
+        assertEquals("(fi AND sci AND star)", QueryParser.parse("Star SCI-FI").toString());
+        assertEquals("(star AND wars)", QueryParser.parse("star AND wars").toString());
+        assertEquals("star", QueryParser.parse("  star ").toString());
+    }
+
+    @Test
+    @DisplayName("NOT should bind tighter than AND, and AND tighter than OR")
+    void testParse_Precedence() {
+        assertEquals("((star AND wars) OR trek)", QueryParser.parse("star wars OR trek").toString());
+        assertEquals("(-wars AND star)", QueryParser.parse("star NOT wars").toString());
+        assertEquals("(-(trek OR wars) AND star)", QueryParser.parse("star -(wars OR trek)").toString());
+        assertEquals("((trek OR wars) AND star)", QueryParser.parse("star (wars OR trek)").toString());
+    }
+
+    @Test
+    @DisplayName("Lowercase operators should be searched as words")
+    void testParse_LowercaseOperators() {
+        assertEquals("(and AND or AND rock AND roll)", QueryParser.parse("rock and or roll").toString());
+        assertEquals("(not AND star)", QueryParser.parse("not star").toString());
+    }
+
+    @Test
+    @DisplayName("Quoted text should become a phrase and double negation cancel out")
+    void testParse_PhraseAndNegation() {
+        Query query = QueryParser.parse("\"The Next Generation\" OR NOT -trek");
+
+        assertEquals("(\"the next generation\" OR trek)", query.toString());
+        assertArrayEquals(new String[] { "the", "next", "generation", "trek" }, query.terms());
+        assertEquals("star", QueryParser.parse("\"star\"").toString());
+    }
+
+    @Test
+    @DisplayName("Terms should list only the terms outside a negation")
+    void testTerms() {
+        assertArrayEquals(new String[] { "star", "st*" }, QueryParser.parse("star -wars (st* OR star)").terms());
+    }
+
+    @Test
+    @DisplayName("Queries without searchable words should match nothing")
+    void testParse_Empty() {
+        Query query = QueryParser.parse("  ! ");
+
+        assertTrue(query instanceof Query.And);
+        assertTrue(((Query.And) query).operands().isEmpty());
+        assertEquals("star", QueryParser.parse("star - !").toString());
+    }
+
+    @Test
+    @DisplayName("Malformed queries should be rejected")
+    void testParse_Malformed() {
+        for (String query : new String[] { "(star", "star)", "\"star wars", "star OR", "OR star", "AND star",
+                "star AND", "star NOT", "star AND OR wars" })
+            assertThrows(IllegalArgumentException.class, () -> QueryParser.parse(query), query);
+    }
+}
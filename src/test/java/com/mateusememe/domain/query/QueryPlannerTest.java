@@ -0,0 +1,113 @@
+package com.mateusememe.domain.query;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.mateusememe.domain.entity.Indexer;
+
+class QueryPlannerTest {
+
+    private Indexer indexer;
+    private QueryPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        indexer = new Indexer(true);
+        indexer.insert("a.txt", "star wars a new hope");
+        indexer.insert("b.txt", "star trek the next generation");
+        indexer.insert("c.txt", "the empire strikes back wars");
+        indexer.insert("d.txt", "a star is born");
+        planner = new QueryPlanner(indexer, 0);
+    }
+
+    private int[] search(String query) {
+        return planner.searchIds(QueryParser.parse(query));
+    }
+
+    @Test
+    @DisplayName("Operators should combine term postings")
+    void testSearch_Operators() {
+        assertArrayEquals(new int[] { 0 }, search("star wars"));
+        assertArrayEquals(new int[] { 0, 1, 2 }, search("wars OR trek"));
+        assertArrayEquals(new int[] { 1, 3 }, search("star -wars"));
+        assertArrayEquals(new int[] { 3 }, search("star NOT (wars OR trek)"));
+        assertArrayEquals(new int[] { 0, 1 }, search("star (wars OR trek OR missing)"));
+        assertArrayEquals(new int[] { 1, 3 }, search("(st* -wars) OR born"));
+    }
+
+    @Test
+    @DisplayName("Pure negations should match every other document")
+    void testSearch_Negation() {
+        assertArrayEquals(new int[] { 2 }, search("-star"));
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, search("-missing"));
+        assertArrayEquals(new int[] { 0, 1, 2 }, search("wars OR -born"));
+    }
+
+    @Test
+    @DisplayName("Empty operands should short-circuit conjunctions")
+    void testSearch_Empty() {
+        assertArrayEquals(new int[0], search("star missing -wars"));
+        assertArrayEquals(new int[0], search(""));
+        assertArrayEquals(new int[0], search("missing OR absent"));
+    }
+
+    @Test
+    @DisplayName("Phrases should be evaluated as clauses")
+    void testSearch_Phrase() {
+        assertArrayEquals(new int[] { 1 }, search("\"the next\" OR \"next the\""));
+        assertArrayEquals(new int[] { 2 }, search("the -\"the next\""));
+        assertThrows(IllegalStateException.class,
+                () -> new QueryPlanner(new Indexer(false), 0).searchIds(QueryParser.parse("\"star wars\"")));
+    }
+
+    @Test
+    @DisplayName("Removed documents should not be returned")
+    void testSearch_RemovedDocuments() {
+        indexer.removeDocument("b.txt");
+
+        assertArrayEquals(new int[] { 3 }, search("star -wars"));
+        assertEquals(Set.of("a.txt", "c.txt", "d.txt"), planner.search(QueryParser.parse("-trek")));
+    }
+
+    @Test
+    @DisplayName("Search should agree with a brute-force evaluation of random queries")
+    void testSearch_AgainstBruteForce() {
+        Random random = new Random(17);
+        String[] words = { "w0", "w1", "w2", "w3", "w4", "w5" };
+        boolean[][] contains = new boolean[300][words.length];
+        Indexer index = new Indexer();
+        for (int doc = 0; doc < contains.length; doc++) {
+            StringBuilder content = new StringBuilder("doc");
+            for (int w = 0; w < words.length; w++) {
+                contains[doc][w] = random.nextInt(w + 2) == 0;
+                if (contains[doc][w])
+                    content.append(' ').append(words[w]);
+            }
+            index.insert("doc" + doc, content.toString());
+        }
+        QueryPlanner bruteForcePlanner = new QueryPlanner(index, 0);
+
+        for (int i = 0; i < 200; i++) {
+            int a = random.nextInt(words.length);
+            int b = random.nextInt(words.length);
+            int c = random.nextInt(words.length);
+            String query = words[a] + " (" + words[b] + " OR -" + words[c] + ")";
+            int count = 0;
+            int[] expected = new int[contains.length];
+            for (int doc = 0; doc < contains.length; doc++) {
+                if (contains[doc][a] && (contains[doc][b] || !contains[doc][c]))
+                    expected[count++] = doc;
+            }
+            assertArrayEquals(Arrays.copyOf(expected, count),
+                    bruteForcePlanner.searchIds(QueryParser.parse(query)), query);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.mateusememe.domain.ranking;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.mateusememe.domain.entity.Indexer;
+
+class Bm25RankerTest {
+
+    private Indexer indexer;
+    private Bm25Ranker ranker;
+
+    @BeforeEach
+    void setUp() {
+        indexer = new Indexer();
+        indexer.insert("once.txt", "space opera with a long plot about heroes and villains");
+        indexer.insert("twice.txt", "space space opera");
+        indexer.insert("short.txt", "space opera");
+        indexer.insert("other.txt", "romantic comedy");
+        indexer.freeze();
+        ranker = new Bm25Ranker(indexer);
+    }
+
+    @Test
+    @DisplayName("topK should rank by term frequency and document length")
+    void testTopK_Order() {
+        List<ScoredDocument> ranked = ranker.topK(indexer.search(new String[] { "space" }), new String[] { "space" },
+                10);
+
+        assertEquals(List.of("twice.txt", "short.txt", "once.txt"), ranked.stream().map(ScoredDocument::name).toList());
+        assertTrue(ranked.get(0).score() > ranked.get(1).score());
+        assertTrue(ranked.get(1).score() > ranked.get(2).score());
+        assertEquals(1, ranked.get(0).matchedTerms());
+    }
+
+    @Test
+    @DisplayName("topK should keep only the best results and break ties by name")
+    void testTopK_Limit() {
+        indexer.insert("another_short.txt", "space opera");
+        Set<String> result = indexer.search(new String[] { "opera" });
+
+        List<ScoredDocument> ranked = ranker.topK(result, new String[] { "opera" }, 2);
+
+        assertEquals(2, ranked.size());
+        assertEquals("another_short.txt", ranked.get(0).name());
+        assertEquals("short.txt", ranked.get(1).name());
+    }
+
+    @Test
+    @DisplayName("topK should count matched terms and rank unknown files last")
+    void testTopK_MatchedTermsAndUnknownFiles() {
+        List<ScoredDocument> ranked = ranker.topK(List.of("missing.txt", "other.txt", "short.txt"),
+                new String[] { "space", "comedy", "space" }, 10);
+
+        assertEquals(List.of("other.txt", "short.txt", "missing.txt"), ranked.stream().map(ScoredDocument::name).toList());
+        assertEquals(1, ranked.get(0).matchedTerms());
+        assertEquals(0, ranked.get(2).matchedTerms());
+        assertEquals(0.0, ranked.get(2).score());
+    }
+
+    @Test
+    @DisplayName("topK should score with given collection statistics and fall back to the index for other terms")
+    void testTopK_CollectionStatistics() {
+        Set<String> result = indexer.search(new String[] { "space" });
+        String[] terms = { "space", "opera" };
+        List<ScoredDocument> own = ranker.topK(result, terms, 10);
+
+        CollectionStatistics same = CollectionStatistics.of(indexer, terms);
+        List<ScoredDocument> equal = ranker.topK(result, terms, 10, same);
+        for (int i = 0; i < own.size(); i++)
+            assertEquals(own.get(i).score(), equal.get(i).score(), 1e-12);
+
+        CollectionStatistics larger = new CollectionStatistics(1000, 3000, Map.of("space", 3));
+        List<ScoredDocument> global = ranker.topK(result, terms, 10, larger);
+        assertEquals(own.stream().map(ScoredDocument::name).toList(),
+                global.stream().map(ScoredDocument::name).toList());
+        assertTrue(global.get(0).score() > own.get(0).score());
+    }
+}
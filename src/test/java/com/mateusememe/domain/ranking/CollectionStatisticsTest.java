@@ -0,0 +1,47 @@
+package com.mateusememe.domain.ranking;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.mateusememe.domain.entity.Indexer;
+
+class CollectionStatisticsTest {
+
+    @Test
+    @DisplayName("of should count live documents, their length and the document frequency of each term")
+    void testOf() {
+        Indexer indexer = new Indexer();
+        indexer.insert("a.txt", "star wars");
+        indexer.insert("b.txt", "star trek the next generation");
+        indexer.insert("c.txt", "wars");
+        indexer.removeDocument("c.txt");
+
+        CollectionStatistics statistics = CollectionStatistics.of(indexer, new String[] { "Star", "missing" });
+
+        assertEquals(2, statistics.documentCount());
+        assertEquals(7, statistics.totalLength());
+        assertEquals(3.5, statistics.averageLength());
+        assertEquals(2, statistics.documentFrequency("star"));
+        assertEquals(0, statistics.documentFrequency("missing"));
+        assertEquals(-1, statistics.documentFrequency("trek"));
+    }
+
+    @Test
+    @DisplayName("sum should add up the parts and cover the terms of every part")
+    void testSum() {
+        CollectionStatistics first = new CollectionStatistics(3, 30, Map.of("star", 2, "wars", 1));
+        CollectionStatistics second = new CollectionStatistics(2, 10, Map.of("star", 1, "trek", 2));
+
+        CollectionStatistics total = CollectionStatistics.sum(List.of(first, second));
+
+        assertEquals(5, total.documentCount());
+        assertEquals(40, total.totalLength());
+        assertEquals(8.0, total.averageLength());
+        assertEquals(Map.of("star", 3, "wars", 1, "trek", 2), total.documentFrequencies());
+        assertEquals(0.0, CollectionStatistics.sum(List.of()).averageLength());
+    }
+}
@@ -64,6 +64,25 @@ class ArgumentParserTest {
         }
     }
 
+    @Nested
+    @DisplayName("getValue method tests")
+    class GetValueTests {
+
+        @Test
+        @DisplayName("Should return the raw value when flag is present")
+        void shouldReturnRawValueWhenFlagIsPresent() {
+            ArgumentParser parser = new ArgumentParser(new String[] { "--batch", "queries.txt" });
+            assertEquals("queries.txt", parser.getValue("--batch", null));
+        }
+
+        @Test
+        @DisplayName("Should return default value when flag is missing or last")
+        void shouldReturnDefaultValueWhenFlagIsMissingOrLast() {
+            assertEquals("-", new ArgumentParser(new String[] { "somearg" }).getValue("--batch", "-"));
+            assertEquals("-", new ArgumentParser(new String[] { "--batch" }).getValue("--batch", "-"));
+        }
+    }
+
     @Nested
     @DisplayName("getPositionalArgs method tests")
     class GetPositionalArgsTests {
@@ -84,6 +103,30 @@ class ArgumentParserTest {
             assertTrue(positionalArgs.isEmpty());
         }
 
+        @Test
+        @DisplayName("Should skip the value of the -t flag")
+        void shouldSkipValueOfThreadsFlag() {
+            ArgumentParser parser = new ArgumentParser(new String[] { "pos1", "-t", "8", "pos2" });
+            List<String> positionalArgs = parser.getPositionalArgs();
+            assertEquals(List.of("pos1", "pos2"), positionalArgs);
+        }
+
+        @Test
+        @DisplayName("Should skip the value of the --batch flag")
+        void shouldSkipValueOfBatchFlag() {
+            ArgumentParser parser = new ArgumentParser(new String[] { "--batch", "queries.txt", "pos1" });
+            List<String> positionalArgs = parser.getPositionalArgs();
+            assertEquals(List.of("pos1"), positionalArgs);
+        }
+
+        @Test
+        @DisplayName("Should keep excluded query words and skip unknown long flags")
+        void shouldKeepExcludedQueryWords() {
+            ArgumentParser parser = new ArgumentParser(new String[] { "star", "-wars", "-v", "--unknown", "-(a" });
+            List<String> positionalArgs = parser.getPositionalArgs();
+            assertEquals(List.of("star", "-wars", "-(a"), positionalArgs);
+        }
+
         @Test
         @DisplayName("Should handle arguments after -l flag correctly")
         void shouldHandleArgumentsAfterLFlagCorrectly() {
@@ -0,0 +1,184 @@
+package com.mateusememe.infrastructure.http;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mateusememe.application.usecase.SearchMovies;
+import com.mateusememe.domain.entity.Indexer;
+import com.mateusememe.domain.ranking.CollectionStatistics;
+import com.mateusememe.infrastructure.io.Json;
+import com.mateusememe.infrastructure.io.MovieFileReader;
+import com.mateusememe.infrastructure.metrics.Metrics;
+
+class SearchServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SearchServer server;
+    private HttpClient client;
+    private String file1;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path file = tempDir.resolve("file1.txt");
+        Files.writeString(file, "Star Wars is a \"space\" opera. Wars everywhere.");
+        Files.writeString(tempDir.resolve("file2.txt"), "War of the worlds");
+        file1 = file.toString();
+
+        Indexer indexer = new Indexer(true);
+        MovieFileReader reader = new MovieFileReader(indexer);
+        reader.loadFiles(tempDir.toString());
+        server = new SearchServer(new SearchMovies(indexer), indexer, reader,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> get(String query) throws IOException, InterruptedException {
+        URI uri = URI.create("http://localhost:" + server.port() + "/search?" + query);
+        return client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    @DisplayName("GET /search should return the matching files as JSON")
+    void testSearch_Json() throws Exception {
+        HttpResponse<String> response = get("q=Wars");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+        assertTrue(response.body().startsWith("{\"query\":\"wars\",\"total\":1,"));
+        assertTrue(response.body().endsWith("\"results\":[" + Json.quote(new StringBuilder(), file1) + "]}"));
+    }
+
+    @Test
+    @DisplayName("Verbose JSON should include score, occurrences and an escaped snippet")
+    void testSearch_VerboseJson() throws Exception {
+        HttpResponse<String> response = get("q=space+opera&v=true&l=5");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"occurrences\":2"));
+        assertTrue(response.body().contains("\"score\":"));
+        assertTrue(response.body().contains("\"snippet\":\"Star Wars is a \\\"space\\\" opera.\""));
+    }
+
+    @Test
+    @DisplayName("format=text should return the CLI output")
+    void testSearch_Text() throws Exception {
+        HttpResponse<String> response = get("q=star%20wars&p=1&format=text");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("Foram encontradas 1 ocorrências pelo termo \"star wars\"."));
+        assertTrue(response.body().contains(file1));
+    }
+
+    @Test
+    @DisplayName("format=jsonl and format=tsv should return one record per file")
+    void testSearch_MachineFormats() throws Exception {
+        HttpResponse<String> jsonl = get("q=star&format=jsonl&l=1");
+        HttpResponse<String> tsv = get("q=star&format=tsv");
+
+        assertTrue(jsonl.headers().firstValue("Content-Type").orElse("").startsWith("application/x-ndjson"));
+        assertEquals(1, jsonl.body().lines().count());
+        assertTrue(jsonl.body().startsWith("{\"query\":\"star\",\"file\":"));
+        assertTrue(tsv.body().lines().allMatch(line -> line.startsWith("star\t")));
+        assertEquals(400, get("q=star&format=xml").statusCode());
+    }
+
+    @Test
+    @DisplayName("fuzzy should tolerate typos and reject out-of-range distances")
+    void testSearch_Fuzzy() throws Exception {
+        HttpResponse<String> response = get("q=opira&fuzzy=1&v=1");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"total\":1,"));
+        assertTrue(response.body().contains("\"snippet\":\"Star Wars is a \\\"space\\\" opera.\""));
+        assertEquals(400, get("q=opira&fuzzy=3").statusCode());
+    }
+
+    @Test
+    @DisplayName("GET /statistics should report the query's statistics and /search should rank with sent ones")
+    void testStatistics() throws Exception {
+        URI uri = URI.create("http://localhost:" + server.port() + "/statistics?q=war*+OR+opera");
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        CollectionStatistics statistics = SearchServer.parseStatistics(response.body());
+        assertEquals(2, statistics.documentCount());
+        assertEquals(Map.of("war", 1, "wars", 1, "opera", 1), statistics.documentFrequencies());
+        assertEquals(statistics.documentFrequencies(),
+                SearchServer.parseStatistics(SearchServer.formatStatistics(statistics)).documentFrequencies());
+
+        String own = get("q=opera&v=1&format=tsv").body();
+        String global = get("q=opera&v=1&format=tsv&stats="
+                + URLEncoder.encode("100\t1000\nopera\t1\n", StandardCharsets.UTF_8)).body();
+        assertTrue(Double.parseDouble(global.split("\t")[3]) > Double.parseDouble(own.split("\t")[3]));
+        assertEquals(400, get("q=opera&v=1&stats=abc").statusCode());
+    }
+
+    @Test
+    @DisplayName("Invalid requests should be rejected with 400")
+    void testSearch_BadRequest() throws Exception {
+        assertEquals(400, get("v=true").statusCode());
+        assertEquals(400, get("q=wars&l=abc").statusCode());
+    }
+
+    @Test
+    @DisplayName("GET /metrics should count the searches in the Prometheus format")
+    void testMetrics() throws Exception {
+        long searches = Metrics.global().histogram(Metrics.Phase.SEARCH).getCount();
+        get("q=wars&v=1");
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        assertTrue(Metrics.global().histogram(Metrics.Phase.SEARCH).getCount() > searches);
+        assertTrue(response.body().contains("searchit_phase_seconds_count{phase=\"rank\"} "));
+        assertTrue(response.body().contains("searchit_files_total "));
+    }
+
+    @Test
+    @DisplayName("Concurrent requests should all be answered")
+    void testSearch_Concurrent() {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            URI uri = URI.create("http://localhost:" + server.port() + "/search?q=" + (i % 2 == 0 ? "wars" : "worlds"));
+            responses.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString()));
+        }
+
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            HttpResponse<String> result = response.join();
+            assertEquals(200, result.statusCode());
+            assertTrue(result.body().contains("\"total\":1"));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.mateusememe.infrastructure.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.mateusememe.application.usecase.SearchMovies;
+import com.mateusememe.domain.entity.Indexer;
+
+class BatchQueryRunnerTest {
+
+    private Indexer indexer;
+    private MovieFileReader movieFileReader;
+
+    @BeforeEach
+    void setUp() {
+        indexer = new Indexer(true);
+        for (int i = 0; i < 100; i++)
+            indexer.insert("movie" + i + ".txt", "shared title number" + i);
+        indexer.freeze();
+        movieFileReader = new MovieFileReader(indexer);
+    }
+
+    @Test
+    @DisplayName("run should write every result in input order and summarize the batch")
+    void testRun_OrderAndSummary() throws IOException {
+        StringBuilder queries = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            queries.append("Number").append(i).append("\n\n");
+        StringWriter output = new StringWriter();
+        BatchQueryRunner runner = new BatchQueryRunner(new SearchMovies(indexer), indexer, movieFileReader, 4,
+                Integer.MAX_VALUE, false, false, 0, 0, OutputPrinter.Format.TEXT);
+
+        BatchQueryRunner.Summary summary = runner.run(new BufferedReader(new StringReader(queries.toString())),
+                output);
+
+        assertEquals(100, summary.getQueries());
+        assertTrue(summary.getQueriesPerSecond() > 0);
+        assertTrue(summary.getLatencyMillis(99) >= summary.getLatencyMillis(50));
+        String text = output.toString();
+        int previous = -1;
+        for (int i = 0; i < 100; i++) {
+            int position = text.indexOf("pelo termo \"number" + i + "\"");
+            assertTrue(position > previous, "query " + i + " out of order");
+            assertTrue(text.indexOf("movie" + i + ".txt", position) > position);
+            previous = position;
+        }
+        assertTrue(text.contains("Consultas: 100 |"));
+    }
+
+    @Test
+    @DisplayName("run should support phrase queries and an empty input")
+    void testRun_PhraseAndEmptyInput() throws IOException {
+        StringWriter output = new StringWriter();
+        BatchQueryRunner runner = new BatchQueryRunner(new SearchMovies(indexer), indexer, movieFileReader, 2, 1,
+                true, true, 0, 0, OutputPrinter.Format.TEXT);
+
+        assertEquals(1, runner.run(new BufferedReader(new StringReader("title number7\n")), output).getQueries());
+        assertTrue(output.toString().contains("Foram encontradas 1 ocorrências"));
+        assertEquals(0, runner.run(new BufferedReader(new StringReader("")), new StringWriter()).getQueries());
+    }
+
+    @Test
+    @DisplayName("run should write only records in a machine format")
+    void testRun_JsonLines() throws IOException {
+        StringWriter output = new StringWriter();
+        BatchQueryRunner runner = new BatchQueryRunner(new SearchMovies(indexer), indexer, movieFileReader, 2, 2,
+                false, false, 0, 0, OutputPrinter.Format.JSONL);
+
+        assertEquals(2, runner.run(new BufferedReader(new StringReader("number7\nshared\n")), output).getQueries());
+        assertEquals(List.of("{\"query\":\"number7\",\"file\":\"movie7.txt\"}",
+                "{\"query\":\"shared\",\"file\":\"movie0.txt\"}",
+                "{\"query\":\"shared\",\"file\":\"movie1.txt\"}"), output.toString().lines().toList());
+    }
+}
@@ -0,0 +1,191 @@
+package com.mateusememe.infrastructure.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mateusememe.domain.entity.Indexer;
+
+class DocumentStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path dataDir;
+    private Path storeDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dataDir = Files.createDirectory(tempDir.resolve("data"));
+        storeDir = tempDir.resolve("snapshot");
+        for (int i = 0; i < 40; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j <= i; j++)
+                text.append("Filme ").append(i).append(" cena ").append(j).append(": a ação continua. ");
+            Files.writeString(dataDir.resolve("movie" + i + ".txt"), text.append("Fim.").toString());
+        }
+    }
+
+    private String file(int i) {
+        return dataDir.resolve("movie" + i + ".txt").toString();
+    }
+
+    @Test
+    @DisplayName("read should return every file and any byte range, across small blocks")
+    void testWriteAndRead() throws IOException {
+        SnapshotManifest manifest = SnapshotManifest.scan(dataDir.toString());
+        try (DocumentStore.Writer writer = new DocumentStore.Writer(storeDir, 256)) {
+            for (int i = 0; i < 40; i++)
+                writer.add(file(i), Files.readAllBytes(Path.of(file(i))));
+            writer.commit(manifest);
+        }
+        assertFalse(Files.exists(storeDir.resolve("documents.bin.tmp")));
+        assertTrue(Files.size(storeDir.resolve("documents.bin")) < 40 * 40 * 40);
+
+        try (DocumentStore store = DocumentStore.open(storeDir, manifest)) {
+            for (int i = 0; i < 40; i++) {
+                byte[] content = Files.readAllBytes(Path.of(file(i)));
+                assertArrayEquals(content, store.read(file(i)), file(i));
+                int start = Math.min(250, content.length);
+                int end = Math.min(700, content.length);
+                assertArrayEquals(Arrays.copyOfRange(content, start, end), store.read(file(i), 250, 700), file(i));
+            }
+            assertNull(store.read(dataDir.resolve("missing.txt").toString()));
+        }
+    }
+
+    @Test
+    @DisplayName("Files added from several threads should each be read back whole from the interleaved blocks")
+    void testWriteAndRead_Concurrent() throws Exception {
+        SnapshotManifest manifest = SnapshotManifest.scan(dataDir.toString());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (DocumentStore.Writer writer = new DocumentStore.Writer(storeDir, 128)) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int first = t;
+                tasks.add(executor.submit(() -> {
+                    for (int i = first; i < 40; i += 4)
+                        writer.add(file(i), Files.readAllBytes(Path.of(file(i))));
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks)
+                task.get();
+            writer.commit(manifest);
+        } finally {
+            executor.shutdown();
+        }
+
+        try (DocumentStore store = DocumentStore.open(storeDir, manifest)) {
+            for (int i = 0; i < 40; i++) {
+                byte[] content = Files.readAllBytes(Path.of(file(i)));
+                assertArrayEquals(content, store.read(file(i)), file(i));
+                assertArrayEquals(Arrays.copyOfRange(content, Math.min(300, content.length), content.length),
+                        store.read(file(i), 300, Integer.MAX_VALUE), file(i));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("open should reject inconsistent tables, so reads only ever fail with an IOException")
+    void testOpen_CorruptTable() throws IOException {
+        SnapshotManifest manifest = SnapshotManifest.scan(dataDir.toString());
+        try (DocumentStore.Writer writer = new DocumentStore.Writer(storeDir, 256)) {
+            for (int i = 0; i < 40; i++)
+                writer.add(file(i), Files.readAllBytes(Path.of(file(i))));
+            writer.commit(manifest);
+        }
+        Path storeFile = storeDir.resolve("documents.bin");
+        byte[] original = Files.readAllBytes(storeFile);
+        long tableOffset = ByteBuffer.wrap(original, original.length - Long.BYTES, Long.BYTES).getLong();
+
+        byte[] shifted = original.clone();
+        shifted[original.length - 2 * Long.BYTES + 7]--; // end of the blocks no longer at the table
+        Files.write(storeFile, shifted);
+        assertNull(DocumentStore.open(storeDir, manifest));
+
+        Random random = new Random(5);
+        for (int round = 0; round < 300; round++) {
+            byte[] corrupt = original.clone();
+            int position = (int) tableOffset + random.nextInt(original.length - Long.BYTES - (int) tableOffset);
+            corrupt[position] ^= (byte) (1 << random.nextInt(8));
+            Files.write(storeFile, corrupt);
+            try (DocumentStore store = DocumentStore.open(storeDir, manifest)) {
+                if (store == null)
+                    continue;
+                for (int i = 0; i < 40; i++) {
+                    try {
+                        store.read(file(i), 10, 500);
+                    } catch (IOException expected) {
+                        // a corrupt block is reported, not thrown as a runtime exception
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("open should skip files changed since the store was built and ignore missing or foreign files")
+    void testOpen_Stale() throws IOException {
+        assertNull(DocumentStore.open(storeDir, SnapshotManifest.scan(dataDir.toString())));
+        DocumentStore.pack(storeDir, SnapshotManifest.scan(dataDir.toString())).close();
+
+        Files.writeString(Path.of(file(5)), "Conteúdo novo.");
+        Files.setLastModifiedTime(Path.of(file(5)), FileTime.fromMillis(1_000));
+        try (DocumentStore store = DocumentStore.open(storeDir, SnapshotManifest.scan(dataDir.toString()))) {
+            assertFalse(store.contains(file(5)));
+            assertTrue(store.contains(file(6)));
+            store.forget(file(6));
+            assertNull(store.read(file(6)));
+        }
+
+        Files.writeString(storeDir.resolve("documents.bin"), "not a store");
+        assertNull(DocumentStore.open(storeDir, SnapshotManifest.scan(dataDir.toString())));
+    }
+
+    @Test
+    @DisplayName("Snippets should be served from the store packed during ingestion, without the original files")
+    void testSnippets_FromStore() throws IOException {
+        SnapshotManifest manifest = SnapshotManifest.scan(dataDir.toString());
+        Indexer indexer = new Indexer(true);
+        MovieFileReader reader = new MovieFileReader(indexer, 3);
+        try (DocumentStore.Writer writer = new DocumentStore.Writer(storeDir, DocumentStore.DEFAULT_BLOCK_SIZE)) {
+            reader.packDocuments(writer);
+            reader.loadFiles(dataDir.toString());
+            writer.commit(manifest);
+        }
+        String expected = reader.getSnippet(file(12), new String[] { "12" });
+        String whole = new MovieFileReader(indexer).getSnippet(file(7), new String[] { "fim" });
+
+        DocumentStore store = DocumentStore.open(storeDir, manifest);
+        assertNotNull(store);
+        reader.setDocumentStore(store);
+        try (store) {
+            for (int i = 0; i < 40; i++)
+                Files.delete(Path.of(file(i)));
+            assertEquals(expected, reader.getSnippet(file(12), new String[] { "12" }));
+            assertEquals("Filme 12 cena 0: a ação continua.", expected);
+            assertEquals(whole, reader.getSnippet(file(7), new String[] { "fim" }));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.mateusememe.infrastructure.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EmbeddedIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.createDirectories(tempDir.resolve("data/sub"));
+        Files.writeString(tempDir.resolve("data/a.txt"), "Star Wars. A space opera.");
+        Files.writeString(tempDir.resolve("data/sub/b.txt"), "Star Trek");
+    }
+
+    @Test
+    @DisplayName("Nothing should be embedded when the property is not set")
+    void testGet_NotEmbedded() {
+        assertNull(EmbeddedIndex.get());
+        assertNull(EmbeddedIndex.build(null, ""));
+    }
+
+    @Test
+    @DisplayName("build should index the directory with names relative to the base directory")
+    void testBuild() {
+        EmbeddedIndex embedded = EmbeddedIndex.build("data", tempDir.toString());
+
+        String a = Path.of("data", "a.txt").toString();
+        String b = Path.of("data", "sub", "b.txt").toString();
+        assertEquals(Set.of(a, b), embedded.getIndexer().search(new String[] { "star" }));
+        assertEquals(Set.of(a), embedded.getIndexer().searchPhrase(new String[] { "space", "opera" }, 0));
+        assertEquals("data", embedded.getManifest().getRootDirectory());
+        assertEquals(List.of(a, b), embedded.getManifest().getEntries().stream()
+                .map(SnapshotManifest.Entry::getPath).toList());
+    }
+
+    @Test
+    @DisplayName("matches should fail once a file changes, appears or disappears")
+    void testMatches() throws IOException {
+        EmbeddedIndex embedded = EmbeddedIndex.build("data", tempDir.toString());
+        assertTrue(embedded.matches(EmbeddedIndex.build("data", tempDir.toString()).getManifest()));
+
+        Path a = tempDir.resolve("data/a.txt");
+        Files.setLastModifiedTime(a, FileTime.fromMillis(Files.getLastModifiedTime(a).toMillis() + 60_000));
+        assertFalse(embedded.matches(EmbeddedIndex.build("data", tempDir.toString()).getManifest()));
+
+        EmbeddedIndex current = EmbeddedIndex.build("data", tempDir.toString());
+        Files.writeString(tempDir.resolve("data/c.txt"), "new");
+        assertFalse(current.matches(EmbeddedIndex.build("data", tempDir.toString()).getManifest()));
+    }
+}
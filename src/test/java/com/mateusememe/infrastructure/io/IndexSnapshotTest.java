@@ -0,0 +1,181 @@
+package com.mateusememe.infrastructure.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mateusememe.domain.entity.Indexer;
+
+class IndexSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path dataDir;
+    private IndexSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dataDir = Files.createDirectory(tempDir.resolve("data"));
+        Files.writeString(dataDir.resolve("file1.txt"), "Star Wars is a space opera");
+        Files.writeString(dataDir.resolve("file2.txt"), "Wars of the worlds");
+        snapshot = new IndexSnapshot(tempDir.resolve("snapshot"));
+    }
+
+    private Indexer buildAndSave() throws IOException {
+        SnapshotManifest manifest = SnapshotManifest.scan(dataDir.toString());
+        Indexer indexer = new Indexer();
+        new MovieFileReader(indexer).loadFiles(dataDir.toString());
+        snapshot.save(indexer, manifest);
+        return indexer;
+    }
+
+    @Test
+    @DisplayName("load should restore an index equivalent to the saved one")
+    void testSaveAndLoad() throws IOException {
+        Indexer original = buildAndSave();
+
+        Indexer restored = new Indexer();
+        assertTrue(snapshot.load(restored, SnapshotManifest.scan(dataDir.toString())));
+
+        assertEquals(original.search(new String[] { "wars" }), restored.search(new String[] { "wars" }));
+        assertEquals(Set.of(dataDir.resolve("file1.txt").toString()), restored.search(new String[] { "space" }));
+        assertTrue(restored.search(new String[] { "missing" }).isEmpty());
+    }
+
+    @Test
+    @DisplayName("load should restore term frequencies and document lengths")
+    void testSaveAndLoad_RankingStatistics() throws IOException {
+        Files.writeString(dataDir.resolve("file3.txt"), "Wars wars WARS");
+        Indexer original = buildAndSave();
+
+        Indexer restored = new Indexer();
+        assertTrue(snapshot.load(restored, SnapshotManifest.scan(dataDir.toString())));
+
+        int doc = restored.documentId(dataDir.resolve("file3.txt").toString());
+        assertEquals(3, restored.postings("wars").frequency(doc));
+        assertEquals(3, restored.documentLength(doc));
+        assertEquals(original.averageDocumentLength(), restored.averageDocumentLength());
+    }
+
+    @Test
+    @DisplayName("load should restore positions of a positional index")
+    void testSaveAndLoad_Positions() throws IOException {
+        SnapshotManifest manifest = SnapshotManifest.scan(dataDir.toString());
+        Indexer positional = new Indexer(true);
+        new MovieFileReader(positional).loadFiles(dataDir.toString());
+        snapshot.save(positional, manifest);
+
+        Indexer restored = new Indexer(true);
+        assertTrue(snapshot.load(restored, manifest));
+        assertFalse(snapshot.load(new Indexer(false), manifest));
+
+        assertEquals(Set.of(dataDir.resolve("file1.txt").toString()),
+                restored.searchPhrase(new String[] { "star", "wars" }, 0));
+    }
+
+    @Test
+    @DisplayName("load should refuse a snapshot when a file was modified")
+    void testLoad_StaleAfterModification() throws IOException {
+        buildAndSave();
+        Path file = dataDir.resolve("file2.txt");
+        Files.writeString(file, "War of the worlds remake");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 5_000));
+
+        assertFalse(snapshot.load(new Indexer(), SnapshotManifest.scan(dataDir.toString())));
+    }
+
+    @Test
+    @DisplayName("load should refuse a snapshot when a file was added")
+    void testLoad_StaleAfterAddition() throws IOException {
+        buildAndSave();
+        Files.writeString(dataDir.resolve("file3.txt"), "New movie");
+
+        assertFalse(snapshot.load(new Indexer(), SnapshotManifest.scan(dataDir.toString())));
+    }
+
+    @Test
+    @DisplayName("A truncated snapshot should be reported and leave the indexer empty, so the rebuild matches a clean build")
+    void testLoad_TruncatedThenRebuilt() throws IOException {
+        Files.writeString(dataDir.resolve("file3.txt"), "Wars wars WARS. Star Trek");
+        SnapshotManifest manifest = SnapshotManifest.scan(dataDir.toString());
+        Indexer clean = new Indexer(true);
+        new MovieFileReader(clean).loadFiles(dataDir.toString());
+        snapshot.save(clean, manifest);
+
+        Path file = tempDir.resolve("snapshot").resolve("index.bin");
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length * 2 / 3));
+
+        Indexer indexer = new Indexer(true);
+        IOException error = assertThrows(IOException.class, () -> snapshot.load(indexer, manifest));
+        assertTrue(error.getMessage().contains("Truncated"), error.getMessage());
+        assertEquals(0, indexer.documentCount());
+        assertEquals(0, indexer.termCount());
+
+        new MovieFileReader(indexer).loadFiles(dataDir.toString());
+        assertEquals(clean.documentCount(), indexer.documentCount());
+        assertEquals(clean.termCount(), indexer.termCount());
+        assertEquals(clean.postingCount(), indexer.postingCount());
+        for (String term : new String[] { "wars", "star", "trek", "worlds" }) {
+            assertEquals(clean.search(new String[] { term }), indexer.search(new String[] { term }), term);
+            for (int doc = 0; doc < clean.documentCount(); doc++) {
+                String name = clean.documentName(doc);
+                assertEquals(clean.postings(term).frequency(doc),
+                        indexer.postings(term).frequency(indexer.documentId(name)), term + " in " + name);
+            }
+        }
+        assertEquals(clean.searchPhrase(new String[] { "star", "trek" }, 0),
+                indexer.searchPhrase(new String[] { "star", "trek" }, 0));
+    }
+
+    @Test
+    @DisplayName("load should map a snapshot many times larger than one region")
+    void testSaveAndLoad_LargerThanRegion() throws IOException {
+        IndexSnapshot snapshot = new IndexSnapshot(tempDir.resolve("snapshot"), 1 << 12);
+        for (int i = 0; i < 300; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j < 200; j++)
+                text.append("word").append((i * 7 + j) % 997).append(j % 3 == 0 ? ". " : " ");
+            Files.writeString(dataDir.resolve("movie" + i + ".txt"), text.toString());
+        }
+        SnapshotManifest manifest = SnapshotManifest.scan(dataDir.toString());
+        Indexer original = new Indexer(true);
+        new MovieFileReader(original).loadFiles(dataDir.toString());
+        snapshot.save(original, manifest);
+        assertTrue(Files.size(tempDir.resolve("snapshot").resolve("index.bin")) > 64 << 12);
+
+        Indexer restored = new Indexer(true);
+        assertTrue(snapshot.load(restored, manifest));
+        assertEquals(original.termCount(), restored.termCount());
+        assertEquals(original.postingCount(), restored.postingCount());
+        for (int term = 0; term < 997; term += 31) {
+            String[] query = { "word" + term };
+            assertEquals(original.search(query), restored.search(query));
+        }
+        assertEquals(original.searchPhrase(new String[] { "word7", "word8" }, 0),
+                restored.searchPhrase(new String[] { "word7", "word8" }, 0));
+        String name = dataDir.resolve("movie42.txt").toString();
+        assertArrayEquals(original.sentences(original.documentId(name)),
+                restored.sentences(restored.documentId(name)));
+    }
+
+    @Test
+    @DisplayName("load should return false when no snapshot exists")
+    void testLoad_MissingSnapshot() throws IOException {
+        assertFalse(snapshot.load(new Indexer(), SnapshotManifest.scan(dataDir.toString())));
+    }
+}
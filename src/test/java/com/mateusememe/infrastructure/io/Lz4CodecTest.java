@@ -0,0 +1,94 @@
+package com.mateusememe.infrastructure.io;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class Lz4CodecTest {
+
+    private static byte[] roundTrip(byte[] raw) {
+        byte[] compressed = new byte[Lz4Codec.maxCompressedLength(raw.length) + 3];
+        int length = Lz4Codec.compress(raw, 0, raw.length, compressed, 3);
+        assertTrue(length <= Lz4Codec.maxCompressedLength(raw.length));
+
+        byte[] restored = new byte[raw.length + 2];
+        Lz4Codec.decompress(compressed, 3, length, restored, 2, raw.length);
+        byte[] result = new byte[raw.length];
+        System.arraycopy(restored, 2, result, 0, raw.length);
+        assertArrayEquals(raw, result);
+        return compressed;
+    }
+
+    private static int compressedLength(byte[] raw) {
+        return Lz4Codec.compress(raw, 0, raw.length, new byte[Lz4Codec.maxCompressedLength(raw.length)], 0);
+    }
+
+    @Test
+    @DisplayName("Text should survive a round trip and shrink")
+    void testRoundTrip_Text() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500; i++)
+            text.append("Movie ").append(i % 37).append(": a ação começa na galáxia distante. ");
+        byte[] raw = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        roundTrip(raw);
+        assertTrue(compressedLength(raw) < raw.length / 4, "compressed: " + compressedLength(raw));
+    }
+
+    @Test
+    @DisplayName("A reused match table should produce the same blocks as a fresh one")
+    void testCompress_ReusedTable() {
+        int[] table = Lz4Codec.newTable();
+        Random random = new Random(7);
+        for (int i = 0; i < 20; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j < 200 + random.nextInt(2000); j++)
+                text.append("cena ").append(random.nextInt(50)).append(' ');
+            byte[] raw = text.toString().getBytes(StandardCharsets.UTF_8);
+
+            byte[] fresh = new byte[Lz4Codec.maxCompressedLength(raw.length)];
+            byte[] reused = new byte[fresh.length];
+            int length = Lz4Codec.compress(raw, 0, raw.length, fresh, 0);
+            assertEquals(length, Lz4Codec.compress(raw, 0, raw.length, reused, 0, table));
+            assertArrayEquals(fresh, reused);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> Lz4Codec.compress(new byte[32], 0, 32, new byte[64], 0, new int[16]));
+    }
+
+    @Test
+    @DisplayName("Edge cases should survive a round trip: empty, tiny, runs, long literals and random bytes")
+    void testRoundTrip_EdgeCases() {
+        roundTrip(new byte[0]);
+        roundTrip("abc".getBytes(StandardCharsets.UTF_8));
+        roundTrip(new byte[100_000]);
+        roundTrip("abababababababababababababab".getBytes(StandardCharsets.UTF_8));
+
+        byte[] random = new byte[70_000];
+        new Random(42).nextBytes(random);
+        roundTrip(random);
+        assertTrue(compressedLength(random) <= Lz4Codec.maxCompressedLength(random.length));
+    }
+
+    @Test
+    @DisplayName("Decompress should reject malformed blocks and wrong lengths")
+    void testDecompress_Malformed() {
+        byte[] raw = "star wars star wars star wars star wars".getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = new byte[Lz4Codec.maxCompressedLength(raw.length)];
+        int length = Lz4Codec.compress(raw, 0, raw.length, compressed, 0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> Lz4Codec.decompress(compressed, 0, length, new byte[raw.length + 1], 0, raw.length + 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> Lz4Codec.decompress(compressed, 0, length - 1, new byte[raw.length], 0, raw.length));
+        byte[] badOffset = { 0x10, 'a', 0x05, 0x00, 0x00 };
+        assertThrows(IllegalArgumentException.class,
+                () -> Lz4Codec.decompress(badOffset, 0, badOffset.length, new byte[16], 0, 16));
+    }
+}
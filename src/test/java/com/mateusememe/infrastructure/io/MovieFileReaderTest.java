@@ -3,7 +3,10 @@ package com.mateusememe.infrastructure.io;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -50,6 +53,21 @@ class MovieFileReaderTest {
         assertTrue(result2.contains(file2.toString()));
     }
 
+    @Test
+    @DisplayName("loadFiles with several threads should index every file")
+    void testLoadFiles_Parallel() throws IOException {
+        MovieFileReader parallelReader = new MovieFileReader(indexer, 4);
+        for (int i = 0; i < 50; i++) {
+            Files.writeString(tempDir.resolve("movie" + i + ".txt"), "shared words and unique" + i);
+        }
+
+        parallelReader.loadFiles(tempDir.toString());
+
+        assertEquals(50, indexer.search(new String[] { "shared" }).size());
+        assertEquals(Set.of(tempDir.resolve("movie7.txt").toString()),
+                indexer.search(new String[] { "unique7" }));
+    }
+
     @Test
     @DisplayName("getSnippet should return correct sentence containing search term")
     void testGetSnippet() throws IOException {
@@ -93,6 +111,20 @@ class MovieFileReaderTest {
         assertEquals("Não há pré-visualização disponível.", snippet);
     }
 
+    @Test
+    @DisplayName("getSnippet should read the sentence located by the positional index")
+    void testGetSnippet_FromIndex() throws IOException {
+        Indexer positional = new Indexer(true);
+        MovieFileReader reader = new MovieFileReader(positional);
+        Path testFile = tempDir.resolve("test.txt");
+        Files.writeString(testFile, "JavaScript is not it.  Ação e drama.\nHere Java shines. Java again.");
+
+        reader.loadFiles(tempDir.toString());
+
+        assertEquals("Here Java shines.", reader.getSnippet(testFile.toString(), new String[] { "java" }));
+        assertEquals("Ação e drama.", reader.getSnippet(testFile.toString(), new String[] { "drama" }));
+    }
+
     @Test
     @DisplayName("getSnippet should handle IOException gracefully")
     void testGetSnippet_IOException() {
@@ -100,4 +132,63 @@ class MovieFileReaderTest {
 
         assertEquals("Não há pré-visualização disponível.", snippet);
     }
+
+    @Test
+    @DisplayName("refresh should re-index only added, modified and deleted files")
+    void testRefresh() throws IOException {
+        Path kept = tempDir.resolve("kept.txt");
+        Path modified = tempDir.resolve("modified.txt");
+        Path deleted = tempDir.resolve("deleted.txt");
+        Files.writeString(kept, "old movie");
+        Files.writeString(modified, "old movie");
+        Files.writeString(deleted, "old movie");
+        SnapshotManifest before = SnapshotManifest.scan(tempDir.toString());
+        movieFileReader.loadFiles(tempDir.toString());
+        int keptId = indexer.documentId(kept.toString());
+
+        Files.writeString(modified, "new release of an old movie");
+        Files.setLastModifiedTime(modified, FileTime.fromMillis(Files.getLastModifiedTime(modified).toMillis() + 5_000));
+        Files.delete(deleted);
+        Path added = tempDir.resolve("added.txt");
+        Files.writeString(added, "new movie");
+
+        int changed = movieFileReader.refresh(before, SnapshotManifest.scan(tempDir.toString()));
+
+        assertEquals(3, changed);
+        assertEquals(keptId, indexer.documentId(kept.toString()));
+        assertEquals(Set.of(modified.toString(), added.toString()), indexer.search(new String[] { "new" }));
+        assertEquals(Set.of(kept.toString(), modified.toString(), added.toString()),
+                indexer.search(new String[] { "movie" }));
+    }
+
+    @Test
+    @DisplayName("watch should pick up files written after it started")
+    void testWatch() throws Exception {
+        Files.writeString(tempDir.resolve("first.txt"), "first movie");
+        SnapshotManifest baseline = SnapshotManifest.scan(tempDir.toString());
+        movieFileReader.loadFiles(tempDir.toString());
+
+        CountDownLatch updated = new CountDownLatch(1);
+        Thread watcher = new Thread(() -> {
+            try {
+                movieFileReader.watch(tempDir.toString(), baseline, count -> updated.countDown());
+            } catch (InterruptedException | IOException e) {
+                // stopped by the test
+            }
+        });
+        watcher.start();
+        try {
+            Path subdirectory = Files.createDirectory(tempDir.resolve("more"));
+            Thread.sleep(300);
+            Files.writeString(subdirectory.resolve("second.txt"), "second movie");
+
+            assertTrue(updated.await(10, TimeUnit.SECONDS));
+            synchronized (indexer) {
+                assertEquals(2, indexer.search(new String[] { "movie" }).size());
+            }
+        } finally {
+            watcher.interrupt();
+            watcher.join();
+        }
+    }
 }
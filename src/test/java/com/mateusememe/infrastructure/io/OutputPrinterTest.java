@@ -1,7 +1,14 @@
 package com.mateusememe.infrastructure.io;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -47,4 +54,34 @@ class OutputPrinterTest {
 
         assertTrue(result.contains("file1.txt"));
     }
+
+    @Test
+    @DisplayName("firstByName should select the alphabetically first names without a full sort")
+    void testFirstByName() {
+        Set<String> result = new HashSet<>();
+        for (int i = 999; i >= 0; i--)
+            result.add(String.format("file%04d.txt", i));
+
+        assertEquals(List.of("file0000.txt", "file0001.txt", "file0002.txt"), OutputPrinter.firstByName(result, 3));
+        assertEquals(1000, OutputPrinter.firstByName(result, Integer.MAX_VALUE).size());
+        assertEquals(List.of("file0000.txt"), OutputPrinter.firstByName(new TreeSet<>(result), 1));
+        assertTrue(OutputPrinter.firstByName(result, 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Machine formats should print one escaped record per file and nothing else")
+    void testPrintSimple_MachineFormats() {
+        Set<String> result = Set.of("b.txt", "a\t\"x\".txt");
+        ByteArrayOutputStream jsonl = new ByteArrayOutputStream();
+        ByteArrayOutputStream tsv = new ByteArrayOutputStream();
+
+        new OutputPrinter(indexer, movieFileReader, new PrintStream(jsonl, false, StandardCharsets.UTF_8),
+                OutputPrinter.Format.JSONL).printSimple(result, "star", 10, 0.5);
+        new OutputPrinter(indexer, movieFileReader, new PrintStream(tsv, false, StandardCharsets.UTF_8),
+                OutputPrinter.Format.TSV).printSimple(result, "star", 10, 0.5);
+
+        assertEquals(List.of("{\"query\":\"star\",\"file\":\"a\\t\\\"x\\\".txt\"}",
+                "{\"query\":\"star\",\"file\":\"b.txt\"}"), jsonl.toString(StandardCharsets.UTF_8).lines().toList());
+        assertEquals(List.of("star\ta \"x\".txt", "star\tb.txt"), tsv.toString(StandardCharsets.UTF_8).lines().toList());
+    }
 }
@@ -0,0 +1,107 @@
+package com.mateusememe.infrastructure.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mateusememe.domain.analysis.Analyzer;
+import com.mateusememe.domain.entity.Indexer;
+
+class SegmentedIndexBuilderTest {
+    private static final String[] WORDS = { "star", "wars", "trek", "ação", "space", "opera", "empire", "jedi" };
+
+    @TempDir
+    Path tempDir;
+
+    private Path dataDir;
+    private IndexSnapshot snapshot;
+    private SnapshotManifest manifest;
+    private Indexer expected;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dataDir = Files.createDirectory(tempDir.resolve("data"));
+        for (int i = 0; i < 60; i++) {
+            StringBuilder text = new StringBuilder("Movie number").append(i).append(". ");
+            for (int j = 0; j <= i % 7; j++)
+                text.append(WORDS[(i + j * 3) % WORDS.length]).append(' ').append(WORDS[(i * j) % WORDS.length]);
+            Files.writeString(dataDir.resolve("movie" + i + ".txt"), text.append(". The end.").toString());
+        }
+        snapshot = new IndexSnapshot(tempDir.resolve("snapshot"));
+        manifest = SnapshotManifest.scan(dataDir.toString());
+        expected = new Indexer(true);
+        new MovieFileReader(expected).loadFiles(dataDir.toString());
+    }
+
+    private Indexer loadSegmented(int threads, long memoryBudget) throws IOException {
+        Indexer indexer = new Indexer(true);
+        new MovieFileReader(indexer, threads).loadFilesSegmented(dataDir.toString(), file -> true, snapshot, manifest,
+                memoryBudget);
+        return indexer;
+    }
+
+    private void assertSameIndex(Indexer actual) {
+        assertEquals(expected.liveDocumentCount(), actual.liveDocumentCount());
+        assertEquals(expected.termCount(), actual.termCount());
+        assertEquals(expected.postingCount(), actual.postingCount());
+        assertEquals(expected.averageDocumentLength(), actual.averageDocumentLength(), 1e-9);
+        for (String word : WORDS) {
+            assertEquals(expected.search(new String[] { word }), actual.search(new String[] { word }), word);
+            assertEquals(expected.searchPhrase(new String[] { "star", word }, 0),
+                    actual.searchPhrase(new String[] { "star", word }, 0), word);
+        }
+        for (int doc = 0; doc < actual.documentCount(); doc++) {
+            String name = actual.documentName(doc);
+            int original = expected.documentId(name);
+            assertEquals(expected.documentLength(original), actual.documentLength(doc), name);
+            assertArrayEquals(expected.sentences(original), actual.sentences(doc), name);
+            assertEquals(expected.countOccurrences(name, WORDS), actual.countOccurrences(name, WORDS), name);
+        }
+    }
+
+    @Test
+    @DisplayName("build should spill many segments under a small budget and merge them into an identical index")
+    void testBuild_SmallBudget() throws IOException {
+        SegmentedIndexBuilder builder = new SegmentedIndexBuilder(1, 2_000, true, Analyzer.STANDARD,
+                tempDir.resolve("segments"));
+        int segments;
+        try (Stream<Path> files = Files.list(dataDir)) {
+            segments = builder.build(files.toList(), snapshot, manifest);
+        }
+        assertTrue(segments > 10, "segments: " + segments);
+
+        Indexer indexer = new Indexer(true);
+        assertTrue(snapshot.load(indexer, manifest));
+        assertSameIndex(indexer);
+        try (Stream<Path> left = Files.list(tempDir.resolve("segments"))) {
+            assertEquals(0, left.count());
+        }
+    }
+
+    @Test
+    @DisplayName("loadFilesSegmented should give the same index with several threads and with one segment")
+    void testLoadFilesSegmented() throws IOException {
+        assertSameIndex(loadSegmented(4, 5_000));
+        assertSameIndex(loadSegmented(1, Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("the merged snapshot should serve indexed snippets")
+    void testLoadFilesSegmented_Snippets() throws IOException {
+        Indexer indexer = loadSegmented(3, 3_000);
+        MovieFileReader reader = new MovieFileReader(indexer);
+        String file = dataDir.resolve("movie13.txt").toString();
+
+        assertEquals(new MovieFileReader(expected).getSnippet(file, new String[] { "number13" }),
+                reader.getSnippet(file, new String[] { "number13" }));
+    }
+}
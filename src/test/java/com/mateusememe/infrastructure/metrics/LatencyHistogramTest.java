@@ -0,0 +1,51 @@
+package com.mateusememe.infrastructure.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("bucketOf should keep every value within its bucket's range")
+    void testBuckets() {
+        long[] values = { 0, 1, 63, 64, 65, 127, 128, 1_000, 999_999, 1L << 40, Long.MAX_VALUE };
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            long highest = LatencyHistogram.highestValueOf(bucket);
+            assertTrue(highest >= value, "value " + value);
+            assertTrue(highest - value <= value / 64, "value " + value);
+            if (bucket > 0)
+                assertTrue(LatencyHistogram.highestValueOf(bucket - 1) < value, "value " + value);
+        }
+    }
+
+    @Test
+    @DisplayName("getValueAtPercentile should be within the histogram precision")
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10_000; value++)
+            histogram.record(value * 1_000);
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMaxNanos());
+        assertEquals(5_000_500.0, histogram.getMeanNanos(), 0.001);
+        assertEquals(5_000_000, histogram.getValueAtPercentile(50), 5_000_000 / 50.0);
+        assertEquals(9_900_000, histogram.getValueAtPercentile(99), 9_900_000 / 50.0);
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    @DisplayName("an empty histogram should report zeros and negative values count as zero")
+    void testEmptyAndNegative() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMeanNanos());
+
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+}
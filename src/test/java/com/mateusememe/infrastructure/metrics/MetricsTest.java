@@ -0,0 +1,79 @@
+package com.mateusememe.infrastructure.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MetricsTest {
+
+    @Test
+    @DisplayName("a span should record its phase once when closed")
+    @SuppressWarnings("try")
+    void testSpan() throws InterruptedException {
+        Metrics metrics = new Metrics();
+        try (Metrics.Span span = metrics.start(Metrics.Phase.SEARCH)) {
+            Thread.sleep(2);
+        }
+
+        assertEquals(1, metrics.histogram(Metrics.Phase.SEARCH).getCount());
+        assertTrue(metrics.histogram(Metrics.Phase.SEARCH).getTotalNanos() >= 2_000_000);
+        assertEquals(0, metrics.histogram(Metrics.Phase.RANK).getCount());
+    }
+
+    @Test
+    @DisplayName("time should record one span per call, also when the timed code throws")
+    void testTime() {
+        Metrics metrics = new Metrics();
+        assertEquals(42, metrics.time(Metrics.Phase.RANK, () -> 42));
+        metrics.time(Metrics.Phase.RANK, () -> metrics.add(Metrics.Counter.FILES, 1));
+        assertThrows(IOException.class, () -> metrics.time(Metrics.Phase.RANK, () -> {
+            throw new IOException("failed");
+        }));
+
+        assertEquals(3, metrics.histogram(Metrics.Phase.RANK).getCount());
+        assertEquals(1, metrics.get(Metrics.Counter.FILES));
+    }
+
+    @Test
+    @DisplayName("printReport should list the phases that ran and every counter")
+    void testPrintReport() {
+        Metrics metrics = new Metrics();
+        metrics.histogram(Metrics.Phase.READ).record(1_500_000);
+        metrics.add(Metrics.Counter.FILES, 3);
+        metrics.add(Metrics.Counter.BYTES, 1024);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        metrics.printReport(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        String report = buffer.toString(StandardCharsets.UTF_8);
+
+        assertTrue(report.contains("read"), report);
+        assertFalse(report.contains("snippet"), report);
+        assertTrue(report.contains("1.500"), report);
+        assertTrue(report.contains("files=3 bytes=1024 tokens=0 terms=0 postings=0"), report);
+    }
+
+    @Test
+    @DisplayName("toPrometheus should expose a summary per phase and the counters")
+    void testToPrometheus() {
+        Metrics metrics = new Metrics();
+        metrics.histogram(Metrics.Phase.SEARCH).record(2_000_000);
+        metrics.add(Metrics.Counter.TERMS, 42);
+
+        String text = metrics.toPrometheus();
+
+        assertTrue(text.contains("# TYPE searchit_phase_seconds summary\n"), text);
+        assertTrue(text.contains("searchit_phase_seconds_count{phase=\"search\"} 1\n"), text);
+        assertTrue(text.contains("searchit_phase_seconds_sum{phase=\"search\"} 0.002000000\n"), text);
+        assertTrue(text.contains("searchit_phase_seconds{phase=\"search\",quantile=\"0.99\"} 0.002"), text);
+        assertTrue(text.contains("searchit_phase_seconds_count{phase=\"walk\"} 0\n"), text);
+        assertTrue(text.contains("searchit_terms_total 42\n"), text);
+    }
+}
@@ -0,0 +1,211 @@
+package com.mateusememe.infrastructure.shard;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mateusememe.application.usecase.SearchMovies;
+import com.mateusememe.domain.entity.Indexer;
+import com.mateusememe.domain.ranking.ScoredDocument;
+import com.mateusememe.infrastructure.http.SearchServer;
+import com.mateusememe.infrastructure.io.MovieFileReader;
+import com.mateusememe.infrastructure.io.OutputPrinter;
+
+class ShardCoordinatorTest {
+    private static final int SHARDS = 3;
+
+    @TempDir
+    Path tempDir;
+
+    private LocalShard single;
+    private final List<Shard> localShards = new ArrayList<>();
+    private final List<SearchServer> servers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (int i = 0; i < 40; i++) {
+            String text = "movie number" + i + (i % 2 == 0 ? " star wars" : " star trek") + (i % 5 == 0 ? " wars" : "");
+            Files.writeString(tempDir.resolve("movie" + i + ".txt"), text);
+        }
+        single = load(file -> true);
+        for (int shard = 0; shard < SHARDS; shard++)
+            localShards.add(load(ShardCoordinator.partition(shard, SHARDS)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(SearchServer::stop);
+    }
+
+    private LocalShard load(Predicate<Path> filter) throws IOException {
+        Indexer indexer = new Indexer(true);
+        MovieFileReader reader = new MovieFileReader(indexer);
+        reader.loadFiles(tempDir.toString(), filter);
+        return new LocalShard(new SearchMovies(indexer), indexer, reader);
+    }
+
+    private static List<String> names(ShardResult result) {
+        List<String> names = new ArrayList<>();
+        for (ScoredDocument document : result.getDocuments())
+            names.add(document.name());
+        return names;
+    }
+
+    @Test
+    @DisplayName("partition should assign every file to exactly one shard")
+    void testPartition() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            for (Path file : files.toList()) {
+                int matches = 0;
+                for (int shard = 0; shard < SHARDS; shard++)
+                    matches += ShardCoordinator.partition(shard, SHARDS).test(file) ? 1 : 0;
+                assertEquals(1, matches, file.toString());
+                assertTrue(ShardCoordinator.partition(ShardCoordinator.shardOf(file.toString(), SHARDS), SHARDS)
+                        .test(file));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("search should match a single index for simple queries and apply the limit globally")
+    void testSearch_SameAsSingleIndex() throws IOException {
+        try (ShardCoordinator coordinator = new ShardCoordinator(localShards)) {
+            for (String query : new String[] { "star", "wars", "star -wars", "trek OR wars", "number7", "missing" }) {
+                for (int limit : new int[] { 1, 5, Integer.MAX_VALUE }) {
+                    ShardRequest request = new ShardRequest(query, limit, false, false, 0, 0);
+                    ShardResult expected = single.search(request);
+                    ShardResult actual = coordinator.search(request);
+                    assertEquals(expected.getTotal(), actual.getTotal(), query);
+                    assertEquals(names(expected), names(actual), query + " -l " + limit);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("search should return verbose results best first with their snippets")
+    void testSearch_Verbose() throws IOException {
+        try (ShardCoordinator coordinator = new ShardCoordinator(localShards)) {
+            ShardResult result = coordinator.search(new ShardRequest("wars", 4, true, false, 0, 0));
+
+            assertEquals(24, result.getTotal());
+            assertEquals(4, result.getDocuments().size());
+            for (int i = 1; i < result.getDocuments().size(); i++)
+                assertTrue(result.getDocuments().get(i - 1).score() >= result.getDocuments().get(i).score());
+            assertTrue(result.getDocuments().get(0).name().matches(".*movie\\d*0\\.txt"));
+            assertEquals(4, result.getSnippets().size());
+            for (ScoredDocument document : result.getDocuments())
+                assertTrue(result.getSnippets().containsKey(document.name()));
+        }
+    }
+
+    @Test
+    @DisplayName("verbose search should score with the whole collection's statistics, like a single index")
+    void testSearch_VerboseSameAsSingleIndex() throws IOException {
+        try (ShardCoordinator coordinator = new ShardCoordinator(localShards)) {
+            for (String query : new String[] { "wars", "star trek", "wars OR number1*", "numbr12" }) {
+                for (int limit : new int[] { 3, Integer.MAX_VALUE }) {
+                    int fuzzy = query.equals("numbr12") ? 1 : 0;
+                    ShardRequest request = new ShardRequest(query, limit, true, false, 0, fuzzy);
+                    List<ScoredDocument> expected = single.search(request).getDocuments();
+                    List<ScoredDocument> actual = coordinator.search(request).getDocuments();
+                    assertEquals(expected.size(), actual.size(), query);
+                    for (int i = 0; i < expected.size(); i++) {
+                        assertEquals(expected.get(i).name(), actual.get(i).name(), query + " -l " + limit);
+                        assertEquals(expected.get(i).score(), actual.get(i).score(), 1e-9, query);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("merge should interleave sorted partials and stop at the limit")
+    void testMerge() {
+        ShardResult first = new ShardResult(3, List.of(new ScoredDocument("a", 3, 1), new ScoredDocument("d", 1, 1)),
+                Map.of("a", "snippet a", "d", "snippet d"));
+        ShardResult second = new ShardResult(5, List.of(new ScoredDocument("b", 2, 1), new ScoredDocument("c", 2, 1)),
+                Map.of("b", "snippet b", "c", "snippet c"));
+
+        ShardResult merged = ShardCoordinator.merge(List.of(first, second), 3,
+                (a, b) -> Double.compare(b.score(), a.score()) != 0 ? Double.compare(b.score(), a.score())
+                        : a.name().compareTo(b.name()));
+
+        assertEquals(8, merged.getTotal());
+        assertEquals(List.of("a", "b", "c"), names(merged));
+        assertEquals(Map.of("a", "snippet a", "b", "snippet b", "c", "snippet c"), merged.getSnippets());
+    }
+
+    @Test
+    @DisplayName("search should give the same results through shard servers as in process")
+    void testSearch_RemoteShards() throws IOException {
+        HttpClient client = HttpClient.newHttpClient();
+        List<Shard> remote = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            Indexer indexer = new Indexer(true);
+            MovieFileReader reader = new MovieFileReader(indexer);
+            reader.loadFiles(tempDir.toString(), ShardCoordinator.partition(shard, SHARDS));
+            SearchServer server = new SearchServer(new SearchMovies(indexer), indexer, reader,
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            server.start();
+            servers.add(server);
+            remote.add(new RemoteShard(client, "localhost:" + server.port()));
+        }
+
+        try (ShardCoordinator local = new ShardCoordinator(localShards);
+                ShardCoordinator coordinator = new ShardCoordinator(remote)) {
+            for (boolean verbose : new boolean[] { false, true }) {
+                ShardRequest request = new ShardRequest("star (wars OR trek)", 7, verbose, false, 0, 0);
+                ShardResult expected = local.search(request);
+                ShardResult actual = coordinator.search(request);
+                assertEquals(expected.getTotal(), actual.getTotal());
+                assertEquals(names(expected), names(actual));
+                if (verbose) {
+                    assertEquals(expected.getSnippets(), actual.getSnippets());
+                    for (int i = 0; i < expected.getDocuments().size(); i++)
+                        assertEquals(expected.getDocuments().get(i).score(), actual.getDocuments().get(i).score(),
+                                1e-4); // TSV carries four decimals
+                }
+            }
+
+            ShardResult phrase = coordinator.search(new ShardRequest("star wars", 100, false, true, 0, 0));
+            assertEquals(20, phrase.getTotal());
+            assertThrows(IllegalArgumentException.class,
+                    () -> coordinator.search(new ShardRequest("star (wars", 10, false, false, 0, 0)));
+        }
+    }
+
+    @Test
+    @DisplayName("print should write merged results like a single index")
+    void testPrint() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ShardCoordinator coordinator = new ShardCoordinator(localShards)) {
+            coordinator.search(new ShardRequest("number7", 10, false, false, 0, 0)).print(
+                    new OutputPrinter(new PrintStream(buffer, true, StandardCharsets.UTF_8), OutputPrinter.Format.TEXT),
+                    "number7", new String[] { "number7" }, false, 1.0);
+        }
+        String text = buffer.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("Foram encontradas 1 ocorrências"), text);
+        assertTrue(text.contains("movie7.txt"), text);
+    }
+}